@@ -0,0 +1,50 @@
+package com.example.converge.bench;
+
+import com.example.converge.audit.AuditEvent;
+import com.example.converge.audit.AuditLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/** What a sale thread pays per audit event: building and redacting it, then one offer into the ring. */
+@State(Scope.Benchmark)
+public class AuditBenchmark {
+
+    private AuditLog audit;
+
+    @Setup
+    public void setUp() {
+        Fixtures.silenceAuditLog();
+        audit = new AuditLog(Fixtures.properties(), new SimpleMeterRegistry());
+    }
+
+    @TearDown
+    public void tearDown() {
+        audit.destroy();
+    }
+
+    @Benchmark
+    public void publish() {
+        audit.publish(request());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void publishContended() {
+        audit.publish(request());
+    }
+
+    private static AuditEvent request() {
+        return AuditEvent.of("converge.request")
+            .with("invoice", "INV-1001")
+            .with("amount", "10.00")
+            .with("merchantId", "0034571")
+            .with("cardNumber", "4111111111111111")
+            .with("cvv", "123")
+            .with("attempt", 0);
+    }
+}
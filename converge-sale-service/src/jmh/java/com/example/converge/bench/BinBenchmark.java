@@ -0,0 +1,59 @@
+package com.example.converge.bench;
+
+import com.example.converge.bin.BinInfo;
+import com.example.converge.bin.BinService;
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** Local BIN screening against a table of 100k ranges, the cost a sale pays instead of a gateway round trip. */
+@State(Scope.Benchmark)
+public class BinBenchmark {
+
+    private Path file;
+    private BinService binService;
+    private String hit;
+    private String miss;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("bins", ".csv");
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < 100_000; i++) {
+                int bin = 40_000_000 + i * 97;
+                out.write(bin + "," + (bin + 50) + ",," + (i % 3 == 0 ? "D" : "C") + "," + (i % 7 == 0 ? "Y" : "N") + ",US\n");
+            }
+        }
+        ConvergeProperties properties = Fixtures.properties();
+        properties.getBin().setFile(file.toString());
+        binService = new BinService(null, new ConvergeResponseDecoder(), properties, new SimpleMeterRegistry());
+        hit = "4100002000000000";
+        miss = "5555555555554444";
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        binService.destroy();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public BinInfo lookupHit() {
+        return binService.lookup(hit);
+    }
+
+    @Benchmark
+    public BinInfo lookupMiss() {
+        return binService.lookup(miss);
+    }
+}
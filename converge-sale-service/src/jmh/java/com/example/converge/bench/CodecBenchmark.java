@@ -0,0 +1,49 @@
+package com.example.converge.bench;
+
+import com.example.converge.codec.ConvergeRequestEncoder;
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.xml.ConvergeSaleXmlRequest;
+import com.example.converge.dto.xml.ConvergeSaleXmlResponse;
+import com.example.converge.mapper.ConvergeMapper;
+import com.example.converge.merchant.MerchantRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/** The wire format on its own: the form-encoded request body and the XML response. */
+@State(Scope.Benchmark)
+public class CodecBenchmark {
+
+    private ConvergeRequestEncoder encoder;
+    private ConvergeResponseDecoder decoder;
+    private ConvergeSaleXmlRequest xmlRequest;
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+    @Setup
+    public void setUp() {
+        ConvergeProperties properties = Fixtures.properties();
+        encoder = new ConvergeRequestEncoder(new MerchantRegistry(properties, new SimpleMeterRegistry()));
+        decoder = new ConvergeResponseDecoder();
+        xmlRequest = ConvergeMapper.toXmlRequest(Fixtures.saleRequest(), properties);
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        body.reset();
+        encoder.contentLength(xmlRequest);
+        encoder.encode(xmlRequest, body);
+        return body.size();
+    }
+
+    @Benchmark
+    public ConvergeSaleXmlResponse decode() {
+        return decoder.decode(new ByteArrayInputStream(Fixtures.APPROVAL_XML));
+    }
+}
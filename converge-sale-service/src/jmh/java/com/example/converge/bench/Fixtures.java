@@ -0,0 +1,56 @@
+package com.example.converge.bench;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.request.SaleRequest;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+
+/** Shared inputs so every benchmark measures the same sale. */
+final class Fixtures {
+
+    static final String SALE_JSON = """
+        {"amount":"10.00","currency":"USD","cardNumber":"4111111111111111","expMonth":"12","expYear":"%d",\
+        "cvv":"123","cardHolderName":"Jane Q Doe","address":"1 Main St","postalCode":"12345"}""".formatted(Year.now().getValue() + 5);
+
+    static final byte[] APPROVAL_XML = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?><txn>"
+        + "<ssl_result>0</ssl_result><ssl_result_message>APPROVAL</ssl_result_message><ssl_txn_id>010203AB-1234</ssl_txn_id>"
+        + "<ssl_approval_code>CVI877</ssl_approval_code><ssl_avs_response>Y</ssl_avs_response><ssl_cvv2_response>M</ssl_cvv2_response>"
+        + "<ssl_txn_time>10/16/2026 01:02:03 PM</ssl_txn_time><ssl_card_type>CREDITCARD</ssl_card_type><ssl_amount>10.00</ssl_amount>"
+        + "<ssl_card_number>41**********1111</ssl_card_number><ssl_issuer_response>00</ssl_issuer_response></txn>")
+        .getBytes(StandardCharsets.UTF_8);
+
+    private Fixtures() {
+    }
+
+    static ConvergeProperties properties() {
+        ConvergeProperties properties = new ConvergeProperties();
+        properties.setBaseUrl("http://converge.invalid/VirtualMerchantDemo/processxml.do");
+        properties.setSslMerchantId("0034571");
+        properties.setSslUserId("apiuser582811");
+        properties.setSslPin("RLTDFKTZFWZY331FRGCVNVTO3EPQJQ9L6M06BJZUG2D2AUV809RLEO0V0I3ZB3KL");
+        return properties;
+    }
+
+    /** Audit lines would otherwise go to the console, which is not the cost being measured. */
+    static void silenceAuditLog() {
+        ((Logger) LoggerFactory.getLogger("converge.audit")).setLevel(Level.OFF);
+    }
+
+    static SaleRequest saleRequest() {
+        SaleRequest request = new SaleRequest();
+        request.setAmount("10.00");
+        request.setCurrency("USD");
+        request.setCardNumber("4111111111111111");
+        request.setExpMonth("12");
+        request.setExpYear(String.valueOf(Year.now().getValue() + 5));
+        request.setCvv("123");
+        request.setCardHolderName("Jane Q Doe");
+        request.setAddress("1 Main St");
+        request.setPostalCode("12345");
+        return request;
+    }
+}
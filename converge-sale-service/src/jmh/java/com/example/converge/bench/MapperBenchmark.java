@@ -0,0 +1,40 @@
+package com.example.converge.bench;
+
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.request.SaleRequest;
+import com.example.converge.dto.response.SaleResponse;
+import com.example.converge.dto.xml.ConvergeSaleXmlRequest;
+import com.example.converge.dto.xml.ConvergeSaleXmlResponse;
+import com.example.converge.mapper.ConvergeMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private ConvergeProperties properties;
+    private SaleRequest request;
+    private ConvergeSaleXmlResponse xmlResponse;
+
+    @Setup
+    public void setUp() {
+        properties = Fixtures.properties();
+        request = Fixtures.saleRequest();
+        xmlResponse = new ConvergeResponseDecoder().decode(new ByteArrayInputStream(Fixtures.APPROVAL_XML));
+    }
+
+    @Benchmark
+    public ConvergeSaleXmlRequest toXmlRequest() {
+        return ConvergeMapper.toXmlRequest(request, properties);
+    }
+
+    @Benchmark
+    public SaleResponse toSaleResponse() {
+        return ConvergeMapper.toSaleResponse(xmlResponse);
+    }
+}
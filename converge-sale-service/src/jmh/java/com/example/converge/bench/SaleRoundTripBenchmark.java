@@ -0,0 +1,117 @@
+package com.example.converge.bench;
+
+import com.example.converge.admission.AdmissionControl;
+import com.example.converge.audit.AuditLog;
+import com.example.converge.bin.BinService;
+import com.example.converge.capture.CaptureQueue;
+import com.example.converge.codec.ConvergeRequestEncoder;
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.controller.SaleController;
+import com.example.converge.exception.ApiExceptionHandler;
+import com.example.converge.idempotency.IdempotencyService;
+import com.example.converge.journal.SaleJournal;
+import com.example.converge.merchant.MerchantRegistry;
+import com.example.converge.service.AsyncConvergeClient;
+import com.example.converge.service.ConvergeClient;
+import com.example.converge.service.RetryEngine;
+import com.example.converge.service.SaleMetrics;
+import com.example.converge.service.SaleService;
+import com.example.converge.service.TransactionLookupService;
+import com.example.converge.service.UpstreamBulkhead;
+import com.example.converge.service.UpstreamGuard;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Controller, validation, service, mapper and codec in process, against a transport that answers
+ * every request with a canned approval. Everything except the network is measured.
+ */
+@State(Scope.Benchmark)
+public class SaleRoundTripBenchmark {
+
+    private MockMvc mockMvc;
+    private Path journalDir;
+    private SaleJournal journal;
+    private AuditLog audit;
+    private CaptureQueue captures;
+
+    @Setup
+    public void setUp() throws IOException {
+        ConvergeProperties properties = Fixtures.properties();
+        MeterRegistry registry = new SimpleMeterRegistry();
+        journalDir = Files.createTempDirectory("journal");
+        properties.getJournal().setDir(journalDir.toString());
+        journal = new SaleJournal(properties, registry);
+        Fixtures.silenceAuditLog();
+        audit = new AuditLog(properties, registry);
+        ClientHttpRequestFactory stubTransport = (uri, method) -> {
+            MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+            request.setResponse(new MockClientHttpResponse(Fixtures.APPROVAL_XML, HttpStatus.OK));
+            return request;
+        };
+        MerchantRegistry merchants = new MerchantRegistry(properties, registry);
+        ConvergeRequestEncoder encoder = new ConvergeRequestEncoder(merchants);
+        ConvergeResponseDecoder decoder = new ConvergeResponseDecoder();
+        SaleMetrics metrics = new SaleMetrics(registry);
+        UpstreamGuard guard = new UpstreamGuard(properties, registry);
+        RetryEngine retryEngine = new RetryEngine(properties, registry);
+        ConvergeClient client = new ConvergeClient(new RestTemplate(stubTransport), properties, encoder, decoder, metrics, guard, retryEngine, journal, audit);
+        captures = new CaptureQueue(client, decoder, merchants, properties, new ObjectMapper(), registry);
+        SaleService saleService = new SaleService(
+            client,
+            new AsyncConvergeClient(HttpClient.newHttpClient(), properties, encoder, decoder, metrics, guard, retryEngine, journal, audit),
+            new UpstreamBulkhead(properties, registry),
+            new IdempotencyService(properties, new ObjectMapper(), registry),
+            metrics,
+            new BinService(client, decoder, properties, registry),
+            merchants,
+            new TransactionLookupService(client, decoder, merchants, properties, registry),
+            captures);
+        mockMvc = MockMvcBuilders.standaloneSetup(new SaleController(saleService, new AdmissionControl(properties, registry)))
+            .setControllerAdvice(new ApiExceptionHandler())
+            .build();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.destroy();
+        audit.destroy();
+        captures.destroy();
+        try (Stream<Path> files = Files.list(journalDir)) {
+            for (Path file : files.toList()) Files.delete(file);
+        }
+        Files.delete(journalDir);
+    }
+
+    @Benchmark
+    public MvcResult sale() throws Exception {
+        return mockMvc.perform(post("/api/v1/payments/sale")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(Fixtures.SALE_JSON))
+            .andReturn();
+    }
+}
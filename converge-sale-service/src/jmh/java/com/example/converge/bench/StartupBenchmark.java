@@ -0,0 +1,169 @@
+package com.example.converge.bench;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+
+/**
+ * Cold start of the packaged service: each invocation launches the jar in a fresh JVM against a stub
+ * Converge that approves everything, and measures until health reports UP, sale-path warm-up
+ * included ({@code ready}), or until the first sale comes back ({@code firstSale}). {@code cds} runs
+ * the extracted jar with the archive from the cds profile; {@code aot} needs a jar built with the
+ * aot profile. Build first with
+ * {@code mvn -Paot,cds,jmh verify}, or point {@code -Dconverge.bench.build.dir} at another target directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StartupBenchmark {
+
+    private static final Duration STARTUP_LIMIT = Duration.ofSeconds(120);
+
+    @Param({"jar", "cds"})
+    public String mode;
+
+    @Param({"false", "true"})
+    public boolean aot;
+
+    private HttpServer converge;
+    private HttpClient http;
+    private Path journalDir;
+    private List<String> command;
+    private int port;
+    private Process app;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        converge = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        converge.createContext("/", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().set("Content-Type", "application/xml");
+            exchange.sendResponseHeaders(200, Fixtures.APPROVAL_XML.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(Fixtures.APPROVAL_XML);
+            }
+        });
+        converge.start();
+        http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        journalDir = Files.createTempDirectory("startup-journal");
+
+        Path buildDir = Path.of(System.getProperty("converge.bench.build.dir", "target/jmh"));
+        Path jar = applicationJar(mode.equals("cds") ? buildDir.resolve("cds") : buildDir);
+        if (aot && !hasAotInitializer(jar)) {
+            throw new IllegalStateException(jar + " was built without the aot profile");
+        }
+        command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        if (mode.equals("cds")) {
+            Path archive = jar.resolveSibling("application.jsa");
+            if (!Files.exists(archive)) throw new IllegalStateException(archive + " not found; build with the cds profile");
+            command.add("-XX:SharedArchiveFile=" + archive);
+        }
+        command.add("-Dspring.aot.enabled=" + aot);
+        command.addAll(List.of("-jar", jar.toString(),
+            "--converge.base-url=http://127.0.0.1:" + converge.getAddress().getPort() + "/processxml.do",
+            "--converge.journal.dir=" + journalDir,
+            "--logging.level.root=WARN"));
+    }
+
+    @Setup(Level.Invocation)
+    public void launch() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        List<String> args = new ArrayList<>(command);
+        args.add("--server.port=" + port);
+        app = new ProcessBuilder(args).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() throws InterruptedException {
+        app.destroy();
+        if (!app.waitFor(30, TimeUnit.SECONDS)) {
+            app.destroyForcibly().waitFor();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        converge.stop(0);
+        try (Stream<Path> files = Files.list(journalDir)) {
+            for (Path file : files.toList()) Files.delete(file);
+        }
+        Files.delete(journalDir);
+    }
+
+    @Benchmark
+    public String ready() throws Exception {
+        return untilAnswered(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/actuator/health")).GET().build());
+    }
+
+    @Benchmark
+    public String firstSale() throws Exception {
+        return untilAnswered(HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/api/v1/payments/sale"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(Fixtures.SALE_JSON))
+            .build());
+    }
+
+    // polls until the app accepts connections and answers 200; the launch is part of the measured time
+    private String untilAnswered(HttpRequest request) throws Exception {
+        long giveUp = System.nanoTime() + STARTUP_LIMIT.toNanos();
+        while (System.nanoTime() < giveUp) {
+            if (!app.isAlive()) throw new IllegalStateException("Service exited with " + app.exitValue() + " during startup");
+            try {
+                HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() == 200) return response.body();
+            } catch (ConnectException e) {
+                // not listening yet
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("Service did not answer within " + STARTUP_LIMIT);
+    }
+
+    private static Path applicationJar(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".jar"))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No application jar in " + dir.toAbsolutePath()));
+        }
+    }
+
+    private static boolean hasAotInitializer(Path jar) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            return zip.stream().anyMatch(entry -> entry.getName().endsWith("__ApplicationContextInitializer.class"));
+        }
+    }
+}
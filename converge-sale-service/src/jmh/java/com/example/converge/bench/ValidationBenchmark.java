@@ -0,0 +1,56 @@
+package com.example.converge.bench;
+
+import com.example.converge.dto.request.SaleRequest;
+import com.example.converge.validation.SaleRequestValidator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Set;
+
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+    private final SaleRequestValidator saleRequestValidator = new SaleRequestValidator();
+    private ValidatorFactory factory;
+    private Validator validator;
+    private SaleRequest valid;
+    private SaleRequest invalid;
+
+    @Setup
+    public void setUp() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+        valid = Fixtures.saleRequest();
+        invalid = Fixtures.saleRequest();
+        invalid.setCardNumber("4111111111111112");
+        invalid.setExpMonth("13");
+    }
+
+    @TearDown
+    public void tearDown() {
+        factory.close();
+    }
+
+    /** The field rules alone, without the Bean Validation engine around them. */
+    @Benchmark
+    public boolean saleRequestRules() {
+        return saleRequestValidator.isValid(valid, null);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<SaleRequest>> validateValid() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<SaleRequest>> validateInvalid() {
+        return validator.validate(invalid);
+    }
+}
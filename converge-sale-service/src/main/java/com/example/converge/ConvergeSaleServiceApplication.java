@@ -1,11 +1,12 @@
 package com.example.converge;
 
+import com.example.converge.config.NativeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
-@EnableRetry
+@ImportRuntimeHints(NativeHints.class)
 public class ConvergeSaleServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,266 @@
+package com.example.converge.admission;
+
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.exception.DeadlineExceededException;
+import com.example.converge.exception.LoadShedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Admits at most {@code max-concurrent} sales at a time; the rest wait in a queue served by
+ * priority, then arrival. Shedding follows CoDel: what matters is the shortest time any sale
+ * waited during an {@code interval-ms}, which only stays above {@code target-ms} while a standing
+ * queue persists. Each interval that happens sheds one more priority class, lowest first, and each
+ * interval below target restores one. Shed sales, arriving or at the head of the queue, fail at once
+ * with {@link LoadShedException}. Every sale carries a {@link Deadline}; one still queued when its
+ * deadline passes fails with {@link DeadlineExceededException} instead of being sent late.
+ */
+@Component
+public class AdmissionControl {
+
+    private static final int MAX_SHED_LEVEL = Priority.values().length - 1;
+
+    private final ConvergeProperties.Admission config;
+    private final long targetNanos;
+    private final long intervalNanos;
+    private final Map<String, Priority> apiKeys;
+    private final Object lock = new Object();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+        Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::sequence));
+    private final Map<Priority, Timer> waits = new EnumMap<>(Priority.class);
+    private final Map<Priority, Map<String, Counter>> rejections = new EnumMap<>(Priority.class);
+    private long sequence;
+    private int inFlight;
+    private long windowStart = System.nanoTime();
+    private long windowMinSojourn = Long.MAX_VALUE;
+    private volatile int shedLevel;
+
+    public AdmissionControl(ConvergeProperties properties, MeterRegistry registry) {
+        this.config = properties.getAdmission();
+        this.targetNanos = TimeUnit.MILLISECONDS.toNanos(config.getTargetMs());
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getIntervalMs());
+        this.apiKeys = Map.copyOf(config.getApiKeys());
+        for (Priority priority : Priority.values()) {
+            waits.put(priority, Timer.builder("converge.admission.wait").tag("priority", tag(priority)).register(registry));
+            Map<String, Counter> byReason = new HashMap<>();
+            for (String reason : List.of("deadline", "overload", "queue_full")) {
+                byReason.put(reason, Counter.builder("converge.admission.rejected").tag("priority", tag(priority)).tag("reason", reason)
+                    .register(registry));
+            }
+            rejections.put(priority, byReason);
+        }
+        Gauge.builder("converge.admission.queued", this, control -> control.queued()).register(registry);
+        Gauge.builder("converge.admission.in.flight", this, control -> control.inFlight()).register(registry);
+        Gauge.builder("converge.admission.shed.level", this, control -> control.shedLevel).register(registry);
+    }
+
+    /**
+     * The caller's priority: the one configured for its API key, else {@code default-priority}.
+     * {@code X-Priority} can lower it, never raise it, so an unknown caller cannot jump the queue.
+     */
+    public Priority priorityOf(String apiKey, String requested) {
+        Priority granted = apiKey != null ? apiKeys.get(apiKey) : null;
+        if (granted == null) granted = config.getDefaultPriority();
+        Priority asked = Priority.parse(requested);
+        return asked != null && asked.compareTo(granted) > 0 ? asked : granted;
+    }
+
+    /** The caller's deadline: {@code timeoutMs} from now when given, else {@code default-timeout-ms}, capped at {@code max-timeout-ms}. */
+    public Deadline deadlineOf(Long timeoutMs) {
+        long millis = timeoutMs != null && timeoutMs > 0 ? timeoutMs : config.getDefaultTimeoutMs();
+        return Deadline.afterMillis(Math.min(millis, config.getMaxTimeoutMs()));
+    }
+
+    public <T> T call(Priority priority, Deadline deadline, Supplier<T> sale) {
+        if (!config.isEnabled()) return sale.get();
+        Waiter waiter = enter(priority, deadline);
+        if (waiter != null) await(waiter, deadline);
+        try {
+            return sale.get();
+        } finally {
+            release();
+        }
+    }
+
+    /** Non-blocking {@link #call}: a queued sale starts on the thread that frees its slot. */
+    public <T> CompletableFuture<T> callAsync(Priority priority, Deadline deadline, Supplier<CompletableFuture<T>> sale) {
+        if (!config.isEnabled()) return sale.get();
+        Waiter waiter;
+        try {
+            waiter = enter(priority, deadline);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<Void> admitted;
+        if (waiter == null) {
+            admitted = CompletableFuture.completedFuture(null);
+        } else {
+            admitted = waiter.granted();
+            if (!deadline.isNone()) {
+                CompletableFuture.delayedExecutor(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS)
+                    .execute(() -> expire(waiter));
+            }
+        }
+        return admitted.thenCompose(ignored -> {
+            CompletableFuture<T> future;
+            try {
+                future = sale.get();
+            } catch (RuntimeException e) {
+                release();
+                throw e;
+            }
+            return future.whenComplete((result, ex) -> release());
+        });
+    }
+
+    // null when admitted straight away, else the queued waiter
+    private Waiter enter(Priority priority, Deadline deadline) {
+        if (deadline.isExpired()) throw rejected(priority, "deadline");
+        synchronized (lock) {
+            long now = System.nanoTime();
+            Waiter head = queue.peek();
+            boolean free = head == null && inFlight < config.getMaxConcurrent();
+            if (head != null) observe(now - head.enqueuedAt(), now);
+            else if (free) observe(0, now);
+            if (isShed(priority)) throw rejected(priority, "overload");
+            if (free) {
+                inFlight++;
+                waits.get(priority).record(0, TimeUnit.NANOSECONDS);
+                return null;
+            }
+            if (queue.size() >= config.getMaxQueue()) throw rejected(priority, "queue_full");
+            Waiter waiter = new Waiter(priority, sequence++, now, new CompletableFuture<>());
+            queue.add(waiter);
+            return waiter;
+        }
+    }
+
+    private void await(Waiter waiter, Deadline deadline) {
+        try {
+            if (deadline.isNone()) waiter.granted().get();
+            else waiter.granted().get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+            return;
+        } catch (TimeoutException e) {
+            expire(waiter);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            expire(waiter);
+        } catch (ExecutionException e) {
+            // refused; join below throws why
+        }
+        try {
+            waiter.granted().join(); // granted after all: the slot is ours
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    private void expire(Waiter waiter) {
+        if (waiter.granted().isDone()) return;
+        synchronized (lock) {
+            queue.remove(waiter);
+        }
+        refuse(waiter, "deadline");
+    }
+
+    // the waiter may have been granted or refused meanwhile; only the first outcome counts
+    private void refuse(Waiter waiter, String reason) {
+        if (waiter.granted().completeExceptionally(failure(waiter.priority(), reason))) count(waiter.priority(), reason);
+    }
+
+    /** Hands the slot to the next waiter that is still wanted, or frees it. Futures are completed outside the lock. */
+    private void release() {
+        while (true) {
+            Waiter next;
+            boolean shed;
+            synchronized (lock) {
+                next = queue.poll();
+                if (next == null) {
+                    inFlight--;
+                    return;
+                }
+                long now = System.nanoTime();
+                observe(now - next.enqueuedAt(), now);
+                shed = isShed(next.priority());
+            }
+            if (shed) {
+                refuse(next, "overload");
+                continue;
+            }
+            if (next.granted().complete(null)) {
+                waits.get(next.priority()).record(System.nanoTime() - next.enqueuedAt(), TimeUnit.NANOSECONDS);
+                return;
+            }
+            // the waiter's deadline passed while we were choosing it; offer the slot to the next one
+        }
+    }
+
+    // called under the lock
+    private void observe(long sojournNanos, long now) {
+        if (sojournNanos < windowMinSojourn) windowMinSojourn = sojournNanos;
+        if (now - windowStart < intervalNanos) return;
+        boolean standingQueue = windowMinSojourn != Long.MAX_VALUE && windowMinSojourn > targetNanos;
+        // after a quiet spell with no events, every interval that passed counts as one below target
+        if (standingQueue) shedLevel = Math.min(shedLevel + 1, MAX_SHED_LEVEL);
+        else shedLevel = (int) Math.max(0, shedLevel - (now - windowStart) / intervalNanos);
+        windowStart = now;
+        windowMinSojourn = Long.MAX_VALUE;
+    }
+
+    private boolean isShed(Priority priority) {
+        return priority.ordinal() > MAX_SHED_LEVEL - shedLevel;
+    }
+
+    private RuntimeException rejected(Priority priority, String reason) {
+        count(priority, reason);
+        return failure(priority, reason);
+    }
+
+    private void count(Priority priority, String reason) {
+        rejections.get(priority).get(reason).increment();
+    }
+
+    private RuntimeException failure(Priority priority, String reason) {
+        if (reason.equals("deadline")) {
+            return new DeadlineExceededException("Request deadline passed before the sale was sent; it was not processed");
+        }
+        return new LoadShedException(reason.equals("overload") ? "SHED" : "QUEUE_FULL",
+            "Service overloaded; " + tag(priority) + " priority sales are being refused", config.getIntervalMs());
+    }
+
+    private int queued() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    private int inFlight() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    private static String tag(Priority priority) {
+        return priority.name().toLowerCase(Locale.ROOT);
+    }
+
+    private record Waiter(Priority priority, long sequence, long enqueuedAt, CompletableFuture<Void> granted) {}
+}
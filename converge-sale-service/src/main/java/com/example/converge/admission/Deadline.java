@@ -0,0 +1,28 @@
+package com.example.converge.admission;
+
+/** The {@link System#nanoTime()} by which the caller needs an answer; past it, nothing more is sent upstream. */
+public record Deadline(long atNanos) {
+
+    private static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    public static Deadline none() {
+        return NONE;
+    }
+
+    public static Deadline afterMillis(long millis) {
+        return new Deadline(System.nanoTime() + millis * 1_000_000);
+    }
+
+    public boolean isNone() {
+        return this == NONE;
+    }
+
+    /** Nanoseconds left, zero or negative once passed; {@link Long#MAX_VALUE} without a deadline. */
+    public long remainingNanos() {
+        return isNone() ? Long.MAX_VALUE : atNanos - System.nanoTime();
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+}
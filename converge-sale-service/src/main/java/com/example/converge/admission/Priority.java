@@ -0,0 +1,18 @@
+package com.example.converge.admission;
+
+import java.util.Locale;
+
+/** Admission classes, most important first. Under overload LOW is shed first, then NORMAL; HIGH is never shed for queueing delay. */
+public enum Priority {
+    HIGH, NORMAL, LOW;
+
+    /** The priority named by {@code value}, case-insensitively, or null when it names none. */
+    public static Priority parse(String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.converge.audit;
+
+import java.util.Arrays;
+
+/**
+ * One audit record: a type plus ordered fields. Values are redacted as they are added, on the
+ * caller's thread, so card data never reaches the ring buffer or the writer.
+ */
+public final class AuditEvent {
+
+    private final String type;
+    private final long timestamp = System.currentTimeMillis();
+    private String[] names = new String[8];
+    private Object[] values = new Object[8];
+    private int size;
+
+    private AuditEvent(String type) {
+        this.type = type;
+    }
+
+    public static AuditEvent of(String type) {
+        return new AuditEvent(type);
+    }
+
+    public AuditEvent with(String name, String value) {
+        if (value == null || Redaction.dropped(name)) return this;
+        return add(name, Redaction.redact(name, value));
+    }
+
+    public AuditEvent with(String name, long value) {
+        return add(name, value);
+    }
+
+    private AuditEvent add(String name, Object value) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        names[size] = name;
+        values[size++] = value;
+        return this;
+    }
+
+    public String type() { return type; }
+    public long timestamp() { return timestamp; }
+    int size() { return size; }
+    String name(int i) { return names[i]; }
+    Object value(int i) { return values[i]; }
+}
@@ -0,0 +1,108 @@
+package com.example.converge.audit;
+
+import com.example.converge.config.ConvergeProperties;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Audit pipeline: request threads {@link #publish} already-redacted events into a lock-free ring,
+ * and one background thread writes them as single-line JSON to the {@code converge.audit} logger.
+ * Publishing never blocks; when the ring is full the event is dropped and counted in
+ * {@code converge.audit.dropped}.
+ */
+@Component
+public class AuditLog implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLog.class);
+    private static final Logger audit = LoggerFactory.getLogger("converge.audit");
+
+    private final boolean enabled;
+    private final AuditRing ring;
+    private final long idleParkNanos;
+    private final Counter dropped;
+    private final Counter written;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final StringWriter line = new StringWriter(256);
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public AuditLog(ConvergeProperties properties, MeterRegistry registry) {
+        ConvergeProperties.Audit config = properties.getAudit();
+        this.enabled = config.isEnabled();
+        this.ring = new AuditRing(config.getCapacity());
+        this.idleParkNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleParkMs());
+        this.dropped = Counter.builder("converge.audit.dropped").description("Audit events dropped because the ring was full").register(registry);
+        this.written = Counter.builder("converge.audit.written").register(registry);
+        Gauge.builder("converge.audit.queued", ring, AuditRing::size).register(registry);
+        this.writer = new Thread(this::writeLoop, "audit-writer");
+        writer.setDaemon(true);
+        if (enabled) writer.start();
+    }
+
+    public void publish(AuditEvent event) {
+        if (!enabled) return;
+        if (!ring.offer(event)) dropped.increment();
+    }
+
+    // the writer polls rather than being woken, so publishing costs no more than a CAS and a store
+    private void writeLoop() {
+        while (running) {
+            if (!drain()) LockSupport.parkNanos(this, idleParkNanos);
+        }
+        drain();
+    }
+
+    private boolean drain() {
+        boolean any = false;
+        for (AuditEvent event = ring.poll(); event != null; event = ring.poll()) {
+            any = true;
+            if (!audit.isInfoEnabled()) continue;
+            try {
+                audit.info(format(event));
+                written.increment();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not write audit event {}: {}", event.type(), e.toString());
+            }
+        }
+        return any;
+    }
+
+    private String format(AuditEvent event) throws IOException {
+        line.getBuffer().setLength(0);
+        try (JsonGenerator json = jsonFactory.createGenerator(line)) {
+            json.writeStartObject();
+            json.writeNumberField("ts", event.timestamp());
+            json.writeStringField("event", event.type());
+            for (int i = 0; i < event.size(); i++) {
+                Object value = event.value(i);
+                if (value instanceof Long number) json.writeNumberField(event.name(i), number);
+                else json.writeStringField(event.name(i), (String) value);
+            }
+            json.writeEndObject();
+        }
+        return line.toString();
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
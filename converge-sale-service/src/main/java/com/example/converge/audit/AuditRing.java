@@ -0,0 +1,65 @@
+package com.example.converge.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer. Each slot carries a sequence
+ * number: a producer claims a position with one CAS on the tail, writes the slot and then
+ * publishes it by advancing the slot's sequence. {@link #offer} never waits; a full ring
+ * returns false.
+ */
+final class AuditRing {
+
+    private final int mask;
+    private final AuditEvent[] slots;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head; // written by the consumer only
+
+    AuditRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new AuditEvent[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+    }
+
+    boolean offer(AuditEvent event) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    slots[index] = event;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false; // the consumer has not freed this slot yet
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    AuditEvent poll() {
+        int index = (int) head & mask;
+        if (sequences.get(index) != head + 1) return null;
+        AuditEvent event = slots[index];
+        slots[index] = null;
+        sequences.lazySet(index, head + mask + 1);
+        head++;
+        return event;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.converge.audit;
+
+import java.util.Set;
+
+/**
+ * Field-level redaction for audit events. Card numbers keep their first six and last four digits,
+ * CVV, PIN and expiry are dropped, and free text has any 12-19 digit run masked, since exception
+ * messages can echo a request back.
+ */
+public final class Redaction {
+
+    private static final Set<String> DROPPED = Set.of("cvv", "ssl_cvv2cvc2", "pin", "ssl_pin", "expDate", "ssl_exp_date",
+        "expMonth", "expYear");
+    private static final Set<String> CARD_NUMBERS = Set.of("cardNumber", "ssl_card_number");
+
+    private Redaction() {
+    }
+
+    static boolean dropped(String field) {
+        return DROPPED.contains(field);
+    }
+
+    static String redact(String field, String value) {
+        if (CARD_NUMBERS.contains(field)) return maskCard(value);
+        return maskDigitRuns(value);
+    }
+
+    /** First six and last four digits, as on a receipt; null stays null. Builds the result in one array. */
+    public static String maskCard(String cardNumber) {
+        if (cardNumber == null) return null;
+        int length = cardNumber.length();
+        char[] masked = new char[length];
+        int keepFrom = length < 13 ? length : length - 4;
+        for (int i = 0; i < length; i++) {
+            masked[i] = (i < 6 && length >= 13) || i >= keepFrom ? cardNumber.charAt(i) : '*';
+        }
+        return new String(masked);
+    }
+
+    // returns value itself when it holds no run long enough to be a card number
+    static String maskDigitRuns(String value) {
+        StringBuilder masked = null;
+        int length = value.length();
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean digit = i < length && value.charAt(i) >= '0' && value.charAt(i) <= '9';
+            if (digit && runStart < 0) {
+                runStart = i;
+            } else if (!digit && runStart >= 0) {
+                if (i - runStart >= 12 && i - runStart <= 19) {
+                    if (masked == null) masked = new StringBuilder(value);
+                    masked.replace(runStart, i, maskCard(value.substring(runStart, i)));
+                }
+                runStart = -1;
+            }
+        }
+        return masked != null ? masked.toString() : value;
+    }
+}
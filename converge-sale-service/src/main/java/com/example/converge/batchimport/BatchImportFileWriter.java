@@ -0,0 +1,182 @@
+package com.example.converge.batchimport;
+
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.request.SaleRequest;
+import com.example.converge.dto.xml.ConvergeSaleXmlRequest;
+import com.example.converge.exception.ApiExceptionHandler;
+import com.example.converge.mapper.ConvergeMapper;
+import com.example.converge.merchant.MerchantAccount;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Converts a stream of sales (CSV with a header row, or NDJSON) into the Converge batch
+ * import CSV one row at a time. Rows failing validation go to the job's rejections file
+ * instead of the import file, as do rows for a merchant other than the default one: the file
+ * is uploaded with the default credentials, so their sales would be charged to that account.
+ */
+class BatchImportFileWriter {
+
+    private static final String[] COLUMNS = {
+        "ssl_transaction_type", "ssl_card_number", "ssl_exp_date", "ssl_cvv2cvc2", "ssl_amount",
+        "ssl_invoice_number", "ssl_first_name", "ssl_last_name", "ssl_avs_address", "ssl_avs_zip"
+    };
+
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    private static final FileAttribute<Set<PosixFilePermission>> OWNER_ONLY =
+        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"));
+
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ConvergeProperties properties;
+
+    BatchImportFileWriter(Validator validator, ObjectMapper objectMapper, ConvergeProperties properties) {
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    void write(InputStream in, boolean csvInput, BatchImportJob job) throws IOException {
+        long submitted = 0;
+        long rejected = 0;
+        createOwnerOnly(job.getImportFile());
+        createOwnerOnly(job.getRejectionsFile());
+        try (BufferedWriter csv = Files.newBufferedWriter(job.getImportFile(), StandardCharsets.UTF_8);
+             JsonGenerator rejections = objectMapper.createGenerator(Files.newBufferedWriter(job.getRejectionsFile(), StandardCharsets.UTF_8))) {
+            rejections.setRootValueSeparator(null);
+            csv.write(String.join(",", COLUMNS));
+            csv.newLine();
+            Iterator<SaleRequest> rows = csvInput ? csvRows(in) : objectMapper.readerFor(SaleRequest.class).readValues(in);
+            long row = 0;
+            while (true) {
+                SaleRequest sale;
+                try {
+                    if (!rows.hasNext()) break;
+                    sale = rows.next();
+                } catch (RuntimeException e) {
+                    // MappingIterator wraps parse errors in a bare RuntimeException
+                    throw new IllegalArgumentException("Row " + (row + 1) + ": " + e.getMessage(), e);
+                }
+                row++;
+                Map<String, String> errors = errors(sale);
+                if (!errors.isEmpty()) {
+                    writeRejection(rejections, row, errors);
+                    rejected++;
+                    continue;
+                }
+                if (sale.getInvoiceNumber() == null) sale.setInvoiceNumber(job.getId() + "-" + row); // rows are matched back by invoice
+                writeRow(csv, ConvergeMapper.toXmlRequest(sale, properties));
+                submitted++;
+            }
+        }
+        job.setRowsSubmitted(submitted);
+        job.setRowsRejected(rejected);
+    }
+
+    /** Job files are readable by this service's user only; the import file holds card numbers and CVVs. */
+    static void createOwnerOnly(Path file) throws IOException {
+        if (POSIX) Files.createFile(file, OWNER_ONLY);
+        else Files.createFile(file);
+    }
+
+    private static void writeRow(BufferedWriter csv, ConvergeSaleXmlRequest xml) throws IOException {
+        String[] values = {
+            xml.getTransactionType(), xml.getCardNumber(), xml.getExpDateMmYy(), xml.getCvv(), xml.getAmount(),
+            xml.getInvoiceNumber(), xml.getFirstName(), xml.getLastName(), xml.getAvsAddress(), xml.getAvsZip()
+        };
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) csv.write(',');
+            csv.write(CsvLines.escape(values[i]));
+        }
+        csv.newLine();
+    }
+
+    private Map<String, String> errors(SaleRequest sale) {
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (ConstraintViolation<SaleRequest> v : validator.validate(sale)) {
+            String field = v.getPropertyPath().toString();
+            errors.put(field, ApiExceptionHandler.fieldErrorText(field, v.getMessage()));
+        }
+        if (errors.isEmpty() && StringUtils.hasText(sale.getMerchantKey()) && !MerchantAccount.DEFAULT.equals(sale.getMerchantKey())) {
+            errors.put("merchantKey", "batch imports run on the default merchant account only");
+        }
+        if (errors.isEmpty() && sale.isDeferCapture()) {
+            // nothing would ever capture the authorization, so the merchant would not be paid
+            errors.put("deferCapture", "batch imports cannot defer capture");
+        }
+        return errors;
+    }
+
+    private static void writeRejection(JsonGenerator out, long row, Map<String, String> errors) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("row", row);
+        line.put("message", "Validation failed");
+        line.put("errors", errors);
+        out.writeObject(line);
+        out.writeRaw('\n');
+    }
+
+    private Iterator<SaleRequest> csvRows(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String headerLine = reader.readLine();
+        if (headerLine == null) return Collections.emptyIterator();
+        List<String> header = CsvLines.parse(headerLine);
+        return new Iterator<>() {
+            private String next = advance();
+
+            private String advance() {
+                try {
+                    String line;
+                    do {
+                        line = reader.readLine();
+                    } while (line != null && line.isBlank());
+                    return line;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public SaleRequest next() {
+                if (next == null) throw new NoSuchElementException();
+                List<String> values = CsvLines.parse(next);
+                Map<String, String> fields = new HashMap<>();
+                for (int i = 0; i < header.size() && i < values.size(); i++) {
+                    if (!values.get(i).isEmpty()) fields.put(header.get(i).trim(), values.get(i));
+                }
+                next = advance();
+                return objectMapper.convertValue(fields, SaleRequest.class);
+            }
+        };
+    }
+}
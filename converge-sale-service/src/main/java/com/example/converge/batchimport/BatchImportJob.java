@@ -0,0 +1,62 @@
+package com.example.converge.batchimport;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/** Progress of one batch file; the rows themselves only ever live on disk. */
+public class BatchImportJob {
+
+    /** IN_DOUBT: the upload failed after the file may have reached Converge; results are still polled for. */
+    public enum Status { UPLOADING, IN_DOUBT, PROCESSING, COMPLETE, TIMED_OUT, FAILED }
+
+    private final String id;
+    private final String fileName;
+    private final LocalDate importDate;
+    private final long submittedAt = System.currentTimeMillis();
+    private volatile Status status = Status.UPLOADING;
+    private volatile long finishedAt;
+    private volatile long rowsSubmitted;
+    private volatile long rowsRejected;
+    private volatile long approved;
+    private volatile long declined;
+    private volatile String message;
+    private final Path importFile;
+    private final Path resultsFile;
+    private final Path rejectionsFile;
+
+    BatchImportJob(String id, String fileName, LocalDate importDate, Path workDir) {
+        this.id = id;
+        this.fileName = fileName;
+        this.importDate = importDate;
+        this.importFile = workDir.resolve(fileName);
+        this.resultsFile = workDir.resolve(id + "-results.ndjson");
+        this.rejectionsFile = workDir.resolve(id + "-rejections.ndjson");
+    }
+
+    public String getId() { return id; }
+    public String getFileName() { return fileName; }
+    public LocalDate getImportDate() { return importDate; }
+    public long getSubmittedAt() { return submittedAt; }
+    public Status getStatus() { return status; }
+    void setStatus(Status status) {
+        if (status == Status.COMPLETE || status == Status.TIMED_OUT || status == Status.FAILED) finishedAt = System.currentTimeMillis();
+        this.status = status;
+    }
+    /** 0 while the job is still running. */
+    @JsonIgnore public long getFinishedAt() { return finishedAt; }
+    public long getRowsSubmitted() { return rowsSubmitted; }
+    void setRowsSubmitted(long rowsSubmitted) { this.rowsSubmitted = rowsSubmitted; }
+    public long getRowsRejected() { return rowsRejected; }
+    void setRowsRejected(long rowsRejected) { this.rowsRejected = rowsRejected; }
+    public long getApproved() { return approved; }
+    void setApproved(long approved) { this.approved = approved; }
+    public long getDeclined() { return declined; }
+    void setDeclined(long declined) { this.declined = declined; }
+    public String getMessage() { return message; }
+    void setMessage(String message) { this.message = message; }
+    @JsonIgnore public Path getImportFile() { return importFile; }
+    @JsonIgnore public Path getResultsFile() { return resultsFile; }
+    @JsonIgnore public Path getRejectionsFile() { return rejectionsFile; }
+}
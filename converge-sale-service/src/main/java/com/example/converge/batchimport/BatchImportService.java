@@ -0,0 +1,311 @@
+package com.example.converge.batchimport;
+
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.response.SaleResponse;
+import com.example.converge.dto.xml.ConvergeXmlTransaction;
+import com.example.converge.exception.UpstreamFailureException;
+import com.example.converge.mapper.ConvergeMapper;
+import com.example.converge.service.ConvergeClient;
+import com.example.converge.service.RetryEngine;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk loads through Converge batch import: the incoming sales are streamed into an import
+ * file, uploaded to {@code processBatch.do} as {@code ccimport}, and the per-row outcome is
+ * then polled with {@code bitxnquery} and streamed into an NDJSON results file. An upload that
+ * fails after the file may have reached Converge (read timeout, broken connection, 5xx) leaves the
+ * job IN_DOUBT and still polling; only a failure Converge cannot have processed is FAILED. The
+ * import file carries full card numbers and CVVs, so it is owner-only and deleted as soon as the
+ * upload returns, whatever the outcome; import files left by a crash are removed at startup.
+ */
+@Service
+public class BatchImportService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchImportService.class);
+    private static final DateTimeFormatter FILE_STAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final DateTimeFormatter QUERY_DATE = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+    private final ConvergeClient client;
+    private final RestTemplate restTemplate;
+    private final ConvergeResponseDecoder decoder;
+    private final ConvergeProperties properties;
+    private final ObjectMapper objectMapper;
+    private final BatchImportFileWriter fileWriter;
+    private final Path workDir; // null when batch import is not configured
+    private final String importUrl;
+    private final Map<String, BatchImportJob> jobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    public BatchImportService(ConvergeClient client, RestTemplate restTemplate, ConvergeResponseDecoder decoder,
+                              ConvergeProperties properties, ObjectMapper objectMapper, Validator validator) {
+        this.client = client;
+        this.restTemplate = restTemplate;
+        this.decoder = decoder;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.fileWriter = new BatchImportFileWriter(validator, objectMapper, properties);
+        ConvergeProperties.BatchImport config = properties.getBatchImport();
+        this.workDir = StringUtils.hasText(config.getWorkDir()) ? Path.of(config.getWorkDir()) : null;
+        this.importUrl = StringUtils.hasText(config.getUrl()) ? config.getUrl() : properties.getBaseUrl().replace("processxml.do", "processBatch.do");
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("batch-import-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        if (workDir != null) {
+            prepareWorkDir();
+            scheduler.scheduleWithFixedDelay(this::expireJobs, 1, 1, TimeUnit.MINUTES);
+        }
+    }
+
+    /** False until {@code converge.batch-import.work-dir} is set. */
+    public boolean isEnabled() {
+        return workDir != null;
+    }
+
+    public BatchImportJob submit(InputStream sales, boolean csvInput) throws IOException {
+        if (workDir == null) throw new IllegalStateException("converge.batch-import.work-dir is not set");
+        String id = UUID.randomUUID().toString().substring(0, 8);
+        LocalDateTime now = LocalDateTime.now();
+        // Converge limits import file names to 30 characters
+        BatchImportJob job = new BatchImportJob(id, "sales" + now.format(FILE_STAMP) + id.substring(0, 4) + ".csv", now.toLocalDate(), workDir);
+        try {
+            fileWriter.write(sales, csvInput, job);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(job.getImportFile());
+            Files.deleteIfExists(job.getRejectionsFile());
+            throw e;
+        }
+        jobs.put(id, job);
+        if (job.getRowsSubmitted() == 0) {
+            job.setStatus(BatchImportJob.Status.COMPLETE);
+            job.setMessage("No valid rows to import");
+            return job;
+        }
+        scheduler.execute(() -> upload(job));
+        return job;
+    }
+
+    public BatchImportJob find(String id) {
+        return jobs.get(id);
+    }
+
+    private void upload(BatchImportJob job) {
+        try {
+            MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+            form.add("ssl_transaction_type", "ccimport");
+            form.add("ssl_account_id", properties.getSslMerchantId());
+            form.add("ssl_user_id", properties.getSslUserId());
+            form.add("ssl_pin", properties.getSslPin());
+            form.add("ssl_response_file", "resp" + job.getId());
+            form.add("ssl_result_format", "ASCII");
+            form.add("ssl_import_file", new FileSystemResource(job.getImportFile())); // streamed from disk
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+            String body = restTemplate.postForObject(importUrl, new HttpEntity<>(form, headers), String.class);
+            Map<String, String> fields = parseImportResponse(body);
+            if (!"0".equals(fields.get("ssl_result"))) {
+                fail(job, fields.getOrDefault("errorMessage", fields.getOrDefault("ssl_result_message", "File upload failed")));
+                return;
+            }
+            job.setStatus(BatchImportJob.Status.PROCESSING);
+            job.setMessage(fields.get("ssl_result_message"));
+            schedulePoll(job);
+        } catch (RuntimeException e) {
+            UpstreamFailureException failure = RetryEngine.classify(e);
+            if (failure != null && failure.getKind().isSafeToRetry()) {
+                fail(job, "Upload failed: " + e.getMessage());
+                return;
+            }
+            // the file may have reached Converge, so look for its rows rather than invite a resubmission
+            log.warn("Batch import {} upload outcome unknown, polling for its results: {}", job.getId(), e.getMessage());
+            job.setStatus(BatchImportJob.Status.IN_DOUBT);
+            job.setMessage("Upload outcome unknown (" + (failure != null ? failure.getKind() : e.getMessage())
+                + "); checking Converge for the file's rows. Do not resubmit");
+            schedulePoll(job);
+        } finally {
+            deleteImportFile(job);
+        }
+    }
+
+    private void poll(BatchImportJob job) {
+        boolean expired = System.currentTimeMillis() - job.getSubmittedAt() > properties.getBatchImport().getMaxWaitMs();
+        Path partial = job.getResultsFile().resolveSibling(job.getResultsFile().getFileName() + ".part");
+        try {
+            ConvergeXmlTransaction query = ConvergeMapper.toXmlTransaction("bitxnquery", properties)
+                .field("ssl_date", job.getImportDate().format(QUERY_DATE))
+                .field("ssl_file_name", job.getFileName());
+            long[] counts = client.execute(query, body -> writeResults(body, partial));
+            job.setApproved(counts[0]);
+            job.setDeclined(counts[1]);
+            if (counts[0] + counts[1] > 0 && job.getStatus() == BatchImportJob.Status.IN_DOUBT) {
+                job.setStatus(BatchImportJob.Status.PROCESSING);
+                job.setMessage("Converge accepted the file");
+            }
+            if (counts[0] + counts[1] >= job.getRowsSubmitted() || expired) {
+                Files.move(partial, job.getResultsFile(), StandardCopyOption.REPLACE_EXISTING);
+                if (expired && counts[0] + counts[1] < job.getRowsSubmitted()) timedOut(job);
+                else job.setStatus(BatchImportJob.Status.COMPLETE);
+                return;
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Batch import {} query failed: {}", job.getId(), e.getMessage());
+            if (expired) {
+                if (job.getStatus() == BatchImportJob.Status.IN_DOUBT) timedOut(job);
+                else fail(job, "Result query failed: " + e.getMessage());
+                return;
+            }
+        }
+        schedulePoll(job);
+    }
+
+    private long[] writeResults(InputStream body, Path target) {
+        long[] counts = new long[2];
+        try {
+            Files.deleteIfExists(target);
+            BatchImportFileWriter.createOwnerOnly(target);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try (JsonGenerator out = objectMapper.createGenerator(Files.newBufferedWriter(target, StandardCharsets.UTF_8))) {
+            out.setRootValueSeparator(null);
+            decoder.forEachTxn(body, txn -> {
+                if (txn.containsKey("errorCode")) {
+                    throw new IllegalStateException("Error " + txn.get("errorCode") + ": " + txn.get("errorMessage"));
+                }
+                SaleResponse response = ConvergeMapper.toSaleResponse(txn);
+                counts[response.isApproved() ? 0 : 1]++;
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("invoiceNumber", txn.get("ssl_invoice_number"));
+                line.put("card", txn.get("ssl_card"));
+                line.put("response", response);
+                try {
+                    out.writeObject(line);
+                    out.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return counts;
+    }
+
+    // processBatch.do answers in ASCII "key: value" lines (or XML when so configured)
+    private Map<String, String> parseImportResponse(String body) {
+        if (body == null) return Map.of();
+        if (body.stripLeading().startsWith("<")) {
+            return decoder.decodeFields(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (String line : body.split("\\r?\\n")) {
+            int sep = line.indexOf(':');
+            if (sep < 0) sep = line.indexOf('=');
+            if (sep > 0) fields.put(line.substring(0, sep).trim(), line.substring(sep + 1).trim());
+        }
+        return fields;
+    }
+
+    private void schedulePoll(BatchImportJob job) {
+        scheduler.schedule(() -> poll(job), properties.getBatchImport().getPollIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    private void prepareWorkDir() {
+        try {
+            Files.createDirectories(workDir);
+            if (workDir.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(workDir, PosixFilePermissions.fromString("rwx------"));
+            }
+            try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(workDir, "sales*.csv")) {
+                for (Path file : leftovers) {
+                    Files.delete(file);
+                    log.warn("Deleted import file {} left by an earlier run; that job was not uploaded", file.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot prepare batch import work dir " + workDir, e);
+        }
+    }
+
+    // finished jobs are kept for job-retention-ms so their results can be fetched, then dropped with their files
+    private void expireJobs() {
+        long cutoff = System.currentTimeMillis() - properties.getBatchImport().getJobRetentionMs();
+        for (BatchImportJob job : jobs.values()) {
+            if (job.getFinishedAt() == 0 || job.getFinishedAt() > cutoff) continue;
+            jobs.remove(job.getId());
+            try {
+                Files.deleteIfExists(job.getResultsFile());
+                Files.deleteIfExists(job.getRejectionsFile());
+            } catch (IOException e) {
+                log.warn("Could not delete files of expired batch import {}: {}", job.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void deleteImportFile(BatchImportJob job) {
+        try {
+            Files.deleteIfExists(job.getImportFile());
+        } catch (IOException e) {
+            log.error("Could not delete import file {}; it holds card data and must be removed", job.getImportFile(), e);
+        }
+    }
+
+    // an upload that never showed up may still be processed later, so this is not reported as FAILED
+    private void timedOut(BatchImportJob job) {
+        if (job.getStatus() == BatchImportJob.Status.IN_DOUBT) {
+            log.warn("Batch import {} still in doubt after max-wait-ms; check file {} in Converge", job.getId(), job.getFileName());
+            job.setMessage("Upload outcome unknown and no rows found yet; check file " + job.getFileName()
+                + " in Converge before resubmitting");
+        }
+        job.setStatus(BatchImportJob.Status.TIMED_OUT);
+    }
+
+    private void fail(BatchImportJob job, String message) {
+        log.warn("Batch import {} failed: {}", job.getId(), message);
+        job.setStatus(BatchImportJob.Status.FAILED);
+        job.setMessage(message);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        // jobs whose upload had not started yet
+        for (BatchImportJob job : jobs.values()) deleteImportFile(job);
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.converge.bin;
+
+/** What is known about a BIN range. {@code country} is the ISO code, or null when not known. */
+public record BinInfo(CardBrand brand, boolean debit, boolean prepaid, String country) {
+}
@@ -0,0 +1,244 @@
+package com.example.converge.bin;
+
+import com.example.converge.cache.BoundedTtlCache;
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.xml.ConvergeXmlTransaction;
+import com.example.converge.exception.CardNotAcceptedException;
+import com.example.converge.mapper.ConvergeMapper;
+import com.example.converge.service.ConvergeClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Screens sales by BIN before they reach Converge. The table is loaded from {@code converge.bin.file}
+ * and reloaded when the file changes. When {@code lookup-misses} is on, BINs missing from it are
+ * looked up in the background with a Converge {@code binlookup} and remembered beside it for
+ * {@code learned-ttl-ms}, so the next card from that BIN is screened without a round trip. Only the
+ * most recent {@code max-learned} answers are kept; a BIN Converge does not know is remembered by
+ * brand only, and other lookup errors are not remembered at all.
+ */
+@Component
+public class BinService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(BinService.class);
+
+    private final ConvergeClient client;
+    private final ConvergeResponseDecoder decoder;
+    private final ConvergeProperties properties;
+    private final ConvergeProperties.Bin config;
+    private final Set<CardBrand> rejectedBrands = EnumSet.noneOf(CardBrand.class);
+    private final BinInfo[] brandOnly;
+    private final BoundedTtlCache<Integer, BinInfo> learned;
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter brandRejected;
+    private final Counter prepaidRejected;
+    private final ScheduledExecutorService scheduler;
+    private volatile FileTime fileModified;
+    private volatile BinTable table = BinTable.empty();
+
+    public BinService(ConvergeClient client, ConvergeResponseDecoder decoder, ConvergeProperties properties, MeterRegistry registry) {
+        this.client = client;
+        this.decoder = decoder;
+        this.properties = properties;
+        this.config = properties.getBin();
+        for (String brand : config.getRejectedBrands()) rejectedBrands.add(CardBrand.valueOf(brand.trim().toUpperCase(Locale.ROOT)));
+        CardBrand[] brands = CardBrand.values();
+        this.brandOnly = new BinInfo[brands.length];
+        for (CardBrand brand : brands) brandOnly[brand.ordinal()] = new BinInfo(brand, false, false, null);
+        this.learned = new BoundedTtlCache<>(config.getMaxLearned(), config.getLearnedTtlMs());
+        this.hits = Counter.builder("converge.bin.lookups").tag("result", "hit").register(registry);
+        this.misses = Counter.builder("converge.bin.lookups").tag("result", "miss").register(registry);
+        this.brandRejected = Counter.builder("converge.bin.rejected").tag("reason", "brand_not_accepted").register(registry);
+        this.prepaidRejected = Counter.builder("converge.bin.rejected").tag("reason", "prepaid_not_accepted").register(registry);
+        Gauge.builder("converge.bin.ranges", this, service -> service.table.size()).register(registry);
+        Gauge.builder("converge.bin.learned", learned, BoundedTtlCache::size).register(registry);
+
+        if (StringUtils.hasText(config.getFile())) {
+            // a broken file at startup fails fast; on reload the previous table is kept
+            reloadFile();
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("bin-refresh-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        if (config.isEnabled()) {
+            scheduler.scheduleWithFixedDelay(this::refresh, config.getRefreshIntervalMs(), config.getRefreshIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * What is known about the card's BIN, from the file or else from an earlier binlookup. Without
+     * either only the brand is known, from the IIN ranges. Null when the card number has fewer than 8 digits.
+     */
+    public BinInfo lookup(String cardNumber) {
+        int key = BinTable.key(cardNumber);
+        if (key < 0) return null;
+        BinInfo info = table.find(key);
+        if (info == null && config.isLookupMisses()) info = learned.get(key);
+        if (info != null) {
+            hits.increment();
+            return info;
+        }
+        misses.increment();
+        if (config.isLookupMisses() && pending.size() < config.getMaxPendingLookups()) pending.add(key);
+        return brandOnly[CardBrand.of(key).ordinal()];
+    }
+
+    /** Throws {@link CardNotAcceptedException} for a brand or card type this service does not take. */
+    public void screen(String cardNumber) {
+        if (!config.isEnabled()) return;
+        BinInfo info = lookup(cardNumber);
+        if (info == null) return;
+        if (rejectedBrands.contains(info.brand())) {
+            brandRejected.increment();
+            throw new CardNotAcceptedException("BRAND_NOT_ACCEPTED", info.brand() + " cards are not accepted");
+        }
+        if (info.prepaid() && config.isRejectPrepaid()) {
+            prepaidRejected.increment();
+            throw new CardNotAcceptedException("PREPAID_NOT_ACCEPTED", "Prepaid cards are not accepted");
+        }
+    }
+
+    void refresh() {
+        try {
+            Path file = StringUtils.hasText(config.getFile()) ? Path.of(config.getFile()) : null;
+            boolean changed = file != null && Files.exists(file) && !Files.getLastModifiedTime(file).equals(fileModified);
+            if (changed) reloadFile();
+            for (Iterator<Integer> it = pending.iterator(); it.hasNext(); ) {
+                int key = it.next();
+                binLookup(key);
+                it.remove();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("BIN table refresh failed, keeping {} ranges: {}", table.size(), e.getMessage());
+        }
+    }
+
+    private void reloadFile() {
+        Path file = Path.of(config.getFile());
+        List<BinTable.Range> ranges;
+        try {
+            FileTime modified = Files.getLastModifiedTime(file);
+            ranges = readFile(file);
+            fileModified = modified;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read BIN file " + file, e);
+        }
+        table = BinTable.build(ranges);
+        log.info("Loaded {} BIN ranges from {}", ranges.size(), file);
+    }
+
+    /**
+     * Format: {@code low,high,brand,funding,prepaid,country} with BIN prefixes of 1 to 8 digits.
+     * {@code high} defaults to {@code low}, {@code brand} to the IIN brand, {@code funding} is
+     * C (credit) or D (debit) and {@code prepaid} Y or N. Blank lines and lines starting with # are skipped.
+     */
+    static List<BinTable.Range> readFile(Path file) throws IOException {
+        List<BinTable.Range> ranges = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] cols = line.split(",", -1);
+                try {
+                    String low = cols[0].trim();
+                    String high = cols.length > 1 && !cols[1].isBlank() ? cols[1].trim() : low;
+                    BinTable.Range range = BinTable.Range.of(low, high, null);
+                    String brand = column(cols, 2);
+                    BinInfo info = new BinInfo(
+                        brand != null ? CardBrand.valueOf(brand.toUpperCase(Locale.ROOT)) : CardBrand.of(range.low()),
+                        "D".equalsIgnoreCase(column(cols, 3)),
+                        "Y".equalsIgnoreCase(column(cols, 4)),
+                        column(cols, 5));
+                    ranges.add(new BinTable.Range(range.low(), range.high(), info));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("BIN file " + file + " line " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return ranges;
+    }
+
+    private static String column(String[] cols, int index) {
+        return cols.length > index && !cols[index].isBlank() ? cols[index].trim() : null;
+    }
+
+    private void binLookup(int key) {
+        ConvergeXmlTransaction lookup = ConvergeMapper.toXmlTransaction("binlookup", properties)
+            .field("ssl_card_number", probeCardNumber(key));
+        Map<String, String> fields;
+        try {
+            fields = client.execute(lookup, decoder::decodeFields);
+        } catch (RuntimeException e) {
+            log.debug("binlookup for {} failed: {}", key, e.getMessage());
+            return;
+        }
+        String errorCode = fields.get("errorCode");
+        if (errorCode != null) {
+            if (config.getNotFoundErrorCodes().contains(errorCode)) {
+                // not a BIN Converge can describe; remember the brand only so it is not looked up again
+                learned.put(key, brandOnly[CardBrand.of(key).ordinal()]);
+            } else {
+                log.debug("binlookup for {} failed: {} {}", key, errorCode, fields.get("errorMessage"));
+            }
+            return;
+        }
+        String funding = fields.get("fundingSource");
+        learned.put(key, new BinInfo(CardBrand.of(key),
+            "D".equalsIgnoreCase(funding) || "Y".equalsIgnoreCase(fields.get("debit")),
+            "Y".equalsIgnoreCase(fields.get("prepaidSupport")),
+            fields.get("CountryCode")));
+    }
+
+    /** binlookup needs a full card number; any Luhn-valid number with the BIN answers for it. */
+    static String probeCardNumber(int key) {
+        int length = CardBrand.of(key) == CardBrand.AMEX ? 15 : 16;
+        StringBuilder pan = new StringBuilder(length).append(String.format("%08d", key));
+        while (pan.length() < length - 1) pan.append('0');
+        int sum = 0;
+        for (int i = pan.length() - 1, doubled = 1; i >= 0; i--, doubled ^= 1) {
+            int digit = pan.charAt(i) - '0';
+            if (doubled == 1) {
+                digit *= 2;
+                if (digit > 9) digit -= 9;
+            }
+            sum += digit;
+        }
+        return pan.append((10 - sum % 10) % 10).toString();
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.converge.bin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable BIN range table: disjoint ranges of 8-digit BIN keys kept as sorted primitive arrays,
+ * looked up with one binary search and no allocation. Ranges are normalised to 8 digits, so
+ * {@code 411111} covers {@code 41111100..41111199}.
+ */
+public final class BinTable {
+
+    static final int KEY_DIGITS = 8;
+
+    private static final BinTable EMPTY = new BinTable(new int[0], new int[0], new short[0], new BinInfo[0]);
+
+    private final int[] lows;
+    private final int[] highs;
+    private final short[] infoIndex;
+    private final BinInfo[] infos;
+
+    private BinTable(int[] lows, int[] highs, short[] infoIndex, BinInfo[] infos) {
+        this.lows = lows;
+        this.highs = highs;
+        this.infoIndex = infoIndex;
+        this.infos = infos;
+    }
+
+    public static BinTable empty() {
+        return EMPTY;
+    }
+
+    /** A BIN range as read from the file or learned from Converge, before flattening. */
+    record Range(int low, int high, BinInfo info) {
+
+        /** Widens a 1 to 8 digit prefix pair to 8-digit keys. */
+        static Range of(String low, String high, BinInfo info) {
+            return new Range(pad(low, '0'), pad(high, '9'), info);
+        }
+
+        private static int pad(String prefix, char fill) {
+            if (prefix.isEmpty() || prefix.length() > KEY_DIGITS) {
+                throw new IllegalArgumentException("BIN must have 1 to " + KEY_DIGITS + " digits: " + prefix);
+            }
+            int key = 0;
+            for (int i = 0; i < KEY_DIGITS; i++) {
+                char c = i < prefix.length() ? prefix.charAt(i) : fill;
+                if (c < '0' || c > '9') throw new IllegalArgumentException("BIN must be numeric: " + prefix);
+                key = key * 10 + (c - '0');
+            }
+            return key;
+        }
+    }
+
+    /**
+     * Flattens {@code ranges} into disjoint segments. Where one range lies inside another the narrower
+     * one wins (an 8-digit issuer BIN inside a 6-digit range). Where two ranges partly overlap, the one
+     * that starts later wins the overlap, wherever it is in the list; only identical ranges are decided
+     * by list order, the later one winning.
+     */
+    static BinTable build(List<Range> ranges) {
+        List<Range> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingInt(Range::low).thenComparing(Comparator.comparingInt(Range::high).reversed()));
+        List<Range> segments = new ArrayList<>(sorted.size());
+        Deque<Range> open = new ArrayDeque<>();
+        long pos = 0;
+        for (Range range : sorted) {
+            if (range.high() < range.low()) throw new IllegalArgumentException("BIN range ends before it starts: " + range);
+            while (!open.isEmpty() && open.peek().high() < range.low()) {
+                Range done = open.pop();
+                pos = emit(segments, done, pos, done.high());
+            }
+            if (!open.isEmpty()) emit(segments, open.peek(), pos, range.low() - 1L);
+            // ranges ending inside this one are shadowed from here on
+            while (!open.isEmpty() && open.peek().high() <= range.high()) open.pop();
+            open.push(range);
+            pos = range.low();
+        }
+        while (!open.isEmpty()) {
+            Range done = open.pop();
+            pos = emit(segments, done, pos, done.high());
+        }
+
+        int n = segments.size();
+        int[] lows = new int[n];
+        int[] highs = new int[n];
+        short[] infoIndex = new short[n];
+        Map<BinInfo, Short> distinct = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Range segment = segments.get(i);
+            lows[i] = segment.low();
+            highs[i] = segment.high();
+            Short index = distinct.computeIfAbsent(segment.info(), info -> (short) distinct.size());
+            if (index < 0) throw new IllegalArgumentException("More than " + Short.MAX_VALUE + " distinct BIN attributes");
+            infoIndex[i] = index;
+        }
+        BinInfo[] infos = new BinInfo[distinct.size()];
+        distinct.forEach((info, index) -> infos[index] = info);
+        return new BinTable(lows, highs, infoIndex, infos);
+    }
+
+    // emits [from, to] of range if not empty and returns the position after it
+    private static long emit(List<Range> segments, Range range, long from, long to) {
+        if (from > to) return from;
+        segments.add(new Range((int) from, (int) to, range.info()));
+        return to + 1;
+    }
+
+    /** The entry covering an 8-digit BIN key, or null. */
+    public BinInfo find(int key) {
+        int i = Arrays.binarySearch(lows, key);
+        if (i < 0) i = -i - 2;
+        return i >= 0 && key <= highs[i] ? infos[infoIndex[i]] : null;
+    }
+
+    /** The 8-digit BIN key of a card number, ignoring whitespace, or -1 if it has fewer than 8 digits. */
+    public static int key(CharSequence cardNumber) {
+        if (cardNumber == null) return -1;
+        int key = 0;
+        int digits = 0;
+        for (int i = 0; i < cardNumber.length() && digits < KEY_DIGITS; i++) {
+            char c = cardNumber.charAt(i);
+            if (Character.isWhitespace(c)) continue;
+            if (c < '0' || c > '9') return -1;
+            key = key * 10 + (c - '0');
+            digits++;
+        }
+        return digits == KEY_DIGITS ? key : -1;
+    }
+
+    public int size() {
+        return lows.length;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.converge.bin;
+
+/** Card network, derived from the published IIN ranges when the BIN table has no entry. */
+public enum CardBrand {
+    VISA, MASTERCARD, AMEX, DISCOVER, DINERS, JCB, UNIONPAY, UNKNOWN;
+
+    /** Brand of an 8-digit BIN key (the first eight digits of the card number). */
+    public static CardBrand of(int bin) {
+        int d1 = bin / 10_000_000;
+        int d2 = bin / 1_000_000;
+        int d3 = bin / 100_000;
+        int d4 = bin / 10_000;
+        if (d1 == 4) return VISA;
+        if ((d2 >= 51 && d2 <= 55) || (d4 >= 2221 && d4 <= 2720)) return MASTERCARD;
+        if (d2 == 34 || d2 == 37) return AMEX;
+        if (d4 == 6011 || (d3 >= 644 && d3 <= 649) || d2 == 65) return DISCOVER;
+        if (d2 == 62) return UNIONPAY;
+        if (d4 >= 3528 && d4 <= 3589) return JCB;
+        if ((d3 >= 300 && d3 <= 305) || d2 == 36 || d2 == 38 || d2 == 39) return DINERS;
+        return UNKNOWN;
+    }
+}
@@ -0,0 +1,268 @@
+package com.example.converge.capture;
+
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.response.SaleResponse;
+import com.example.converge.dto.xml.ConvergeXmlTransaction;
+import com.example.converge.exception.UnknownMerchantException;
+import com.example.converge.exception.UpstreamFailureException;
+import com.example.converge.mapper.ConvergeMapper;
+import com.example.converge.merchant.MerchantAccount;
+import com.example.converge.merchant.MerchantRegistry;
+import com.example.converge.service.ConvergeClient;
+import com.example.converge.service.RetryEngine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Captures deferred-capture sales after checkout. Approved CCAUTHONLY transactions are queued and a
+ * background thread sends a CCCOMPLETE for up to {@code batch-size} of them every {@code interval-ms},
+ * one at a time, so settlement traffic reaches Converge at a steady rate instead of with the
+ * checkout peak. The authorizations closest to expiry go first. A capture that fails before it was
+ * sent stays queued and the rest of that batch waits for the next run. One that fails after it may
+ * have reached Converge (a read timeout, a dropped connection, a 5xx) is kept as in doubt: the next
+ * run asks Converge with {@code txnquery} whether the authorization was completed before sending it
+ * again. A capture Converge rejects is dropped and logged, unless {@code txnquery} shows the
+ * authorization was completed after all. Queued captures are money owed to the
+ * merchant, so the queue only runs on a {@code store-file} that survives restarts; without one,
+ * deferred-capture sales are refused before they are authorized.
+ */
+@Component
+public class CaptureQueue implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CaptureQueue.class);
+
+    private final ConvergeClient client;
+    private final ConvergeResponseDecoder decoder;
+    private final MerchantRegistry merchants;
+    private final ConvergeProperties.Capture config;
+    private final PriorityQueue<PendingCapture> pending = new PriorityQueue<>(Comparator.comparingLong(PendingCapture::expiresAt));
+    private final FileCaptureStore store;
+    private final ScheduledExecutorService scheduler;
+    private final Timer lag;
+    private final Counter captured;
+    private final Counter failed;
+    private final Counter expired;
+    private final Counter retried;
+
+    public CaptureQueue(ConvergeClient client, ConvergeResponseDecoder decoder, MerchantRegistry merchants,
+                        ConvergeProperties properties, ObjectMapper objectMapper, MeterRegistry registry) {
+        this.client = client;
+        this.decoder = decoder;
+        this.merchants = merchants;
+        this.config = properties.getCapture();
+        this.lag = Timer.builder("converge.capture.lag").description("Time from authorization to capture").register(registry);
+        this.captured = Counter.builder("converge.capture").tag("result", "captured").register(registry);
+        this.failed = Counter.builder("converge.capture").tag("result", "failed").register(registry);
+        this.expired = Counter.builder("converge.capture").tag("result", "expired").register(registry);
+        this.retried = Counter.builder("converge.capture").tag("result", "retried").register(registry);
+        Gauge.builder("converge.capture.pending", this, CaptureQueue::depth).register(registry);
+        Gauge.builder("converge.capture.oldest.age", this, CaptureQueue::oldestAgeSeconds).baseUnit("seconds").register(registry);
+
+        if (StringUtils.hasText(config.getStoreFile())) {
+            this.store = new FileCaptureStore(Path.of(config.getStoreFile()), objectMapper);
+            pending.addAll(store.open());
+            log.info("Loaded {} pending captures from {}", pending.size(), config.getStoreFile());
+        } else {
+            this.store = null;
+            log.info("Deferred capture is off until converge.capture.store-file is set");
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("capture-");
+        threadFactory.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        if (store != null) {
+            scheduler.scheduleWithFixedDelay(this::drain, config.getIntervalMs(), config.getIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** False until {@code converge.capture.store-file} is set. */
+    public boolean isEnabled() {
+        return store != null;
+    }
+
+    /** Queues the CCCOMPLETE for an approved authorization. */
+    public void enqueue(MerchantAccount merchant, String invoiceNumber, String amount, SaleResponse authorization) {
+        if (store == null) throw new IllegalStateException("converge.capture.store-file is not set");
+        long now = System.currentTimeMillis();
+        PendingCapture capture = new PendingCapture(authorization.getTransactionId(), merchant.getKey(), invoiceNumber,
+            amount, now, now + config.getAuthValidityMs(), false);
+        try {
+            store.append(capture);
+        } catch (RuntimeException e) {
+            log.error("Could not persist capture for transaction {}; it is lost on restart: {}", capture.transactionId(), e.getMessage());
+        }
+        synchronized (pending) {
+            pending.add(capture);
+        }
+    }
+
+    public int depth() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    private double oldestAgeSeconds() {
+        long oldest = Long.MAX_VALUE;
+        synchronized (pending) {
+            for (PendingCapture capture : pending) oldest = Math.min(oldest, capture.authorizedAt());
+        }
+        return oldest == Long.MAX_VALUE ? 0 : (System.currentTimeMillis() - oldest) / 1000.0;
+    }
+
+    // runs on the scheduler: anything escaping would cancel every later run
+    void drain() {
+        try {
+            captureBatch();
+        } catch (Throwable e) {
+            log.error("Capture run failed", e);
+        }
+    }
+
+    private void captureBatch() {
+        List<PendingCapture> batch = new ArrayList<>(config.getBatchSize());
+        synchronized (pending) {
+            while (batch.size() < config.getBatchSize() && !pending.isEmpty()) batch.add(pending.poll());
+        }
+        int next = 0;
+        try {
+            for (; next < batch.size(); next++) {
+                PendingCapture capture = batch.get(next);
+                if (capture.expiresAt() <= System.currentTimeMillis()) {
+                    expired.increment();
+                    log.warn("Authorization {} for invoice {} expired before it was captured", capture.transactionId(), capture.invoiceNumber());
+                    settled(capture);
+                    continue;
+                }
+                try {
+                    complete(capture);
+                } catch (RuntimeException e) {
+                    // not captured, or not known to be; try again on the next run, asking first if it may have been sent
+                    retried.increment();
+                    UpstreamFailureException failure = RetryEngine.classify(e);
+                    if (failure != null && !failure.getKind().isSafeToRetry() && !capture.inDoubt()) {
+                        log.warn("Capture of transaction {} for invoice {} is in doubt: {}", capture.transactionId(),
+                            capture.invoiceNumber(), e.getMessage());
+                        batch.set(next, inDoubt(capture));
+                    } else {
+                        log.debug("Capture of {} deferred: {}", capture.transactionId(), e.getMessage());
+                    }
+                    return;
+                }
+            }
+        } finally {
+            // the rest of the batch waits for the next run, also when an Error cut this one short
+            if (next < batch.size()) {
+                synchronized (pending) {
+                    pending.addAll(batch.subList(next, batch.size()));
+                }
+            }
+        }
+    }
+
+    private void complete(PendingCapture capture) {
+        MerchantAccount merchant;
+        try {
+            merchant = merchants.resolve(capture.merchantKey());
+        } catch (UnknownMerchantException e) {
+            failed(capture, e.getMessage());
+            return;
+        }
+        if (capture.inDoubt() && alreadyCompleted(merchant, capture)) {
+            log.info("Capture of transaction {} for invoice {} had gone through", capture.transactionId(), capture.invoiceNumber());
+            captured(capture);
+            return;
+        }
+        ConvergeXmlTransaction completion = ConvergeMapper.toXmlTransaction("cccomplete", merchant)
+            .field("ssl_txn_id", capture.transactionId())
+            .field("ssl_amount", capture.amount());
+        Map<String, String> fields = merchant.call(() -> client.execute(completion, decoder::decodeFields));
+        if (fields.get("errorCode") != null) {
+            // Converge also refuses a completion it already has, e.g. after a lost response that was not in doubt
+            if (alreadyCompleted(merchant, capture)) {
+                log.info("Capture of transaction {} for invoice {} had already gone through ({} {})", capture.transactionId(),
+                    capture.invoiceNumber(), fields.get("errorCode"), fields.get("errorMessage"));
+                captured(capture);
+            } else {
+                failed(capture, fields.get("errorCode") + " " + fields.get("errorMessage"));
+            }
+        } else if (!"0".equals(fields.get("ssl_result"))) {
+            failed(capture, fields.get("ssl_result_message"));
+        } else {
+            captured(capture);
+        }
+    }
+
+    // whether Converge lists the authorization as completed; one still listed as an auth-only, or not at all, was not
+    private boolean alreadyCompleted(MerchantAccount merchant, PendingCapture capture) {
+        ConvergeXmlTransaction query = ConvergeMapper.toXmlTransaction("txnquery", merchant)
+            .field("ssl_txn_id", capture.transactionId());
+        boolean[] completed = new boolean[1];
+        merchant.call(() -> client.execute(query, body -> decoder.forEachTxn(body, txn -> {
+            if (txn.containsKey("errorCode")) {
+                throw new UpstreamFailureException(UpstreamFailureException.Kind.ERROR_CODE,
+                    "Converge txnquery failed: " + txn.get("errorCode") + " " + txn.get("errorMessage"), null);
+            }
+            String type = txn.get("ssl_transaction_type");
+            if (type != null && !type.toUpperCase(Locale.ROOT).endsWith("AUTHONLY")) completed[0] = true;
+        })));
+        return completed[0];
+    }
+
+    private PendingCapture inDoubt(PendingCapture capture) {
+        PendingCapture marked = capture.markInDoubt();
+        try {
+            store.append(marked); // replaces the earlier line for this transaction on reload
+        } catch (RuntimeException e) {
+            log.warn("Could not persist in-doubt capture {}: {}", capture.transactionId(), e.getMessage());
+        }
+        return marked;
+    }
+
+    private void captured(PendingCapture capture) {
+        captured.increment();
+        lag.record(System.currentTimeMillis() - capture.authorizedAt(), TimeUnit.MILLISECONDS);
+        settled(capture);
+    }
+
+    private void failed(PendingCapture capture, String reason) {
+        failed.increment();
+        log.warn("Capture of transaction {} for invoice {} failed: {}", capture.transactionId(), capture.invoiceNumber(), reason);
+        settled(capture);
+    }
+
+    private void settled(PendingCapture capture) {
+        try {
+            store.settled(capture.transactionId());
+        } catch (RuntimeException e) {
+            log.warn("Could not persist settled capture {}: {}", capture.transactionId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        scheduler.shutdownNow();
+        if (store != null) store.close();
+    }
+}
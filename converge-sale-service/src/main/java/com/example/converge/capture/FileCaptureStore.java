@@ -0,0 +1,96 @@
+package com.example.converge.capture;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only JSON-lines file of queued and settled captures. On open, settled, expired and
+ * unreadable lines are dropped and the file is rewritten with only the captures still pending.
+ */
+public class FileCaptureStore implements AutoCloseable {
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private BufferedWriter writer;
+
+    public FileCaptureStore(Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    public synchronized List<PendingCapture> open() {
+        Map<String, PendingCapture> pending = new LinkedHashMap<>();
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            if (Files.exists(file)) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    Line entry = parse(line);
+                    if (entry == null) continue;
+                    if (entry.pending() != null) pending.put(entry.pending().transactionId(), entry.pending());
+                    if (entry.settled() != null) pending.remove(entry.settled());
+                }
+            }
+            long now = System.currentTimeMillis();
+            pending.values().removeIf(capture -> capture.expiresAt() <= now);
+            Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+            try (BufferedWriter out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+                for (PendingCapture capture : pending.values()) {
+                    out.write(objectMapper.writeValueAsString(new Line(capture, null)));
+                    out.newLine();
+                }
+            }
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open capture store " + file, e);
+        }
+        return new ArrayList<>(pending.values());
+    }
+
+    public void append(PendingCapture capture) {
+        write(new Line(capture, null));
+    }
+
+    /** Records that the capture is finished with, captured or not, so it is not reloaded. */
+    public void settled(String transactionId) {
+        write(new Line(null, transactionId));
+    }
+
+    private synchronized void write(Line line) {
+        try {
+            writer.write(objectMapper.writeValueAsString(line));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to capture store " + file, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) writer.close();
+    }
+
+    private Line parse(String line) {
+        if (line.isBlank()) return null;
+        try {
+            return objectMapper.readValue(line, Line.class);
+        } catch (IOException e) {
+            return null; // torn last line after a crash
+        }
+    }
+
+    private record Line(PendingCapture pending, String settled) {}
+}
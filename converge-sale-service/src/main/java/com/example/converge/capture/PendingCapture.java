@@ -0,0 +1,13 @@
+package com.example.converge.capture;
+
+/**
+ * An approved CCAUTHONLY waiting for its CCCOMPLETE; after {@code expiresAt} the authorization can no longer be captured.
+ * {@code inDoubt} is set once a CCCOMPLETE for it may have reached Converge without an answer coming back.
+ */
+public record PendingCapture(String transactionId, String merchantKey, String invoiceNumber, String amount,
+                             long authorizedAt, long expiresAt, boolean inDoubt) {
+
+    PendingCapture markInDoubt() {
+        return new PendingCapture(transactionId, merchantKey, invoiceNumber, amount, authorizedAt, expiresAt, true);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.converge.codec;
+
+import com.example.converge.dto.xml.ConvergeSaleXmlRequest;
+import com.example.converge.dto.xml.ConvergeXmlTransaction;
+import com.example.converge.merchant.MerchantAccount;
+import com.example.converge.merchant.MerchantRegistry;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Encodes a sale as the {@code xmldata=<txn>...</txn>} form body Converge expects, writing
+ * URL-encoded bytes directly to the request stream. Tags and each registered merchant's
+ * credential block are encoded once; only the per-sale values are escaped per request.
+ */
+@Component
+public class ConvergeRequestEncoder {
+
+    private static final byte[] XMLDATA = "xmldata=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TXN_OPEN = FormBodyWriter.formEncode("<txn>");
+    private static final byte[] TXN_CLOSE = FormBodyWriter.formEncode("</txn>");
+    private static final byte[] LT = FormBodyWriter.formEncode("<");
+    private static final byte[] LT_SLASH = FormBodyWriter.formEncode("</");
+    private static final byte[] GT = FormBodyWriter.formEncode(">");
+
+    private static final Tag MERCHANT_ID = Tag.of("ssl_merchant_ID");
+    private static final Tag USER_ID = Tag.of("ssl_user_id");
+    private static final Tag PIN = Tag.of("ssl_pin");
+    private static final Tag TRANSACTION_TYPE = Tag.of("ssl_transaction_type");
+    private static final Tag FIRST_NAME = Tag.of("ssl_first_name");
+    private static final Tag LAST_NAME = Tag.of("ssl_last_name");
+    private static final Tag CARD_NUMBER = Tag.of("ssl_card_number");
+    private static final Tag EXP_DATE = Tag.of("ssl_exp_date");
+    private static final Tag CVV = Tag.of("ssl_cvv2cvc2");
+    private static final Tag AMOUNT = Tag.of("ssl_amount");
+    private static final Tag AVS_ADDRESS = Tag.of("ssl_avs_address");
+    private static final Tag AVS_ZIP = Tag.of("ssl_avs_zip");
+    private static final Tag INVOICE_NUMBER = Tag.of("ssl_invoice_number");
+
+    // keyed by ssl_merchant_id; a second user on the same account falls back to encoding per request
+    private final Map<String, Credentials> credentialPrefixes;
+
+    public ConvergeRequestEncoder(MerchantRegistry merchants) {
+        Map<String, Credentials> prefixes = new HashMap<>();
+        for (MerchantAccount merchant : merchants.all()) {
+            if (merchant.getMerchantId() == null) continue;
+            prefixes.putIfAbsent(merchant.getMerchantId(), new Credentials(merchant.getUserId(), merchant.getPin(),
+                encodeCredentials(merchant.getMerchantId(), merchant.getUserId(), merchant.getPin())));
+        }
+        this.credentialPrefixes = Map.copyOf(prefixes);
+    }
+
+    public long contentLength(ConvergeSaleXmlRequest request) {
+        FormBodyWriter writer = FormBodyWriter.measuring();
+        try {
+            write(request, writer);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to measure XML request", e);
+        }
+        return writer.length();
+    }
+
+    public void encode(ConvergeSaleXmlRequest request, OutputStream out) throws IOException {
+        FormBodyWriter writer = FormBodyWriter.to(out);
+        write(request, writer);
+        writer.flush();
+    }
+
+    public long contentLength(ConvergeXmlTransaction transaction) {
+        FormBodyWriter writer = FormBodyWriter.measuring();
+        try {
+            write(transaction, writer);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to measure XML request", e);
+        }
+        return writer.length();
+    }
+
+    public void encode(ConvergeXmlTransaction transaction, OutputStream out) throws IOException {
+        FormBodyWriter writer = FormBodyWriter.to(out);
+        write(transaction, writer);
+        writer.flush();
+    }
+
+    private void write(ConvergeXmlTransaction transaction, FormBodyWriter writer) throws IOException {
+        writeCredentials(writer, transaction.getMerchantId(), transaction.getUserId(), transaction.getPin());
+        element(writer, TRANSACTION_TYPE, transaction.getTransactionType());
+        for (Map.Entry<String, String> field : transaction.getFields().entrySet()) {
+            if (field.getValue() == null) continue;
+            // Field names are plain ssl_* identifiers, which form-encode to themselves
+            writer.writeRaw(LT);
+            writer.writeText(field.getKey());
+            writer.writeRaw(GT);
+            writer.writeText(field.getValue());
+            writer.writeRaw(LT_SLASH);
+            writer.writeText(field.getKey());
+            writer.writeRaw(GT);
+        }
+        writer.writeRaw(TXN_CLOSE);
+    }
+
+    private void write(ConvergeSaleXmlRequest request, FormBodyWriter writer) throws IOException {
+        writeCredentials(writer, request.getMerchantId(), request.getUserId(), request.getPin());
+        element(writer, TRANSACTION_TYPE, request.getTransactionType());
+        element(writer, FIRST_NAME, request.getFirstName());
+        element(writer, LAST_NAME, request.getLastName());
+        element(writer, CARD_NUMBER, request.getCardNumber());
+        element(writer, EXP_DATE, request.getExpDateMmYy());
+        element(writer, CVV, request.getCvv());
+        element(writer, AMOUNT, request.getAmount());
+        element(writer, AVS_ADDRESS, request.getAvsAddress());
+        element(writer, AVS_ZIP, request.getAvsZip());
+        element(writer, INVOICE_NUMBER, request.getInvoiceNumber());
+        writer.writeRaw(TXN_CLOSE);
+    }
+
+    private void writeCredentials(FormBodyWriter writer, String merchantId, String userId, String pin) throws IOException {
+        Credentials known = merchantId != null ? credentialPrefixes.get(merchantId) : null;
+        if (known != null && Objects.equals(userId, known.userId()) && Objects.equals(pin, known.pin())) {
+            writer.writeRaw(known.prefix());
+        } else {
+            writeCredentialBlock(writer, merchantId, userId, pin);
+        }
+    }
+
+    private static byte[] encodeCredentials(String merchantId, String userId, String pin) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            FormBodyWriter writer = FormBodyWriter.to(bytes);
+            writeCredentialBlock(writer, merchantId, userId, pin);
+            writer.flush();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode Converge credentials", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeCredentialBlock(FormBodyWriter writer, String merchantId, String userId, String pin) throws IOException {
+        writer.writeRaw(XMLDATA);
+        writer.writeRaw(TXN_OPEN);
+        element(writer, MERCHANT_ID, merchantId);
+        element(writer, USER_ID, userId);
+        element(writer, PIN, pin);
+    }
+
+    private static void element(FormBodyWriter writer, Tag tag, String value) throws IOException {
+        if (value == null) return; // JAXB omitted null elements as well
+        writer.writeRaw(tag.open());
+        writer.writeText(value);
+        writer.writeRaw(tag.close());
+    }
+
+    private record Credentials(String userId, String pin, byte[] prefix) {}
+
+    private record Tag(byte[] open, byte[] close) {
+        static Tag of(String name) {
+            return new Tag(FormBodyWriter.formEncode("<" + name + ">"), FormBodyWriter.formEncode("</" + name + ">"));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.converge.codec;
+
+import com.example.converge.dto.xml.ConvergeSaleXmlResponse;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Pull-parses a Converge {@code <txn>} response straight off the response stream.
+ * Only the elements read by {@link com.example.converge.mapper.ConvergeMapper} are
+ * materialised; everything else is skipped without building a String.
+ */
+@Component
+public class ConvergeResponseDecoder {
+
+    private final XMLInputFactory inputFactory;
+
+    public ConvergeResponseDecoder() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+        this.inputFactory = factory;
+    }
+
+    public ConvergeSaleXmlResponse decode(InputStream body) {
+        XMLStreamReader reader = null;
+        try {
+            reader = inputFactory.createXMLStreamReader(body);
+            reader.nextTag(); // root <txn>
+            ConvergeSaleXmlResponse response = new ConvergeSaleXmlResponse();
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                readField(reader, response);
+            }
+            return response;
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Failed to unmarshal XML response", e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    /** Every child of a flat {@code <txn>} response, keyed by element name. */
+    public Map<String, String> decodeFields(InputStream body) {
+        Map<String, Map<String, String>> single = new HashMap<>(1);
+        forEachTxn(body, fields -> single.put("txn", fields));
+        return single.getOrDefault("txn", Map.of());
+    }
+
+    /**
+     * Streams a {@code <txnlist>} result set, handing each {@code <txn>} to {@code sink} as soon
+     * as it has been read; only one transaction is held at a time. A bare {@code <txn>} root
+     * (including the errorCode shape) is delivered as a single entry. Returns the list's own
+     * text elements, such as {@code ssl_txn_count} and {@code ssl_next_txn_time}.
+     */
+    public Map<String, String> forEachTxn(InputStream body, Consumer<Map<String, String>> sink) {
+        XMLStreamReader reader = null;
+        try {
+            reader = inputFactory.createXMLStreamReader(body);
+            reader.nextTag();
+            Map<String, String> listFields = new HashMap<>();
+            if ("txn".equals(reader.getLocalName())) {
+                sink.accept(readFields(reader));
+                return listFields;
+            }
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                if ("txn".equals(reader.getLocalName())) sink.accept(readFields(reader));
+                else readListField(reader, listFields);
+            }
+            return listFields;
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Failed to unmarshal XML response", e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    private static Map<String, String> readFields(XMLStreamReader reader) throws XMLStreamException {
+        Map<String, String> fields = new HashMap<>();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            fields.put(reader.getLocalName(), reader.getElementText());
+        }
+        return fields;
+    }
+
+    private static void readField(XMLStreamReader reader, ConvergeSaleXmlResponse response) throws XMLStreamException {
+        switch (reader.getLocalName()) {
+            case "ssl_result" -> response.setResult(reader.getElementText());
+            case "ssl_result_message" -> response.setResultMessage(reader.getElementText());
+            case "ssl_txn_id" -> response.setTransactionId(reader.getElementText());
+            case "ssl_approval_code" -> response.setApprovalCode(reader.getElementText());
+            case "ssl_avs_response" -> response.setAvsResponse(reader.getElementText());
+            case "ssl_cvv2_response" -> response.setCvv2Response(reader.getElementText());
+            case "ssl_issuer_response" -> response.setIssuerResponse(reader.getElementText());
+            case "ssl_txn_time" -> response.setTxnTime(reader.getElementText());
+            case "errorCode" -> response.setErrorCode(reader.getElementText());
+            case "errorName" -> response.setErrorName(reader.getElementText());
+            case "errorMessage" -> response.setErrorMessage(reader.getElementText());
+            default -> skipElement(reader);
+        }
+    }
+
+    // keeps the element if it is plain text, skips it otherwise
+    private static void readListField(XMLStreamReader reader, Map<String, String> fields) throws XMLStreamException {
+        String name = reader.getLocalName();
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                text.append(reader.getText());
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                skipElement(reader);
+                skipElement(reader);
+                return;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                fields.put(name, text.toString());
+                return;
+            }
+        }
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT) depth--;
+        }
+    }
+
+    private static void close(XMLStreamReader reader) {
+        if (reader == null) return;
+        try {
+            reader.close();
+        } catch (XMLStreamException ignored) {
+            // nothing left to release
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.converge.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes {@code application/x-www-form-urlencoded} bytes, XML-escaping text on the fly.
+ * Created without a stream it only counts, so the exact Content-Length can be known
+ * before any byte is sent.
+ */
+final class FormBodyWriter {
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] AMP = formEncode("&amp;");
+    private static final byte[] LT = formEncode("&lt;");
+    private static final byte[] GT = formEncode("&gt;");
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private int position;
+    private long length;
+
+    private FormBodyWriter(OutputStream out) {
+        this.out = out;
+        this.buffer = out != null ? new byte[512] : null;
+    }
+
+    static FormBodyWriter to(OutputStream out) {
+        return new FormBodyWriter(out);
+    }
+
+    static FormBodyWriter measuring() {
+        return new FormBodyWriter(null);
+    }
+
+    long length() {
+        return length;
+    }
+
+    void writeRaw(byte[] bytes) throws IOException {
+        length += bytes.length;
+        if (out == null) return;
+        if (bytes.length > buffer.length - position) {
+            flush();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    void writeText(String text) throws IOException {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c == '&') writeRaw(AMP);
+            else if (c == '<') writeRaw(LT);
+            else if (c == '>') writeRaw(GT);
+            else if (isUnreserved(c)) put(c);
+            else if (c == ' ') put('+');
+            else if (c < 0x80) percent(c);
+            else if (c < 0x800) {
+                percent(0xC0 | (c >> 6));
+                percent(0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(++i));
+                percent(0xF0 | (cp >> 18));
+                percent(0x80 | ((cp >> 12) & 0x3F));
+                percent(0x80 | ((cp >> 6) & 0x3F));
+                percent(0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                percent('?'); // unpaired surrogate, same substitution URLEncoder makes
+            } else {
+                percent(0xE0 | (c >> 12));
+                percent(0x80 | ((c >> 6) & 0x3F));
+                percent(0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    void flush() throws IOException {
+        if (out != null && position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private void percent(int b) throws IOException {
+        put('%');
+        put(HEX[(b >> 4) & 0xF]);
+        put(HEX[b & 0xF]);
+    }
+
+    private void put(int b) throws IOException {
+        length++;
+        if (out == null) return;
+        if (position == buffer.length) flush();
+        buffer[position++] = (byte) b;
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+            || c == '.' || c == '-' || c == '*' || c == '_';
+    }
+
+    static byte[] formEncode(String raw) {
+        return URLEncoder.encode(raw, StandardCharsets.UTF_8).getBytes(StandardCharsets.US_ASCII);
+    }
+}
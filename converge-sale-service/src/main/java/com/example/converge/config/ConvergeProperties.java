@@ -1,7 +1,13 @@
 package com.example.converge.config;
 
+import com.example.converge.admission.Priority;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @ConfigurationProperties(prefix = "converge")
 public class ConvergeProperties {
     private String baseUrl;
@@ -9,6 +15,25 @@ public class ConvergeProperties {
     private String sslUserId;
     private String sslPin;
     private int timeoutMs = 10000;
+    private Http http = new Http();
+    private Bulkhead bulkhead = new Bulkhead();
+    private Async async = new Async();
+    private Idempotency idempotency = new Idempotency();
+    private Batch batch = new Batch();
+    private BatchImport batchImport = new BatchImport();
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private Limiter limiter = new Limiter();
+    private Retry retry = new Retry();
+    private Bin bin = new Bin();
+    private Journal journal = new Journal();
+    private Reconciliation reconciliation = new Reconciliation();
+    private Map<String, Merchant> merchants = new LinkedHashMap<>();
+    private Audit audit = new Audit();
+    private Lookup lookup = new Lookup();
+    private Capture capture = new Capture();
+    private Admission admission = new Admission();
+    private Jfr jfr = new Jfr();
+    private Warmup warmup = new Warmup();
 
     public String getBaseUrl() { return baseUrl; }
     public void setBaseUrl(String baseUrl) { this.baseUrl = baseUrl; }
@@ -20,6 +45,483 @@ public class ConvergeProperties {
     public void setSslPin(String sslPin) { this.sslPin = sslPin; }
     public int getTimeoutMs() { return timeoutMs; }
     public void setTimeoutMs(int timeoutMs) { this.timeoutMs = timeoutMs; }
-}
+    public Http getHttp() { return http; }
+    public void setHttp(Http http) { this.http = http; }
+    public Bulkhead getBulkhead() { return bulkhead; }
+    public void setBulkhead(Bulkhead bulkhead) { this.bulkhead = bulkhead; }
+    public Async getAsync() { return async; }
+    public void setAsync(Async async) { this.async = async; }
+    public Idempotency getIdempotency() { return idempotency; }
+    public void setIdempotency(Idempotency idempotency) { this.idempotency = idempotency; }
+    public Batch getBatch() { return batch; }
+    public void setBatch(Batch batch) { this.batch = batch; }
+    public BatchImport getBatchImport() { return batchImport; }
+    public void setBatchImport(BatchImport batchImport) { this.batchImport = batchImport; }
+    public CircuitBreaker getCircuitBreaker() { return circuitBreaker; }
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) { this.circuitBreaker = circuitBreaker; }
+    public Limiter getLimiter() { return limiter; }
+    public void setLimiter(Limiter limiter) { this.limiter = limiter; }
+    public Retry getRetry() { return retry; }
+    public void setRetry(Retry retry) { this.retry = retry; }
+    public Bin getBin() { return bin; }
+    public void setBin(Bin bin) { this.bin = bin; }
+    public Journal getJournal() { return journal; }
+    public void setJournal(Journal journal) { this.journal = journal; }
+    public Reconciliation getReconciliation() { return reconciliation; }
+    public void setReconciliation(Reconciliation reconciliation) { this.reconciliation = reconciliation; }
+    public Map<String, Merchant> getMerchants() { return merchants; }
+    public void setMerchants(Map<String, Merchant> merchants) { this.merchants = merchants; }
+    public Audit getAudit() { return audit; }
+    public void setAudit(Audit audit) { this.audit = audit; }
+    public Lookup getLookup() { return lookup; }
+    public void setLookup(Lookup lookup) { this.lookup = lookup; }
+    public Capture getCapture() { return capture; }
+    public void setCapture(Capture capture) { this.capture = capture; }
+    public Admission getAdmission() { return admission; }
+    public void setAdmission(Admission admission) { this.admission = admission; }
+    public Jfr getJfr() { return jfr; }
+    public void setJfr(Jfr jfr) { this.jfr = jfr; }
+    public Warmup getWarmup() { return warmup; }
+    public void setWarmup(Warmup warmup) { this.warmup = warmup; }
+
+    public int connectTimeoutMs() { return http.connectTimeoutMs != null ? http.connectTimeoutMs : timeoutMs; }
+    public int readTimeoutMs() { return http.readTimeoutMs != null ? http.readTimeoutMs : timeoutMs; }
+
+    public enum Transport { APACHE, JDK, SIMPLE }
+
+    /** Transport settings; connect/read timeouts fall back to {@code timeout-ms} when unset. */
+    public static class Http {
+        private Transport transport = Transport.APACHE;
+        private int maxConnectionsPerRoute = 50;
+        private int maxConnectionsTotal = 200;
+        private long idleEvictionMs = 30000;
+        private long connectionTtlMs = 300000;
+        private Integer connectTimeoutMs;
+        private Integer readTimeoutMs;
+        private int connectionRequestTimeoutMs = 1000;
+
+        public Transport getTransport() { return transport; }
+        public void setTransport(Transport transport) { this.transport = transport; }
+        public int getMaxConnectionsPerRoute() { return maxConnectionsPerRoute; }
+        public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) { this.maxConnectionsPerRoute = maxConnectionsPerRoute; }
+        public int getMaxConnectionsTotal() { return maxConnectionsTotal; }
+        public void setMaxConnectionsTotal(int maxConnectionsTotal) { this.maxConnectionsTotal = maxConnectionsTotal; }
+        public long getIdleEvictionMs() { return idleEvictionMs; }
+        public void setIdleEvictionMs(long idleEvictionMs) { this.idleEvictionMs = idleEvictionMs; }
+        public long getConnectionTtlMs() { return connectionTtlMs; }
+        public void setConnectionTtlMs(long connectionTtlMs) { this.connectionTtlMs = connectionTtlMs; }
+        public Integer getConnectTimeoutMs() { return connectTimeoutMs; }
+        public void setConnectTimeoutMs(Integer connectTimeoutMs) { this.connectTimeoutMs = connectTimeoutMs; }
+        public Integer getReadTimeoutMs() { return readTimeoutMs; }
+        public void setReadTimeoutMs(Integer readTimeoutMs) { this.readTimeoutMs = readTimeoutMs; }
+        public int getConnectionRequestTimeoutMs() { return connectionRequestTimeoutMs; }
+        public void setConnectionRequestTimeoutMs(int connectionRequestTimeoutMs) { this.connectionRequestTimeoutMs = connectionRequestTimeoutMs; }
+    }
+
+    /** Caps concurrent upstream calls; callers wait up to {@code max-wait-ms} for a permit. */
+    public static class Bulkhead {
+        private int maxConcurrent = 50;
+        private long maxWaitMs = 1000;
+
+        public int getMaxConcurrent() { return maxConcurrent; }
+        public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+        public long getMaxWaitMs() { return maxWaitMs; }
+        public void setMaxWaitMs(long maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+    }
+
+    /** Non-blocking client used by the async sale endpoint. */
+    public static class Async {
+        private int threads = 4;
+
+        public int getThreads() { return threads; }
+        public void setThreads(int threads) { this.threads = threads; }
+    }
+
+    /** Duplicate suppression keyed on the client's invoice number; {@code store-file} persists results across restarts. */
+    public static class Idempotency {
+        private boolean enabled = true;
+        private boolean requireInvoiceNumber;
+        private long ttlMs = 86400000;
+        private int maxEntries = 100000;
+        private String storeFile;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public boolean isRequireInvoiceNumber() { return requireInvoiceNumber; }
+        public void setRequireInvoiceNumber(boolean requireInvoiceNumber) { this.requireInvoiceNumber = requireInvoiceNumber; }
+        public long getTtlMs() { return ttlMs; }
+        public void setTtlMs(long ttlMs) { this.ttlMs = ttlMs; }
+        public int getMaxEntries() { return maxEntries; }
+        public void setMaxEntries(int maxEntries) { this.maxEntries = maxEntries; }
+        public String getStoreFile() { return storeFile; }
+        public void setStoreFile(String storeFile) { this.storeFile = storeFile; }
+    }
+
+    /** Streaming batch endpoint: {@code concurrency} sales in flight per batch, {@code threads} shared across batches. */
+    public static class Batch {
+        private int concurrency = 16;
+        private int threads = 32;
+
+        public int getConcurrency() { return concurrency; }
+        public void setConcurrency(int concurrency) { this.concurrency = concurrency; }
+        public int getThreads() { return threads; }
+        public void setThreads(int threads) { this.threads = threads; }
+    }
+
+    /**
+     * File-based bulk load through {@code processBatch.do}; {@code url} defaults to the sibling of {@code base-url}.
+     * The import file holds full card data until it is uploaded, so there is no default {@code work-dir}: batch
+     * import stays off until one is configured. Finished jobs are forgotten after {@code job-retention-ms}.
+     */
+    public static class BatchImport {
+        private String url;
+        private String workDir;
+        private long pollIntervalMs = 30000;
+        private long maxWaitMs = 3600000;
+        private long jobRetentionMs = 86400000;
+
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+        public String getWorkDir() { return workDir; }
+        public void setWorkDir(String workDir) { this.workDir = workDir; }
+        public long getPollIntervalMs() { return pollIntervalMs; }
+        public void setPollIntervalMs(long pollIntervalMs) { this.pollIntervalMs = pollIntervalMs; }
+        public long getMaxWaitMs() { return maxWaitMs; }
+        public void setMaxWaitMs(long maxWaitMs) { this.maxWaitMs = maxWaitMs; }
+        public long getJobRetentionMs() { return jobRetentionMs; }
+        public void setJobRetentionMs(long jobRetentionMs) { this.jobRetentionMs = jobRetentionMs; }
+    }
+
+    /**
+     * Opens when at least {@code failure-rate-threshold} of the last {@code window-size} calls timed out,
+     * failed on I/O or got a 5xx, once {@code minimum-calls} have been seen. After {@code open-ms}
+     * it lets {@code half-open-calls} probes through.
+     */
+    public static class CircuitBreaker {
+        private boolean enabled = true;
+        private double failureRateThreshold = 0.5;
+        private int windowSize = 100;
+        private int minimumCalls = 20;
+        private long openMs = 5000;
+        private int halfOpenCalls = 3;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public double getFailureRateThreshold() { return failureRateThreshold; }
+        public void setFailureRateThreshold(double failureRateThreshold) { this.failureRateThreshold = failureRateThreshold; }
+        public int getWindowSize() { return windowSize; }
+        public void setWindowSize(int windowSize) { this.windowSize = windowSize; }
+        public int getMinimumCalls() { return minimumCalls; }
+        public void setMinimumCalls(int minimumCalls) { this.minimumCalls = minimumCalls; }
+        public long getOpenMs() { return openMs; }
+        public void setOpenMs(long openMs) { this.openMs = openMs; }
+        public int getHalfOpenCalls() { return halfOpenCalls; }
+        public void setHalfOpenCalls(int halfOpenCalls) { this.halfOpenCalls = halfOpenCalls; }
+    }
+
+    /**
+     * AIMD concurrency limit for upstream calls: grows by one per window of successful calls and is
+     * cut by {@code backoff-ratio} on a failure, or when latency exceeds {@code latency-tolerance} times
+     * its long-run average.
+     */
+    public static class Limiter {
+        private boolean enabled = true;
+        private int initialLimit = 20;
+        private int minLimit = 2;
+        private int maxLimit = 200;
+        private double backoffRatio = 0.9;
+        private double latencyTolerance = 2.0;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public int getInitialLimit() { return initialLimit; }
+        public void setInitialLimit(int initialLimit) { this.initialLimit = initialLimit; }
+        public int getMinLimit() { return minLimit; }
+        public void setMinLimit(int minLimit) { this.minLimit = minLimit; }
+        public int getMaxLimit() { return maxLimit; }
+        public void setMaxLimit(int maxLimit) { this.maxLimit = maxLimit; }
+        public double getBackoffRatio() { return backoffRatio; }
+        public void setBackoffRatio(double backoffRatio) { this.backoffRatio = backoffRatio; }
+        public double getLatencyTolerance() { return latencyTolerance; }
+        public void setLatencyTolerance(double latencyTolerance) { this.latencyTolerance = latencyTolerance; }
+    }
+
+    /**
+     * Retries of failures that cannot have charged the card, with full-jitter backoff between
+     * {@code base-backoff-ms} and {@code max-backoff-ms}. Retries are capped service-wide at
+     * {@code budget-ratio} of calls, plus {@code min-retries-per-second}.
+     */
+    public static class Retry {
+        private int maxAttempts = 3;
+        private long baseBackoffMs = 100;
+        private long maxBackoffMs = 2000;
+        private double budgetRatio = 0.1;
+        private double minRetriesPerSecond = 1;
+        private List<String> retryableErrorCodes = new ArrayList<>();
 
+        public int getMaxAttempts() { return maxAttempts; }
+        public void setMaxAttempts(int maxAttempts) { this.maxAttempts = maxAttempts; }
+        public long getBaseBackoffMs() { return baseBackoffMs; }
+        public void setBaseBackoffMs(long baseBackoffMs) { this.baseBackoffMs = baseBackoffMs; }
+        public long getMaxBackoffMs() { return maxBackoffMs; }
+        public void setMaxBackoffMs(long maxBackoffMs) { this.maxBackoffMs = maxBackoffMs; }
+        public double getBudgetRatio() { return budgetRatio; }
+        public void setBudgetRatio(double budgetRatio) { this.budgetRatio = budgetRatio; }
+        public double getMinRetriesPerSecond() { return minRetriesPerSecond; }
+        public void setMinRetriesPerSecond(double minRetriesPerSecond) { this.minRetriesPerSecond = minRetriesPerSecond; }
+        public List<String> getRetryableErrorCodes() { return retryableErrorCodes; }
+        public void setRetryableErrorCodes(List<String> retryableErrorCodes) { this.retryableErrorCodes = retryableErrorCodes; }
+    }
 
+    /**
+     * Local BIN screening. {@code file} is a CSV of BIN ranges, re-read when it changes. With
+     * {@code lookup-misses}, BINs not in it are fetched from Converge binlookup every
+     * {@code refresh-interval-ms}, up to {@code max-pending-lookups} per interval. The answers are
+     * kept for {@code learned-ttl-ms}, at most {@code max-learned} of them.
+     */
+    public static class Bin {
+        private boolean enabled = true;
+        private String file;
+        private List<String> rejectedBrands = new ArrayList<>();
+        private boolean rejectPrepaid = false;
+        private boolean lookupMisses = false;
+        private long refreshIntervalMs = 60000;
+        private int maxPendingLookups = 100;
+        private int maxLearned = 10000;
+        private long learnedTtlMs = 86_400_000;
+        private List<String> notFoundErrorCodes = new ArrayList<>(List.of("5000"));
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public String getFile() { return file; }
+        public void setFile(String file) { this.file = file; }
+        public List<String> getRejectedBrands() { return rejectedBrands; }
+        public void setRejectedBrands(List<String> rejectedBrands) { this.rejectedBrands = rejectedBrands; }
+        public boolean isRejectPrepaid() { return rejectPrepaid; }
+        public void setRejectPrepaid(boolean rejectPrepaid) { this.rejectPrepaid = rejectPrepaid; }
+        public boolean isLookupMisses() { return lookupMisses; }
+        public void setLookupMisses(boolean lookupMisses) { this.lookupMisses = lookupMisses; }
+        public long getRefreshIntervalMs() { return refreshIntervalMs; }
+        public void setRefreshIntervalMs(long refreshIntervalMs) { this.refreshIntervalMs = refreshIntervalMs; }
+        public int getMaxPendingLookups() { return maxPendingLookups; }
+        public void setMaxPendingLookups(int maxPendingLookups) { this.maxPendingLookups = maxPendingLookups; }
+        public int getMaxLearned() { return maxLearned; }
+        public void setMaxLearned(int maxLearned) { this.maxLearned = maxLearned; }
+        public long getLearnedTtlMs() { return learnedTtlMs; }
+        public void setLearnedTtlMs(long learnedTtlMs) { this.learnedTtlMs = learnedTtlMs; }
+        public List<String> getNotFoundErrorCodes() { return notFoundErrorCodes; }
+        public void setNotFoundErrorCodes(List<String> notFoundErrorCodes) { this.notFoundErrorCodes = notFoundErrorCodes; }
+    }
+
+    /**
+     * Write-ahead sale journal in {@code dir}: segments of {@code segment-bytes}, the newest
+     * {@code max-segments} kept, msync'd every {@code flush-interval-ms}. With {@code await-durable}
+     * a sale is not sent until its intent record has been flushed. The journal only helps if it outlives
+     * the process, so there is no default {@code dir}: it stays off until one is configured.
+     */
+    public static class Journal {
+        private boolean enabled = true;
+        private String dir;
+        private int segmentBytes = 16 * 1024 * 1024;
+        private int maxSegments = 8;
+        private long flushIntervalMs = 5;
+        private boolean awaitDurable = false;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public String getDir() { return dir; }
+        public void setDir(String dir) { this.dir = dir; }
+        public int getSegmentBytes() { return segmentBytes; }
+        public void setSegmentBytes(int segmentBytes) { this.segmentBytes = segmentBytes; }
+        public int getMaxSegments() { return maxSegments; }
+        public void setMaxSegments(int maxSegments) { this.maxSegments = maxSegments; }
+        public long getFlushIntervalMs() { return flushIntervalMs; }
+        public void setFlushIntervalMs(long flushIntervalMs) { this.flushIntervalMs = flushIntervalMs; }
+        public boolean isAwaitDurable() { return awaitDurable; }
+        public void setAwaitDurable(boolean awaitDurable) { this.awaitDurable = awaitDurable; }
+    }
+
+    /**
+     * End-of-day reconciliation: reports go to {@code work-dir}, days are taken in {@code zone}
+     * (blank for the system zone), and at most {@code max-pages} txnquery pages are read per run. Reports
+     * hold invoice numbers and card masks, so there is no default {@code work-dir}: reconciliation stays
+     * off until one is configured. Finished jobs are forgotten after {@code job-retention-ms}.
+     */
+    public static class Reconciliation {
+        private String workDir;
+        private String zone;
+        private int maxPages = 10000;
+        private long jobRetentionMs = 86400000;
+
+        public String getWorkDir() { return workDir; }
+        public void setWorkDir(String workDir) { this.workDir = workDir; }
+        public String getZone() { return zone; }
+        public void setZone(String zone) { this.zone = zone; }
+        public int getMaxPages() { return maxPages; }
+        public void setMaxPages(int maxPages) { this.maxPages = maxPages; }
+        public long getJobRetentionMs() { return jobRetentionMs; }
+        public void setJobRetentionMs(long jobRetentionMs) { this.jobRetentionMs = jobRetentionMs; }
+    }
+
+    /**
+     * One merchant account, keyed by the {@code merchantKey} clients send. {@code rate-per-second}
+     * (0 for no limit) and {@code burst} size its token bucket; {@code max-connections} (0 for no
+     * cap) is its share of the connection pool. The top-level credentials are merchant
+     * {@code default}; a {@code default} entry here only sets its limits.
+     */
+    public static class Merchant {
+        private String sslMerchantId;
+        private String sslUserId;
+        private String sslPin;
+        private double ratePerSecond = 0;
+        private int burst = 0;
+        private int maxConnections = 0;
+
+        public String getSslMerchantId() { return sslMerchantId; }
+        public void setSslMerchantId(String sslMerchantId) { this.sslMerchantId = sslMerchantId; }
+        public String getSslUserId() { return sslUserId; }
+        public void setSslUserId(String sslUserId) { this.sslUserId = sslUserId; }
+        public String getSslPin() { return sslPin; }
+        public void setSslPin(String sslPin) { this.sslPin = sslPin; }
+        public double getRatePerSecond() { return ratePerSecond; }
+        public void setRatePerSecond(double ratePerSecond) { this.ratePerSecond = ratePerSecond; }
+        public int getBurst() { return burst; }
+        public void setBurst(int burst) { this.burst = burst; }
+        public int getMaxConnections() { return maxConnections; }
+        public void setMaxConnections(int maxConnections) { this.maxConnections = maxConnections; }
+    }
+
+    /**
+     * Audit events are queued in a ring of {@code capacity} and written by one background thread,
+     * which checks for new events every {@code idle-park-ms} when idle. A full ring drops events.
+     */
+    public static class Audit {
+        private boolean enabled = true;
+        private int capacity = 8192;
+        private long idleParkMs = 2;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public int getCapacity() { return capacity; }
+        public void setCapacity(int capacity) { this.capacity = capacity; }
+        public long getIdleParkMs() { return idleParkMs; }
+        public void setIdleParkMs(long idleParkMs) { this.idleParkMs = idleParkMs; }
+    }
+
+    /** Transaction status lookups: results cached for {@code ttl-ms}, "not found" for {@code not-found-ttl-ms}. */
+    public static class Lookup {
+        private int maxEntries = 100000;
+        private long ttlMs = 3600000;
+        private long notFoundTtlMs = 2000;
+
+        public int getMaxEntries() { return maxEntries; }
+        public void setMaxEntries(int maxEntries) { this.maxEntries = maxEntries; }
+        public long getTtlMs() { return ttlMs; }
+        public void setTtlMs(long ttlMs) { this.ttlMs = ttlMs; }
+        public long getNotFoundTtlMs() { return notFoundTtlMs; }
+        public void setNotFoundTtlMs(long notFoundTtlMs) { this.notFoundTtlMs = notFoundTtlMs; }
+    }
+
+    /**
+     * Deferred capture: up to {@code batch-size} CCCOMPLETEs every {@code interval-ms}. Authorizations
+     * not captured within {@code auth-validity-ms} are given up on. There is no default {@code store-file}:
+     * deferred capture stays off until one is configured.
+     */
+    public static class Capture {
+        private long intervalMs = 1000;
+        private int batchSize = 20;
+        private long authValidityMs = 604800000;
+        private String storeFile;
+
+        public long getIntervalMs() { return intervalMs; }
+        public void setIntervalMs(long intervalMs) { this.intervalMs = intervalMs; }
+        public int getBatchSize() { return batchSize; }
+        public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+        public long getAuthValidityMs() { return authValidityMs; }
+        public void setAuthValidityMs(long authValidityMs) { this.authValidityMs = authValidityMs; }
+        public String getStoreFile() { return storeFile; }
+        public void setStoreFile(String storeFile) { this.storeFile = storeFile; }
+    }
+
+    /**
+     * Admission ahead of the sale endpoints: {@code max-concurrent} sales run, up to {@code max-queue}
+     * wait. A queueing delay above {@code target-ms} for a whole {@code interval-ms} sheds the lowest
+     * priority still admitted. {@code api-keys} maps X-Api-Key values to the priority they grant.
+     */
+    public static class Admission {
+        private boolean enabled = true;
+        private int maxConcurrent = 50;
+        private int maxQueue = 500;
+        private long targetMs = 50;
+        private long intervalMs = 500;
+        private long defaultTimeoutMs = 10000;
+        private long maxTimeoutMs = 60000;
+        private Priority defaultPriority = Priority.NORMAL;
+        private Map<String, Priority> apiKeys = new LinkedHashMap<>();
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public int getMaxConcurrent() { return maxConcurrent; }
+        public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+        public int getMaxQueue() { return maxQueue; }
+        public void setMaxQueue(int maxQueue) { this.maxQueue = maxQueue; }
+        public long getTargetMs() { return targetMs; }
+        public void setTargetMs(long targetMs) { this.targetMs = targetMs; }
+        public long getIntervalMs() { return intervalMs; }
+        public void setIntervalMs(long intervalMs) { this.intervalMs = intervalMs; }
+        public long getDefaultTimeoutMs() { return defaultTimeoutMs; }
+        public void setDefaultTimeoutMs(long defaultTimeoutMs) { this.defaultTimeoutMs = defaultTimeoutMs; }
+        public long getMaxTimeoutMs() { return maxTimeoutMs; }
+        public void setMaxTimeoutMs(long maxTimeoutMs) { this.maxTimeoutMs = maxTimeoutMs; }
+        public Priority getDefaultPriority() { return defaultPriority; }
+        public void setDefaultPriority(Priority defaultPriority) { this.defaultPriority = defaultPriority; }
+        public Map<String, Priority> getApiKeys() { return apiKeys; }
+        public void setApiKeys(Map<String, Priority> apiKeys) { this.apiKeys = apiKeys; }
+    }
+
+    /**
+     * The continuous flight recording behind {@code /actuator/jfr}. {@code settings} names a JDK
+     * configuration ({@code default} or {@code profile}); the recording keeps {@code max-age-ms} of
+     * events, at most {@code max-size-mb}, and callers cannot raise either. {@code start-on-startup}
+     * begins it with the application.
+     */
+    public static class Jfr {
+        private boolean startOnStartup;
+        private String settings = "default";
+        private long maxAgeMs = 900000;
+        private long maxSizeMb = 100;
+
+        public boolean isStartOnStartup() { return startOnStartup; }
+        public void setStartOnStartup(boolean startOnStartup) { this.startOnStartup = startOnStartup; }
+        public String getSettings() { return settings; }
+        public void setSettings(String settings) { this.settings = settings; }
+        public long getMaxAgeMs() { return maxAgeMs; }
+        public void setMaxAgeMs(long maxAgeMs) { this.maxAgeMs = maxAgeMs; }
+        public long getMaxSizeMb() { return maxSizeMb; }
+        public void setMaxSizeMb(long maxSizeMb) { this.maxSizeMb = maxSizeMb; }
+    }
+
+    /**
+     * Synthetic sales run through validation, mapping and the codec before the instance reports
+     * ready: at least {@code min-iterations}, then until a batch adds less than {@code settle-ms} of
+     * JIT compile time, stopping at {@code max-iterations} or {@code timeout-ms} regardless.
+     */
+    public static class Warmup {
+        private boolean enabled = true;
+        private int minIterations = 5000;
+        private int maxIterations = 50000;
+        private long settleMs = 10;
+        private long timeoutMs = 60000;
+
+        public boolean isEnabled() { return enabled; }
+        public void setEnabled(boolean enabled) { this.enabled = enabled; }
+        public int getMinIterations() { return minIterations; }
+        public void setMinIterations(int minIterations) { this.minIterations = minIterations; }
+        public int getMaxIterations() { return maxIterations; }
+        public void setMaxIterations(int maxIterations) { this.maxIterations = maxIterations; }
+        public long getSettleMs() { return settleMs; }
+        public void setSettleMs(long settleMs) { this.settleMs = settleMs; }
+        public long getTimeoutMs() { return timeoutMs; }
+        public void setTimeoutMs(long timeoutMs) { this.timeoutMs = timeoutMs; }
+    }
+}
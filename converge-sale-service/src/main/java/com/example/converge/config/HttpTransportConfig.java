@@ -0,0 +1,138 @@
+package com.example.converge.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Selects the HTTP transport used to reach Converge ({@code converge.http.transport}).
+ * The default pooled Apache client keeps connections to {@code processxml.do} alive across
+ * sales and publishes its pool state as {@code converge.http.pool.*} gauges.
+ */
+@Configuration
+public class HttpTransportConfig {
+
+    /** Runs the async client's response handling; shut down with the context. */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService convergeAsyncExecutor(ConvergeProperties properties) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("converge-async-");
+        threadFactory.setDaemon(true);
+        return Executors.newFixedThreadPool(properties.getAsync().getThreads(), threadFactory);
+    }
+
+    /**
+     * Non-blocking client behind {@code AsyncConvergeClient}. It keeps its own keep-alive connections,
+     * apart from the Apache pool: they are not capped by {@code max-connections-*} nor counted in the
+     * {@code converge.http.pool.*} gauges. Async sales share the adaptive limit with blocking ones,
+     * so both paths together hold at most {@code converge.limiter.max-limit} connections busy.
+     */
+    @Bean
+    public HttpClient convergeAsyncHttpClient(ConvergeProperties properties, ExecutorService convergeAsyncExecutor) {
+        return HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(properties.connectTimeoutMs()))
+            .executor(convergeAsyncExecutor)
+            .build();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "converge.http", name = "transport", havingValue = "apache", matchIfMissing = true)
+    static class ApacheTransport {
+
+        @Bean
+        public PoolingHttpClientConnectionManager convergeConnectionManager(ConvergeProperties properties) {
+            ConvergeProperties.Http http = properties.getHttp();
+            return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(http.getMaxConnectionsPerRoute())
+                .setMaxConnTotal(http.getMaxConnectionsTotal())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                    .setConnectTimeout(Timeout.ofMilliseconds(properties.connectTimeoutMs()))
+                    .setSocketTimeout(Timeout.ofMilliseconds(properties.readTimeoutMs()))
+                    .setTimeToLive(TimeValue.ofMilliseconds(http.getConnectionTtlMs()))
+                    .build())
+                .build();
+        }
+
+        @Bean
+        public CloseableHttpClient convergeHttpClient(PoolingHttpClientConnectionManager convergeConnectionManager,
+                                                      ConvergeProperties properties) {
+            return HttpClients.custom()
+                .setConnectionManager(convergeConnectionManager)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(properties.getHttp().getIdleEvictionMs()))
+                .setDefaultRequestConfig(RequestConfig.custom()
+                    .setConnectionRequestTimeout(Timeout.ofMilliseconds(properties.getHttp().getConnectionRequestTimeoutMs()))
+                    .setResponseTimeout(Timeout.ofMilliseconds(properties.readTimeoutMs()))
+                    .build())
+                .build();
+        }
+
+        @Bean
+        public ClientHttpRequestFactory convergeRequestFactory(CloseableHttpClient convergeHttpClient) {
+            return new HttpComponentsClientHttpRequestFactory(convergeHttpClient);
+        }
+
+        @Bean
+        public MeterBinder convergeConnectionPoolMetrics(PoolingHttpClientConnectionManager convergeConnectionManager) {
+            return registry -> {
+                Gauge.builder("converge.http.pool.leased", convergeConnectionManager, m -> m.getTotalStats().getLeased())
+                    .description("Connections to Converge currently in use").register(registry);
+                Gauge.builder("converge.http.pool.pending", convergeConnectionManager, m -> m.getTotalStats().getPending())
+                    .description("Requests waiting for a Converge connection").register(registry);
+                Gauge.builder("converge.http.pool.available", convergeConnectionManager, m -> m.getTotalStats().getAvailable())
+                    .description("Idle keep-alive connections to Converge").register(registry);
+                Gauge.builder("converge.http.pool.max", convergeConnectionManager, m -> m.getTotalStats().getMax())
+                    .description("Configured Converge connection limit").register(registry);
+            };
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "converge.http", name = "transport", havingValue = "jdk")
+    static class JdkTransport {
+
+        // The JDK client pools keep-alive connections itself; pool size and idle timeout are
+        // JVM-wide (jdk.httpclient.connectionPoolSize / jdk.httpclient.keepalive.timeout).
+        @Bean
+        public ClientHttpRequestFactory convergeRequestFactory(ConvergeProperties properties) {
+            HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(properties.connectTimeoutMs()))
+                .build();
+            JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(client);
+            factory.setReadTimeout(Duration.ofMillis(properties.readTimeoutMs()));
+            return factory;
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnProperty(prefix = "converge.http", name = "transport", havingValue = "simple")
+    static class SimpleTransport {
+
+        @Bean
+        public ClientHttpRequestFactory convergeRequestFactory(ConvergeProperties properties) {
+            SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+            factory.setConnectTimeout(properties.connectTimeoutMs());
+            factory.setReadTimeout(properties.readTimeoutMs());
+            return factory;
+        }
+    }
+}
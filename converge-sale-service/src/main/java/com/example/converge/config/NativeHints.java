@@ -0,0 +1,40 @@
+package com.example.converge.config;
+
+import com.example.converge.batchimport.BatchImportJob;
+import com.example.converge.capture.PendingCapture;
+import com.example.converge.dto.request.SaleRequest;
+import com.example.converge.dto.response.SaleResponse;
+import com.example.converge.dto.xml.ConvergeSaleXmlRequest;
+import com.example.converge.dto.xml.ConvergeSaleXmlResponse;
+import com.example.converge.idempotency.CompletedSale;
+import com.example.converge.reconciliation.ReconciliationJob;
+import com.example.converge.validation.SaleRequestValidator;
+import com.example.converge.validation.ValidSaleRequest;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+/**
+ * Reflection that Spring AOT cannot infer, for the native image ({@code mvn -Pnative native:compile})
+ * and AOT-processed JVM builds. Controller bodies with concrete types are found by AOT; these are the
+ * rest: JSON written by the file stores and behind {@code ResponseEntity<?>}, the JAXB-annotated Converge
+ * DTOs, and the custom constraint validators Hibernate Validator instantiates by reflection.
+ */
+public class NativeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        BindingReflectionHintsRegistrar bindings = new BindingReflectionHintsRegistrar();
+        bindings.registerReflectionHints(hints.reflection(),
+            SaleRequest.class, SaleResponse.class, CompletedSale.class, PendingCapture.class,
+            BatchImportJob.class, ReconciliationJob.class, ConvergeSaleXmlRequest.class, ConvergeSaleXmlResponse.class);
+        // private record, read and written only by FileCaptureStore
+        hints.reflection().registerType(TypeReference.of("com.example.converge.capture.FileCaptureStore$Line"),
+            MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS, MemberCategory.DECLARED_FIELDS);
+
+        hints.reflection().registerType(SaleRequestValidator.class, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+        hints.reflection().registerType(ValidSaleRequest.class, MemberCategory.INVOKE_PUBLIC_METHODS);
+    }
+}
@@ -4,12 +4,12 @@ import org.springframework.boot.context.properties.EnableConfigurationProperties
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.xml.Jaxb2RootElementHttpMessageConverter;
 import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
 import java.util.List;
 
 @Configuration
@@ -17,10 +17,10 @@ import java.util.List;
 public class RestClientConfig {
 
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder, ConvergeProperties properties) {
+    public RestTemplate restTemplate(RestTemplateBuilder builder, ClientHttpRequestFactory convergeRequestFactory) {
+        // Timeouts and pooling are owned by the transport, see HttpTransportConfig
         RestTemplate restTemplate = builder
-            .setConnectTimeout(Duration.ofMillis(properties.getTimeoutMs()))
-            .setReadTimeout(Duration.ofMillis(properties.getTimeoutMs()))
+            .requestFactory(() -> convergeRequestFactory)
             .additionalMessageConverters(jaxbConverter())
             .build();
 
@@ -0,0 +1,62 @@
+package com.example.converge.config;
+
+import com.example.converge.dto.request.SaleRequest;
+import com.example.converge.jfr.SaleStageEvent;
+import com.example.converge.service.SaleMetrics;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.Errors;
+import org.springframework.validation.SmartValidator;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/** Times {@code @Valid} request body validation as the {@code validation} sale stage. */
+@Configuration
+public class ValidationMetricsConfig implements WebMvcConfigurer {
+
+    private final LocalValidatorFactoryBean validator;
+    private final SaleMetrics metrics;
+
+    public ValidationMetricsConfig(LocalValidatorFactoryBean validator, SaleMetrics metrics) {
+        this.validator = validator;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public org.springframework.validation.Validator getValidator() {
+        return new TimedValidator(validator, metrics);
+    }
+
+    static class TimedValidator implements SmartValidator {
+
+        private final SmartValidator delegate;
+        private final SaleMetrics metrics;
+
+        TimedValidator(SmartValidator delegate, SaleMetrics metrics) {
+            this.delegate = delegate;
+            this.metrics = metrics;
+        }
+
+        @Override
+        public boolean supports(Class<?> clazz) {
+            return delegate.supports(clazz);
+        }
+
+        @Override
+        public void validate(Object target, Errors errors) {
+            validate(target, errors, new Object[0]);
+        }
+
+        @Override
+        public void validate(Object target, Errors errors, Object... validationHints) {
+            SaleStageEvent event = target instanceof SaleRequest sale
+                ? SaleStageEvent.start(SaleMetrics.VALIDATION, sale.getInvoiceNumber(), sale.getCardNumber())
+                : SaleStageEvent.start(SaleMetrics.VALIDATION, null, null);
+            long start = System.nanoTime();
+            int before = errors.getErrorCount();
+            delegate.validate(target, errors, validationHints);
+            String outcome = errors.getErrorCount() > before ? "invalid" : "ok";
+            metrics.stage(SaleMetrics.VALIDATION, System.nanoTime() - start, outcome);
+            event.finish(outcome);
+        }
+    }
+}
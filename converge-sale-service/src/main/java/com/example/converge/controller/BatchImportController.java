@@ -0,0 +1,71 @@
+package com.example.converge.controller;
+
+import com.example.converge.batchimport.BatchImportJob;
+import com.example.converge.batchimport.BatchImportService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/payments/batch-imports")
+public class BatchImportController {
+
+    private static final String TEXT_CSV = "text/csv";
+
+    private final BatchImportService batchImportService;
+
+    public BatchImportController(BatchImportService batchImportService) {
+        this.batchImportService = batchImportService;
+    }
+
+    @PostMapping(consumes = {TEXT_CSV, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<?> submit(HttpServletRequest request) throws IOException {
+        if (!batchImportService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("message", "Batch import is not configured", "code", "BATCH_IMPORT_DISABLED"));
+        }
+        boolean csv = request.getContentType() != null && request.getContentType().startsWith(TEXT_CSV);
+        try {
+            return ResponseEntity.accepted().body(batchImportService.submit(request.getInputStream(), csv));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", "Malformed batch input: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<BatchImportJob> job(@PathVariable String id) {
+        BatchImportJob job = batchImportService.find(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping(path = "/{id}/results", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Resource> results(@PathVariable String id) {
+        BatchImportJob job = batchImportService.find(id);
+        return job != null ? file(job.getResultsFile()) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping(path = "/{id}/rejections", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Resource> rejections(@PathVariable String id) {
+        BatchImportJob job = batchImportService.find(id);
+        return job != null ? file(job.getRejectionsFile()) : ResponseEntity.notFound().build();
+    }
+
+    private static ResponseEntity<Resource> file(Path path) {
+        if (!Files.exists(path)) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(new FileSystemResource(path));
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.converge.controller;
+
+import com.example.converge.service.BatchSaleService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/v1/payments")
+public class BatchSaleController {
+
+    private final BatchSaleService batchSaleService;
+
+    public BatchSaleController(BatchSaleService batchSaleService) {
+        this.batchSaleService = batchSaleService;
+    }
+
+    @PostMapping(path = "/sales/batch",
+        consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void batch(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // Streams both ways: results are flushed line by line while the request body is still being read
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        batchSaleService.process(request.getInputStream(), response.getOutputStream());
+    }
+}
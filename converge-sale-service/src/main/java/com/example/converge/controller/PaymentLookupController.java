@@ -0,0 +1,41 @@
+package com.example.converge.controller;
+
+import com.example.converge.dto.response.SaleResponse;
+import com.example.converge.service.TransactionLookupService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/payments")
+public class PaymentLookupController {
+
+    private final TransactionLookupService lookupService;
+
+    public PaymentLookupController(TransactionLookupService lookupService) {
+        this.lookupService = lookupService;
+    }
+
+    @GetMapping("/{transactionId}")
+    public ResponseEntity<?> byTransactionId(@PathVariable String transactionId,
+                                             @RequestParam(required = false) String merchant) {
+        return found(lookupService.findByTransactionId(merchant, transactionId), "transaction " + transactionId);
+    }
+
+    @GetMapping
+    public ResponseEntity<?> byInvoice(@RequestParam String invoiceNumber,
+                                       @RequestParam(required = false) String merchant) {
+        return found(lookupService.findByInvoice(merchant, invoiceNumber), "invoice " + invoiceNumber);
+    }
+
+    private static ResponseEntity<?> found(SaleResponse response, String what) {
+        if (response != null) return ResponseEntity.ok(response);
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", "No payment found for " + what));
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.converge.controller;
+
+import com.example.converge.reconciliation.ReconciliationJob;
+import com.example.converge.reconciliation.ReconciliationService;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/reconciliations")
+public class ReconciliationController {
+
+    private final ReconciliationService reconciliationService;
+
+    public ReconciliationController(ReconciliationService reconciliationService) {
+        this.reconciliationService = reconciliationService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> submit(@RequestParam(required = false) String merchant,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) throws IOException {
+        if (!reconciliationService.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("message", "Reconciliation is not configured", "code", "RECONCILIATION_DISABLED"));
+        }
+        if (from == null) from = to != null ? to : LocalDate.now().minusDays(1);
+        return ResponseEntity.accepted().body(reconciliationService.submit(merchant, from, to != null ? to : from));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ReconciliationJob> job(@PathVariable String id) {
+        ReconciliationJob job = reconciliationService.find(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping(path = "/{id}/report", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Resource> report(@PathVariable String id) {
+        ReconciliationJob job = reconciliationService.find(id);
+        if (job == null || !Files.exists(job.getReportFile())) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(new FileSystemResource(job.getReportFile()));
+    }
+}
@@ -1,30 +1,77 @@
 package com.example.converge.controller;
 
+import com.example.converge.admission.AdmissionControl;
+import com.example.converge.admission.Deadline;
+import com.example.converge.admission.Priority;
 import com.example.converge.dto.request.SaleRequest;
 import com.example.converge.dto.response.SaleResponse;
+import com.example.converge.jfr.SaleRequestEvent;
 import com.example.converge.service.SaleService;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 @RestController
 @RequestMapping("/api/v1/payments")
 public class SaleController {
 
+    static final String API_KEY = "X-Api-Key";
+    static final String PRIORITY = "X-Priority";
+    static final String TIMEOUT = "X-Request-Timeout-Ms";
+
     private final SaleService saleService;
+    private final AdmissionControl admission;
 
-    public SaleController(SaleService saleService) {
+    public SaleController(SaleService saleService, AdmissionControl admission) {
         this.saleService = saleService;
+        this.admission = admission;
     }
 
     @PostMapping("/sale")
-    public ResponseEntity<SaleResponse> sale(@Valid @RequestBody SaleRequest request) {
-        SaleResponse response = saleService.processSale(request);
-        return ResponseEntity.ok(response);
+    public ResponseEntity<SaleResponse> sale(@Valid @RequestBody SaleRequest request,
+                                             @RequestHeader(name = API_KEY, required = false) String apiKey,
+                                             @RequestHeader(name = PRIORITY, required = false) String priority,
+                                             @RequestHeader(name = TIMEOUT, required = false) Long timeoutMs) {
+        Deadline deadline = admission.deadlineOf(timeoutMs);
+        Priority granted = admission.priorityOf(apiKey, priority);
+        SaleRequestEvent event = SaleRequestEvent.start(request.getInvoiceNumber(), request.getCardNumber(), granted.name().toLowerCase(Locale.ROOT), false);
+        try {
+            SaleResponse response = admission.call(granted, deadline, () -> saleService.processSale(request, deadline));
+            event.finish(outcome(response));
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            event.finish(outcome(e));
+            throw e;
+        }
+    }
+
+    @PostMapping("/sale/async")
+    public CompletableFuture<ResponseEntity<SaleResponse>> saleAsync(@Valid @RequestBody SaleRequest request,
+                                                                     @RequestHeader(name = API_KEY, required = false) String apiKey,
+                                                                     @RequestHeader(name = PRIORITY, required = false) String priority,
+                                                                     @RequestHeader(name = TIMEOUT, required = false) Long timeoutMs) {
+        Deadline deadline = admission.deadlineOf(timeoutMs);
+        Priority granted = admission.priorityOf(apiKey, priority);
+        SaleRequestEvent event = SaleRequestEvent.start(request.getInvoiceNumber(), request.getCardNumber(), granted.name().toLowerCase(Locale.ROOT), true);
+        return admission.callAsync(granted, deadline, () -> saleService.processSaleAsync(request, deadline))
+            .whenComplete((response, ex) -> event.finish(ex == null ? outcome(response) : outcome(ex)))
+            .thenApply(ResponseEntity::ok);
     }
-}
 
+    private static String outcome(SaleResponse response) {
+        return response.isApproved() ? "approved" : "declined";
+    }
 
+    private static String outcome(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        return cause.getClass().getSimpleName();
+    }
+}
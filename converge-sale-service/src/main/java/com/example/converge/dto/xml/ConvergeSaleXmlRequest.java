@@ -9,6 +9,9 @@ import jakarta.xml.bind.annotation.XmlRootElement;
 @XmlAccessorType(XmlAccessType.FIELD)
 public class ConvergeSaleXmlRequest {
 
+    public static final String SALE = "CCSALE";
+    public static final String AUTH_ONLY = "CCAUTHONLY";
+
     @XmlElement(name = "ssl_merchant_ID")
     private String merchantId;
     @XmlElement(name = "ssl_user_id")
@@ -16,7 +19,7 @@ public class ConvergeSaleXmlRequest {
     @XmlElement(name = "ssl_pin")
     private String pin;
     @XmlElement(name = "ssl_transaction_type")
-    private String transactionType = "CCSALE";
+    private String transactionType = SALE;
     @XmlElement(name = "ssl_first_name")
     private String firstName;
     @XmlElement(name = "ssl_last_name")
@@ -0,0 +1,36 @@
+package com.example.converge.dto.xml;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Any non-sale {@code <txn>} request (queries, completions, lookups). Fields are written in
+ * insertion order after the credential block; null values are omitted.
+ */
+public class ConvergeXmlTransaction {
+
+    private final String transactionType;
+    private final Map<String, String> fields = new LinkedHashMap<>();
+    private String merchantId;
+    private String userId;
+    private String pin;
+
+    public ConvergeXmlTransaction(String transactionType) {
+        this.transactionType = transactionType;
+    }
+
+    public ConvergeXmlTransaction field(String name, String value) {
+        fields.put(name, value);
+        return this;
+    }
+
+    public String getTransactionType() { return transactionType; }
+    public Map<String, String> getFields() { return Collections.unmodifiableMap(fields); }
+    public String getMerchantId() { return merchantId; }
+    public void setMerchantId(String merchantId) { this.merchantId = merchantId; }
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    public String getPin() { return pin; }
+    public void setPin(String pin) { this.pin = pin; }
+}
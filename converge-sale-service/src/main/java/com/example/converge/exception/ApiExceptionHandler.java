@@ -1,5 +1,6 @@
 package com.example.converge.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -7,28 +8,52 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.Map;
 
 @ControllerAdvice
 public class ApiExceptionHandler {
 
+    private static final ExceptionHandlerMethodResolver HANDLERS = new ExceptionHandlerMethodResolver(ApiExceptionHandler.class);
+
+    /**
+     * The body the matching handler below answers {@code ex} with, for failures reported outside an
+     * HTTP response (batch result lines), so they carry the same codes and never an internal message.
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> bodyOf(Throwable ex) {
+        Method handler = HANDLERS.resolveMethodByExceptionType(ex.getClass());
+        if (handler == null) return handleGeneric(null).getBody(); // an Error
+        try {
+            return ((ResponseEntity<Map<String, Object>>) handler.invoke(this, ex)).getBody();
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            return handleGeneric(null).getBody();
+        }
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidation(MethodArgumentNotValidException ex) {
         Map<String, Object> body = new HashMap<>();
         body.put("message", "Validation failed");
         Map<String, String> errors = new HashMap<>();
         for (FieldError fe : ex.getBindingResult().getFieldErrors()) {
-            String field = fe.getField();
-            if ("cardNumber".equals(field)) errors.put(field, "invalid");
-            else if ("cvv".equals(field)) errors.put(field, "invalid");
-            else errors.put(field, fe.getDefaultMessage());
+            errors.put(fe.getField(), fieldErrorText(fe.getField(), fe.getDefaultMessage()));
         }
         body.put("errors", errors);
         return ResponseEntity.badRequest().body(body);
     }
 
+    /** Card data fields never echo the constraint message back. */
+    public static String fieldErrorText(String field, String defaultMessage) {
+        if ("cardNumber".equals(field)) return "invalid";
+        if ("cvv".equals(field)) return "invalid";
+        return defaultMessage;
+    }
+
     @ExceptionHandler(ResourceAccessException.class)
     public ResponseEntity<Map<String, Object>> handleTimeout(ResourceAccessException ex) {
         Map<String, Object> body = new HashMap<>();
@@ -36,6 +61,121 @@ public class ApiExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(body);
     }
 
+    /** A timeout or 5xx after the request went out may mean the sale was processed, so the client is told so. */
+    @ExceptionHandler(UpstreamFailureException.class)
+    public ResponseEntity<Map<String, Object>> handleUpstreamFailure(UpstreamFailureException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("code", ex.getKind().name());
+        if (ex.getKind().isSafeToRetry()) {
+            body.put("message", "Converge unavailable; the sale was not processed");
+        } else {
+            body.put("message", "Converge did not confirm the sale; outcome unknown, look it up before retrying");
+        }
+        // timeouts keep the 502 clients already handle; the kind in code tells them apart
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(body);
+    }
+
+    @ExceptionHandler(UpstreamBusyException.class)
+    public ResponseEntity<Map<String, Object>> handleUpstreamBusy(UpstreamBusyException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(body);
+    }
+
+    @ExceptionHandler(CircuitOpenException.class)
+    public ResponseEntity<Map<String, Object>> handleCircuitOpen(CircuitOpenException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("code", "CIRCUIT_OPEN");
+        long retryAfterSeconds = Math.max(1, (ex.getRetryAfterMs() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds)).body(body);
+    }
+
+    @ExceptionHandler(CardNotAcceptedException.class)
+    public ResponseEntity<Map<String, Object>> handleCardNotAccepted(CardNotAcceptedException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("code", ex.getCode());
+        return ResponseEntity.unprocessableEntity().body(body);
+    }
+
+    @ExceptionHandler(UnknownMerchantException.class)
+    public ResponseEntity<Map<String, Object>> handleUnknownMerchant(UnknownMerchantException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("code", "UNKNOWN_MERCHANT");
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    @ExceptionHandler(InvalidReconciliationRangeException.class)
+    public ResponseEntity<Map<String, Object>> handleInvalidReconciliationRange(InvalidReconciliationRangeException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("code", "INVALID_RANGE");
+        return ResponseEntity.badRequest().body(body);
+    }
+
+    @ExceptionHandler(MerchantLimitException.class)
+    public ResponseEntity<Map<String, Object>> handleMerchantLimit(MerchantLimitException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("code", ex.getCode());
+        long retryAfterSeconds = Math.max(1, (ex.getRetryAfterMs() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds)).body(body);
+    }
+
+    @ExceptionHandler(LoadShedException.class)
+    public ResponseEntity<Map<String, Object>> handleLoadShed(LoadShedException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("code", ex.getCode());
+        long retryAfterSeconds = Math.max(1, (ex.getRetryAfterMs() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds)).body(body);
+    }
+
+    @ExceptionHandler(DeadlineExceededException.class)
+    public ResponseEntity<Map<String, Object>> handleDeadlineExceeded(DeadlineExceededException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("code", "DEADLINE_EXCEEDED");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(body);
+    }
+
+    @ExceptionHandler(DeferredCaptureDisabledException.class)
+    public ResponseEntity<Map<String, Object>> handleDeferredCaptureDisabled(DeferredCaptureDisabledException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("code", "DEFERRED_CAPTURE_DISABLED");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(body);
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    public ResponseEntity<Map<String, Object>> handleIdempotencyConflict(IdempotencyConflictException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    @ExceptionHandler(SaleInDoubtException.class)
+    public ResponseEntity<Map<String, Object>> handleSaleInDoubt(SaleInDoubtException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("code", "SALE_IN_DOUBT");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    /** Reported like a field validation failure, so clients see the same shape as for a missing amount. */
+    @ExceptionHandler(InvoiceRequiredException.class)
+    public ResponseEntity<Map<String, Object>> handleInvoiceRequired(InvoiceRequiredException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", "Validation failed");
+        body.put("errors", Map.of("invoiceNumber", "must not be blank"));
+        return ResponseEntity.badRequest().body(body);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGeneric(Exception ex) {
         Map<String, Object> body = new HashMap<>();
@@ -0,0 +1,14 @@
+package com.example.converge.exception;
+
+/** A card rejected locally from its BIN, before any call to Converge. */
+public class CardNotAcceptedException extends RuntimeException {
+
+    private final String code;
+
+    public CardNotAcceptedException(String code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    public String getCode() { return code; }
+}
@@ -0,0 +1,12 @@
+package com.example.converge.exception;
+
+public class CircuitOpenException extends RuntimeException {
+    private final long retryAfterMs;
+
+    public CircuitOpenException(String message, long retryAfterMs) {
+        super(message);
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public long getRetryAfterMs() { return retryAfterMs; }
+}
@@ -0,0 +1,8 @@
+package com.example.converge.exception;
+
+/** The caller's deadline passed before the sale was sent to Converge, so it was not processed. */
+public class DeadlineExceededException extends RuntimeException {
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
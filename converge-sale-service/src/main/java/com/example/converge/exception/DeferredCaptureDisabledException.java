@@ -0,0 +1,8 @@
+package com.example.converge.exception;
+
+/** A deferred-capture sale refused because no capture store is configured; nothing was sent to Converge. */
+public class DeferredCaptureDisabledException extends RuntimeException {
+    public DeferredCaptureDisabledException(String message) {
+        super(message);
+    }
+}
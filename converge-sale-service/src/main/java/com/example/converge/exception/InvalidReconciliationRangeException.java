@@ -0,0 +1,8 @@
+package com.example.converge.exception;
+
+/** A reconciliation date range that txnquery cannot answer: reversed, or longer than 31 days. */
+public class InvalidReconciliationRangeException extends RuntimeException {
+    public InvalidReconciliationRangeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.converge.exception;
+
+/** Idempotency is on and the sale has no invoice number to key it on. */
+public class InvoiceRequiredException extends RuntimeException {
+    public InvoiceRequiredException(String message) {
+        super(message);
+    }
+}
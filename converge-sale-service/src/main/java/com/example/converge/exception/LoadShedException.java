@@ -0,0 +1,17 @@
+package com.example.converge.exception;
+
+/** A sale turned away before it was queued or sent, because the service is overloaded at its priority. */
+public class LoadShedException extends RuntimeException {
+
+    private final String code;
+    private final long retryAfterMs;
+
+    public LoadShedException(String code, String message, long retryAfterMs) {
+        super(message);
+        this.code = code;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public String getCode() { return code; }
+    public long getRetryAfterMs() { return retryAfterMs; }
+}
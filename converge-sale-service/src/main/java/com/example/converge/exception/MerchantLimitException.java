@@ -0,0 +1,17 @@
+package com.example.converge.exception;
+
+/** A sale refused because its merchant is over its own rate or connection share; other merchants are unaffected. */
+public class MerchantLimitException extends RuntimeException {
+
+    private final String code;
+    private final long retryAfterMs;
+
+    public MerchantLimitException(String code, String message, long retryAfterMs) {
+        super(message);
+        this.code = code;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public String getCode() { return code; }
+    public long getRetryAfterMs() { return retryAfterMs; }
+}
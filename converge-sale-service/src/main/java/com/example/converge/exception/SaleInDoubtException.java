@@ -0,0 +1,8 @@
+package com.example.converge.exception;
+
+/** An earlier attempt under the same invoice number ended without knowing whether Converge charged the card. */
+public class SaleInDoubtException extends RuntimeException {
+    public SaleInDoubtException(String message) {
+        super(message);
+    }
+}
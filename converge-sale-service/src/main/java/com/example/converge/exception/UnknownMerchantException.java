@@ -0,0 +1,9 @@
+package com.example.converge.exception;
+
+/** A {@code merchantKey} that is not in the merchant registry. */
+public class UnknownMerchantException extends RuntimeException {
+
+    public UnknownMerchantException(String message) {
+        super(message);
+    }
+}
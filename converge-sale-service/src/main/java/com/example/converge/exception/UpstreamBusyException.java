@@ -0,0 +1,7 @@
+package com.example.converge.exception;
+
+public class UpstreamBusyException extends RuntimeException {
+    public UpstreamBusyException(String message) {
+        super(message);
+    }
+}
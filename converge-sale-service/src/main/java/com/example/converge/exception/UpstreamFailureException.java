@@ -0,0 +1,40 @@
+package com.example.converge.exception;
+
+/** A Converge call that failed for good: retries were unsafe, exhausted, or not allowed by the retry budget. */
+public class UpstreamFailureException extends RuntimeException {
+
+    /** How the exchange failed, and whether a sale can safely be sent again after it. */
+    public enum Kind {
+        /** Nothing reached Converge (refused, unresolved, connect timeout, no pooled connection). */
+        CONNECT_FAILURE(true),
+        /** Sent, but no answer in time: the sale may have been processed. */
+        READ_TIMEOUT(false),
+        /** Connection broke after the request was sent: outcome unknown. */
+        IO_ERROR(false),
+        /** 502 or 503 from Converge's edge: the request did not reach the processor. */
+        GATEWAY_UNAVAILABLE(true),
+        /** Any other 5xx, including 504: the sale may have been processed. */
+        SERVER_ERROR(false),
+        /** A response that could not be decoded. */
+        INVALID_RESPONSE(false),
+        /** A Converge errorCode configured as transient. */
+        ERROR_CODE(true);
+
+        private final boolean safeToRetry;
+
+        Kind(boolean safeToRetry) {
+            this.safeToRetry = safeToRetry;
+        }
+
+        public boolean isSafeToRetry() { return safeToRetry; }
+    }
+
+    private final Kind kind;
+
+    public UpstreamFailureException(Kind kind, String message, Throwable cause) {
+        super(message, cause);
+        this.kind = kind;
+    }
+
+    public Kind getKind() { return kind; }
+}
@@ -1,32 +1,57 @@
 package com.example.converge.filter;
 
+import com.example.converge.audit.AuditEvent;
+import com.example.converge.audit.AuditLog;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 
+/** Audits every payments API call: method, path, status and duration. Bodies and query strings are never logged. */
 @Component
 public class RedactionLoggingFilter extends OncePerRequestFilter {
-    private static final Logger log = LoggerFactory.getLogger(RedactionLoggingFilter.class);
+
+    private final AuditLog audit;
+
+    public RedactionLoggingFilter(AuditLog audit) {
+        this.audit = audit;
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
+        long start = System.nanoTime();
         try {
             filterChain.doFilter(request, response);
         } finally {
             String path = request.getRequestURI();
-            if (path != null && path.contains("/api/v1/payments/sale")) {
-                log.info("Handled sale request: path={} status={}", path, response.getStatus());
+            if (path != null && path.startsWith("/api/v1/")) {
+                if (request.isAsyncStarted()) {
+                    // the status is only known once the async sale completes
+                    request.getAsyncContext().addListener(new AsyncListener() {
+                        @Override public void onComplete(AsyncEvent event) { publish(request, response, path, start); }
+                        @Override public void onTimeout(AsyncEvent event) { }
+                        @Override public void onError(AsyncEvent event) { }
+                        @Override public void onStartAsync(AsyncEvent event) { }
+                    });
+                } else {
+                    publish(request, response, path, start);
+                }
             }
         }
     }
-}
-
 
+    private void publish(HttpServletRequest request, HttpServletResponse response, String path, long start) {
+        audit.publish(AuditEvent.of("http.request")
+            .with("method", request.getMethod())
+            .with("path", path)
+            .with("status", response.getStatus())
+            .with("durationMicros", (System.nanoTime() - start) / 1000));
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.converge.idempotency;
+
+import com.example.converge.dto.response.SaleResponse;
+
+/**
+ * A finished sale remembered under its invoice number, with the payload fingerprint it was made with.
+ * A null {@code response} marks an attempt whose outcome is unknown: it was sent, and no answer came back.
+ */
+public record CompletedSale(String invoiceNumber, String fingerprint, long expiresAt, SaleResponse response) {
+
+    public boolean inDoubt() {
+        return response == null;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.converge.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only JSON-lines file of completed sales. On open, and again whenever the file holds
+ * more than {@link #COMPACT_FACTOR} lines per entry still live at the last rewrite, expired,
+ * superseded and unreadable lines are dropped and the file is rewritten with only the live entries.
+ */
+public class FileIdempotencyStore implements AutoCloseable {
+
+    static final int COMPACT_FACTOR = 2;
+    private static final int MIN_COMPACT_LINES = 1024;
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final int minCompactLines;
+    private BufferedWriter writer;
+    private long lines;
+    private long compactAt;
+
+    public FileIdempotencyStore(Path file, ObjectMapper objectMapper) {
+        this(file, objectMapper, MIN_COMPACT_LINES);
+    }
+
+    FileIdempotencyStore(Path file, ObjectMapper objectMapper, int minCompactLines) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+        this.minCompactLines = minCompactLines;
+    }
+
+    public synchronized List<CompletedSale> open() {
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            return compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open idempotency store " + file, e);
+        }
+    }
+
+    public synchronized void append(CompletedSale sale) {
+        try {
+            writer.write(objectMapper.writeValueAsString(sale));
+            writer.newLine();
+            writer.flush();
+            if (++lines >= compactAt) compact();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to idempotency store " + file, e);
+        }
+    }
+
+    /** Lines in the file, live or not; for tests. */
+    synchronized long lines() {
+        return lines;
+    }
+
+    private List<CompletedSale> compact() throws IOException {
+        Map<String, CompletedSale> live = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                CompletedSale sale = parse(line);
+                if (sale == null) continue;
+                live.remove(sale.invoiceNumber()); // keep write order for the latest entry
+                if (sale.expiresAt() > now) live.put(sale.invoiceNumber(), sale);
+            }
+        }
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (CompletedSale sale : live.values()) {
+                out.write(objectMapper.writeValueAsString(sale));
+                out.newLine();
+            }
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (writer != null) writer.close();
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        lines = live.size();
+        compactAt = Math.max(minCompactLines, COMPACT_FACTOR * lines);
+        return new ArrayList<>(live.values());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) writer.close();
+    }
+
+    private CompletedSale parse(String line) {
+        if (line.isBlank()) return null;
+        try {
+            return objectMapper.readValue(line, CompletedSale.class);
+        } catch (IOException e) {
+            return null; // torn last line after a crash
+        }
+    }
+}
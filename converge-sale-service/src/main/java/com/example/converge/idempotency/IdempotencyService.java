@@ -0,0 +1,186 @@
+package com.example.converge.idempotency;
+
+import com.example.converge.cache.BoundedTtlCache;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.request.SaleRequest;
+import com.example.converge.dto.response.SaleResponse;
+import com.example.converge.exception.IdempotencyConflictException;
+import com.example.converge.exception.InvoiceRequiredException;
+import com.example.converge.exception.SaleInDoubtException;
+import com.example.converge.exception.UpstreamFailureException;
+import com.example.converge.merchant.MerchantAccount;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses retries of the same sale, keyed on the client-supplied invoice number.
+ * Concurrent submissions share one upstream call; completed responses are replayed
+ * from a bounded, time-evicted cache. Only responses that carry a Converge transaction
+ * id are remembered, since anything else never reached the card networks and is safe
+ * to send again. A failure after the sale went out (read timeout, broken connection, 5xx)
+ * is remembered as in doubt, and retries get {@link SaleInDoubtException} instead of a
+ * second charge until the entry expires. A sale without an invoice number has nothing to
+ * key on, so it is passed through unguarded, or rejected when {@code require-invoice-number} is set.
+ */
+@Component
+public class IdempotencyService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final boolean enabled;
+    private final boolean requireInvoiceNumber;
+    private final BoundedTtlCache<String, CompletedSale> completed;
+    private final ConcurrentMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final FileIdempotencyStore store;
+    private final Counter cacheReplays;
+    private final Counter inFlightReplays;
+
+    public IdempotencyService(ConvergeProperties properties, ObjectMapper objectMapper, MeterRegistry registry) {
+        ConvergeProperties.Idempotency config = properties.getIdempotency();
+        this.enabled = config.isEnabled();
+        this.requireInvoiceNumber = config.isRequireInvoiceNumber();
+        this.completed = new BoundedTtlCache<>(config.getMaxEntries(), config.getTtlMs());
+        this.cacheReplays = Counter.builder("converge.idempotency.replays").tag("source", "cache").register(registry);
+        this.inFlightReplays = Counter.builder("converge.idempotency.replays").tag("source", "in-flight").register(registry);
+        registry.gauge("converge.idempotency.entries", completed, BoundedTtlCache::size);
+        if (enabled && config.getStoreFile() != null && !config.getStoreFile().isBlank()) {
+            this.store = new FileIdempotencyStore(Path.of(config.getStoreFile()), objectMapper);
+            for (CompletedSale sale : store.open()) {
+                completed.put(sale.invoiceNumber(), sale, sale.expiresAt());
+            }
+            log.info("Loaded {} idempotency entries from {}", completed.size(), config.getStoreFile());
+        } else {
+            this.store = null;
+        }
+    }
+
+    public SaleResponse execute(SaleRequest request, Supplier<SaleResponse> sale) {
+        try {
+            return executeAsync(request, () -> CompletableFuture.completedFuture(sale.get())).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    public CompletableFuture<SaleResponse> executeAsync(SaleRequest request, Supplier<CompletableFuture<SaleResponse>> sale) {
+        if (!enabled) return sale.get();
+        String key = key(request);
+        if (key == null || key.isBlank()) {
+            if (requireInvoiceNumber) throw new InvoiceRequiredException("invoiceNumber is required for idempotent sales");
+            return sale.get();
+        }
+        String fingerprint = fingerprint(request);
+
+        CompletedSale done = completed.get(key);
+        if (done != null) return CompletableFuture.completedFuture(replay(done, fingerprint));
+
+        CompletableFuture<SaleResponse> leader = new CompletableFuture<>();
+        InFlight mine = new InFlight(fingerprint, leader);
+        InFlight existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            requireSamePayload(key, existing.fingerprint(), fingerprint);
+            inFlightReplays.increment();
+            return existing.future().copy();
+        }
+        // A leader may have finished between the cache lookup and claiming the key
+        done = completed.get(key);
+        if (done != null) {
+            inFlight.remove(key, mine);
+            try {
+                SaleResponse replayed = replay(done, fingerprint);
+                leader.complete(replayed);
+                return CompletableFuture.completedFuture(replayed);
+            } catch (RuntimeException e) {
+                leader.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        CompletableFuture<SaleResponse> upstream;
+        try {
+            upstream = sale.get();
+        } catch (RuntimeException e) {
+            upstream = CompletableFuture.failedFuture(e);
+        }
+        upstream.whenComplete((response, ex) -> {
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            if (ex == null) remember(key, fingerprint, response);
+            else if (cause instanceof UpstreamFailureException failure && !failure.getKind().isSafeToRetry()) {
+                remember(new CompletedSale(key, fingerprint, System.currentTimeMillis() + completed.getTtlMs(), null));
+            }
+            inFlight.remove(key, mine);
+            if (ex == null) leader.complete(response);
+            else leader.completeExceptionally(cause);
+        });
+        return leader.copy();
+    }
+
+    private SaleResponse replay(CompletedSale done, String fingerprint) {
+        requireSamePayload(done.invoiceNumber(), done.fingerprint(), fingerprint);
+        cacheReplays.increment();
+        if (done.inDoubt()) {
+            throw new SaleInDoubtException("An earlier attempt with invoiceNumber " + done.invoiceNumber()
+                + " may have been processed; look it up before retrying under a new invoice number");
+        }
+        return done.response();
+    }
+
+    private void remember(String key, String fingerprint, SaleResponse response) {
+        if (response.getTransactionId() == null) return;
+        remember(new CompletedSale(key, fingerprint, System.currentTimeMillis() + completed.getTtlMs(), response));
+    }
+
+    private void remember(CompletedSale sale) {
+        String key = sale.invoiceNumber();
+        completed.put(key, sale, sale.expiresAt());
+        if (store != null) {
+            try {
+                store.append(sale);
+            } catch (RuntimeException e) {
+                log.warn("Could not persist idempotency entry for invoice {}: {}", key, e.getMessage());
+            }
+        }
+    }
+
+    private static void requireSamePayload(String key, String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new IdempotencyConflictException("invoiceNumber " + key + " was already used for a different sale");
+        }
+    }
+
+    // Invoice numbers are only unique within a merchant account; default-merchant keys stay bare
+    private static String key(SaleRequest request) {
+        String invoice = request.getInvoiceNumber();
+        String merchant = request.getMerchantKey();
+        if (invoice == null || merchant == null || merchant.isBlank() || MerchantAccount.DEFAULT.equals(merchant)) return invoice;
+        return merchant + "/" + invoice;
+    }
+
+    // Amount, the last four card digits and the capture mode; enough to catch key reuse without keeping the PAN
+    private static String fingerprint(SaleRequest request) {
+        String card = request.getCardNumber();
+        String last4 = card != null && card.length() > 4 ? card.substring(card.length() - 4) : card;
+        return request.getAmount() + "|" + last4 + (request.isDeferCapture() ? "|auth" : "");
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (store != null) store.close();
+    }
+
+    private record InFlight(String fingerprint, CompletableFuture<SaleResponse> future) {}
+}
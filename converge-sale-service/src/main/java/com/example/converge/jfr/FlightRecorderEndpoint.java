@@ -0,0 +1,173 @@
+package com.example.converge.jfr;
+
+import com.example.converge.config.ConvergeProperties;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code /actuator/jfr}: one continuous flight recording that can be started and stopped on a live
+ * node, and dumped without stopping it. GET shows its state, POST starts it (optional
+ * {@code settings}, {@code maxAgeMs}, {@code maxSizeMb}), DELETE stops and discards it, and
+ * GET {@code /actuator/jfr/dump} downloads what it holds as a .jfr file for JDK Mission Control
+ * or {@code jfr print --categories Converge}. The configured {@code max-age-ms} and
+ * {@code max-size-mb} are ceilings a caller can only lower. Events that would copy environment
+ * variables, system properties, JVM and program arguments or other processes' command lines into
+ * the recording are always off, since merchant credentials travel that way. The endpoint is not
+ * exposed by default; expose it only on a separate {@code management.server.port}.
+ */
+@Component
+@WebEndpoint(id = "jfr")
+public class FlightRecorderEndpoint implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightRecorderEndpoint.class);
+    private static final String NAME = "converge";
+    private static final List<String> SENSITIVE_EVENTS = List.of("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty",
+        "jdk.JVMInformation", "jdk.SystemProcess");
+
+    private final ConvergeProperties.Jfr config;
+    private Recording recording;
+
+    public FlightRecorderEndpoint(ConvergeProperties properties) {
+        this.config = properties.getJfr();
+        if (config.isStartOnStartup()) {
+            WebEndpointResponse<Map<String, Object>> started = start(null, null, null);
+            if (started.getStatus() == 200) log.info("Flight recording started with {} settings", config.getSettings());
+            else log.warn("Flight recording not started: {}", started.getBody());
+        }
+    }
+
+    @ReadOperation
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        if (recording == null) {
+            body.put("state", "STOPPED");
+            return body;
+        }
+        body.put("name", recording.getName());
+        body.put("state", recording.getState().name());
+        body.put("startTime", recording.getStartTime());
+        body.put("maxAgeMs", recording.getMaxAge() != null ? recording.getMaxAge().toMillis() : null);
+        body.put("maxSizeMb", recording.getMaxSize() / (1024 * 1024));
+        body.put("sizeBytes", recording.getSize());
+        return body;
+    }
+
+    @WriteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> start(@Nullable String settings, @Nullable Long maxAgeMs,
+                                                                       @Nullable Long maxSizeMb) {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            return new WebEndpointResponse<>(message("A recording is already running; DELETE it first"), 409);
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings != null ? settings : config.getSettings());
+        } catch (IOException | ParseException e) {
+            return new WebEndpointResponse<>(message("Unknown JFR settings: " + e.getMessage()), 400);
+        }
+        Map<String, String> eventSettings = new HashMap<>(configuration.getSettings());
+        for (String event : SENSITIVE_EVENTS) eventSettings.put(event + "#enabled", "false");
+        Recording started = new Recording(eventSettings);
+        started.setName(NAME);
+        started.setToDisk(true);
+        started.setMaxAge(Duration.ofMillis(capped(maxAgeMs, config.getMaxAgeMs())));
+        started.setMaxSize(capped(maxSizeMb, config.getMaxSizeMb()) * 1024 * 1024);
+        started.start();
+        if (recording != null) recording.close();
+        recording = started;
+        return new WebEndpointResponse<>(status());
+    }
+
+    @DeleteOperation
+    public synchronized WebEndpointResponse<Map<String, Object>> stop() {
+        if (recording == null) {
+            return new WebEndpointResponse<>(message("No recording"), 404);
+        }
+        recording.close();
+        recording = null;
+        return new WebEndpointResponse<>(status());
+    }
+
+    /** A copy of the recording so far; it keeps running. */
+    @ReadOperation(produces = "application/octet-stream")
+    public synchronized WebEndpointResponse<Resource> dump(@Selector String name) {
+        if (!name.equals("dump") || recording == null || recording.getState() != RecordingState.RUNNING) {
+            return new WebEndpointResponse<>(404);
+        }
+        try {
+            Path file = Files.createTempFile("converge-", ".jfr");
+            recording.dump(file);
+            return new WebEndpointResponse<>(new DumpResource(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not dump the flight recording", e);
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (recording != null) recording.close();
+    }
+
+    private static long capped(Long requested, long ceiling) {
+        return requested != null && requested > 0 ? Math.min(requested, ceiling) : ceiling;
+    }
+
+    private static Map<String, Object> message(String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("message", message);
+        return body;
+    }
+
+    // the dump is a temporary file, deleted once it has been sent
+    private static final class DumpResource extends FileSystemResource {
+
+        DumpResource(Path file) {
+            super(file);
+        }
+
+        @Override
+        public String getFilename() {
+            return NAME + ".jfr";
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(getFile().toPath());
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.converge.jfr;
+
+import com.example.converge.audit.Redaction;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A sale through {@code SaleService}, from mapping the request to Converge's answer: one event per {@code converge.sale.duration} sample. */
+@Name("com.example.converge.Sale")
+@Label("Sale")
+@Category({"Converge", "Sale"})
+@StackTrace(false)
+public class SaleEvent extends Event {
+
+    @Label("Merchant")
+    String merchant;
+
+    @Label("Invoice Number")
+    String invoiceNumber;
+
+    @Label("Card Number")
+    @Description("First six and last four digits")
+    String cardNumber;
+
+    @Label("Amount")
+    String amount;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Transaction ID")
+    String transactionId;
+
+    public static SaleEvent start(String merchant, String invoiceNumber, String cardNumber, String amount) {
+        SaleEvent event = new SaleEvent();
+        if (event.isEnabled()) {
+            event.merchant = merchant;
+            event.invoiceNumber = invoiceNumber;
+            event.cardNumber = cardNumber;
+            event.amount = amount;
+            event.begin();
+        }
+        return event;
+    }
+
+    public void finish(String outcome, String transactionId) {
+        end();
+        if (!shouldCommit()) return;
+        this.outcome = outcome;
+        this.transactionId = transactionId;
+        this.cardNumber = Redaction.maskCard(cardNumber);
+        commit();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.converge.jfr;
+
+import com.example.converge.audit.Redaction;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A sale request in {@code SaleController}: admission wait plus the sale itself, and who was turned away. */
+@Name("com.example.converge.SaleRequest")
+@Label("Sale Request")
+@Category({"Converge", "Sale"})
+@StackTrace(false)
+public class SaleRequestEvent extends Event {
+
+    @Label("Invoice Number")
+    String invoiceNumber;
+
+    @Label("Card Number")
+    @Description("First six and last four digits")
+    String cardNumber;
+
+    @Label("Priority")
+    String priority;
+
+    @Label("Async")
+    boolean async;
+
+    @Label("Outcome")
+    @Description("approved, declined, or the exception that ended the request")
+    String outcome;
+
+    public static SaleRequestEvent start(String invoiceNumber, String cardNumber, String priority, boolean async) {
+        SaleRequestEvent event = new SaleRequestEvent();
+        if (event.isEnabled()) {
+            event.invoiceNumber = invoiceNumber;
+            event.cardNumber = cardNumber;
+            event.priority = priority;
+            event.async = async;
+            event.begin();
+        }
+        return event;
+    }
+
+    public void finish(String outcome) {
+        end();
+        if (!shouldCommit()) return;
+        this.outcome = outcome;
+        this.cardNumber = Redaction.maskCard(cardNumber);
+        commit();
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.converge.jfr;
+
+import com.example.converge.audit.Redaction;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One stage of a sale, as timed by {@code converge.sale.stage}: validation, mapping, encode or decode. */
+@Name("com.example.converge.SaleStage")
+@Label("Sale Stage")
+@Category({"Converge", "Sale"})
+@StackTrace(false)
+public class SaleStageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Invoice Number")
+    String invoiceNumber;
+
+    @Label("Card Number")
+    @Description("First six and last four digits")
+    String cardNumber;
+
+    @Label("Outcome")
+    String outcome;
+
+    public static SaleStageEvent start(String stage, String invoiceNumber, String cardNumber) {
+        SaleStageEvent event = new SaleStageEvent();
+        if (event.isEnabled()) {
+            event.stage = stage;
+            event.invoiceNumber = invoiceNumber;
+            event.cardNumber = cardNumber;
+            event.begin();
+        }
+        return event;
+    }
+
+    public void finish(String outcome) {
+        end();
+        if (!shouldCommit()) return;
+        this.outcome = outcome;
+        this.cardNumber = Redaction.maskCard(cardNumber);
+        commit();
+    }
+}
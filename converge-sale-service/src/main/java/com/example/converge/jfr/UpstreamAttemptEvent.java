@@ -0,0 +1,53 @@
+package com.example.converge.jfr;
+
+import com.example.converge.audit.Redaction;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One HTTP exchange with Converge for a sale; retries are further events with a higher attempt.
+ * On the blocking client the encode and decode stages of the attempt fall inside it.
+ */
+@Name("com.example.converge.UpstreamAttempt")
+@Label("Converge Attempt")
+@Category({"Converge", "Sale"})
+@StackTrace(false)
+public class UpstreamAttemptEvent extends Event {
+
+    @Label("Attempt")
+    @Description("0 for the first send, then 1, 2, ... for retries")
+    int attempt;
+
+    @Label("Invoice Number")
+    String invoiceNumber;
+
+    @Label("Card Number")
+    @Description("First six and last four digits")
+    String cardNumber;
+
+    @Label("Outcome")
+    String outcome;
+
+    public static UpstreamAttemptEvent start(int attempt, String invoiceNumber, String cardNumber) {
+        UpstreamAttemptEvent event = new UpstreamAttemptEvent();
+        if (event.isEnabled()) {
+            event.attempt = attempt;
+            event.invoiceNumber = invoiceNumber;
+            event.cardNumber = cardNumber;
+            event.begin();
+        }
+        return event;
+    }
+
+    public void finish(String outcome) {
+        end();
+        if (!shouldCommit()) return;
+        this.outcome = outcome;
+        this.cardNumber = Redaction.maskCard(cardNumber);
+        commit();
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.converge.journal;
+
+/**
+ * A sale as recovered from the journal. {@code outcome} is null when the intent was written but
+ * the process died before the result came back, and {@code merchantId} is null for sales journalled
+ * before merchants were recorded.
+ */
+public record JournalEntry(long id, long sentAt, String merchantId, String invoiceNumber, String amount, String maskedCardNumber,
+                           String outcome, String transactionId, long durationMicros) {
+
+    JournalEntry withOutcome(String outcome, String transactionId, long durationMicros) {
+        return new JournalEntry(id, sentAt, merchantId, invoiceNumber, amount, maskedCardNumber, outcome, transactionId, durationMicros);
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.converge.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * One fixed-size, memory-mapped journal file. Layout: an 8-byte header (magic, version) followed by
+ * records of {@code [int length][int crc32c][payload]}; a zero length marks the end of the data.
+ * The file is zero-filled when created so that later writes into the mapping can never hit an
+ * unallocated block on a full disk. Segments are created readable by the service user only.
+ */
+final class JournalSegment implements AutoCloseable {
+
+    static final int MAGIC = 0x434a4e4c; // "CJNL"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int RECORD_OVERHEAD = 8;
+    private static final Set<StandardOpenOption> CREATE_OPTIONS =
+        EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+    private final long number;
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private int position;
+    private int forced;
+    private boolean closed;
+
+    private JournalSegment(long number, Path file, FileChannel channel, MappedByteBuffer buffer, int position) {
+        this.number = number;
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.position = position;
+        this.forced = position;
+    }
+
+    static Path fileFor(Path dir, long number) {
+        return dir.resolve(String.format("journal-%012d.seg", number));
+    }
+
+    static long numberOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring("journal-".length(), name.length() - ".seg".length()));
+    }
+
+    static JournalSegment create(Path dir, long number, int size) throws IOException {
+        Path file = fileFor(dir, number);
+        FileChannel channel = file.getFileSystem().supportedFileAttributeViews().contains("posix")
+            ? FileChannel.open(file, CREATE_OPTIONS, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")))
+            : FileChannel.open(file, CREATE_OPTIONS);
+        try {
+            ByteBuffer zeros = ByteBuffer.allocateDirect(1 << 20);
+            for (long written = 0; written < size; ) {
+                zeros.clear().limit((int) Math.min(zeros.capacity(), size - written));
+                written += channel.write(zeros, written);
+            }
+            channel.force(true);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(0, MAGIC).putInt(4, VERSION);
+            buffer.force(0, HEADER_BYTES);
+            return new JournalSegment(number, file, channel, buffer, HEADER_BYTES);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Maps an existing segment to append after its last record, so a restart does not zero-fill a
+     * new file. Returns null unless it is a {@code size}-byte segment that ends cleanly; a torn or
+     * differently sized one is left as it is and a new segment is started instead.
+     */
+    static JournalSegment reopen(Path file, int size) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == size) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                int end = walk(buffer, payload -> { });
+                if (end > 0) return new JournalSegment(numberOf(file), file, channel, buffer, end);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        channel.close();
+        return null;
+    }
+
+    /**
+     * Hands each intact payload in {@code file} to {@code sink}, stopping at the end marker or at the
+     * first torn record (short or failing its checksum). Returns false if the file was cut short.
+     */
+    static boolean scan(Path file, Consumer<ByteBuffer> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) return false;
+            return walk(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), sink) > 0;
+        }
+    }
+
+    // the offset just past the last intact record, or -1 for a bad header or a torn record
+    private static int walk(ByteBuffer buffer, Consumer<ByteBuffer> sink) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) return -1;
+        CRC32C crc = new CRC32C();
+        int pos = HEADER_BYTES;
+        while (pos + RECORD_OVERHEAD <= buffer.limit()) {
+            int length = buffer.getInt(pos);
+            if (length == 0) return pos;
+            if (length < 0 || pos + RECORD_OVERHEAD + length > buffer.limit()) return -1;
+            ByteBuffer payload = buffer.slice(pos + RECORD_OVERHEAD, length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(pos + 4)) return -1;
+            sink.accept(payload);
+            pos += RECORD_OVERHEAD + length;
+        }
+        return pos;
+    }
+
+    boolean fits(int payloadLength) {
+        return position + RECORD_OVERHEAD + payloadLength <= buffer.capacity();
+    }
+
+    /** Share of the segment in use, for preparing the next one ahead of the roll. */
+    double fill() {
+        return (double) position / buffer.capacity();
+    }
+
+    /** Copies one record into the mapping and returns the offset just past it. */
+    int append(byte[] payload, int crc) {
+        // payload and checksum first, length last: a reader never sees a length without its bytes
+        buffer.put(position + RECORD_OVERHEAD, payload);
+        buffer.putInt(position + 4, crc);
+        buffer.putInt(position, payload.length);
+        position += RECORD_OVERHEAD + payload.length;
+        return position;
+    }
+
+    /** msync of everything appended since the last force, up to {@code end}. */
+    void force(int end) {
+        if (!closed && end > forced) {
+            buffer.force(forced, end - forced);
+            forced = end;
+        }
+    }
+
+    void forceAll() {
+        force(position);
+    }
+
+    /** Offset just past the last record. */
+    int end() { return position; }
+
+    boolean isClosed() { return closed; }
+
+    long number() { return number; }
+
+    Path file() { return file; }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+}
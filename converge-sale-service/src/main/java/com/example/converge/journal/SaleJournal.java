@@ -0,0 +1,391 @@
+package com.example.converge.journal;
+
+import com.example.converge.audit.Redaction;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.xml.ConvergeSaleXmlRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal of sales sent to Converge: an intent record before the call (invoice, amount,
+ * masked card number) and an outcome record after it (result, {@code ssl_txn_id}, duration).
+ * <p>
+ * Records are copied into a memory-mapped segment, so they survive a process crash as soon as the
+ * append returns. A flusher thread msyncs new records in one go (group commit) for durability
+ * against power loss; with {@code await-durable} the intent append also waits for that flush, and
+ * all sales waiting at the same moment share it. On startup every segment is scanned and intents
+ * without an outcome are reported as in doubt; appending then resumes in the last segment if it
+ * ended cleanly, and retention is applied before the first sale. The journal exists to survive
+ * restarts, so it has no tmpdir default and stays off until {@code dir} is configured; the
+ * directory and its segments are owner-only, since they hold invoices, amounts and masked cards.
+ */
+@Component
+public class SaleJournal implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SaleJournal.class);
+
+    static final byte INTENT = 1;
+    static final byte OUTCOME = 2;
+
+    private final ConvergeProperties.Journal config;
+    private final boolean enabled;
+    private final Path dir; // null when no journal dir is configured
+    private final Object flushLock = new Object();
+    private final Object prepareLock = new Object();
+    private final Object durable = new Object();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter errors;
+    private final Timer flushTimer;
+    private final DistributionSummary flushRecords;
+    private final List<JournalEntry> inDoubt;
+    private final Thread flusher;
+
+    // guarded by this
+    private JournalSegment segment;
+    private long nextId;
+    private long appended;
+    // guarded by flushLock
+    private long flushedRecords;
+    // guarded by prepareLock
+    private JournalSegment prepared;
+    private long lastCreated;
+    private volatile long written;
+    private volatile long flushed;
+    private volatile boolean running = true;
+
+    public SaleJournal(ConvergeProperties properties, MeterRegistry registry) {
+        this.config = properties.getJournal();
+        this.enabled = config.isEnabled() && StringUtils.hasText(config.getDir());
+        this.dir = enabled ? Path.of(config.getDir()) : null;
+        this.errors = Counter.builder("converge.journal.errors").register(registry);
+        this.flushTimer = Timer.builder("converge.journal.flush").register(registry);
+        this.flushRecords = DistributionSummary.builder("converge.journal.flush.records").register(registry);
+        if (!enabled) {
+            if (config.isEnabled()) log.warn("Sale journal is off until converge.journal.dir is set");
+            this.inDoubt = List.of();
+            this.flusher = null;
+            return;
+        }
+        try {
+            Files.createDirectories(dir);
+            if (dir.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+                Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwx------"));
+            }
+            this.inDoubt = recover();
+            long last = lastSegmentNumber();
+            JournalSegment reopened = last > 0 ? JournalSegment.reopen(JournalSegment.fileFor(dir, last), config.getSegmentBytes()) : null;
+            this.lastCreated = reopened != null ? last : last + 1;
+            this.segment = reopened != null ? reopened : JournalSegment.create(dir, lastCreated, config.getSegmentBytes());
+            deleteOldSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open sale journal in " + dir, e);
+        }
+        written = flushed = position(segment, segment.end());
+        // close out this crash's orphans so the next restart does not report them again
+        for (JournalEntry entry : inDoubt) {
+            log.warn("Sale in doubt after restart: journal id {} merchant {} invoice {} amount {} card {} sent at {}",
+                entry.id(), entry.merchantId(), entry.invoiceNumber(), entry.amount(), entry.maskedCardNumber(), entry.sentAt());
+            append(outcomePayload(entry.id(), "in_doubt", null, 0));
+        }
+        Gauge.builder("converge.journal.in_doubt", inDoubt, List::size).register(registry);
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /** False when the journal is switched off or no {@code converge.journal.dir} is configured. */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Records a sale about to be sent and returns its journal id (0 when the journal is off or failing). */
+    public long intent(ConvergeSaleXmlRequest request) {
+        if (!enabled) return 0;
+        long id;
+        synchronized (this) {
+            id = ++nextId;
+        }
+        byte[] payload = payload(INTENT, id, System.currentTimeMillis(), request.getInvoiceNumber(), request.getAmount(),
+            Redaction.maskCard(request.getCardNumber()), 0, request.getMerchantId());
+        long end = append(payload);
+        if (end > 0 && config.isAwaitDurable()) awaitFlushed(end);
+        return id;
+    }
+
+    /** Records how the sale with journal {@code id} ended; {@code outcome} as in {@code SaleMetrics.outcome}. */
+    public void outcome(long id, String outcome, String transactionId, long startNanos) {
+        if (id == 0) return;
+        append(outcomePayload(id, outcome, transactionId, (System.nanoTime() - startNanos) / 1000));
+    }
+
+    /** Sales whose intent was journalled but whose outcome was not, found by the startup scan. */
+    public List<JournalEntry> inDoubt() {
+        return inDoubt;
+    }
+
+    private byte[] outcomePayload(long id, String outcome, String transactionId, long durationMicros) {
+        return payload(OUTCOME, id, System.currentTimeMillis(), outcome, transactionId, null, durationMicros, null);
+    }
+
+    // type, id, time, three strings (intent: invoice, amount, card; outcome: outcome, txn id, unused), micros,
+    // then for intents the merchant id; records written before it existed simply end after micros
+    private static byte[] payload(byte type, long id, long time, String a, String b, String c, long micros, String merchantId) {
+        byte[] sa = utf8(a), sb = utf8(b), sc = utf8(c), sm = merchantId != null ? utf8(merchantId) : null;
+        ByteBuffer buf = ByteBuffer.allocate(1 + 8 + 8 + 6 + sa.length + sb.length + sc.length + 8 + (sm != null ? 2 + sm.length : 0));
+        buf.put(type).putLong(id).putLong(time);
+        buf.putShort((short) sa.length).put(sa).putShort((short) sb.length).put(sb).putShort((short) sc.length).put(sc);
+        buf.putLong(micros);
+        if (sm != null) buf.putShort((short) sm.length).put(sm);
+        return buf.array();
+    }
+
+    private static byte[] utf8(String value) {
+        if (value == null) return new byte[0];
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= Short.MAX_VALUE ? bytes : Arrays.copyOf(bytes, Short.MAX_VALUE);
+    }
+
+    private static String string(ByteBuffer buf) {
+        int length = buf.getShort();
+        if (length == 0) return null;
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // returns the logical end of the record, or 0 if it could not be written
+    private long append(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        try {
+            synchronized (this) {
+                if (!segment.fits(payload.length)) roll();
+                int end = segment.append(payload, (int) crc.getValue());
+                appended++;
+                written = position(segment, end);
+                return written;
+            }
+        } catch (IOException | RuntimeException e) {
+            // the sale goes ahead without its journal record rather than failing
+            errors.increment();
+            log.error("Failed to append to sale journal: {}", e.toString());
+            return 0;
+        }
+    }
+
+    // caller holds this; lock order is this, then prepareLock or flushLock
+    private void roll() throws IOException {
+        JournalSegment next;
+        synchronized (prepareLock) {
+            next = prepared;
+            prepared = null;
+            if (next == null) next = JournalSegment.create(dir, ++lastCreated, config.getSegmentBytes());
+        }
+        synchronized (flushLock) {
+            segment.forceAll();
+            segment.close();
+            flushedRecords = appended;
+        }
+        flushed = written;
+        signalDurable();
+        segment = next;
+        deleteOldSegments();
+    }
+
+    // logical positions increase across segments so waiters can compare them directly
+    private long position(JournalSegment segment, int offset) {
+        return segment.number() * (long) config.getSegmentBytes() + offset;
+    }
+
+    private void awaitFlushed(long end) {
+        waiting.incrementAndGet();
+        try {
+            LockSupport.unpark(flusher);
+            synchronized (durable) {
+                while (flushed < end && running) durable.wait(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void signalDurable() {
+        synchronized (durable) {
+            durable.notifyAll();
+        }
+    }
+
+    private void flushLoop() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(config.getFlushIntervalMs());
+        while (running) {
+            if (waiting.get() == 0) LockSupport.parkNanos(this, intervalNanos);
+            try {
+                flushOnce();
+                prepareNextSegment();
+            } catch (IOException | RuntimeException e) {
+                errors.increment();
+                log.error("Sale journal flush failed: {}", e.toString());
+                LockSupport.parkNanos(this, intervalNanos);
+            }
+        }
+    }
+
+    private void flushOnce() {
+        JournalSegment current;
+        long target;
+        long records;
+        synchronized (this) {
+            current = segment;
+            target = written;
+            records = appended;
+        }
+        if (target <= flushed) return;
+        long start = System.nanoTime();
+        synchronized (flushLock) {
+            // a roll in between has already forced and closed this segment
+            if (records > flushedRecords && !current.isClosed()) {
+                current.force((int) (target - position(current, 0)));
+                flushRecords.record(records - flushedRecords);
+                flushedRecords = records;
+            }
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (target > flushed) flushed = target;
+        signalDurable();
+    }
+
+    // zero-filling a segment takes a while, so it is done here rather than by the sale that rolls
+    private void prepareNextSegment() throws IOException {
+        JournalSegment current;
+        synchronized (this) {
+            current = segment;
+        }
+        synchronized (prepareLock) {
+            if (prepared == null && lastCreated == current.number() && current.fill() > 0.5) {
+                prepared = JournalSegment.create(dir, ++lastCreated, config.getSegmentBytes());
+            }
+        }
+    }
+
+    private void deleteOldSegments() throws IOException {
+        List<Path> files = segmentFiles();
+        for (int i = 0; i < files.size() - config.getMaxSegments(); i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().matches("journal-\\d+\\.seg"))
+                .sorted()
+                .toList();
+        }
+    }
+
+    private long lastSegmentNumber() throws IOException {
+        List<Path> files = segmentFiles();
+        return files.isEmpty() ? 0 : JournalSegment.numberOf(files.get(files.size() - 1));
+    }
+
+    private List<JournalEntry> recover() throws IOException {
+        long[] maxId = {0};
+        Map<Long, JournalEntry> open = scan(Long.MIN_VALUE, Long.MAX_VALUE, entry -> { }, maxId);
+        nextId = maxId[0];
+        if (!open.isEmpty()) log.warn("{} sales were sent to Converge without a recorded outcome", open.size());
+        return Collections.unmodifiableList(new ArrayList<>(open.values()));
+    }
+
+    /**
+     * Streams the sales sent between {@code from} and {@code to} (epoch millis) to {@code sink}, each as
+     * soon as its outcome is read; sales still without one come last. Only sales awaiting their
+     * outcome record are held in memory, so this scales to the full journal.
+     */
+    public void forEach(long from, long to, Consumer<JournalEntry> sink) throws IOException {
+        if (!enabled) return;
+        scan(from, to, sink, new long[1]).values().forEach(sink);
+    }
+
+    private Map<Long, JournalEntry> scan(long from, long to, Consumer<JournalEntry> completed, long[] maxId) throws IOException {
+        Map<Long, JournalEntry> open = new LinkedHashMap<>();
+        for (Path file : segmentFiles()) {
+            boolean intact;
+            try {
+                intact = JournalSegment.scan(file, payload -> {
+                    byte type = payload.get();
+                    long id = payload.getLong();
+                    long time = payload.getLong();
+                    String a = string(payload), b = string(payload), c = string(payload);
+                    long micros = payload.getLong();
+                    String merchantId = payload.hasRemaining() ? string(payload) : null;
+                    maxId[0] = Math.max(maxId[0], id);
+                    if (type == INTENT) {
+                        if (time >= from && time <= to) open.put(id, new JournalEntry(id, time, merchantId, a, b, c, null, null, 0));
+                    } else {
+                        JournalEntry intent = open.remove(id);
+                        if (intent != null) completed.accept(intent.withOutcome(a, b, micros));
+                    }
+                });
+            } catch (NoSuchFileException e) {
+                continue; // removed by retention while listing
+            }
+            if (!intact) log.warn("Sale journal segment {} ends in a torn record; entries after it are lost", file);
+        }
+        return open;
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (!enabled) return;
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            synchronized (flushLock) {
+                segment.forceAll();
+                segment.close();
+            }
+            synchronized (prepareLock) {
+                if (prepared != null) {
+                    prepared.close();
+                    Files.deleteIfExists(prepared.file());
+                }
+            }
+        }
+        signalDurable();
+    }
+}
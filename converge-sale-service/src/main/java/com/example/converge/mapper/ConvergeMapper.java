@@ -5,18 +5,36 @@ import com.example.converge.dto.request.SaleRequest;
 import com.example.converge.dto.response.SaleResponse;
 import com.example.converge.dto.xml.ConvergeSaleXmlRequest;
 import com.example.converge.dto.xml.ConvergeSaleXmlResponse;
+import com.example.converge.dto.xml.ConvergeXmlTransaction;
+import com.example.converge.merchant.MerchantAccount;
+
+import java.util.Map;
 
 public class ConvergeMapper {
 
+    public static ConvergeSaleXmlRequest toXmlRequest(SaleRequest req, MerchantAccount merchant) {
+        ConvergeSaleXmlRequest xml = new ConvergeSaleXmlRequest();
+        xml.setMerchantId(merchant.getMerchantId());
+        xml.setUserId(merchant.getUserId());
+        xml.setPin(merchant.getPin());
+        return fill(req, xml);
+    }
+
     public static ConvergeSaleXmlRequest toXmlRequest(SaleRequest req, ConvergeProperties props) {
         ConvergeSaleXmlRequest xml = new ConvergeSaleXmlRequest();
         xml.setMerchantId(props.getSslMerchantId());
         xml.setUserId(props.getSslUserId());
         xml.setPin(props.getSslPin());
+        return fill(req, xml);
+    }
+
+    private static ConvergeSaleXmlRequest fill(SaleRequest req, ConvergeSaleXmlRequest xml) {
+        if (req.isDeferCapture()) xml.setTransactionType(ConvergeSaleXmlRequest.AUTH_ONLY);
         xml.setAmount(req.getAmount());
         xml.setCardNumber(req.getCardNumber());
         xml.setExpDateMmYy(buildExpDate(req.getExpMonth(), req.getExpYear()));
         xml.setCvv(req.getCvv());
+        // only reached without an invoice when idempotency is disabled, where retries are not collapsed anyway
         xml.setInvoiceNumber(req.getInvoiceNumber() != null ? req.getInvoiceNumber() : "INV" + System.currentTimeMillis());
         xml.setAvsAddress(req.getAddress());
         xml.setAvsZip(req.getPostalCode());
@@ -68,6 +86,51 @@ public class ConvergeMapper {
         return res;
     }
 
+    public static ConvergeXmlTransaction toXmlTransaction(String transactionType, MerchantAccount merchant) {
+        ConvergeXmlTransaction xml = new ConvergeXmlTransaction(transactionType);
+        xml.setMerchantId(merchant.getMerchantId());
+        xml.setUserId(merchant.getUserId());
+        xml.setPin(merchant.getPin());
+        return xml;
+    }
+
+    public static ConvergeXmlTransaction toXmlTransaction(String transactionType, ConvergeProperties props) {
+        ConvergeXmlTransaction xml = new ConvergeXmlTransaction(transactionType);
+        xml.setMerchantId(props.getSslMerchantId());
+        xml.setUserId(props.getSslUserId());
+        xml.setPin(props.getSslPin());
+        return xml;
+    }
+
+    // One row of a txnlist-style result (transaction and batch import queries)
+    public static SaleResponse toSaleResponse(Map<String, String> txn) {
+        SaleResponse res = new SaleResponse();
+        String errorCode = txn.containsKey("errorCode") ? txn.get("errorCode") : blankToNull(txn.get("ssl_error_code"));
+        if (errorCode != null) {
+            String errorMessage = txn.containsKey("errorMessage") ? txn.get("errorMessage") : txn.get("ssl_message");
+            res.setApproved(false);
+            res.setMessage("Error " + errorCode + ": " + errorMessage);
+            res.setRawCode(errorCode);
+            res.setRawText(errorMessage);
+            return res;
+        }
+        String result = txn.get("ssl_result");
+        res.setApproved("0".equals(result) || "A".equalsIgnoreCase(result));
+        res.setAuthCode(txn.get("ssl_approval_code"));
+        res.setTransactionId(txn.get("ssl_txn_id"));
+        res.setAvsResult(txn.get("ssl_avs_response"));
+        res.setCvvResult(txn.get("ssl_cvv2_response"));
+        res.setMessage(txn.containsKey("ssl_result_message") ? txn.get("ssl_result_message") : txn.get("ssl_message"));
+        res.setRawCode(result);
+        res.setRawText(txn.get("ssl_issuer_response"));
+        res.setTimestamp(txn.get("ssl_txn_time"));
+        return res;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
     private static String buildExpDate(String month, String year) {
         String yy = year.length() >= 2 ? year.substring(year.length() - 2) : year;
         return month + yy;
@@ -0,0 +1,92 @@
+package com.example.converge.merchant;
+
+import com.example.converge.exception.MerchantLimitException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Credentials of one Converge merchant account plus its own admission limits: a token bucket
+ * for its sale rate and a semaphore for its share of the connection pool. A merchant over either
+ * is refused straight away, before it takes a shared bulkhead permit or connection.
+ */
+public final class MerchantAccount {
+
+    public static final String DEFAULT = "default";
+
+    private final String key;
+    private final String merchantId;
+    private final String userId;
+    private final String pin;
+    private final TokenBucket rate;
+    private final Semaphore connections;
+    private final Counter rateLimited;
+    private final Counter connectionsExhausted;
+
+    MerchantAccount(String key, String merchantId, String userId, String pin, double ratePerSecond, int burst,
+                    int maxConnections, MeterRegistry registry) {
+        this.key = key;
+        this.merchantId = merchantId;
+        this.userId = userId;
+        this.pin = pin;
+        this.rate = ratePerSecond > 0 ? new TokenBucket(ratePerSecond, burst) : null;
+        this.connections = maxConnections > 0 ? new Semaphore(maxConnections) : null;
+        this.rateLimited = Counter.builder("converge.merchant.rejected").tag("merchant", key).tag("reason", "rate").register(registry);
+        this.connectionsExhausted = Counter.builder("converge.merchant.rejected").tag("merchant", key).tag("reason", "connections").register(registry);
+        if (rate != null) {
+            Gauge.builder("converge.merchant.rate.tokens", rate, TokenBucket::available).tag("merchant", key).register(registry);
+        }
+        if (connections != null) {
+            Gauge.builder("converge.merchant.connections.available", connections, Semaphore::availablePermits)
+                .tag("merchant", key).register(registry);
+        }
+    }
+
+    public String getKey() { return key; }
+    public String getMerchantId() { return merchantId; }
+    public String getUserId() { return userId; }
+    public String getPin() { return pin; }
+    public boolean isDefault() { return DEFAULT.equals(key); }
+
+    public <T> T call(Supplier<T> sale) {
+        admit();
+        try {
+            return sale.get();
+        } finally {
+            if (connections != null) connections.release();
+        }
+    }
+
+    public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> sale) {
+        admit();
+        CompletableFuture<T> future;
+        try {
+            future = sale.get();
+        } catch (RuntimeException e) {
+            if (connections != null) connections.release();
+            throw e;
+        }
+        return connections == null ? future : future.whenComplete((result, ex) -> connections.release());
+    }
+
+    // the connection permit is taken first so a refused sale never spends a token
+    private void admit() {
+        if (connections != null && !connections.tryAcquire()) {
+            connectionsExhausted.increment();
+            throw new MerchantLimitException("MERCHANT_CONNECTIONS_EXHAUSTED",
+                "Merchant " + key + " is using all of its Converge connections", 0);
+        }
+        long waitNanos = rate != null ? rate.tryTake() : 0;
+        if (waitNanos > 0) {
+            if (connections != null) connections.release();
+            rateLimited.increment();
+            throw new MerchantLimitException("MERCHANT_RATE_LIMITED", "Merchant " + key + " is over its sale rate limit",
+                TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.converge.merchant;
+
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.exception.UnknownMerchantException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The merchant accounts this instance serves, loaded once from {@code converge.merchants} plus
+ * the top-level credentials as merchant {@code default}. The map is immutable, so lookups take no
+ * lock, and only configured keys ever become metric tags.
+ */
+@Component
+public class MerchantRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(MerchantRegistry.class);
+
+    private final Map<String, MerchantAccount> accounts;
+    private final MerchantAccount defaultMerchant;
+
+    public MerchantRegistry(ConvergeProperties properties, MeterRegistry registry) {
+        Map<String, MerchantAccount> accounts = new LinkedHashMap<>();
+        ConvergeProperties.Merchant defaults = properties.getMerchants().getOrDefault(MerchantAccount.DEFAULT, new ConvergeProperties.Merchant());
+        this.defaultMerchant = new MerchantAccount(MerchantAccount.DEFAULT,
+            or(defaults.getSslMerchantId(), properties.getSslMerchantId()), or(defaults.getSslUserId(), properties.getSslUserId()),
+            or(defaults.getSslPin(), properties.getSslPin()), defaults.getRatePerSecond(), defaults.getBurst(),
+            defaults.getMaxConnections(), registry);
+        accounts.put(MerchantAccount.DEFAULT, defaultMerchant);
+        int partitioned = defaults.getMaxConnections();
+        for (Map.Entry<String, ConvergeProperties.Merchant> entry : properties.getMerchants().entrySet()) {
+            if (entry.getKey().equals(MerchantAccount.DEFAULT)) continue;
+            ConvergeProperties.Merchant merchant = entry.getValue();
+            if (!StringUtils.hasText(merchant.getSslMerchantId())) {
+                throw new IllegalStateException("converge.merchants." + entry.getKey() + ".ssl-merchant-id is not set");
+            }
+            accounts.put(entry.getKey(), new MerchantAccount(entry.getKey(), merchant.getSslMerchantId(), merchant.getSslUserId(),
+                merchant.getSslPin(), merchant.getRatePerSecond(), merchant.getBurst(), merchant.getMaxConnections(), registry));
+            partitioned += merchant.getMaxConnections();
+        }
+        this.accounts = Map.copyOf(accounts);
+        if (partitioned > properties.getHttp().getMaxConnectionsPerRoute()) {
+            log.warn("Merchant connection shares add up to {}, more than the {} connections to Converge; a busy merchant can still delay others",
+                partitioned, properties.getHttp().getMaxConnectionsPerRoute());
+        }
+    }
+
+    /** The account for {@code key}; the default merchant when no key is given. */
+    public MerchantAccount resolve(String key) {
+        if (key == null || key.isBlank()) return defaultMerchant;
+        MerchantAccount account = accounts.get(key);
+        if (account == null) throw new UnknownMerchantException("Unknown merchantKey " + key);
+        return account;
+    }
+
+    public MerchantAccount defaultMerchant() {
+        return defaultMerchant;
+    }
+
+    public Collection<MerchantAccount> all() {
+        return accounts.values();
+    }
+
+    private static String or(String value, String fallback) {
+        return StringUtils.hasText(value) ? value : fallback;
+    }
+}
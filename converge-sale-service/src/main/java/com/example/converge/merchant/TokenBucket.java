@@ -0,0 +1,37 @@
+package com.example.converge.merchant;
+
+/** Refills at {@code perSecond} up to {@code burst} tokens; one token per sale. */
+class TokenBucket {
+
+    private final double perNano;
+    private final double capacity;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    TokenBucket(double perSecond, int burst) {
+        this.perNano = perSecond / 1e9;
+        this.capacity = Math.max(1, burst > 0 ? burst : Math.ceil(perSecond));
+        this.tokens = capacity;
+    }
+
+    /** Takes a token and returns 0, or returns the nanoseconds until one is available. */
+    synchronized long tryTake() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / perNano);
+    }
+
+    synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * perNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.converge.reconciliation;
+
+/** A difference between what this service recorded and what Converge reports. */
+public enum Discrepancy {
+    /** Recorded as approved, with an {@code ssl_txn_id}, but not in Converge's result set. */
+    MISSING_AT_CONVERGE,
+    /** In Converge's result set but never recorded here. */
+    NOT_RECORDED,
+    /** Same transaction, different amount. */
+    AMOUNT_MISMATCH,
+    /** Same transaction, approved on one side and declined on the other. */
+    RESULT_MISMATCH,
+    /** A void or delete; this service never sends either. */
+    UNEXPECTED_VOID,
+    /** A sale whose outcome was unknown here (timeout, crash) that Converge did process. */
+    IN_DOUBT_CHARGED,
+    /** A sale whose outcome was unknown here that Converge has no record of. */
+    IN_DOUBT_NOT_FOUND
+}
@@ -0,0 +1,60 @@
+package com.example.converge.reconciliation;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+
+/** Progress and totals of one reconciliation run; the discrepancies themselves are written to the report file. */
+public class ReconciliationJob {
+
+    public enum Status { RUNNING, COMPLETE, FAILED }
+
+    private final String id;
+    private final String merchantKey;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final long submittedAt = System.currentTimeMillis();
+    private volatile Status status = Status.RUNNING;
+    private volatile long finishedAt;
+    private volatile long recorded;
+    private volatile long convergeRows;
+    private volatile long matched;
+    private volatile Map<Discrepancy, Long> discrepancies = new EnumMap<>(Discrepancy.class);
+    private volatile String message;
+    private final Path reportFile;
+
+    ReconciliationJob(String id, String merchantKey, LocalDate from, LocalDate to, Path workDir) {
+        this.id = id;
+        this.merchantKey = merchantKey;
+        this.from = from;
+        this.to = to;
+        this.reportFile = workDir.resolve(id + "-report.ndjson");
+    }
+
+    public String getId() { return id; }
+    public String getMerchantKey() { return merchantKey; }
+    public LocalDate getFrom() { return from; }
+    public LocalDate getTo() { return to; }
+    public long getSubmittedAt() { return submittedAt; }
+    public Status getStatus() { return status; }
+    void setStatus(Status status) {
+        if (status != Status.RUNNING) finishedAt = System.currentTimeMillis();
+        this.status = status;
+    }
+    /** 0 while the job is still running. */
+    @JsonIgnore public long getFinishedAt() { return finishedAt; }
+    public long getRecorded() { return recorded; }
+    void setRecorded(long recorded) { this.recorded = recorded; }
+    public long getConvergeRows() { return convergeRows; }
+    void setConvergeRows(long convergeRows) { this.convergeRows = convergeRows; }
+    public long getMatched() { return matched; }
+    void setMatched(long matched) { this.matched = matched; }
+    public Map<Discrepancy, Long> getDiscrepancies() { return discrepancies; }
+    void setDiscrepancies(Map<Discrepancy, Long> discrepancies) { this.discrepancies = discrepancies; }
+    public String getMessage() { return message; }
+    void setMessage(String message) { this.message = message; }
+    @JsonIgnore public Path getReportFile() { return reportFile; }
+}
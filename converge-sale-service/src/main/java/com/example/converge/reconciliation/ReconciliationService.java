@@ -0,0 +1,363 @@
+package com.example.converge.reconciliation;
+
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.xml.ConvergeXmlTransaction;
+import com.example.converge.exception.InvalidReconciliationRangeException;
+import com.example.converge.journal.JournalEntry;
+import com.example.converge.journal.SaleJournal;
+import com.example.converge.mapper.ConvergeMapper;
+import com.example.converge.merchant.MerchantAccount;
+import com.example.converge.merchant.MerchantRegistry;
+import com.example.converge.service.ConvergeClient;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-of-day reconciliation of the sale journal against Converge {@code txnquery}.
+ * <p>
+ * Recorded sales in the date range are loaded into two {@link RecordIndex}es: by {@code ssl_txn_id},
+ * and by invoice number for sales whose outcome was never known. Converge's result set is then
+ * streamed page by page, one {@code <txn>} at a time, and each row is matched as it arrives.
+ * Recorded sales left unmatched are written out in a second pass over the journal. Memory is one
+ * index slot per recorded sale plus one row, whatever the size of the result set.
+ * <p>
+ * Reports carry invoice numbers and masked cards, so there is no default {@code work-dir}: reconciliation
+ * stays off until one is configured (and the sale journal is on). The directory and its reports are
+ * owner-only, reports left by an earlier run are deleted at startup, and finished jobs are dropped with
+ * their reports after {@code job-retention-ms}.
+ */
+@Service
+public class ReconciliationService implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationService.class);
+    private static final DateTimeFormatter QUERY_DATE = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+    private static final int PAGE_SIZE = 1000;
+    static final long NO_AMOUNT = Long.MIN_VALUE;
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    // outcomes after which Converge may or may not have processed the sale
+    private static final Set<String> IN_DOUBT_OUTCOMES = Set.of("in_doubt", "timeout", "io_error", "server_error",
+        "read_timeout", "invalid_response", "error");
+
+    private final ConvergeClient client;
+    private final ConvergeResponseDecoder decoder;
+    private final ConvergeProperties properties;
+    private final SaleJournal journal;
+    private final ObjectMapper objectMapper;
+    private final MerchantRegistry merchants;
+    private final Path workDir; // null when reconciliation is not configured
+    private final ZoneId zone;
+    private final Map<String, ReconciliationJob> jobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+
+    public ReconciliationService(ConvergeClient client, ConvergeResponseDecoder decoder, ConvergeProperties properties,
+                                 SaleJournal journal, ObjectMapper objectMapper, MerchantRegistry merchants) {
+        this.client = client;
+        this.decoder = decoder;
+        this.properties = properties;
+        this.journal = journal;
+        this.objectMapper = objectMapper;
+        this.merchants = merchants;
+        ConvergeProperties.Reconciliation config = properties.getReconciliation();
+        this.workDir = StringUtils.hasText(config.getWorkDir()) && journal.isEnabled() ? Path.of(config.getWorkDir()) : null;
+        this.zone = StringUtils.hasText(config.getZone()) ? ZoneId.of(config.getZone()) : ZoneId.systemDefault();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("reconciliation-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        if (workDir != null) {
+            prepareWorkDir();
+            executor.scheduleWithFixedDelay(this::expireJobs, 1, 1, TimeUnit.MINUTES);
+        }
+    }
+
+    /** False until {@code converge.reconciliation.work-dir} is set and the sale journal is on. */
+    public boolean isEnabled() {
+        return workDir != null;
+    }
+
+    /** Starts reconciling one merchant's sales made from {@code from} to {@code to} inclusive, in the terminal's time zone. */
+    public ReconciliationJob submit(String merchantKey, LocalDate from, LocalDate to) throws IOException {
+        if (workDir == null) throw new IllegalStateException("converge.reconciliation.work-dir is not set");
+        MerchantAccount merchant = merchants.resolve(merchantKey);
+        if (to.isBefore(from)) throw new InvalidReconciliationRangeException("to is before from");
+        // txnquery searches at most 31 days at a time
+        if (ChronoUnit.DAYS.between(from, to) >= 31) throw new InvalidReconciliationRangeException("Range is longer than 31 days");
+        ReconciliationJob job = new ReconciliationJob(UUID.randomUUID().toString().substring(0, 8), merchant.getKey(), from, to, workDir);
+        createOwnerOnly(partialReport(job));
+        jobs.put(job.getId(), job);
+        executor.execute(() -> run(job, merchant));
+        return job;
+    }
+
+    public ReconciliationJob find(String id) {
+        return jobs.get(id);
+    }
+
+    private void run(ReconciliationJob job, MerchantAccount merchant) {
+        Path partial = partialReport(job);
+        long[] counts = new long[Discrepancy.values().length];
+        try (JsonGenerator out = objectMapper.createGenerator(Files.newBufferedWriter(partial, StandardCharsets.UTF_8))) {
+            out.setRootValueSeparator(null);
+            long fromMillis = job.getFrom().atStartOfDay(zone).toInstant().toEpochMilli();
+            long toMillis = job.getTo().plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli() - 1;
+            Report report = new Report(out, counts);
+
+            RecordIndex byTxnId = new RecordIndex(1024);
+            RecordIndex inDoubtByInvoice = new RecordIndex(64);
+            long[] recorded = {0};
+            journal.forEach(fromMillis, toMillis, entry -> {
+                if (!belongsTo(entry, merchant)) return;
+                recorded[0]++;
+                if (entry.transactionId() != null) {
+                    byte state = "approved".equals(entry.outcome()) ? RecordIndex.APPROVED : RecordIndex.DECLINED;
+                    byTxnId.put(RecordIndex.hash(entry.transactionId()), cents(entry.amount()), entry.id(), state);
+                } else if (inDoubt(entry.outcome()) && entry.invoiceNumber() != null) {
+                    inDoubtByInvoice.put(RecordIndex.hash(entry.invoiceNumber()), cents(entry.amount()), entry.id(), RecordIndex.IN_DOUBT);
+                }
+            });
+            job.setRecorded(recorded[0]);
+
+            long[] rows = {0, 0};
+            String pageStart = job.getFrom().format(QUERY_DATE);
+            for (int page = 0; page < properties.getReconciliation().getMaxPages(); page++) {
+                ConvergeXmlTransaction query = ConvergeMapper.toXmlTransaction("txnquery", merchant)
+                    .field("ssl_search_start_date", pageStart)
+                    .field("ssl_search_end_date", job.getTo().format(QUERY_DATE));
+                long before = rows[0];
+                Map<String, String> listFields = client.execute(query, body -> decoder.forEachTxn(body, txn -> {
+                    if (txn.containsKey("errorCode")) {
+                        throw new IllegalStateException("Error " + txn.get("errorCode") + ": " + txn.get("errorMessage"));
+                    }
+                    rows[0]++;
+                    if (match(txn, byTxnId, inDoubtByInvoice, report)) rows[1]++;
+                }));
+                job.setConvergeRows(rows[0]);
+                // result sets over 1000 rows come in pages; the next one starts at ssl_next_txn_time
+                String next = listFields.get("ssl_next_txn_time");
+                if (rows[0] - before < PAGE_SIZE || !StringUtils.hasText(next) || next.equals(pageStart)) break;
+                pageStart = next;
+            }
+            job.setMatched(rows[1]);
+
+            RecordIndex unmatched = new RecordIndex(64);
+            byTxnId.forEachUnmatched(slot -> {
+                if (byTxnId.state(slot) == RecordIndex.APPROVED) {
+                    unmatched.put(RecordIndex.hash(byTxnId.journalId(slot)), 0, Discrepancy.MISSING_AT_CONVERGE.ordinal(), (byte) 0);
+                }
+            });
+            inDoubtByInvoice.forEachUnmatched(slot ->
+                unmatched.put(RecordIndex.hash(inDoubtByInvoice.journalId(slot)), 0, Discrepancy.IN_DOUBT_NOT_FOUND.ordinal(), (byte) 0));
+            if (unmatched.size() > 0) {
+                journal.forEach(fromMillis, toMillis, entry -> {
+                    int slot = unmatched.find(RecordIndex.hash(entry.id()));
+                    if (slot >= 0) report.recorded(Discrepancy.values()[(int) unmatched.journalId(slot)], entry);
+                });
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Reconciliation {} failed: {}", job.getId(), e.getMessage());
+            job.setStatus(ReconciliationJob.Status.FAILED);
+            job.setMessage(e.getMessage());
+            return;
+        } finally {
+            Map<Discrepancy, Long> totals = new EnumMap<>(Discrepancy.class);
+            for (Discrepancy d : Discrepancy.values()) if (counts[d.ordinal()] > 0) totals.put(d, counts[d.ordinal()]);
+            job.setDiscrepancies(totals);
+        }
+        try {
+            Files.move(partial, job.getReportFile(), StandardCopyOption.REPLACE_EXISTING);
+            job.setStatus(ReconciliationJob.Status.COMPLETE);
+        } catch (IOException e) {
+            job.setStatus(ReconciliationJob.Status.FAILED);
+            job.setMessage(e.getMessage());
+        }
+    }
+
+    private void prepareWorkDir() {
+        try {
+            Files.createDirectories(workDir);
+            if (POSIX) Files.setPosixFilePermissions(workDir, PosixFilePermissions.fromString("rwx------"));
+            // jobs are only known in memory, so reports of an earlier run can no longer be fetched
+            try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(workDir, "*-report.ndjson*")) {
+                for (Path file : leftovers) Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot prepare reconciliation work dir " + workDir, e);
+        }
+    }
+
+    private static Path partialReport(ReconciliationJob job) {
+        return job.getReportFile().resolveSibling(job.getReportFile().getFileName() + ".part");
+    }
+
+    private static void createOwnerOnly(Path file) throws IOException {
+        if (POSIX) Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        else Files.createFile(file);
+    }
+
+    // finished jobs are kept for job-retention-ms so their reports can be fetched, then dropped with their files
+    private void expireJobs() {
+        long cutoff = System.currentTimeMillis() - properties.getReconciliation().getJobRetentionMs();
+        for (ReconciliationJob job : jobs.values()) {
+            if (job.getFinishedAt() == 0 || job.getFinishedAt() > cutoff) continue;
+            jobs.remove(job.getId());
+            try {
+                Files.deleteIfExists(job.getReportFile());
+                Files.deleteIfExists(partialReport(job));
+            } catch (IOException e) {
+                log.warn("Could not delete report of expired reconciliation {}: {}", job.getId(), e.getMessage());
+            }
+        }
+    }
+
+    // true when the row matched a recorded sale
+    static boolean match(Map<String, String> txn, RecordIndex byTxnId, RecordIndex inDoubtByInvoice, Report report) {
+        String txnId = txn.get("ssl_txn_id");
+        String invoice = txn.get("ssl_invoice_number");
+        String type = txn.getOrDefault("ssl_transaction_type", "").toUpperCase(Locale.ROOT);
+        int slot = txnId != null ? byTxnId.find(RecordIndex.hash(txnId)) : -1;
+        if (type.contains("VOID") || type.contains("DELETE")) {
+            // the recorded sale is accounted for by this report line; it is not also missing at Converge
+            if (slot >= 0) byTxnId.markMatched(slot);
+            report.converge(Discrepancy.UNEXPECTED_VOID, txn, slot >= 0 ? byTxnId.journalId(slot) : 0, NO_AMOUNT);
+            return false;
+        }
+        if (slot >= 0) {
+            if (byTxnId.matched(slot)) return true; // same transaction listed twice, e.g. level 3 line items
+            byTxnId.markMatched(slot);
+            long recordedCents = byTxnId.cents(slot);
+            if (recordedCents != cents(txn.get("ssl_amount"))) {
+                report.converge(Discrepancy.AMOUNT_MISMATCH, txn, byTxnId.journalId(slot), recordedCents);
+            }
+            if ((byTxnId.state(slot) == RecordIndex.APPROVED) != approved(txn)) {
+                report.converge(Discrepancy.RESULT_MISMATCH, txn, byTxnId.journalId(slot), recordedCents);
+            }
+            return true;
+        }
+        int doubt = invoice != null && !invoice.isEmpty() ? inDoubtByInvoice.find(RecordIndex.hash(invoice)) : -1;
+        if (doubt >= 0 && approved(txn)) {
+            inDoubtByInvoice.markMatched(doubt);
+            report.converge(Discrepancy.IN_DOUBT_CHARGED, txn, inDoubtByInvoice.journalId(doubt), inDoubtByInvoice.cents(doubt));
+            return true;
+        }
+        report.converge(Discrepancy.NOT_RECORDED, txn, 0, NO_AMOUNT);
+        return false;
+    }
+
+    // sales journalled before merchants were recorded went out under the default credentials
+    private static boolean belongsTo(JournalEntry entry, MerchantAccount merchant) {
+        return entry.merchantId() != null ? Objects.equals(entry.merchantId(), merchant.getMerchantId()) : merchant.isDefault();
+    }
+
+    private static boolean inDoubt(String outcome) {
+        return outcome == null || IN_DOUBT_OUTCOMES.contains(outcome);
+    }
+
+    private static boolean approved(Map<String, String> txn) {
+        String result = txn.get("ssl_result");
+        if (result != null && !result.isEmpty()) return "0".equals(result);
+        String message = txn.get("ssl_result_message");
+        return message != null && message.toUpperCase(Locale.ROOT).contains("APPROV");
+    }
+
+    /** Amount in cents without allocating; {@link #NO_AMOUNT} if it is not a plain decimal. */
+    static long cents(String amount) {
+        if (amount == null || amount.isEmpty()) return NO_AMOUNT;
+        long cents = 0;
+        int decimals = -1;
+        for (int i = 0; i < amount.length(); i++) {
+            char c = amount.charAt(i);
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (c >= '0' && c <= '9' && decimals < 2) {
+                cents = cents * 10 + (c - '0');
+                if (decimals >= 0) decimals++;
+            } else if (c != ',') {
+                return NO_AMOUNT;
+            }
+        }
+        for (int d = Math.max(decimals, 0); d < 2; d++) cents *= 10;
+        return cents;
+    }
+
+    private static String amount(long cents) {
+        return cents == NO_AMOUNT ? null : BigDecimal.valueOf(cents, 2).toPlainString();
+    }
+
+    /** Writes report lines and counts them by kind. */
+    record Report(JsonGenerator out, long[] counts) {
+
+        void converge(Discrepancy kind, Map<String, String> txn, long journalId, long recordedCents) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("discrepancy", kind);
+            line.put("transactionId", txn.get("ssl_txn_id"));
+            line.put("invoiceNumber", txn.get("ssl_invoice_number"));
+            line.put("transactionType", txn.get("ssl_transaction_type"));
+            line.put("status", txn.get("ssl_trans_status"));
+            line.put("txnTime", txn.get("ssl_txn_time"));
+            line.put("convergeAmount", txn.get("ssl_amount"));
+            if (recordedCents != NO_AMOUNT) line.put("recordedAmount", amount(recordedCents));
+            if (journalId != 0) line.put("journalId", journalId);
+            write(kind, line);
+        }
+
+        void recorded(Discrepancy kind, JournalEntry entry) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("discrepancy", kind);
+            line.put("transactionId", entry.transactionId());
+            line.put("invoiceNumber", entry.invoiceNumber());
+            line.put("recordedAmount", entry.amount());
+            line.put("card", entry.maskedCardNumber());
+            line.put("outcome", entry.outcome());
+            line.put("sentAt", entry.sentAt());
+            line.put("journalId", entry.id());
+            write(kind, line);
+        }
+
+        private void write(Discrepancy kind, Map<String, Object> line) {
+            counts[kind.ordinal()]++;
+            try {
+                out.writeObject(line);
+                out.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
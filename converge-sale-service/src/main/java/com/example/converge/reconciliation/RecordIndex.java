@@ -0,0 +1,114 @@
+package com.example.converge.reconciliation;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Open-addressing hash index from a 64-bit key hash to a recorded sale (amount in cents, journal id,
+ * state), held in parallel primitive arrays with linear probing. No object per entry: about 40 bytes
+ * per sale at the 0.6 load factor, so millions of sales fit in a bounded heap.
+ */
+final class RecordIndex {
+
+    static final byte APPROVED = 1;
+    static final byte DECLINED = 2;
+    static final byte IN_DOUBT = 3;
+
+    private static final byte MATCHED = (byte) 0x80;
+    private static final double LOAD_FACTOR = 0.6;
+
+    private long[] keys;
+    private long[] cents;
+    private long[] journalIds;
+    private byte[] states;
+    private int size;
+
+    RecordIndex(int expected) {
+        allocate(Integer.highestOneBit((int) Math.max(16, expected / LOAD_FACTOR)) << 1);
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        cents = new long[capacity];
+        journalIds = new long[capacity];
+        states = new byte[capacity];
+    }
+
+    /** Adds or replaces the entry for {@code key} (see {@link #hash}). */
+    void put(long key, long amountCents, long journalId, byte state) {
+        if (size + 1 > keys.length * LOAD_FACTOR) grow();
+        int slot = probe(key);
+        if (keys[slot] == 0) {
+            keys[slot] = key;
+            size++;
+        }
+        cents[slot] = amountCents;
+        journalIds[slot] = journalId;
+        states[slot] = state;
+    }
+
+    /** Slot holding {@code key}, or -1. */
+    int find(long key) {
+        int slot = probe(key);
+        return keys[slot] == 0 ? -1 : slot;
+    }
+
+    long cents(int slot) { return cents[slot]; }
+    long journalId(int slot) { return journalIds[slot]; }
+    byte state(int slot) { return (byte) (states[slot] & ~MATCHED); }
+    boolean matched(int slot) { return (states[slot] & MATCHED) != 0; }
+    void markMatched(int slot) { states[slot] |= MATCHED; }
+    int size() { return size; }
+
+    void forEachUnmatched(IntConsumer slotSink) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != 0 && !matched(slot)) slotSink.accept(slot);
+        }
+    }
+
+    private int probe(long key) {
+        int mask = keys.length - 1;
+        int slot = (int) key & mask;
+        while (keys[slot] != 0 && keys[slot] != key) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys, oldCents = cents, oldIds = journalIds;
+        byte[] oldStates = states;
+        allocate(oldKeys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) continue;
+            int slot = probe(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            cents[slot] = oldCents[i];
+            journalIds[slot] = oldIds[i];
+            states[slot] = oldStates[i];
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a of {@code value} with a murmur finaliser; never 0, which marks an empty slot. At a
+     * few million keys the chance of any collision is around one in a million.
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    static long hash(long value) {
+        return mix(value + 0x9e3779b97f4a7c15L);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+}
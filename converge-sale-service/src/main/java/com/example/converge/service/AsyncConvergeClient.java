@@ -0,0 +1,149 @@
+package com.example.converge.service;
+
+import com.example.converge.admission.Deadline;
+import com.example.converge.audit.AuditLog;
+import com.example.converge.codec.ConvergeRequestEncoder;
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.xml.ConvergeSaleXmlRequest;
+import com.example.converge.dto.xml.ConvergeSaleXmlResponse;
+import com.example.converge.exception.UpstreamFailureException;
+import com.example.converge.jfr.SaleStageEvent;
+import com.example.converge.jfr.UpstreamAttemptEvent;
+import com.example.converge.journal.SaleJournal;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Non-blocking counterpart of {@link ConvergeClient}. No thread is held while the gateway
+ * round trip is outstanding, including between retries. Failures go through the same
+ * {@link RetryEngine} classification as the blocking path.
+ */
+@Component
+public class AsyncConvergeClient {
+
+    private final HttpClient httpClient;
+    private final ConvergeProperties properties;
+    private final ConvergeRequestEncoder encoder;
+    private final ConvergeResponseDecoder decoder;
+    private final SaleMetrics metrics;
+    private final UpstreamGuard guard;
+    private final RetryEngine retryEngine;
+    private final SaleJournal journal;
+    private final AuditLog audit;
+    private final URI uri;
+
+    public AsyncConvergeClient(HttpClient convergeAsyncHttpClient, ConvergeProperties properties, ConvergeRequestEncoder encoder,
+                               ConvergeResponseDecoder decoder, SaleMetrics metrics, UpstreamGuard guard,
+                               RetryEngine retryEngine, SaleJournal journal, AuditLog audit) {
+        this.httpClient = convergeAsyncHttpClient;
+        this.properties = properties;
+        this.encoder = encoder;
+        this.decoder = decoder;
+        this.metrics = metrics;
+        this.guard = guard;
+        this.retryEngine = retryEngine;
+        this.journal = journal;
+        this.audit = audit;
+        this.uri = URI.create(properties.getBaseUrl());
+    }
+
+    public CompletableFuture<ConvergeSaleXmlResponse> sale(ConvergeSaleXmlRequest xmlReq) {
+        return sale(xmlReq, Deadline.none());
+    }
+
+    /** Sends the sale unless {@code deadline} has passed; retries stop at the deadline. */
+    public CompletableFuture<ConvergeSaleXmlResponse> sale(ConvergeSaleXmlRequest xmlReq, Deadline deadline) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(properties.readTimeoutMs()))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_FORM_URLENCODED_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(encode(xmlReq)))
+                .build();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Failed to encode XML request", e));
+        }
+        long start = System.nanoTime();
+        long journalId = journal.intent(xmlReq);
+        return retryEngine.executeAsync(attempt -> attempt(xmlReq, request, attempt), ConvergeSaleXmlResponse::getErrorCode, deadline)
+            .whenComplete((response, ex) -> journal.outcome(journalId, ex == null ? SaleMetrics.outcome(response) : SaleMetrics.outcome(ex),
+                ex == null ? response.getTransactionId() : null, start));
+    }
+
+    private CompletableFuture<ConvergeSaleXmlResponse> attempt(ConvergeSaleXmlRequest xmlReq, HttpRequest request, int attempt) {
+        audit.publish(ConvergeAudit.request(xmlReq, attempt, true));
+        UpstreamGuard.Permit permit = guard.acquire();
+        long sent = permit.startNanos();
+        UpstreamAttemptEvent event = UpstreamAttemptEvent.start(attempt, xmlReq.getInvoiceNumber(), xmlReq.getCardNumber());
+        metrics.attempt(attempt > 0);
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+            .handle((resp, ex) -> {
+                guard.release(permit, ex != null ? UpstreamGuard.isUpstreamFailure(ex) : resp.statusCode() >= 500);
+                metrics.stage(SaleMetrics.HTTP, System.nanoTime() - sent,
+                    ex != null ? SaleMetrics.outcome(ex) : resp.statusCode() >= 500 ? "server_error" : "ok");
+                try {
+                    if (ex != null) throw failed(ex);
+                    ConvergeSaleXmlResponse response = decode(xmlReq, resp);
+                    event.finish(SaleMetrics.outcome(response));
+                    audit.publish(ConvergeAudit.response(xmlReq, response, System.nanoTime() - sent));
+                    return response;
+                } catch (RuntimeException e) {
+                    event.finish(SaleMetrics.outcome(e));
+                    audit.publish(ConvergeAudit.error(xmlReq, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e,
+                        System.nanoTime() - sent));
+                    throw e;
+                }
+            });
+    }
+
+    private byte[] encode(ConvergeSaleXmlRequest xmlReq) throws IOException {
+        SaleStageEvent event = SaleStageEvent.start(SaleMetrics.ENCODE, xmlReq.getInvoiceNumber(), xmlReq.getCardNumber());
+        long start = System.nanoTime();
+        ByteArrayOutputStream body = new ByteArrayOutputStream((int) encoder.contentLength(xmlReq));
+        encoder.encode(xmlReq, body);
+        metrics.stage(SaleMetrics.ENCODE, System.nanoTime() - start, "ok");
+        event.finish("ok");
+        return body.toByteArray();
+    }
+
+    private ConvergeSaleXmlResponse decode(ConvergeSaleXmlRequest xmlReq, HttpResponse<byte[]> resp) {
+        if (resp.statusCode() >= 500) {
+            // same exception RestTemplate raises, so both clients classify 5xx identically
+            throw HttpServerErrorException.create(HttpStatusCode.valueOf(resp.statusCode()), "Server Error from Converge",
+                HttpHeaders.EMPTY, resp.body(), null);
+        }
+        ConvergeSaleXmlResponse response;
+        try {
+            response = metrics.stage(SaleMetrics.DECODE, xmlReq.getInvoiceNumber(), xmlReq.getCardNumber(),
+                () -> decoder.decode(new ByteArrayInputStream(resp.body())));
+        } catch (RuntimeException e) {
+            throw new UpstreamFailureException(UpstreamFailureException.Kind.INVALID_RESPONSE,
+                "Unreadable response from Converge: " + e.getMessage(), e);
+        }
+        return response;
+    }
+
+    private CompletionException failed(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof IOException io) {
+            return new CompletionException(new ResourceAccessException("I/O error on POST request for \"" + uri + "\": " + io.getMessage(), io));
+        }
+        return new CompletionException(cause);
+    }
+}
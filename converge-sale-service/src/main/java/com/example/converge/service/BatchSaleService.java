@@ -0,0 +1,147 @@
+package com.example.converge.service;
+
+import com.example.converge.admission.AdmissionControl;
+import com.example.converge.admission.Deadline;
+import com.example.converge.admission.Priority;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.request.SaleRequest;
+import com.example.converge.dto.response.SaleResponse;
+import com.example.converge.exception.ApiExceptionHandler;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs a stream of sales (NDJSON or a JSON array) through {@link SaleService} with at most
+ * {@code converge.batch.concurrency} in flight, writing one NDJSON result line per input in
+ * input order. Only the in-flight window is held in memory. Each sale goes through
+ * {@link AdmissionControl} at {@link Priority#LOW} with the default deadline, so a batch is the
+ * first thing shed under overload and never crowds out interactive sales. A failed sale's line
+ * carries the message and code {@link ApiExceptionHandler} would have answered it with.
+ */
+@Service
+public class BatchSaleService implements DisposableBean {
+
+    private final SaleService saleService;
+    private final AdmissionControl admission;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ApiExceptionHandler errors;
+    private final int concurrency;
+    private final ExecutorService executor;
+
+    public BatchSaleService(SaleService saleService, AdmissionControl admission, Validator validator, ObjectMapper objectMapper,
+                            ApiExceptionHandler errors, ConvergeProperties properties) {
+        this.saleService = saleService;
+        this.admission = admission;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.errors = errors;
+        this.concurrency = properties.getBatch().getConcurrency();
+        this.executor = Executors.newFixedThreadPool(properties.getBatch().getThreads(), new CustomizableThreadFactory("sale-batch-"));
+    }
+
+    public void process(InputStream in, OutputStream out) throws IOException {
+        Deque<CompletableFuture<Map<String, Object>>> window = new ArrayDeque<>(concurrency);
+        try (JsonParser parser = objectMapper.createParser(in);
+             JsonGenerator generator = objectMapper.createGenerator(out)) {
+            generator.setRootValueSeparator(null); // lines are terminated explicitly
+            long index = 0;
+            try {
+                JsonToken token = parser.nextToken();
+                boolean array = token == JsonToken.START_ARRAY;
+                if (array) token = parser.nextToken();
+                while (token != null && !(array && token == JsonToken.END_ARRAY)) {
+                    if (window.size() == concurrency) writeLine(generator, window.removeFirst().join());
+                    SaleRequest request = parser.readValueAs(SaleRequest.class);
+                    window.addLast(submit(index++, request));
+                    token = parser.nextToken();
+                }
+            } catch (JsonProcessingException e) {
+                drain(window, generator);
+                Map<String, Object> line = new LinkedHashMap<>();
+                line.put("index", index);
+                line.put("message", "Malformed batch input: " + e.getOriginalMessage());
+                writeLine(generator, line);
+                return;
+            }
+            drain(window, generator);
+        }
+    }
+
+    private CompletableFuture<Map<String, Object>> submit(long index, SaleRequest request) {
+        Set<ConstraintViolation<SaleRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            Map<String, String> errors = new LinkedHashMap<>();
+            for (ConstraintViolation<SaleRequest> v : violations) {
+                String field = v.getPropertyPath().toString();
+                errors.put(field, ApiExceptionHandler.fieldErrorText(field, v.getMessage()));
+            }
+            Map<String, Object> line = line(index);
+            line.put("message", "Validation failed");
+            line.put("errors", errors);
+            return CompletableFuture.completedFuture(line);
+        }
+        Deadline deadline = admission.deadlineOf(null);
+        return CompletableFuture.supplyAsync(
+                () -> admission.call(Priority.LOW, deadline, () -> saleService.processSale(request, deadline)), executor)
+            .handle((response, ex) -> ex == null ? success(index, response) : failure(index, ex));
+    }
+
+    private static Map<String, Object> success(long index, SaleResponse response) {
+        Map<String, Object> line = line(index);
+        line.put("response", response);
+        return line;
+    }
+
+    private Map<String, Object> failure(long index, Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        Map<String, Object> body = errors.bodyOf(cause);
+        Map<String, Object> line = line(index);
+        line.put("message", body.get("message"));
+        if (body.containsKey("code")) line.put("code", body.get("code"));
+        if (body.containsKey("errors")) line.put("errors", body.get("errors"));
+        return line;
+    }
+
+    private static Map<String, Object> line(long index) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("index", index);
+        return line;
+    }
+
+    private static void drain(Deque<CompletableFuture<Map<String, Object>>> window, JsonGenerator generator) throws IOException {
+        while (!window.isEmpty()) writeLine(generator, window.removeFirst().join());
+    }
+
+    private static void writeLine(JsonGenerator generator, Map<String, Object> line) throws IOException {
+        generator.writeObject(line);
+        generator.writeRaw('\n');
+        generator.flush();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.converge.service;
+
+import com.example.converge.audit.AuditEvent;
+import com.example.converge.dto.xml.ConvergeSaleXmlRequest;
+import com.example.converge.dto.xml.ConvergeSaleXmlResponse;
+
+/** Audit events for one Converge sale attempt, shared by the blocking and async clients. */
+final class ConvergeAudit {
+
+    private ConvergeAudit() {
+    }
+
+    static AuditEvent request(ConvergeSaleXmlRequest xmlReq, int attempt, boolean async) {
+        return AuditEvent.of("converge.request")
+            .with("invoice", xmlReq.getInvoiceNumber())
+            .with("amount", xmlReq.getAmount())
+            .with("merchantId", xmlReq.getMerchantId())
+            .with("cardNumber", xmlReq.getCardNumber())
+            .with("attempt", attempt)
+            .with("client", async ? "async" : "blocking");
+    }
+
+    static AuditEvent response(ConvergeSaleXmlRequest xmlReq, ConvergeSaleXmlResponse response, long nanos) {
+        return AuditEvent.of("converge.response")
+            .with("invoice", xmlReq.getInvoiceNumber())
+            .with("result", response.getResult())
+            .with("txnId", response.getTransactionId())
+            .with("errorCode", response.getErrorCode())
+            .with("durationMicros", nanos / 1000);
+    }
+
+    static AuditEvent error(ConvergeSaleXmlRequest xmlReq, Throwable failure, long nanos) {
+        return AuditEvent.of("converge.error")
+            .with("invoice", xmlReq.getInvoiceNumber())
+            .with("outcome", SaleMetrics.outcome(failure))
+            .with("message", String.valueOf(failure.getMessage()))
+            .with("durationMicros", nanos / 1000);
+    }
+}
@@ -1,89 +1,166 @@
 package com.example.converge.service;
 
+import com.example.converge.admission.Deadline;
+import com.example.converge.audit.AuditLog;
+import com.example.converge.codec.ConvergeRequestEncoder;
+import com.example.converge.codec.ConvergeResponseDecoder;
 import com.example.converge.config.ConvergeProperties;
 import com.example.converge.dto.xml.ConvergeSaleXmlRequest;
 import com.example.converge.dto.xml.ConvergeSaleXmlResponse;
-import jakarta.xml.bind.JAXBContext;
-import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
-import jakarta.xml.bind.Unmarshaller;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
+import com.example.converge.dto.xml.ConvergeXmlTransaction;
+import com.example.converge.exception.UpstreamFailureException;
+import com.example.converge.jfr.SaleStageEvent;
+import com.example.converge.jfr.UpstreamAttemptEvent;
+import com.example.converge.journal.SaleJournal;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
 import org.springframework.stereotype.Component;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
-import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
-import java.io.StringReader;
-import java.io.StringWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Function;
 
 @Component
 public class ConvergeClient {
 
     private final RestTemplate restTemplate;
     private final ConvergeProperties properties;
+    private final ConvergeRequestEncoder encoder;
+    private final ConvergeResponseDecoder decoder;
+    private final SaleMetrics metrics;
+    private final UpstreamGuard guard;
+    private final RetryEngine retryEngine;
+    private final SaleJournal journal;
+    private final AuditLog audit;
 
-    public ConvergeClient(RestTemplate restTemplate, ConvergeProperties properties) {
+    public ConvergeClient(RestTemplate restTemplate, ConvergeProperties properties, ConvergeRequestEncoder encoder,
+                          ConvergeResponseDecoder decoder, SaleMetrics metrics, UpstreamGuard guard, RetryEngine retryEngine,
+                          SaleJournal journal, AuditLog audit) {
         this.restTemplate = restTemplate;
         this.properties = properties;
+        this.encoder = encoder;
+        this.decoder = decoder;
+        this.metrics = metrics;
+        this.guard = guard;
+        this.retryEngine = retryEngine;
+        this.journal = journal;
+        this.audit = audit;
     }
 
-    @Retryable(maxAttempts = 3, backoff = @Backoff(delay = 300), include = {RestClientException.class})
     public ConvergeSaleXmlResponse sale(ConvergeSaleXmlRequest xmlReq) {
+        return sale(xmlReq, Deadline.none());
+    }
+
+    /** Sends the sale unless {@code deadline} has passed; retries stop at the deadline. */
+    public ConvergeSaleXmlResponse sale(ConvergeSaleXmlRequest xmlReq, Deadline deadline) {
+        long start = System.nanoTime();
+        long journalId = journal.intent(xmlReq);
         try {
-            String xml = marshal(xmlReq);
-            System.out.println("Sending XML request: " + xml);
+            ConvergeSaleXmlResponse response = retryEngine.execute(attempt -> attempt(xmlReq, attempt), ConvergeSaleXmlResponse::getErrorCode, deadline);
+            journal.outcome(journalId, SaleMetrics.outcome(response), response.getTransactionId(), start);
+            return response;
+        } catch (RuntimeException e) {
+            journal.outcome(journalId, SaleMetrics.outcome(e), null, start);
+            throw e;
+        }
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+    private ConvergeSaleXmlResponse attempt(ConvergeSaleXmlRequest xmlReq, int attempt) {
+        metrics.attempt(attempt > 0);
+        // encode and decode run inside the exchange; their time is taken out of the http stage
+        long[] codecNanos = new long[2];
+        // throws before the exchange when the circuit is open or the concurrency limit is reached
+        UpstreamGuard.Permit permit = guard.acquire();
+        long start = permit.startNanos();
+        UpstreamAttemptEvent event = UpstreamAttemptEvent.start(attempt, xmlReq.getInvoiceNumber(), xmlReq.getCardNumber());
+        boolean upstreamFailure = false;
+        try {
+            audit.publish(ConvergeAudit.request(xmlReq, attempt, false));
 
-            MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
-            form.add("xmldata", xml);
+            // Encode straight into the request body and decode straight off the response stream
+            ConvergeSaleXmlResponse response = restTemplate.execute(properties.getBaseUrl(), HttpMethod.POST,
+                request -> writeForm(request, xmlReq, codecNanos), resp -> {
+                    SaleStageEvent decodeEvent = SaleStageEvent.start(SaleMetrics.DECODE, xmlReq.getInvoiceNumber(), xmlReq.getCardNumber());
+                    long decodeStart = System.nanoTime();
+                    String outcome = "error";
+                    try {
+                        ConvergeSaleXmlResponse decoded = decoder.decode(resp.getBody());
+                        outcome = "ok";
+                        return decoded;
+                    } catch (RuntimeException e) {
+                        throw new UpstreamFailureException(UpstreamFailureException.Kind.INVALID_RESPONSE,
+                            "Unreadable response from Converge: " + e.getMessage(), e);
+                    } finally {
+                        codecNanos[1] = System.nanoTime() - decodeStart;
+                        metrics.stage(SaleMetrics.DECODE, codecNanos[1], outcome);
+                        decodeEvent.finish(outcome);
+                    }
+                });
+            metrics.stage(SaleMetrics.HTTP, System.nanoTime() - start - codecNanos[0] - codecNanos[1], "ok");
+            event.finish(SaleMetrics.outcome(response));
 
-            HttpEntity<MultiValueMap<String, String>> entity = new HttpEntity<>(form, headers);
-            ResponseEntity<String> resp = restTemplate.postForEntity(properties.getBaseUrl(), entity, String.class);
-            
-            System.out.println("Received XML response: " + resp.getBody());
-            return unmarshal(resp.getBody());
-        } catch (Exception e) {
-            System.err.println("Error in ConvergeClient.sale: " + e.getMessage());
-            e.printStackTrace();
-            // Return a response indicating failure
-            ConvergeSaleXmlResponse errorResponse = new ConvergeSaleXmlResponse();
-            errorResponse.setResult("1"); // Error code
-            errorResponse.setResultMessage("Error: " + e.getMessage());
-            return errorResponse;
+            audit.publish(ConvergeAudit.response(xmlReq, response, System.nanoTime() - start));
+            return response;
+        } catch (RuntimeException e) {
+            upstreamFailure = UpstreamGuard.isUpstreamFailure(e);
+            metrics.stage(SaleMetrics.HTTP, System.nanoTime() - start - codecNanos[0] - codecNanos[1], SaleMetrics.outcome(e));
+            event.finish(SaleMetrics.outcome(e));
+            audit.publish(ConvergeAudit.error(xmlReq, e, System.nanoTime() - start));
+            throw e;
+        } finally {
+            guard.release(permit, upstreamFailure);
         }
     }
 
-    private String marshal(ConvergeSaleXmlRequest request) {
+    /**
+     * Sends a non-sale transaction (query, lookup, completion) to {@code processxml.do} and hands the
+     * response stream to {@code bodyDecoder}. Unlike {@link #sale}, failures are not retried, and the
+     * exchange is kept out of the sale concurrency limit: a streamed query page can take seconds.
+     */
+    public <T> T execute(ConvergeXmlTransaction transaction, Function<InputStream, T> bodyDecoder) {
+        UpstreamGuard.Permit permit = guard.acquireOutsideLimit();
+        boolean upstreamFailure = false;
         try {
-            JAXBContext context = JAXBContext.newInstance(ConvergeSaleXmlRequest.class);
-            Marshaller marshaller = context.createMarshaller();
-            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
-            StringWriter writer = new StringWriter();
-            // Don't add XML declaration - Converge doesn't want it
-            marshaller.marshal(request, writer);
-            return writer.toString();
-        } catch (JAXBException e) {
-            throw new IllegalStateException("Failed to marshal XML request", e);
+            return restTemplate.execute(properties.getBaseUrl(), HttpMethod.POST, request -> {
+                request.getHeaders().setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+                request.getHeaders().setContentLength(encoder.contentLength(transaction));
+                if (request instanceof StreamingHttpOutputMessage streaming) {
+                    streaming.setBody(out -> encoder.encode(transaction, out));
+                } else {
+                    encoder.encode(transaction, request.getBody());
+                }
+            }, resp -> bodyDecoder.apply(resp.getBody()));
+        } catch (RuntimeException e) {
+            upstreamFailure = UpstreamGuard.isUpstreamFailure(e);
+            throw e;
+        } finally {
+            guard.release(permit, upstreamFailure);
         }
     }
 
-    private ConvergeSaleXmlResponse unmarshal(String xml) {
-        try {
-            JAXBContext context = JAXBContext.newInstance(ConvergeSaleXmlResponse.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            return (ConvergeSaleXmlResponse) unmarshaller.unmarshal(new StringReader(xml));
-        } catch (JAXBException e) {
-            throw new IllegalStateException("Failed to unmarshal XML response", e);
+    private void writeForm(ClientHttpRequest request, ConvergeSaleXmlRequest xmlReq, long[] codecNanos) throws IOException {
+        long start = System.nanoTime();
+        request.getHeaders().setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        request.getHeaders().setContentLength(encoder.contentLength(xmlReq));
+        codecNanos[0] = System.nanoTime() - start;
+        if (request instanceof StreamingHttpOutputMessage streaming) {
+            streaming.setBody(out -> {
+                SaleStageEvent event = SaleStageEvent.start(SaleMetrics.ENCODE, xmlReq.getInvoiceNumber(), xmlReq.getCardNumber());
+                long encodeStart = System.nanoTime();
+                encoder.encode(xmlReq, out);
+                codecNanos[0] += System.nanoTime() - encodeStart;
+                metrics.stage(SaleMetrics.ENCODE, codecNanos[0], "ok");
+                event.finish("ok");
+            });
+        } else {
+            SaleStageEvent event = SaleStageEvent.start(SaleMetrics.ENCODE, xmlReq.getInvoiceNumber(), xmlReq.getCardNumber());
+            encoder.encode(xmlReq, request.getBody());
+            codecNanos[0] = System.nanoTime() - start;
+            metrics.stage(SaleMetrics.ENCODE, codecNanos[0], "ok");
+            event.finish("ok");
         }
     }
 }
-
-
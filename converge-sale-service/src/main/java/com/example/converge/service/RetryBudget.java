@@ -0,0 +1,45 @@
+package com.example.converge.service;
+
+/**
+ * Token bucket shared by all upstream calls. Every first attempt deposits {@code ratio} of a token,
+ * and every retry withdraws a whole one, so retries add at most {@code ratio} extra load. A small
+ * time-based refill ({@code minPerSecond}) still allows the odd retry when traffic is light.
+ */
+class RetryBudget {
+
+    private final double ratio;
+    private final double minPerSecond;
+    private final double maxTokens;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    RetryBudget(double ratio, double minPerSecond) {
+        this.ratio = ratio;
+        this.minPerSecond = minPerSecond;
+        this.maxTokens = Math.max(10, ratio * 1000);
+        this.tokens = Math.min(maxTokens, minPerSecond * 10);
+    }
+
+    synchronized void deposit() {
+        refill();
+        tokens = Math.min(maxTokens, tokens + ratio);
+    }
+
+    synchronized boolean tryWithdraw() {
+        refill();
+        if (tokens < 1) return false;
+        tokens -= 1;
+        return true;
+    }
+
+    synchronized double available() {
+        refill();
+        return tokens;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(maxTokens, tokens + (now - lastRefillNanos) / 1e9 * minPerSecond);
+        lastRefillNanos = now;
+    }
+}
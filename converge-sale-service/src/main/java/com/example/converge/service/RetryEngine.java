@@ -0,0 +1,193 @@
+package com.example.converge.service;
+
+import com.example.converge.admission.Deadline;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.exception.DeadlineExceededException;
+import com.example.converge.exception.UpstreamFailureException;
+import com.example.converge.exception.UpstreamFailureException.Kind;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Retries Converge calls only when a second attempt cannot charge the card twice (see
+ * {@link Kind#isSafeToRetry()}), with full-jitter exponential backoff. Every retry is paid for
+ * from a service-wide {@link RetryBudget}. Failures that are not retried are thrown as
+ * {@link UpstreamFailureException}; other exceptions (open circuit, full bulkhead) pass through
+ * untouched. Nothing is sent once the caller's {@link Deadline} has passed, and a retry whose
+ * backoff would outlast it is not made.
+ */
+@Component
+public class RetryEngine {
+
+    private final ConvergeProperties.Retry config;
+    private final Set<String> retryableErrorCodes;
+    private final RetryBudget budget;
+    // by kind, then decision; a kind that is not safe to retry only ever gets "unsafe"
+    private final Map<Kind, Map<String, Counter>> decisions = new EnumMap<>(Kind.class);
+
+    public RetryEngine(ConvergeProperties properties, MeterRegistry registry) {
+        this.config = properties.getRetry();
+        this.retryableErrorCodes = Set.copyOf(config.getRetryableErrorCodes());
+        this.budget = new RetryBudget(config.getBudgetRatio(), config.getMinRetriesPerSecond());
+        for (Kind kind : Kind.values()) {
+            Map<String, Counter> byDecision = new HashMap<>();
+            for (String decision : kind.isSafeToRetry() ? List.of("exhausted", "deadline", "budget", "retry") : List.of("unsafe")) {
+                byDecision.put(decision, Counter.builder("converge.retry.decisions").tag("kind", kind.name().toLowerCase(Locale.ROOT))
+                    .tag("decision", decision).register(registry));
+            }
+            decisions.put(kind, byDecision);
+        }
+        Gauge.builder("converge.retry.budget.tokens", budget, RetryBudget::available).register(registry);
+    }
+
+    /**
+     * Runs {@code call} with the attempt number (0 for the first) until it succeeds or may not be retried.
+     * {@code errorCode} extracts the Converge errorCode from a result, or null.
+     */
+    public <T> T execute(IntFunction<T> call, Function<T, String> errorCode) {
+        return execute(call, errorCode, Deadline.none());
+    }
+
+    public <T> T execute(IntFunction<T> call, Function<T, String> errorCode, Deadline deadline) {
+        budget.deposit();
+        requireTime(deadline);
+        for (int attempt = 0; ; attempt++) {
+            long backoff = backoffMillis(attempt);
+            try {
+                T result = call.apply(attempt);
+                if (!retryableErrorCode(result, errorCode) || !mayRetry(attempt, Kind.ERROR_CODE, deadline, backoff)) return result;
+            } catch (RuntimeException e) {
+                UpstreamFailureException failure = classify(e);
+                if (failure == null) throw e;
+                if (!mayRetry(attempt, failure.getKind(), deadline, backoff)) throw failure;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UpstreamFailureException(Kind.IO_ERROR, "Interrupted between Converge retries", e);
+            }
+        }
+    }
+
+    /** Non-blocking {@link #execute}: backoff waits on a delayed executor instead of a parked thread. */
+    public <T> CompletableFuture<T> executeAsync(IntFunction<CompletableFuture<T>> call, Function<T, String> errorCode) {
+        return executeAsync(call, errorCode, Deadline.none());
+    }
+
+    public <T> CompletableFuture<T> executeAsync(IntFunction<CompletableFuture<T>> call, Function<T, String> errorCode, Deadline deadline) {
+        budget.deposit();
+        try {
+            requireTime(deadline);
+        } catch (DeadlineExceededException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return attemptAsync(call, errorCode, deadline, 0);
+    }
+
+    private <T> CompletableFuture<T> attemptAsync(IntFunction<CompletableFuture<T>> call, Function<T, String> errorCode,
+                                                  Deadline deadline, int attempt) {
+        long backoff = backoffMillis(attempt);
+        CompletableFuture<T> future;
+        try {
+            future = call.apply(attempt);
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.handle((result, ex) -> {
+            if (ex == null) {
+                if (!retryableErrorCode(result, errorCode) || !mayRetry(attempt, Kind.ERROR_CODE, deadline, backoff)) {
+                    return CompletableFuture.completedFuture(result);
+                }
+            } else {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                UpstreamFailureException failure = classify(cause);
+                if (failure == null) return CompletableFuture.<T>failedFuture(cause);
+                if (!mayRetry(attempt, failure.getKind(), deadline, backoff)) return CompletableFuture.<T>failedFuture(failure);
+            }
+            return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS))
+                .thenCompose(ignored -> attemptAsync(call, errorCode, deadline, attempt + 1));
+        }).thenCompose(Function.identity());
+    }
+
+    private <T> boolean retryableErrorCode(T result, Function<T, String> errorCode) {
+        String code = errorCode.apply(result);
+        return code != null && retryableErrorCodes.contains(code);
+    }
+
+    private static void requireTime(Deadline deadline) {
+        if (deadline.isExpired()) {
+            throw new DeadlineExceededException("Request deadline passed before the sale was sent; it was not processed");
+        }
+    }
+
+    private boolean mayRetry(int attempt, Kind kind, Deadline deadline, long backoffMillis) {
+        String decision;
+        if (!kind.isSafeToRetry()) decision = "unsafe";
+        else if (attempt + 1 >= config.getMaxAttempts()) decision = "exhausted";
+        else if (deadline.remainingNanos() <= TimeUnit.MILLISECONDS.toNanos(backoffMillis)) decision = "deadline";
+        else if (!budget.tryWithdraw()) decision = "budget";
+        else decision = "retry";
+        decisions.get(kind).get(decision).increment();
+        return decision.equals("retry");
+    }
+
+    /** Full jitter: uniform in [0, min(max, base * 2^attempt)]. */
+    private long backoffMillis(int attempt) {
+        long ceiling = Math.min(config.getMaxBackoffMs(), config.getBaseBackoffMs() << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /** The failure kind of an upstream exception, or null if {@code e} is not an upstream failure. */
+    public static UpstreamFailureException classify(Throwable e) {
+        if (e instanceof UpstreamFailureException failure) return failure;
+        Kind kind = kindOf(e);
+        return kind == null ? null : new UpstreamFailureException(kind, "Converge call failed: " + kind, e);
+    }
+
+    private static Kind kindOf(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof HttpServerErrorException http) {
+                int status = http.getStatusCode().value();
+                return status == 502 || status == 503 ? Kind.GATEWAY_UNAVAILABLE : Kind.SERVER_ERROR;
+            }
+            if (t instanceof ConnectException || t instanceof UnknownHostException || t instanceof NoRouteToHostException
+                    || t instanceof HttpConnectTimeoutException || t instanceof ConnectTimeoutException
+                    || t instanceof ConnectionRequestTimeoutException) {
+                return Kind.CONNECT_FAILURE;
+            }
+            // HttpURLConnection (simple transport) reports connect timeouts only through the message
+            if (t instanceof SocketTimeoutException && "Connect timed out".equalsIgnoreCase(t.getMessage())) return Kind.CONNECT_FAILURE;
+            if (t instanceof SocketTimeoutException || t instanceof HttpTimeoutException) return Kind.READ_TIMEOUT;
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof IOException) return Kind.IO_ERROR;
+        }
+        return null;
+    }
+}
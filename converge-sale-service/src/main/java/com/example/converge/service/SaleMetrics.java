@@ -0,0 +1,145 @@
+package com.example.converge.service;
+
+import com.example.converge.dto.xml.ConvergeSaleXmlResponse;
+import com.example.converge.exception.CircuitOpenException;
+import com.example.converge.exception.DeadlineExceededException;
+import com.example.converge.exception.LoadShedException;
+import com.example.converge.exception.MerchantLimitException;
+import com.example.converge.exception.UpstreamBusyException;
+import com.example.converge.exception.UpstreamFailureException;
+import com.example.converge.jfr.SaleStageEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Per-stage sale timings. Each stage is recorded as {@code converge.sale.stage} tagged with
+ * {@code stage} and {@code outcome}, and the whole sale as {@code converge.sale.duration}, so our
+ * own CPU time can be told apart from the Converge round trip ({@code stage=http}). The timers are
+ * built once per tag combination and kept, so recording one is a map lookup rather than a registry call.
+ */
+@Component
+public class SaleMetrics {
+
+    public static final String VALIDATION = "validation";
+    public static final String MAP_REQUEST = "map_request";
+    public static final String ENCODE = "encode";
+    public static final String HTTP = "http";
+    public static final String DECODE = "decode";
+    public static final String MAP_RESPONSE = "map_response";
+
+    private final MeterRegistry registry;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // keyed by merchant or stage, then by outcome
+    private final ConcurrentMap<String, ConcurrentMap<String, Timer>> durations = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, Timer>> stages = new ConcurrentHashMap<>();
+    private final Counter firstAttempts;
+    private final Counter retries;
+
+    public SaleMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.firstAttempts = Counter.builder("converge.sale.attempts").tag("attempt", "first").register(registry);
+        this.retries = Counter.builder("converge.sale.attempts").tag("attempt", "retry").register(registry);
+        Gauge.builder("converge.sale.in_flight", inFlight, AtomicInteger::get).register(registry);
+    }
+
+    /** Marks a sale as in flight; pass the returned start time to {@link #finish}. */
+    public long start() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public void finish(long startNanos, String merchant, String outcome) {
+        inFlight.decrementAndGet();
+        timer(durations, "converge.sale.duration", "merchant", merchant, outcome)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void stage(String stage, long nanos, String outcome) {
+        timer(stages, "converge.sale.stage", "stage", stage, outcome).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(ConcurrentMap<String, ConcurrentMap<String, Timer>> timers, String name, String tag, String value,
+                        String outcome) {
+        ConcurrentMap<String, Timer> byOutcome = timers.get(value);
+        if (byOutcome == null) byOutcome = timers.computeIfAbsent(value, v -> new ConcurrentHashMap<>());
+        Timer timer = byOutcome.get(outcome);
+        if (timer == null) {
+            timer = byOutcome.computeIfAbsent(outcome, o -> Timer.builder(name).tag(tag, value).tag("outcome", o).register(registry));
+        }
+        return timer;
+    }
+
+    public <T> T stage(String stage, Supplier<T> work) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = work.get();
+            outcome = "ok";
+            return result;
+        } finally {
+            stage(stage, System.nanoTime() - start, outcome);
+        }
+    }
+
+    /** {@link #stage(String, Supplier)} that is also recorded as a {@link SaleStageEvent} for the sale. */
+    public <T> T stage(String stage, String invoiceNumber, String cardNumber, Supplier<T> work) {
+        SaleStageEvent event = SaleStageEvent.start(stage, invoiceNumber, cardNumber);
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = work.get();
+            outcome = "ok";
+            return result;
+        } finally {
+            stage(stage, System.nanoTime() - start, outcome);
+            event.finish(outcome);
+        }
+    }
+
+    /** Counts upstream attempts; {@code attempt=retry} for every attempt after the first. */
+    public void attempt(boolean retry) {
+        (retry ? retries : firstAttempts).increment();
+    }
+
+    /** approved, declined, or error_&lt;Converge error code&gt;. */
+    public static String outcome(ConvergeSaleXmlResponse response) {
+        if (response.getErrorCode() != null) return "error_" + response.getErrorCode();
+        if ("0".equalsIgnoreCase(response.getResult())) return "approved";
+        return "declined";
+    }
+
+    /**
+     * The failure kind: a Converge error kind, timeout, server_error, one of our own refusals, io_error for any
+     * other I/O failure, or error for an exception that is not an upstream failure at all (a bug, usually).
+     */
+    public static String outcome(Throwable failure) {
+        boolean io = false;
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof UpstreamFailureException upstream) return upstream.getKind().name().toLowerCase(Locale.ROOT);
+            if (t instanceof HttpServerErrorException) return "server_error";
+            if (t instanceof SocketTimeoutException || t instanceof HttpTimeoutException) return "timeout";
+            if (t instanceof UpstreamBusyException) return "busy";
+            if (t instanceof CircuitOpenException) return "circuit_open";
+            if (t instanceof MerchantLimitException) return "merchant_limited";
+            if (t instanceof LoadShedException) return "shed";
+            if (t instanceof DeadlineExceededException) return "deadline";
+            if (t instanceof ResourceAccessException || t instanceof IOException) io = true; // a more specific cause may follow
+        }
+        return io ? "io_error" : "error";
+    }
+}
@@ -1,29 +1,136 @@
 package com.example.converge.service;
 
-import com.example.converge.config.ConvergeProperties;
+import com.example.converge.admission.Deadline;
+import com.example.converge.bin.BinService;
+import com.example.converge.capture.CaptureQueue;
 import com.example.converge.dto.request.SaleRequest;
 import com.example.converge.dto.response.SaleResponse;
 import com.example.converge.dto.xml.ConvergeSaleXmlRequest;
 import com.example.converge.dto.xml.ConvergeSaleXmlResponse;
+import com.example.converge.exception.DeferredCaptureDisabledException;
+import com.example.converge.idempotency.IdempotencyService;
+import com.example.converge.jfr.SaleEvent;
 import com.example.converge.mapper.ConvergeMapper;
+import com.example.converge.merchant.MerchantAccount;
+import com.example.converge.merchant.MerchantRegistry;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
 public class SaleService {
 
     private final ConvergeClient client;
-    private final ConvergeProperties properties;
+    private final AsyncConvergeClient asyncClient;
+    private final UpstreamBulkhead bulkhead;
+    private final IdempotencyService idempotency;
+    private final SaleMetrics metrics;
+    private final BinService binService;
+    private final MerchantRegistry merchants;
+    private final TransactionLookupService lookups;
+    private final CaptureQueue captures;
 
-    public SaleService(ConvergeClient client, ConvergeProperties properties) {
+    public SaleService(ConvergeClient client, AsyncConvergeClient asyncClient, UpstreamBulkhead bulkhead,
+                       IdempotencyService idempotency, SaleMetrics metrics, BinService binService,
+                       MerchantRegistry merchants, TransactionLookupService lookups, CaptureQueue captures) {
         this.client = client;
-        this.properties = properties;
+        this.asyncClient = asyncClient;
+        this.bulkhead = bulkhead;
+        this.idempotency = idempotency;
+        this.metrics = metrics;
+        this.binService = binService;
+        this.merchants = merchants;
+        this.lookups = lookups;
+        this.captures = captures;
     }
 
     public SaleResponse processSale(SaleRequest request) {
-        ConvergeSaleXmlRequest xmlRequest = ConvergeMapper.toXmlRequest(request, properties);
-        ConvergeSaleXmlResponse xmlResponse = client.sale(xmlRequest);
-        return ConvergeMapper.toSaleResponse(xmlResponse);
+        return processSale(request, Deadline.none());
+    }
+
+    /** Nothing is sent to Converge once {@code deadline} has passed. */
+    public SaleResponse processSale(SaleRequest request, Deadline deadline) {
+        MerchantAccount merchant = merchants.resolve(request.getMerchantKey());
+        requireCaptureQueue(request);
+        binService.screen(request.getCardNumber());
+        return idempotency.execute(request, () -> sale(request, merchant, deadline));
     }
-}
 
+    public CompletableFuture<SaleResponse> processSaleAsync(SaleRequest request) {
+        return processSaleAsync(request, Deadline.none());
+    }
+
+    public CompletableFuture<SaleResponse> processSaleAsync(SaleRequest request, Deadline deadline) {
+        MerchantAccount merchant = merchants.resolve(request.getMerchantKey());
+        requireCaptureQueue(request);
+        binService.screen(request.getCardNumber());
+        return idempotency.executeAsync(request, () -> saleAsync(request, merchant, deadline));
+    }
 
+    // an authorization whose capture could be lost on restart would hold the customer's funds and never pay the merchant
+    private void requireCaptureQueue(SaleRequest request) {
+        if (request.isDeferCapture() && !captures.isEnabled()) {
+            throw new DeferredCaptureDisabledException("Deferred capture is not configured; set converge.capture.store-file");
+        }
+    }
+
+    // the merchant's own limits are checked before the shared bulkhead, so a merchant over its share never holds a shared permit
+    private SaleResponse sale(SaleRequest request, MerchantAccount merchant, Deadline deadline) {
+        SaleEvent event = SaleEvent.start(merchant.getKey(), request.getInvoiceNumber(), request.getCardNumber(), request.getAmount());
+        long start = metrics.start();
+        String outcome = "error";
+        String transactionId = null;
+        try {
+            ConvergeSaleXmlRequest xmlRequest = metrics.stage(SaleMetrics.MAP_REQUEST, request.getInvoiceNumber(), request.getCardNumber(),
+                () -> ConvergeMapper.toXmlRequest(request, merchant));
+            ConvergeSaleXmlResponse xmlResponse = merchant.call(() -> bulkhead.call(() -> client.sale(xmlRequest, deadline)));
+            outcome = SaleMetrics.outcome(xmlResponse);
+            transactionId = xmlResponse.getTransactionId();
+            SaleResponse response = metrics.stage(SaleMetrics.MAP_RESPONSE, request.getInvoiceNumber(), request.getCardNumber(),
+                () -> ConvergeMapper.toSaleResponse(xmlResponse));
+            completed(merchant, xmlRequest, response);
+            return response;
+        } catch (RuntimeException e) {
+            outcome = SaleMetrics.outcome(e);
+            throw e;
+        } finally {
+            metrics.finish(start, merchant.getKey(), outcome);
+            event.finish(outcome, transactionId);
+        }
+    }
+
+    private CompletableFuture<SaleResponse> saleAsync(SaleRequest request, MerchantAccount merchant, Deadline deadline) {
+        SaleEvent event = SaleEvent.start(merchant.getKey(), request.getInvoiceNumber(), request.getCardNumber(), request.getAmount());
+        long start = metrics.start();
+        ConvergeSaleXmlRequest xmlRequest;
+        CompletableFuture<ConvergeSaleXmlResponse> exchange;
+        try {
+            xmlRequest = metrics.stage(SaleMetrics.MAP_REQUEST, request.getInvoiceNumber(), request.getCardNumber(),
+                () -> ConvergeMapper.toXmlRequest(request, merchant));
+            exchange = merchant.callAsync(() -> bulkhead.callAsync(() -> asyncClient.sale(xmlRequest, deadline)));
+        } catch (RuntimeException e) {
+            metrics.finish(start, merchant.getKey(), SaleMetrics.outcome(e));
+            event.finish(SaleMetrics.outcome(e), null);
+            throw e;
+        }
+        return exchange
+            .whenComplete((xmlResponse, ex) -> {
+                String outcome = ex == null ? SaleMetrics.outcome(xmlResponse) : SaleMetrics.outcome(ex);
+                metrics.finish(start, merchant.getKey(), outcome);
+                event.finish(outcome, ex == null ? xmlResponse.getTransactionId() : null);
+            })
+            .thenApply(xmlResponse -> {
+                SaleResponse response = metrics.stage(SaleMetrics.MAP_RESPONSE, request.getInvoiceNumber(), request.getCardNumber(),
+                    () -> ConvergeMapper.toSaleResponse(xmlResponse));
+                completed(merchant, xmlRequest, response);
+                return response;
+            });
+    }
+
+    private void completed(MerchantAccount merchant, ConvergeSaleXmlRequest xmlRequest, SaleResponse response) {
+        lookups.record(merchant, xmlRequest.getInvoiceNumber(), response);
+        if (response.isApproved() && ConvergeSaleXmlRequest.AUTH_ONLY.equals(xmlRequest.getTransactionType())) {
+            captures.enqueue(merchant, xmlRequest.getInvoiceNumber(), xmlRequest.getAmount(), response);
+        }
+    }
+}
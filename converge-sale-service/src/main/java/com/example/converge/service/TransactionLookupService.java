@@ -0,0 +1,158 @@
+package com.example.converge.service;
+
+import com.example.converge.cache.BoundedTtlCache;
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.response.SaleResponse;
+import com.example.converge.dto.xml.ConvergeXmlTransaction;
+import com.example.converge.exception.UpstreamFailureException;
+import com.example.converge.mapper.ConvergeMapper;
+import com.example.converge.merchant.MerchantAccount;
+import com.example.converge.merchant.MerchantRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Answers "did this sale go through?" by transaction id or invoice number. Every sale result the
+ * service receives is cached as it passes through, so most lookups never reach Converge. A miss
+ * reads through with {@code txnquery}; concurrent misses for the same key share one query, and a
+ * "not found" is remembered briefly so polling clients cannot turn into a query each.
+ */
+@Service
+public class TransactionLookupService {
+
+    private final ConvergeClient client;
+    private final ConvergeResponseDecoder decoder;
+    private final MerchantRegistry merchants;
+    private final BoundedTtlCache<String, SaleResponse> byTxnId;
+    private final BoundedTtlCache<String, String> txnIdByInvoice;
+    private final BoundedTtlCache<String, Boolean> misses;
+    private final long notFoundTtlMs;
+    private final ConcurrentMap<String, CompletableFuture<SaleResponse>> inFlight = new ConcurrentHashMap<>();
+    private final Counter cacheHits;
+    private final Counter convergeQueries;
+    private final Counter notFound;
+
+    public TransactionLookupService(ConvergeClient client, ConvergeResponseDecoder decoder, MerchantRegistry merchants,
+                                    ConvergeProperties properties, MeterRegistry registry) {
+        this.client = client;
+        this.decoder = decoder;
+        this.merchants = merchants;
+        ConvergeProperties.Lookup config = properties.getLookup();
+        this.byTxnId = new BoundedTtlCache<>(config.getMaxEntries(), config.getTtlMs());
+        this.txnIdByInvoice = new BoundedTtlCache<>(config.getMaxEntries(), config.getTtlMs());
+        this.misses = new BoundedTtlCache<>(config.getMaxEntries(), config.getNotFoundTtlMs());
+        this.notFoundTtlMs = config.getNotFoundTtlMs();
+        this.cacheHits = Counter.builder("converge.lookup").tag("source", "cache").register(registry);
+        this.convergeQueries = Counter.builder("converge.lookup").tag("source", "converge").register(registry);
+        this.notFound = Counter.builder("converge.lookup").tag("source", "not_found").register(registry);
+        registry.gauge("converge.lookup.entries", byTxnId, BoundedTtlCache::size);
+    }
+
+    /** Caches a sale result the service has just received from Converge. */
+    public void record(MerchantAccount merchant, String invoiceNumber, SaleResponse response) {
+        if (response.getTransactionId() == null) return;
+        byTxnId.put(key(merchant, response.getTransactionId()), response);
+        if (invoiceNumber == null) return;
+        // an approval stays the answer for its invoice even if a later attempt on it was declined
+        String invoiceKey = key(merchant, invoiceNumber);
+        String previous = txnIdByInvoice.get(invoiceKey);
+        SaleResponse previousResponse = previous != null ? byTxnId.get(key(merchant, previous)) : null;
+        if (response.isApproved() || previousResponse == null || !previousResponse.isApproved()) {
+            txnIdByInvoice.put(invoiceKey, response.getTransactionId());
+        }
+    }
+
+    /** The transaction with this {@code ssl_txn_id}, or null if Converge does not know it. */
+    public SaleResponse findByTransactionId(String merchantKey, String transactionId) {
+        MerchantAccount merchant = merchants.resolve(merchantKey);
+        String key = key(merchant, transactionId);
+        SaleResponse cached = byTxnId.get(key);
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
+        return readThrough("txn:" + key, () -> {
+            SaleResponse found = query(merchant, "ssl_txn_id", transactionId);
+            if (found != null) byTxnId.put(key, found);
+            return found;
+        });
+    }
+
+    /** The approved transaction for this invoice number, else its latest attempt; null if there is none. */
+    public SaleResponse findByInvoice(String merchantKey, String invoiceNumber) {
+        MerchantAccount merchant = merchants.resolve(merchantKey);
+        String key = key(merchant, invoiceNumber);
+        String transactionId = txnIdByInvoice.get(key);
+        SaleResponse cached = transactionId != null ? byTxnId.get(key(merchant, transactionId)) : null;
+        if (cached != null) {
+            cacheHits.increment();
+            return cached;
+        }
+        return readThrough("invoice:" + key, () -> {
+            SaleResponse found = query(merchant, "ssl_invoice_number", invoiceNumber);
+            if (found != null) record(merchant, invoiceNumber, found);
+            return found;
+        });
+    }
+
+    private SaleResponse readThrough(String missKey, Supplier<SaleResponse> query) {
+        if (misses.get(missKey) != null) {
+            notFound.increment();
+            return null;
+        }
+        CompletableFuture<SaleResponse> mine = new CompletableFuture<>();
+        CompletableFuture<SaleResponse> existing = inFlight.putIfAbsent(missKey, mine);
+        if (existing != null) return join(existing);
+        try {
+            convergeQueries.increment();
+            SaleResponse found = query.get();
+            if (found == null) {
+                misses.put(missKey, Boolean.TRUE, System.currentTimeMillis() + notFoundTtlMs);
+                notFound.increment();
+            }
+            mine.complete(found);
+            return found;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(missKey, mine);
+        }
+    }
+
+    private static SaleResponse join(CompletableFuture<SaleResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+
+    // the approved row if there is one, else the last row
+    private SaleResponse query(MerchantAccount merchant, String field, String value) {
+        ConvergeXmlTransaction query = ConvergeMapper.toXmlTransaction("txnquery", merchant).field(field, value);
+        SaleResponse[] best = new SaleResponse[1];
+        client.execute(query, body -> decoder.forEachTxn(body, txn -> {
+            if (txn.containsKey("errorCode")) {
+                throw new UpstreamFailureException(UpstreamFailureException.Kind.ERROR_CODE,
+                    "Converge txnquery failed: " + txn.get("errorCode") + " " + txn.get("errorMessage"), null);
+            }
+            SaleResponse row = ConvergeMapper.toSaleResponse(txn);
+            if (best[0] == null || !best[0].isApproved()) best[0] = row;
+        }));
+        return best[0];
+    }
+
+    private static String key(MerchantAccount merchant, String id) {
+        return merchant.getKey() + "/" + id;
+    }
+}
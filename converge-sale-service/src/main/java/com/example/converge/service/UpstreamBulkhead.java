@@ -0,0 +1,81 @@
+package com.example.converge.service;
+
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.exception.UpstreamBusyException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Semaphore bulkhead in front of the Converge call. Time spent waiting for a permit is
+ * recorded as {@code converge.bulkhead.wait}, separately from {@code converge.upstream.duration}.
+ */
+@Component
+public class UpstreamBulkhead {
+
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+    private final Timer acquiredWait;
+    private final Timer rejectedWait;
+    private final Timer upstreamDuration;
+
+    public UpstreamBulkhead(ConvergeProperties properties, MeterRegistry registry) {
+        ConvergeProperties.Bulkhead config = properties.getBulkhead();
+        this.permits = new Semaphore(config.getMaxConcurrent(), true);
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxWaitMs());
+        this.acquiredWait = Timer.builder("converge.bulkhead.wait").tag("outcome", "acquired").register(registry);
+        this.rejectedWait = Timer.builder("converge.bulkhead.wait").tag("outcome", "rejected").register(registry);
+        this.upstreamDuration = Timer.builder("converge.upstream.duration").register(registry);
+        Gauge.builder("converge.bulkhead.available", permits, Semaphore::availablePermits).register(registry);
+    }
+
+    public <T> T call(Supplier<T> upstreamCall) {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UpstreamBusyException("Interrupted waiting for upstream capacity");
+        }
+        long admitted = System.nanoTime();
+        if (!acquired) {
+            rejectedWait.record(admitted - start, TimeUnit.NANOSECONDS);
+            throw new UpstreamBusyException("Upstream capacity exhausted");
+        }
+        acquiredWait.record(admitted - start, TimeUnit.NANOSECONDS);
+        try {
+            return upstreamCall.get();
+        } finally {
+            permits.release();
+            upstreamDuration.record(System.nanoTime() - admitted, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** Non-blocking variant: never parks the caller, rejects immediately when no permit is free. */
+    public <T> CompletableFuture<T> callAsync(Supplier<CompletableFuture<T>> upstreamCall) {
+        if (!permits.tryAcquire()) {
+            rejectedWait.record(0, TimeUnit.NANOSECONDS);
+            return CompletableFuture.failedFuture(new UpstreamBusyException("Upstream capacity exhausted"));
+        }
+        acquiredWait.record(0, TimeUnit.NANOSECONDS);
+        long admitted = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = upstreamCall.get();
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        return future.whenComplete((result, ex) -> {
+            permits.release();
+            upstreamDuration.record(System.nanoTime() - admitted, TimeUnit.NANOSECONDS);
+        });
+    }
+}
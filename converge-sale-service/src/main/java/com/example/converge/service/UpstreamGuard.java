@@ -0,0 +1,206 @@
+package com.example.converge.service;
+
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.exception.CircuitOpenException;
+import com.example.converge.exception.UpstreamBusyException;
+import com.example.converge.exception.UpstreamFailureException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Failure-aware gate around each Converge exchange. A circuit breaker counts timeouts, I/O errors
+ * and 5xx responses; declines and Converge error codes count as a healthy gateway. An AIMD limit
+ * caps concurrent sale exchanges and follows their latency. Take a permit with {@link #acquire()}
+ * for a sale, or {@link #acquireOutsideLimit()} for queries and other exchanges whose length says
+ * nothing about how sales are faring, and return it with {@link #release}. Exposes
+ * {@code converge.circuit.state} (0 closed, 1 half-open, 2 open) and {@code converge.limiter.limit}.
+ */
+@Component
+public class UpstreamGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamGuard.class);
+    private static final double SHORT_ALPHA = 0.1;
+    private static final double LONG_ALPHA = 0.01;
+
+    enum State { CLOSED, HALF_OPEN, OPEN }
+
+    /**
+     * An admitted exchange. Whether it counts against the limit and whether it is a half-open probe
+     * are fixed when it is admitted, so calls that outlive a state change are judged by how they began.
+     */
+    public record Permit(long startNanos, boolean limited, boolean probe, long generation) {}
+
+    private final ConvergeProperties.CircuitBreaker breaker;
+    private final ConvergeProperties.Limiter limiter;
+    private final Map<State, Counter> transitions = new EnumMap<>(State.class);
+    private final Counter circuitRejected;
+    private final Counter limitRejected;
+
+    // all state below is guarded by this
+    private State state = State.CLOSED;
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private long openUntilNanos;
+    private long generation; // bumped on every state change
+    private int probesIssued;
+    private int probesSucceeded;
+    private double limit;
+    private int inFlight;
+    private double shortLatency;
+    private double longLatency;
+
+    public UpstreamGuard(ConvergeProperties properties, MeterRegistry registry) {
+        this.breaker = properties.getCircuitBreaker();
+        this.limiter = properties.getLimiter();
+        this.window = new boolean[breaker.getWindowSize()];
+        this.limit = limiter.getInitialLimit();
+        this.circuitRejected = Counter.builder("converge.circuit.rejected").register(registry);
+        this.limitRejected = Counter.builder("converge.limiter.rejected").register(registry);
+        for (State state : State.values()) {
+            transitions.put(state, Counter.builder("converge.circuit.transitions").tag("state", state.name().toLowerCase(Locale.ROOT)).register(registry));
+        }
+        Gauge.builder("converge.circuit.state", this, guard -> guard.state().ordinal()).register(registry);
+        Gauge.builder("converge.limiter.limit", this, UpstreamGuard::limit).register(registry);
+        Gauge.builder("converge.limiter.in_flight", this, UpstreamGuard::inFlight).register(registry);
+    }
+
+    /** Admits a sale exchange: subject to the circuit breaker and the concurrency limit, whose latency it samples. */
+    public Permit acquire() {
+        return admit(true);
+    }
+
+    /**
+     * Admits a non-sale exchange, such as a streamed {@code txnquery} page: subject to the circuit breaker,
+     * but neither held against the concurrency limit nor sampled for its latency.
+     */
+    public Permit acquireOutsideLimit() {
+        return admit(false);
+    }
+
+    private Permit admit(boolean limited) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            boolean probe = false;
+            if (breaker.isEnabled()) {
+                if (state == State.OPEN) {
+                    if (now - openUntilNanos < 0) throw circuitOpen(TimeUnit.NANOSECONDS.toMillis(openUntilNanos - now));
+                    transition(State.HALF_OPEN);
+                }
+                if (state == State.HALF_OPEN) {
+                    if (probesIssued >= breaker.getHalfOpenCalls()) throw circuitOpen(breaker.getOpenMs());
+                    probe = true;
+                }
+            }
+            if (limited && limiter.isEnabled() && inFlight >= (int) limit) {
+                limitRejected.increment();
+                throw new UpstreamBusyException("Upstream concurrency limit reached");
+            }
+            if (probe) probesIssued++;
+            if (limited) inFlight++;
+            return new Permit(now, limited, probe, generation);
+        }
+    }
+
+    /** {@code failure} means the gateway itself misbehaved: timeout, I/O error or 5xx. */
+    public void release(Permit permit, boolean failure) {
+        double latency = System.nanoTime() - permit.startNanos();
+        synchronized (this) {
+            if (permit.limited()) {
+                inFlight--;
+                if (limiter.isEnabled()) adjustLimit(latency, failure);
+            }
+            if (breaker.isEnabled()) recordOutcome(permit, failure);
+        }
+    }
+
+    public static boolean isUpstreamFailure(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof ResourceAccessException || t instanceof HttpServerErrorException || t instanceof IOException
+                    || t instanceof UpstreamFailureException) return true;
+        }
+        return false;
+    }
+
+    private void adjustLimit(double latency, boolean failure) {
+        if (!failure) {
+            if (longLatency == 0) shortLatency = longLatency = latency;
+            shortLatency += (latency - shortLatency) * SHORT_ALPHA;
+            longLatency += (latency - longLatency) * LONG_ALPHA;
+        }
+        if (failure || shortLatency > longLatency * limiter.getLatencyTolerance()) {
+            limit = Math.max(limiter.getMinLimit(), limit * limiter.getBackoffRatio());
+        } else if (inFlight + 1 >= limit / 2) {
+            // only grow while the current limit is actually being used
+            limit = Math.min(limiter.getMaxLimit(), limit + 1 / limit);
+        }
+    }
+
+    private void recordOutcome(Permit permit, boolean failure) {
+        switch (state) {
+            case HALF_OPEN -> {
+                // calls admitted before the circuit opened say nothing about whether it has recovered
+                if (!permit.probe() || permit.generation() != generation) return;
+                if (failure) open();
+                else if (++probesSucceeded >= breaker.getHalfOpenCalls()) transition(State.CLOSED);
+            }
+            case CLOSED -> {
+                if (windowCount == window.length) {
+                    if (window[windowIndex]) windowFailures--;
+                } else {
+                    windowCount++;
+                }
+                window[windowIndex] = failure;
+                if (failure) windowFailures++;
+                windowIndex = (windowIndex + 1) % window.length;
+                if (windowCount >= breaker.getMinimumCalls() && windowFailures >= breaker.getFailureRateThreshold() * windowCount) {
+                    open();
+                }
+            }
+            case OPEN -> {
+                // late completions of calls admitted before the circuit opened
+            }
+        }
+    }
+
+    private void open() {
+        if (state == State.HALF_OPEN) {
+            log.warn("Reopening Converge circuit for {} ms (a half-open probe failed)", breaker.getOpenMs());
+        } else {
+            log.warn("Opening Converge circuit for {} ms ({} of last {} calls failed)", breaker.getOpenMs(), windowFailures, windowCount);
+        }
+        openUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(breaker.getOpenMs());
+        transition(State.OPEN);
+    }
+
+    private void transition(State next) {
+        state = next;
+        generation++;
+        windowIndex = windowCount = windowFailures = 0;
+        probesIssued = probesSucceeded = 0;
+        transitions.get(next).increment();
+        if (next != State.OPEN) log.info("Converge circuit {}", next);
+    }
+
+    private CircuitOpenException circuitOpen(long retryAfterMs) {
+        circuitRejected.increment();
+        return new CircuitOpenException("Converge is unavailable; failing fast while the circuit is open", retryAfterMs);
+    }
+
+    synchronized State state() { return state; }
+    synchronized double limit() { return limit; }
+    synchronized int inFlight() { return inFlight; }
+}
@@ -1,28 +0,0 @@
-package com.example.converge.validation;
-
-import jakarta.validation.ConstraintValidator;
-import jakarta.validation.ConstraintValidatorContext;
-
-public class LuhnValidator implements ConstraintValidator<Luhn, String> {
-    @Override
-    public boolean isValid(String value, ConstraintValidatorContext context) {
-        if (value == null || value.isEmpty()) return true;
-        String digits = value.replaceAll("\\s", "");
-        int sum = 0;
-        boolean alternate = false;
-        for (int i = digits.length() - 1; i >= 0; i--) {
-            char c = digits.charAt(i);
-            if (c < '0' || c > '9') return false;
-            int n = c - '0';
-            if (alternate) {
-                n *= 2;
-                if (n > 9) n -= 9;
-            }
-            sum += n;
-            alternate = !alternate;
-        }
-        return sum % 10 == 0;
-    }
-}
-
-
@@ -0,0 +1,163 @@
+package com.example.converge.validation;
+
+import com.example.converge.dto.request.SaleRequest;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * All SaleRequest field rules in one pass over the characters, without regex and without
+ * allocating unless a field is rejected. Violations keep the field names and messages of the
+ * {@code @NotBlank}/{@code @Pattern}/{@code @Size}/{@code @Luhn} annotations this replaced.
+ * Each field reports at most one violation. A card whose expiry month has passed is also
+ * rejected, on {@code expYear}.
+ */
+public class SaleRequestValidator implements ConstraintValidator<ValidSaleRequest, SaleRequest> {
+
+    static final String NOT_BLANK = "must not be blank";
+    static final String AMOUNT = "amount must be > 0 with up to 2 decimals";
+    static final String CURRENCY_SIZE = "size must be between 3 and 3";
+    static final String CARD_NUMBER = "cardNumber must be 12-19 digits";
+    static final String LUHN = "invalid card number";
+    static final String EXP_MONTH = "expMonth must be 01-12";
+    static final String EXP_YEAR = "expYear must be 4-digit year >= 2000";
+    static final String EXPIRED = "card has expired";
+    static final String CVV = "cvv must be 3 or 4 digits";
+
+    private volatile CurrentMonth currentMonth = CurrentMonth.now();
+
+    @Override
+    public boolean isValid(SaleRequest request, ConstraintValidatorContext context) {
+        if (request == null) return true;
+        boolean valid = report(context, "merchantKey", maxLength(request.getMerchantKey(), 64, "size must be between 0 and 64"));
+        valid &= report(context, "amount", amount(request.getAmount()));
+        valid &= report(context, "currency", blank(request.getCurrency()) ? NOT_BLANK
+            : request.getCurrency().length() != 3 ? CURRENCY_SIZE : null);
+        valid &= report(context, "cardNumber", cardNumber(request.getCardNumber()));
+        int month = month(request.getExpMonth());
+        int year = year(request.getExpYear());
+        valid &= report(context, "expMonth", month > 0 ? null : blank(request.getExpMonth()) ? NOT_BLANK : EXP_MONTH);
+        valid &= report(context, "expYear", year > 0 ? (month > 0 && expired(year, month) ? EXPIRED : null)
+            : blank(request.getExpYear()) ? NOT_BLANK : EXP_YEAR);
+        valid &= report(context, "cvv", cvv(request.getCvv()));
+        valid &= report(context, "invoiceNumber", maxLength(request.getInvoiceNumber(), 64, "size must be between 0 and 64"));
+        valid &= report(context, "cardHolderName", maxLength(request.getCardHolderName(), 96, "size must be between 0 and 96"));
+        valid &= report(context, "address", maxLength(request.getAddress(), 128, "size must be between 0 and 128"));
+        valid &= report(context, "postalCode", maxLength(request.getPostalCode(), 16, "size must be between 0 and 16"));
+        if (!valid) context.disableDefaultConstraintViolation();
+        return valid;
+    }
+
+    private static boolean report(ConstraintValidatorContext context, String field, String message) {
+        if (message == null) return true;
+        context.buildConstraintViolationWithTemplate(message).addPropertyNode(field).addConstraintViolation();
+        return false;
+    }
+
+    /** 1-13 integer digits, optionally 1-2 decimals, not zero. */
+    static String amount(String value) {
+        if (blank(value)) return NOT_BLANK;
+        int length = value.length();
+        int i = 0;
+        boolean nonZero = false;
+        while (i < length && isDigit(value.charAt(i))) nonZero |= value.charAt(i++) != '0';
+        if (i == 0 || i > 13) return AMOUNT;
+        if (i < length) {
+            if (value.charAt(i) != '.') return AMOUNT;
+            int fraction = length - i - 1;
+            if (fraction < 1 || fraction > 2) return AMOUNT;
+            while (++i < length) {
+                char c = value.charAt(i);
+                if (!isDigit(c)) return AMOUNT;
+                nonZero |= c != '0';
+            }
+        }
+        return nonZero ? null : AMOUNT;
+    }
+
+    /** 12-19 digits passing the Luhn check, validated in the same loop. */
+    static String cardNumber(String value) {
+        if (blank(value)) return NOT_BLANK;
+        int length = value.length();
+        if (length < 12 || length > 19) return CARD_NUMBER;
+        int sum = 0;
+        boolean alternate = false;
+        for (int i = length - 1; i >= 0; i--) {
+            char c = value.charAt(i);
+            if (!isDigit(c)) return CARD_NUMBER;
+            int n = c - '0';
+            if (alternate && (n *= 2) > 9) n -= 9;
+            sum += n;
+            alternate = !alternate;
+        }
+        return sum % 10 == 0 ? null : LUHN;
+    }
+
+    static String cvv(String value) {
+        if (blank(value)) return NOT_BLANK;
+        int length = value.length();
+        if (length < 3 || length > 4) return CVV;
+        for (int i = 0; i < length; i++) {
+            if (!isDigit(value.charAt(i))) return CVV;
+        }
+        return null;
+    }
+
+    /** 1-12 for "01".."12", otherwise 0. */
+    static int month(String value) {
+        if (value == null || value.length() != 2) return 0;
+        char tens = value.charAt(0);
+        char units = value.charAt(1);
+        if (tens == '0' && units >= '1' && units <= '9') return units - '0';
+        if (tens == '1' && units >= '0' && units <= '2') return 10 + units - '0';
+        return 0;
+    }
+
+    /** The year for "20yy", otherwise 0. */
+    static int year(String value) {
+        if (value == null || value.length() != 4 || value.charAt(0) != '2' || value.charAt(1) != '0') return 0;
+        char tens = value.charAt(2);
+        char units = value.charAt(3);
+        if (!isDigit(tens) || !isDigit(units)) return 0;
+        return 2000 + (tens - '0') * 10 + (units - '0');
+    }
+
+    private boolean expired(int year, int month) {
+        CurrentMonth current = currentMonth;
+        if (System.currentTimeMillis() >= current.endMillis()) currentMonth = current = CurrentMonth.now();
+        return year * 12 + month < current.index();
+    }
+
+    private static String maxLength(String value, int max, String message) {
+        return value != null && value.length() > max ? message : null;
+    }
+
+    /** Same rule as {@code @NotBlank}: null, or nothing left after trimming. */
+    private static boolean blank(String value) {
+        if (value == null) return true;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > ' ') return false;
+        }
+        return true;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * The calendar month on the earliest time zone (UTC-12). A card stays valid through the end
+     * of its expiry month wherever the cardholder is, so it is only rejected once that month is
+     * over everywhere.
+     */
+    private record CurrentMonth(int index, long endMillis) {
+        static CurrentMonth now() {
+            LocalDate today = LocalDate.now(ZoneOffset.ofHours(-12));
+            LocalDate nextMonth = today.withDayOfMonth(1).plusMonths(1);
+            return new CurrentMonth(today.getYear() * 12 + today.getMonthValue(),
+                nextMonth.atStartOfDay(ZoneOffset.ofHours(-12)).toInstant().toEpochMilli());
+        }
+    }
+}
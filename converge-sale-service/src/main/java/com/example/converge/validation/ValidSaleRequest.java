@@ -7,17 +7,15 @@ import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 
-import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.TYPE;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
 @Documented
-@Constraint(validatedBy = { LuhnValidator.class })
-@Target({ FIELD })
+@Constraint(validatedBy = { SaleRequestValidator.class })
+@Target({ TYPE })
 @Retention(RUNTIME)
-public @interface Luhn {
-    String message() default "invalid card number";
+public @interface ValidSaleRequest {
+    String message() default "invalid sale request";
     Class<?>[] groups() default {};
     Class<? extends Payload>[] payload() default {};
 }
-
-
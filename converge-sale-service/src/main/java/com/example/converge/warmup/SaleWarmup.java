@@ -0,0 +1,147 @@
+package com.example.converge.warmup;
+
+import com.example.converge.codec.ConvergeRequestEncoder;
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.request.SaleRequest;
+import com.example.converge.dto.response.SaleResponse;
+import com.example.converge.dto.xml.ConvergeSaleXmlRequest;
+import com.example.converge.dto.xml.ConvergeSaleXmlResponse;
+import com.example.converge.mapper.ConvergeMapper;
+import com.example.converge.merchant.MerchantAccount;
+import com.example.converge.merchant.MerchantRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs synthetic sales through the code a real sale executes before Converge is called, so the
+ * first customers are not the ones paying for the interpreter: JSON binding, Bean Validation
+ * (including the Luhn check), ConvergeMapper both ways, and the request encoder and response
+ * decoder. Requests are encoded into nothing and the responses are canned, so no connection is
+ * ever opened, and nothing reaches the journal, idempotency store, audit log or sale metrics.
+ * It runs on its own thread once the application has started; {@link WarmupHealthIndicator}
+ * keeps readiness OUT_OF_SERVICE until it is done.
+ */
+@Component
+public class SaleWarmup implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SaleWarmup.class);
+    // far enough ahead that the validator never rejects the synthetic cards as expired
+    private static final String EXP_YEAR = String.valueOf(Year.now().getValue() + 5);
+    private static final int BATCH = 500;
+
+    private static final String[] CARDS = {"4111111111111111", "5555555555554444", "378282246310005", "6011111111111117",
+        "4111111111111112"}; // the last one fails Luhn, so the rejection path is warmed too
+    private static final byte[][] RESPONSES = {
+        xml("<ssl_result>0</ssl_result><ssl_result_message>APPROVAL</ssl_result_message><ssl_txn_id>WARMUP-1</ssl_txn_id>"
+            + "<ssl_approval_code>CVI877</ssl_approval_code><ssl_avs_response>Y</ssl_avs_response><ssl_cvv2_response>M</ssl_cvv2_response>"
+            + "<ssl_txn_time>10/16/2026 01:02:03 PM</ssl_txn_time><ssl_amount>10.00</ssl_amount><ssl_issuer_response>00</ssl_issuer_response>"),
+        xml("<ssl_result>1</ssl_result><ssl_result_message>DECLINED</ssl_result_message><ssl_txn_id>WARMUP-2</ssl_txn_id>"
+            + "<ssl_avs_response>N</ssl_avs_response><ssl_cvv2_response>N</ssl_cvv2_response><ssl_issuer_response>05</ssl_issuer_response>"),
+        xml("<errorCode>5000</errorCode><errorName>Credit Card Number Invalid</errorName>"
+            + "<errorMessage>The Credit Card Number supplied in the authorization request appears to be invalid.</errorMessage>")
+    };
+
+    private final ObjectMapper objectMapper;
+    private final LocalValidatorFactoryBean validator;
+    private final ConvergeRequestEncoder encoder;
+    private final ConvergeResponseDecoder decoder;
+    private final MerchantRegistry merchants;
+    private final ConvergeProperties.Warmup config;
+    private volatile int iterations;
+    private volatile long elapsedMs;
+    private volatile long compileMs;
+    private volatile boolean done;
+
+    public SaleWarmup(ObjectMapper objectMapper, LocalValidatorFactoryBean validator, ConvergeRequestEncoder encoder,
+                      ConvergeResponseDecoder decoder, MerchantRegistry merchants, ConvergeProperties properties) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.encoder = encoder;
+        this.decoder = decoder;
+        this.merchants = merchants;
+        this.config = properties.getWarmup();
+        this.done = !config.isEnabled();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (done) return;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("warmup-");
+        threadFactory.setDaemon(true);
+        threadFactory.newThread(this::warmUp).start();
+    }
+
+    public boolean isDone() { return done; }
+    public int getIterations() { return iterations; }
+    public long getElapsedMs() { return elapsedMs; }
+    public long getCompileMs() { return compileMs; }
+
+    private void warmUp() {
+        long start = System.nanoTime();
+        long giveUp = start + TimeUnit.MILLISECONDS.toNanos(config.getTimeoutMs());
+        CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+        boolean settles = jit != null && jit.isCompilationTimeMonitoringSupported();
+        long compiledBefore = settles ? jit.getTotalCompilationTime() : 0;
+        long compiledLast = compiledBefore;
+        MerchantAccount merchant = merchants.defaultMerchant();
+        try {
+            while (iterations < config.getMaxIterations() && System.nanoTime() < giveUp) {
+                int end = Math.min(iterations + BATCH, config.getMaxIterations());
+                for (int i = iterations; i < end; i++) sale(i, merchant);
+                iterations = end;
+                elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                if (!settles) continue;
+                long compiled = jit.getTotalCompilationTime();
+                compileMs = compiled - compiledBefore;
+                if (iterations >= config.getMinIterations() && compiled - compiledLast < config.getSettleMs()) break;
+                compiledLast = compiled;
+            }
+            log.info("Warm-up done: {} synthetic sales in {} ms, {} ms of JIT compilation", iterations, elapsedMs, compileMs);
+        } catch (IOException | RuntimeException e) {
+            // warm-up only makes the first sales faster; it must not keep the instance out of service
+            log.warn("Warm-up stopped after {} synthetic sales: {}", iterations, e.toString());
+        } finally {
+            done = true;
+        }
+    }
+
+    private void sale(int i, MerchantAccount merchant) throws IOException {
+        SaleRequest request = objectMapper.readValue(json(i), SaleRequest.class);
+        if (!validator.validate(request).isEmpty()) return;
+        ConvergeSaleXmlRequest xmlRequest = ConvergeMapper.toXmlRequest(request, merchant);
+        encoder.contentLength(xmlRequest);
+        encoder.encode(xmlRequest, OutputStream.nullOutputStream());
+        ConvergeSaleXmlResponse xmlResponse = decoder.decode(new ByteArrayInputStream(RESPONSES[i % RESPONSES.length]));
+        SaleResponse response = ConvergeMapper.toSaleResponse(xmlResponse);
+        objectMapper.writeValueAsBytes(response);
+    }
+
+    // varies the fields a little so the JIT does not see a single constant request
+    private static byte[] json(int i) {
+        return ("{\"amount\":\"" + (1 + i % 500) + "." + (10 + i % 90) + "\",\"currency\":\"USD\",\"cardNumber\":\""
+            + CARDS[i % CARDS.length] + "\",\"expMonth\":\"" + (1 + i % 12 < 10 ? "0" : "") + (1 + i % 12)
+            + "\",\"expYear\":\"" + EXP_YEAR + "\",\"cvv\":\"" + (100 + i % 900) + "\",\"invoiceNumber\":\"WARMUP-" + i
+            + "\",\"cardHolderName\":\"Warm Up\",\"address\":\"1 Main St\",\"postalCode\":\"12345\",\"deferCapture\":"
+            + (i % 7 == 0) + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] xml(String fields) {
+        return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?><txn>" + fields + "</txn>").getBytes(StandardCharsets.UTF_8);
+    }
+}
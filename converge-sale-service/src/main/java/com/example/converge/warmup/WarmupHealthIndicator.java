@@ -0,0 +1,25 @@
+package com.example.converge.warmup;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/** {@code warmup} health: OUT_OF_SERVICE while {@link SaleWarmup} runs, so the readiness probe fails until it is done. */
+@Component
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    private final SaleWarmup warmup;
+
+    public WarmupHealthIndicator(SaleWarmup warmup) {
+        this.warmup = warmup;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder health = warmup.isDone() ? Health.up() : Health.outOfService();
+        return health.withDetail("iterations", warmup.getIterations())
+            .withDetail("elapsedMs", warmup.getElapsedMs())
+            .withDetail("compileMs", warmup.getCompileMs())
+            .build();
+    }
+}
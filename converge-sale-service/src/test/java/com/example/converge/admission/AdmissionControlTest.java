@@ -0,0 +1,182 @@
+package com.example.converge.admission;
+
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.exception.DeadlineExceededException;
+import com.example.converge.exception.LoadShedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionControlTest {
+
+    private static final long INTERVAL_MS = 20;
+
+    private ConvergeProperties.Admission config;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        config = new ConvergeProperties().getAdmission();
+        config.setMaxConcurrent(1);
+        config.setMaxQueue(10);
+        config.setTargetMs(1);
+        config.setIntervalMs(INTERVAL_MS);
+        config.setApiKeys(Map.of("pos-key", Priority.HIGH, "report-key", Priority.LOW));
+    }
+
+    @Test
+    void aKeyGrantsItsPriorityAndTheHeaderCanOnlyLowerIt() {
+        AdmissionControl admission = admission();
+
+        assertThat(admission.priorityOf("pos-key", null)).isEqualTo(Priority.HIGH);
+        assertThat(admission.priorityOf("pos-key", "low")).isEqualTo(Priority.LOW);
+        assertThat(admission.priorityOf("report-key", "high")).isEqualTo(Priority.LOW);
+    }
+
+    @Test
+    void aCallerWithoutAKnownKeyCannotRaiseItsPriority() {
+        AdmissionControl admission = admission();
+
+        assertThat(admission.priorityOf(null, "high")).isEqualTo(Priority.NORMAL);
+        assertThat(admission.priorityOf("guessed-key", "HIGH")).isEqualTo(Priority.NORMAL);
+        assertThat(admission.priorityOf(null, "low")).isEqualTo(Priority.LOW);
+        assertThat(admission.priorityOf(null, "urgent")).isEqualTo(Priority.NORMAL);
+    }
+
+    @Test
+    void capsTheRequestedTimeout() {
+        config.setMaxTimeoutMs(1000);
+        Deadline deadline = admission().deadlineOf(3_600_000L);
+
+        assertThat(deadline.remainingNanos()).isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void refusesASaleWhoseDeadlineHasAlreadyPassed() throws InterruptedException {
+        Deadline deadline = Deadline.afterMillis(1);
+        Thread.sleep(5);
+
+        assertThatThrownBy(() -> admission().call(Priority.HIGH, deadline, calls::incrementAndGet))
+            .isInstanceOf(DeadlineExceededException.class);
+        assertThat(calls).hasValue(0);
+    }
+
+    @Test
+    void aQueuedSaleFailsAtItsDeadlineWithoutBeingSent() {
+        AdmissionControl admission = admission();
+        CompletableFuture<Object> running = hold(admission);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> admission.call(Priority.HIGH, Deadline.afterMillis(50), calls::incrementAndGet))
+            .isInstanceOf(DeadlineExceededException.class);
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(45));
+
+        running.complete(null);
+        assertThat(calls).hasValue(0);
+        assertThat(admission.call(Priority.HIGH, Deadline.none(), calls::incrementAndGet)).isEqualTo(1);
+    }
+
+    @Test
+    void aQueuedAsyncSaleFailsAtItsDeadlineWithoutBeingSent() {
+        AdmissionControl admission = admission();
+        CompletableFuture<Object> running = hold(admission);
+
+        CompletableFuture<Integer> queued = admission.callAsync(Priority.HIGH, Deadline.afterMillis(30),
+            () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+
+        assertThatThrownBy(() -> queued.get(2, TimeUnit.SECONDS)).hasCauseInstanceOf(DeadlineExceededException.class);
+        running.complete(null);
+        assertThat(calls).hasValue(0);
+    }
+
+    @Test
+    void servesTheQueueByPriorityThenArrival() {
+        AdmissionControl admission = admission();
+        CompletableFuture<Object> running = hold(admission);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<?> low = admission.callAsync(Priority.LOW, Deadline.none(), () -> ran(order, "low"));
+        CompletableFuture<?> normal = admission.callAsync(Priority.NORMAL, Deadline.none(), () -> ran(order, "normal"));
+        CompletableFuture<?> high = admission.callAsync(Priority.HIGH, Deadline.none(), () -> ran(order, "high"));
+        CompletableFuture<?> secondHigh = admission.callAsync(Priority.HIGH, Deadline.none(), () -> ran(order, "high-2"));
+        running.complete(null);
+
+        CompletableFuture.allOf(low, normal, high, secondHigh).join();
+        assertThat(order).containsExactly("high", "high-2", "normal", "low");
+    }
+
+    @Test
+    void refusesArrivalsOnceTheQueueIsFull() {
+        config.setMaxQueue(1);
+        AdmissionControl admission = admission();
+        hold(admission);
+        admission.callAsync(Priority.HIGH, Deadline.none(), () -> CompletableFuture.completedFuture(null));
+
+        assertThatThrownBy(() -> admission.call(Priority.HIGH, Deadline.none(), calls::incrementAndGet))
+            .isInstanceOfSatisfying(LoadShedException.class, e -> assertThat(e.getCode()).isEqualTo("QUEUE_FULL"));
+    }
+
+    @Test
+    void shedsLowPriorityUnderAStandingQueueAndRestoresItOnceTheQueueDrains() throws InterruptedException {
+        AdmissionControl admission = admission();
+        CompletableFuture<Object> running = hold(admission);
+        CompletableFuture<Integer> queuedLow = admission.callAsync(Priority.LOW, Deadline.none(),
+            () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+
+        // two intervals in which the queue never empties: the first closes the window that saw the
+        // unqueued admission above, the second is above target throughout
+        Thread.sleep(3 * INTERVAL_MS);
+        admission.callAsync(Priority.HIGH, Deadline.none(), () -> CompletableFuture.completedFuture(null));
+        Thread.sleep(3 * INTERVAL_MS);
+
+        assertThatThrownBy(() -> admission.call(Priority.LOW, Deadline.none(), calls::incrementAndGet))
+            .isInstanceOfSatisfying(LoadShedException.class, e -> assertThat(e.getCode()).isEqualTo("SHED"));
+        CompletableFuture<Integer> normal = admission.callAsync(Priority.NORMAL, Deadline.none(),
+            () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+        assertThat(normal).isNotDone();
+
+        running.complete(null);
+        assertThatThrownBy(queuedLow::join).hasCauseInstanceOf(LoadShedException.class);
+        assertThat(normal.join()).isEqualTo(1);
+
+        Thread.sleep(3 * INTERVAL_MS);
+        assertThat(admission.call(Priority.LOW, Deadline.none(), calls::incrementAndGet)).isEqualTo(2);
+    }
+
+    @Test
+    void passesEverythingThroughWhenDisabled() {
+        config.setEnabled(false);
+        AdmissionControl admission = admission();
+        hold(admission);
+
+        assertThat(admission.call(Priority.LOW, Deadline.none(), calls::incrementAndGet)).isEqualTo(1);
+    }
+
+    private AdmissionControl admission() {
+        ConvergeProperties properties = new ConvergeProperties();
+        properties.setAdmission(config);
+        return new AdmissionControl(properties, new SimpleMeterRegistry());
+    }
+
+    // takes the only slot until the returned future is completed
+    private static CompletableFuture<Object> hold(AdmissionControl admission) {
+        CompletableFuture<Object> running = new CompletableFuture<>();
+        admission.callAsync(Priority.HIGH, Deadline.none(), () -> running);
+        return running;
+    }
+
+    private static CompletableFuture<String> ran(List<String> order, String name) {
+        order.add(name);
+        return CompletableFuture.completedFuture(name);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.converge.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuditRingTest {
+
+    @Test
+    void roundsTheCapacityUpToAPowerOfTwo() {
+        assertThat(new AuditRing(8).capacity()).isEqualTo(8);
+        assertThat(new AuditRing(5).capacity()).isEqualTo(8);
+    }
+
+    @Test
+    void refusesEventsWhenFull() {
+        AuditRing ring = new AuditRing(4);
+        for (int i = 0; i < 4; i++) assertThat(ring.offer(event(i))).isTrue();
+
+        assertThat(ring.offer(event(4))).isFalse();
+        assertThat(ring.size()).isEqualTo(4);
+
+        assertThat(ring.poll().type()).isEqualTo("0");
+        assertThat(ring.offer(event(5))).isTrue();
+        assertThat(ring.offer(event(6))).isFalse();
+    }
+
+    @Test
+    void pollsInOrderAcrossTheWrapAround() {
+        AuditRing ring = new AuditRing(4);
+        List<String> polled = new ArrayList<>();
+        int next = 0;
+        for (int round = 0; round < 10; round++) {
+            while (ring.offer(event(next))) next++;
+            for (int i = 0; i < 3; i++) polled.add(ring.poll().type());
+        }
+        for (AuditEvent e = ring.poll(); e != null; e = ring.poll()) polled.add(e.type());
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < next; i++) expected.add(String.valueOf(i));
+        assertThat(polled).isEqualTo(expected);
+        assertThat(ring.size()).isZero();
+        assertThat(ring.poll()).isNull();
+    }
+
+    @Test
+    void losesAndDuplicatesNothingUnderManyProducers() throws Exception {
+        int producers = 8;
+        int perProducer = 10_000;
+        AuditRing ring = new AuditRing(64);
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                done.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        AuditEvent event = event(producer * perProducer + i);
+                        while (!ring.offer(event)) Thread.yield();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            Set<String> seen = new HashSet<>();
+            int[] lastPerProducer = new int[producers];
+            Arrays.fill(lastPerProducer, -1);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (seen.size() < producers * perProducer && System.nanoTime() < deadline) {
+                AuditEvent event = ring.poll();
+                if (event == null) {
+                    Thread.yield();
+                    continue;
+                }
+                assertThat(seen.add(event.type())).as("duplicate %s", event.type()).isTrue();
+                int id = Integer.parseInt(event.type());
+                assertThat(id).as("per-producer order").isGreaterThan(lastPerProducer[id / perProducer]);
+                lastPerProducer[id / perProducer] = id;
+            }
+            for (Future<?> f : done) f.get(30, TimeUnit.SECONDS);
+
+            assertThat(seen).hasSize(producers * perProducer);
+            assertThat(ring.poll()).isNull();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static AuditEvent event(int id) {
+        return AuditEvent.of(String.valueOf(id));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.converge.audit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RedactionTest {
+
+    @Test
+    void keepsTheFirstSixAndLastFourDigitsOfACardNumber() {
+        assertThat(Redaction.maskCard("4111111111111111")).isEqualTo("411111******1111");
+        assertThat(Redaction.maskCard("4111111111111111111")).isEqualTo("411111*********1111");
+        assertThat(Redaction.maskCard("4111111111111")).isEqualTo("411111***1111");
+        assertThat(Redaction.maskCard(null)).isNull();
+    }
+
+    @Test
+    void masksAShortNumberCompletely() {
+        assertThat(Redaction.maskCard("411111111111")).isEqualTo("************");
+        assertThat(Redaction.maskCard("4111")).isEqualTo("****");
+        assertThat(Redaction.maskCard("")).isEmpty();
+    }
+
+    @Test
+    void masksDigitRunsOfTwelveToNineteenDigitsInText() {
+        assertThat(Redaction.maskDigitRuns("card 411111111111 declined")).isEqualTo("card ************ declined");
+        assertThat(Redaction.maskDigitRuns("card 4111111111111 declined")).isEqualTo("card 411111***1111 declined");
+        assertThat(Redaction.maskDigitRuns("4111111111111111111")).isEqualTo("411111*********1111");
+        assertThat(Redaction.maskDigitRuns("a 4111111111111111,b 5500000000000004"))
+            .isEqualTo("a 411111******1111,b 550000******0004");
+    }
+
+    @Test
+    void leavesShorterAndLongerRunsAlone() {
+        String eleven = "order 41111111111 and ref 41111111111111111111";
+        String plain = "Connection reset by peer";
+
+        assertThat(Redaction.maskDigitRuns(eleven)).isSameAs(eleven);
+        assertThat(Redaction.maskDigitRuns(plain)).isSameAs(plain);
+        assertThat(Redaction.maskDigitRuns("")).isEmpty();
+    }
+
+    @Test
+    void auditEventsDropCvvPinAndExpiryAndMaskTheRest() {
+        AuditEvent event = AuditEvent.of("request")
+            .with("ssl_card_number", "4111111111111111")
+            .with("cvv", "123").with("ssl_cvv2cvc2", "123")
+            .with("pin", "secret").with("ssl_pin", "secret")
+            .with("expDate", "1230").with("ssl_exp_date", "1230").with("expMonth", "12").with("expYear", "2030")
+            .with("message", "bad card 4111111111111111")
+            .with("ssl_amount", "10.00")
+            .with("ssl_invoice_number", null)
+            .with("attempt", 2);
+
+        List<String> names = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < event.size(); i++) {
+            names.add(event.name(i));
+            values.add(event.value(i));
+        }
+        assertThat(names).containsExactly("ssl_card_number", "message", "ssl_amount", "attempt");
+        assertThat(values).containsExactly("411111******1111", "bad card 411111******1111", "10.00", 2L);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.converge.batchimport;
+
+import com.example.converge.config.ConvergeProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchImportFileWriterTest {
+
+    private static final String EXP_YEAR = String.valueOf(Year.now().getValue() + 5);
+
+    @TempDir
+    Path dir;
+
+    private final ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
+    private final BatchImportFileWriter writer = new BatchImportFileWriter(factory.getValidator(), new ObjectMapper(), new ConvergeProperties());
+
+    @AfterEach
+    void tearDown() {
+        factory.close();
+    }
+
+    @Test
+    void importsOnlyRowsForTheDefaultMerchant() throws IOException {
+        BatchImportJob job = new BatchImportJob("job1", "sales.csv", LocalDate.now(), dir);
+
+        writer.write(ndjson(
+            sale("INV1", null),
+            sale("INV2", "default"),
+            sale("INV3", "acme")), false, job);
+
+        assertThat(job.getRowsSubmitted()).isEqualTo(2);
+        assertThat(job.getRowsRejected()).isEqualTo(1);
+        List<String> rows = Files.readAllLines(job.getImportFile());
+        assertThat(rows).hasSize(3);
+        assertThat(rows.get(1)).contains("INV1");
+        assertThat(rows.get(2)).contains("INV2");
+        assertThat(Files.readString(job.getRejectionsFile()))
+            .contains("\"row\":3")
+            .contains("\"merchantKey\":\"batch imports run on the default merchant account only\"");
+    }
+
+    @Test
+    void reportsValidationErrorsBeforeTheMerchant() throws IOException {
+        BatchImportJob job = new BatchImportJob("job2", "sales.csv", LocalDate.now(), dir);
+
+        writer.write(ndjson(sale("INV1", "acme").replace("\"cvv\":\"123\"", "\"cvv\":\"1\"")), false, job);
+
+        assertThat(job.getRowsRejected()).isEqualTo(1);
+        assertThat(Files.readString(job.getRejectionsFile())).contains("\"cvv\":\"invalid\"").doesNotContain("merchantKey");
+    }
+
+    @Test
+    void rejectsRowsThatDeferCapture() throws IOException {
+        BatchImportJob job = new BatchImportJob("job3", "sales.csv", LocalDate.now(), dir);
+
+        writer.write(ndjson(
+            sale("INV1", null),
+            sale("INV2", null).replace("}", ",\"deferCapture\":true}")), false, job);
+
+        assertThat(job.getRowsSubmitted()).isEqualTo(1);
+        assertThat(job.getRowsRejected()).isEqualTo(1);
+        assertThat(Files.readAllLines(job.getImportFile())).hasSize(2).noneMatch(line -> line.contains("CCAUTHONLY"));
+        assertThat(Files.readString(job.getRejectionsFile()))
+            .contains("\"row\":2")
+            .contains("\"deferCapture\":\"batch imports cannot defer capture\"");
+    }
+
+    private static ByteArrayInputStream ndjson(String... lines) {
+        return new ByteArrayInputStream(String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sale(String invoiceNumber, String merchantKey) {
+        return "{\"amount\":\"10.00\",\"currency\":\"USD\",\"cardNumber\":\"4111111111111111\",\"expMonth\":\"12\","
+            + "\"expYear\":\"" + EXP_YEAR + "\",\"cvv\":\"123\",\"invoiceNumber\":\"" + invoiceNumber + "\""
+            + (merchantKey != null ? ",\"merchantKey\":\"" + merchantKey + "\"" : "") + "}";
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.converge.batchimport;
+
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.service.ConvergeClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Year;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchImportServiceTest {
+
+    private static final String EXP_YEAR = String.valueOf(Year.now().getValue() + 5);
+
+    private static final String ROW_APPROVED = "<txnlist><ssl_txn_count>1</ssl_txn_count><txn><ssl_result>0</ssl_result>"
+        + "<ssl_txn_id>TXN-1</ssl_txn_id><ssl_invoice_number>INV1</ssl_invoice_number></txn></txnlist>";
+
+    @TempDir
+    Path dir;
+
+    private final ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
+    private final ConvergeClient client = mock(ConvergeClient.class);
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+    private BatchImportService service;
+
+    @BeforeEach
+    void setUp() {
+        ConvergeProperties properties = new ConvergeProperties();
+        properties.setBaseUrl("http://converge.test/processxml.do");
+        properties.getBatchImport().setWorkDir(dir.toString());
+        properties.getBatchImport().setPollIntervalMs(10);
+        service = new BatchImportService(client, restTemplate, new ConvergeResponseDecoder(), properties,
+            new ObjectMapper(), factory.getValidator());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+        factory.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void aTimeoutAfterSendingKeepsPollingInsteadOfFailing() throws Exception {
+        when(restTemplate.postForObject(anyString(), any(), eq(String.class)))
+            .thenThrow(new ResourceAccessException("Read timed out", new SocketTimeoutException("Read timed out")));
+        when(client.execute(any(), any())).thenAnswer(invocation -> invocation.<Function<InputStream, Object>>getArgument(1)
+            .apply(new ByteArrayInputStream(ROW_APPROVED.getBytes(StandardCharsets.UTF_8))));
+
+        BatchImportJob job = service.submit(ndjson(), false);
+
+        awaitStatus(job, BatchImportJob.Status.COMPLETE);
+        assertThat(job.getApproved()).isEqualTo(1);
+    }
+
+    @Test
+    void aConnectFailureIsReportedAsFailed() throws Exception {
+        when(restTemplate.postForObject(anyString(), any(), eq(String.class)))
+            .thenThrow(new ResourceAccessException("Connection refused", new ConnectException("Connection refused")));
+
+        BatchImportJob job = service.submit(ndjson(), false);
+
+        awaitStatus(job, BatchImportJob.Status.FAILED);
+        verify(client, never()).execute(any(), any());
+    }
+
+    private static void awaitStatus(BatchImportJob job, BatchImportJob.Status status) throws InterruptedException {
+        for (int i = 0; i < 500 && job.getStatus() != status; i++) Thread.sleep(10);
+        assertThat(job.getStatus()).isEqualTo(status);
+    }
+
+    private static ByteArrayInputStream ndjson() {
+        return new ByteArrayInputStream(("{\"amount\":\"10.00\",\"currency\":\"USD\",\"cardNumber\":\"4111111111111111\","
+            + "\"expMonth\":\"12\",\"expYear\":\"" + EXP_YEAR + "\",\"cvv\":\"123\",\"invoiceNumber\":\"INV1\"}").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.converge.bin;
+
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.xml.ConvergeXmlTransaction;
+import com.example.converge.service.ConvergeClient;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BinServiceTest {
+
+    private static final String VISA = "4111111111111111";
+    private static final String MASTERCARD = "5555555555554444";
+    private static final String OTHER_VISA = "4000000000000002";
+
+    private final ConvergeClient client = mock(ConvergeClient.class);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final List<String> looked = new ArrayList<>();
+    private final Map<String, Map<String, String>> answers = new HashMap<>();
+    private ConvergeProperties properties;
+    private BinService service;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ConvergeProperties();
+        properties.getBin().setLookupMisses(true);
+        properties.getBin().setRefreshIntervalMs(3_600_000); // refreshes are driven by the tests
+        when(client.execute(any(), any())).thenAnswer(invocation -> {
+            String bin = invocation.<ConvergeXmlTransaction>getArgument(0).getFields().get("ssl_card_number").substring(0, 8);
+            looked.add(bin);
+            return answers.getOrDefault(bin, Map.of("fundingSource", "C", "prepaidSupport", "N", "CountryCode", "USA"));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) service.destroy();
+    }
+
+    @Test
+    void screensALookedUpBinWithoutAnotherRoundTrip() {
+        answers.put("41111111", Map.of("fundingSource", "D", "prepaidSupport", "Y", "CountryCode", "USA"));
+        service = service();
+
+        assertThat(service.lookup(VISA)).isEqualTo(new BinInfo(CardBrand.VISA, false, false, null));
+        service.refresh();
+
+        assertThat(service.lookup(VISA)).isEqualTo(new BinInfo(CardBrand.VISA, true, true, "USA"));
+        service.refresh();
+        assertThat(looked).containsExactly("41111111");
+        assertThat(registry.get("converge.bin.ranges").gauge().value()).as("learned BINs do not rebuild the table").isZero();
+        assertThat(registry.get("converge.bin.learned").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void remembersOnlyBinsConvergeDoesNotKnow() {
+        answers.put("41111111", Map.of("errorCode", "5000", "errorMessage", "Credit Card Number Invalid"));
+        answers.put("55555555", Map.of("errorCode", "4025", "errorMessage", "Invalid Credentials"));
+        service = service();
+
+        service.lookup(VISA);
+        service.lookup(MASTERCARD);
+        service.refresh();
+        service.lookup(VISA);
+        service.lookup(MASTERCARD);
+        service.refresh();
+
+        assertThat(looked).containsExactlyInAnyOrder("41111111", "55555555", "55555555");
+        assertThat(service.lookup(VISA)).isEqualTo(new BinInfo(CardBrand.VISA, false, false, null));
+    }
+
+    @Test
+    void keepsOnlyTheMostRecentlyLearnedBins() {
+        properties.getBin().setMaxLearned(2);
+        service = service();
+
+        for (String card : List.of(VISA, MASTERCARD, OTHER_VISA)) {
+            service.lookup(card);
+            service.refresh();
+        }
+        looked.clear();
+        for (String card : List.of(VISA, MASTERCARD, OTHER_VISA)) service.lookup(card);
+        service.refresh();
+
+        assertThat(registry.get("converge.bin.learned").gauge().value()).isEqualTo(2);
+        assertThat(looked).containsExactly("41111111");
+    }
+
+    @Test
+    void forgetsLearnedBinsAfterTheirTtl() throws InterruptedException {
+        properties.getBin().setLearnedTtlMs(20);
+        service = service();
+
+        service.lookup(VISA);
+        service.refresh();
+        Thread.sleep(40);
+        service.lookup(VISA);
+        service.refresh();
+
+        assertThat(looked).containsExactly("41111111", "41111111");
+    }
+
+    private BinService service() {
+        return new BinService(client, new ConvergeResponseDecoder(), properties, registry);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.converge.bin;
+
+import com.example.converge.bin.BinTable.Range;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BinTableTest {
+
+    private static final BinInfo VISA = new BinInfo(CardBrand.VISA, false, false, "US");
+    private static final BinInfo DEBIT = new BinInfo(CardBrand.VISA, true, false, "US");
+    private static final BinInfo PREPAID = new BinInfo(CardBrand.VISA, false, true, "CA");
+
+    @Test
+    void theNarrowerOfTwoNestedRangesWins() {
+        BinTable table = BinTable.build(List.of(Range.of("4111", "4111", VISA), Range.of("41111111", "41111111", DEBIT)));
+
+        assertThat(table.find(41111110)).isEqualTo(VISA);
+        assertThat(table.find(41111111)).isEqualTo(DEBIT);
+        assertThat(table.find(41111112)).isEqualTo(VISA);
+        assertThat(table.find(41120000)).isNull();
+    }
+
+    @Test
+    void theRangeStartingLaterWinsAPartialOverlapWhateverItsPositionInTheList() {
+        Range first = new Range(41000000, 41999999, VISA);
+        Range second = new Range(41500000, 42499999, DEBIT);
+
+        for (List<Range> ranges : List.of(List.of(first, second), List.of(second, first))) {
+            BinTable table = BinTable.build(ranges);
+            assertThat(table.find(41499999)).isEqualTo(VISA);
+            assertThat(table.find(41500000)).isEqualTo(DEBIT);
+            assertThat(table.find(41999999)).isEqualTo(DEBIT);
+            assertThat(table.find(42499999)).isEqualTo(DEBIT);
+        }
+    }
+
+    @Test
+    void theLaterOfTwoIdenticalRangesWins() {
+        BinTable table = BinTable.build(List.of(Range.of("4111", "4111", VISA), Range.of("4111", "4111", PREPAID)));
+
+        assertThat(table.find(41110000)).isEqualTo(PREPAID);
+        assertThat(table.find(41119999)).isEqualTo(PREPAID);
+    }
+}
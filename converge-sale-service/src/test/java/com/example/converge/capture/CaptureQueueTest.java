@@ -0,0 +1,255 @@
+package com.example.converge.capture;
+
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.response.SaleResponse;
+import com.example.converge.dto.xml.ConvergeXmlTransaction;
+import com.example.converge.merchant.MerchantRegistry;
+import com.example.converge.service.ConvergeClient;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CaptureQueueTest {
+
+    private static final String COMPLETED = "<txn><ssl_result>0</ssl_result><ssl_txn_id>TXN-1</ssl_txn_id></txn>";
+    private static final String ERROR_CODE = "<txn><errorCode>5040</errorCode><errorMessage>Invalid transaction</errorMessage></txn>";
+
+    @TempDir
+    Path dir;
+
+    private final ConvergeClient client = mock(ConvergeClient.class);
+    private final List<String> sent = new CopyOnWriteArrayList<>();
+    private final Deque<Object> answers = new ConcurrentLinkedDeque<>();
+    private final List<CaptureQueue> opened = new ArrayList<>();
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private ConvergeProperties properties;
+    private MerchantRegistry merchants;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        properties = new ConvergeProperties();
+        properties.getCapture().setIntervalMs(3_600_000); // runs are driven by the tests
+        merchants = new MerchantRegistry(properties, registry);
+        when(client.execute(any(), any())).thenAnswer(invocation -> {
+            sent.add(invocation.<ConvergeXmlTransaction>getArgument(0).getTransactionType());
+            Object answer = answers.poll();
+            if (answer instanceof RuntimeException e) throw e;
+            if (answer instanceof Error e) throw e;
+            InputStream body = new ByteArrayInputStream(((String) answer).getBytes(StandardCharsets.UTF_8));
+            return invocation.<Function<InputStream, Object>>getArgument(1).apply(body);
+        });
+    }
+
+    @AfterEach
+    void closeAll() throws IOException {
+        for (CaptureQueue queue : opened) queue.destroy();
+    }
+
+    @Test
+    void capturesAQueuedAuthorization() {
+        CaptureQueue queue = queueWithOneAuthorization();
+        answers.add(COMPLETED);
+
+        queue.drain();
+
+        assertThat(sent).containsExactly("cccomplete");
+        assertThat(queue.depth()).isZero();
+        assertThat(captured()).isEqualTo(1);
+    }
+
+    @Test
+    void resendsACaptureThatFailedBeforeItWasSent() {
+        CaptureQueue queue = queueWithOneAuthorization();
+        answers.add(new ResourceAccessException("I/O error", new ConnectException("refused")));
+        answers.add(COMPLETED);
+
+        queue.drain();
+        assertThat(queue.depth()).isOne();
+        queue.drain();
+
+        assertThat(sent).containsExactly("cccomplete", "cccomplete");
+        assertThat(queue.depth()).isZero();
+    }
+
+    @Test
+    void asksConvergeBeforeResendingACaptureThatTimedOut() {
+        CaptureQueue queue = queueWithOneAuthorization();
+        answers.add(new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out")));
+        answers.add(txnlist("CCCOMPLETE"));
+
+        queue.drain();
+        assertThat(queue.depth()).isOne();
+        queue.drain();
+
+        assertThat(sent).containsExactly("cccomplete", "txnquery");
+        assertThat(queue.depth()).isZero();
+        assertThat(captured()).isEqualTo(1);
+    }
+
+    @Test
+    void resendsAnInDoubtCaptureConvergeStillListsAsAnAuthorization() {
+        CaptureQueue queue = queueWithOneAuthorization();
+        answers.add(new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out")));
+        answers.add(txnlist("CCAUTHONLY"));
+        answers.add(COMPLETED);
+
+        queue.drain();
+        queue.drain();
+
+        assertThat(sent).containsExactly("cccomplete", "txnquery", "cccomplete");
+        assertThat(queue.depth()).isZero();
+    }
+
+    @Test
+    void keepsACaptureInDoubtWhileConvergeCannotBeAsked() {
+        CaptureQueue queue = queueWithOneAuthorization();
+        answers.add(new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out")));
+        answers.add(new ResourceAccessException("I/O error", new ConnectException("refused")));
+        answers.add(txnlist("CCCOMPLETE"));
+
+        queue.drain();
+        queue.drain();
+        queue.drain();
+
+        assertThat(sent).containsExactly("cccomplete", "txnquery", "txnquery");
+        assertThat(queue.depth()).isZero();
+    }
+
+    @Test
+    void anInDoubtCaptureIsStillAskedAboutAfterARestart() throws IOException {
+        CaptureQueue queue = queueWithOneAuthorization();
+        answers.add(new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out")));
+        queue.drain();
+        queue.destroy();
+
+        CaptureQueue restarted = queue(storeFile());
+        answers.add(txnlist("CCCOMPLETE"));
+        restarted.drain();
+
+        assertThat(sent).containsExactly("cccomplete", "txnquery");
+        assertThat(restarted.depth()).isZero();
+    }
+
+    @Test
+    void anErrorCodeForACaptureThatWentThroughCountsAsCaptured() {
+        CaptureQueue queue = queueWithOneAuthorization();
+        answers.add(ERROR_CODE);
+        answers.add(txnlist("CCCOMPLETE"));
+
+        queue.drain();
+
+        assertThat(sent).containsExactly("cccomplete", "txnquery");
+        assertThat(queue.depth()).isZero();
+        assertThat(captured()).isEqualTo(1);
+        assertThat(failed()).isZero();
+    }
+
+    @Test
+    void dropsACaptureConvergeRefusesThatWasNotCompleted() {
+        CaptureQueue queue = queueWithOneAuthorization();
+        answers.add(ERROR_CODE);
+        answers.add(txnlist("CCAUTHONLY"));
+
+        queue.drain();
+
+        assertThat(sent).containsExactly("cccomplete", "txnquery");
+        assertThat(queue.depth()).isZero();
+        assertThat(captured()).isZero();
+        assertThat(failed()).isEqualTo(1);
+    }
+
+    @Test
+    void keepsARefusedCaptureWhileConvergeCannotBeAsked() {
+        CaptureQueue queue = queueWithOneAuthorization();
+        answers.add(ERROR_CODE);
+        answers.add(new ResourceAccessException("I/O error", new ConnectException("refused")));
+
+        queue.drain();
+
+        assertThat(queue.depth()).isOne();
+        assertThat(failed()).isZero();
+    }
+
+    @Test
+    void anErrorNeitherLosesTheBatchNorStopsTheSchedule() throws InterruptedException {
+        properties.getCapture().setIntervalMs(10);
+        CaptureQueue queue = queueWithOneAuthorization();
+        answers.add(new StackOverflowError());
+        answers.add(COMPLETED);
+
+        // depth() also reads zero while a run has the capture in hand, so wait for the outcome
+        for (int i = 0; i < 200 && captured() == 0; i++) Thread.sleep(10);
+
+        assertThat(sent).containsExactly("cccomplete", "cccomplete");
+        assertThat(queue.depth()).isZero();
+    }
+
+    @Test
+    void staysOffWithoutAStoreFile() {
+        CaptureQueue queue = queue(null);
+
+        assertThat(queue.isEnabled()).isFalse();
+        assertThatThrownBy(() -> queue.enqueue(merchants.defaultMerchant(), "INV1", "10.00", new SaleResponse()))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    private double captured() {
+        return registry.get("converge.capture").tag("result", "captured").counter().count();
+    }
+
+    private double failed() {
+        return registry.get("converge.capture").tag("result", "failed").counter().count();
+    }
+
+    private CaptureQueue queueWithOneAuthorization() {
+        CaptureQueue queue = queue(storeFile());
+        SaleResponse authorization = new SaleResponse();
+        authorization.setApproved(true);
+        authorization.setTransactionId("TXN-1");
+        queue.enqueue(merchants.defaultMerchant(), "INV1", "10.00", authorization);
+        return queue;
+    }
+
+    private CaptureQueue queue(String storeFile) {
+        properties.getCapture().setStoreFile(storeFile);
+        CaptureQueue queue = new CaptureQueue(client, new ConvergeResponseDecoder(), merchants, properties, new ObjectMapper(), registry);
+        opened.add(queue);
+        return queue;
+    }
+
+    private String storeFile() {
+        return dir.resolve("captures.jsonl").toString();
+    }
+
+    private static String txnlist(String transactionType) {
+        return "<txnlist><ssl_txn_count>1</ssl_txn_count><txn><ssl_txn_id>TXN-1</ssl_txn_id><ssl_transaction_type>"
+            + transactionType + "</ssl_transaction_type><ssl_result>0</ssl_result></txn></txnlist>";
+    }
+}
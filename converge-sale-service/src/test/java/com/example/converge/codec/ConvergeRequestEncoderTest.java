@@ -0,0 +1,169 @@
+package com.example.converge.codec;
+
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.xml.ConvergeSaleXmlRequest;
+import com.example.converge.dto.xml.ConvergeXmlTransaction;
+import com.example.converge.merchant.MerchantRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Marshaller;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConvergeRequestEncoderTest {
+
+    private static final String NAME = "Zoë & <Ann> O'Brien-Smith";
+    private static final String ADDRESS = "12 Rue de l'Église > 3 + 4% #5 東京 😀";
+
+    private final ConvergeRequestEncoder encoder = new ConvergeRequestEncoder(merchants("my_vid", "webpage", "P&N<1>"));
+
+    @Test
+    void writesTheSameBodyAsTheJaxbFormPost() throws Exception {
+        ConvergeSaleXmlRequest request = sale("my_vid", "webpage", "P&N<1>");
+
+        assertThat(encode(request)).isEqualTo(jaxbFormBody(request));
+    }
+
+    @Test
+    void roundTripsCardholderAndAddressFields() throws IOException {
+        ConvergeSaleXmlRequest request = sale("my_vid", "webpage", "P&N<1>");
+
+        Map<String, String> fields = decodeBody(encode(request));
+
+        assertThat(fields).containsEntry("ssl_first_name", NAME).containsEntry("ssl_last_name", NAME)
+            .containsEntry("ssl_avs_address", ADDRESS).containsEntry("ssl_avs_zip", "AB1 2CD")
+            .containsEntry("ssl_pin", "P&N<1>").containsEntry("ssl_amount", "10.00");
+    }
+
+    @Test
+    void reportsTheLengthOfTheBytesItWrites() throws IOException {
+        ConvergeSaleXmlRequest request = sale("my_vid", "webpage", "P&N<1>");
+        request.setAvsAddress(ADDRESS.repeat(40)); // past the writer's buffer
+        ConvergeXmlTransaction query = transaction("my_vid", "webpage", "P&N<1>").field("ssl_search_name", NAME);
+
+        assertThat(encoder.contentLength(request)).isEqualTo(encode(request).length);
+        assertThat(encoder.contentLength(query)).isEqualTo(encode(query).length);
+    }
+
+    @Test
+    void theCachedCredentialPrefixMatchesEncodingPerRequest() throws IOException {
+        ConvergeRequestEncoder uncached = new ConvergeRequestEncoder(merchants(null, null, null));
+        ConvergeSaleXmlRequest registered = sale("my_vid", "webpage", "P&N<1>");
+        ConvergeSaleXmlRequest otherUser = sale("my_vid", "apiuser", "Q 2");
+
+        assertThat(encode(registered)).isEqualTo(encode(uncached, registered));
+        assertThat(encode(otherUser)).isEqualTo(encode(uncached, otherUser));
+        assertThat(decodeBody(encode(otherUser))).containsEntry("ssl_user_id", "apiuser").containsEntry("ssl_pin", "Q 2");
+        assertThat(encode(transaction("my_vid", "webpage", "P&N<1>")))
+            .isEqualTo(encode(uncached, transaction("my_vid", "webpage", "P&N<1>")));
+    }
+
+    @Test
+    void transactionFieldsRoundTrip() throws IOException {
+        ConvergeXmlTransaction capture = transaction("my_vid", "webpage", "P&N<1>")
+            .field("ssl_txn_id", "TXN-1").field("ssl_description", ADDRESS).field("ssl_skipped", null);
+
+        Map<String, String> fields = decodeBody(encode(capture));
+
+        assertThat(fields).containsOnly(Map.entry("ssl_merchant_ID", "my_vid"), Map.entry("ssl_user_id", "webpage"),
+            Map.entry("ssl_pin", "P&N<1>"), Map.entry("ssl_transaction_type", "cccomplete"),
+            Map.entry("ssl_txn_id", "TXN-1"), Map.entry("ssl_description", ADDRESS));
+    }
+
+    @Test
+    void escapesTextLikeUrlEncoderOverXmlEscapedText() throws IOException {
+        for (String text : new String[] {"a&b<c>d", "plain text", "100% ~!@#$^*()[]{}|\\\"';:,./?=", "Zoë Åsa",
+            "東京 😀", "lone \uD83D surrogate", "trailing \uDE00", "\u007F\u0080߿ࠀ￿"}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            FormBodyWriter writer = FormBodyWriter.to(bytes);
+            FormBodyWriter measuring = FormBodyWriter.measuring();
+            writer.writeText(text);
+            writer.flush();
+            measuring.writeText(text);
+
+            String escaped = text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+            assertThat(bytes.toString(StandardCharsets.US_ASCII)).as(text).isEqualTo(URLEncoder.encode(escaped, StandardCharsets.UTF_8));
+            assertThat(measuring.length()).as(text).isEqualTo(bytes.size());
+        }
+    }
+
+    private byte[] encode(ConvergeSaleXmlRequest request) throws IOException {
+        return encode(encoder, request);
+    }
+
+    private byte[] encode(ConvergeXmlTransaction transaction) throws IOException {
+        return encode(encoder, transaction);
+    }
+
+    private static byte[] encode(ConvergeRequestEncoder encoder, ConvergeSaleXmlRequest request) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.encode(request, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] encode(ConvergeRequestEncoder encoder, ConvergeXmlTransaction transaction) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.encode(transaction, out);
+        return out.toByteArray();
+    }
+
+    // what ConvergeClient sent before the encoder: a JAXB fragment, form-encoded by FormHttpMessageConverter
+    private static byte[] jaxbFormBody(ConvergeSaleXmlRequest request) throws JAXBException {
+        Marshaller marshaller = JAXBContext.newInstance(ConvergeSaleXmlRequest.class).createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+        StringWriter xml = new StringWriter();
+        marshaller.marshal(request, xml);
+        return ("xmldata=" + URLEncoder.encode(xml.toString(), StandardCharsets.UTF_8)).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static Map<String, String> decodeBody(byte[] body) {
+        String form = new String(body, StandardCharsets.US_ASCII);
+        assertThat(form).startsWith("xmldata=");
+        String xml = URLDecoder.decode(form.substring("xmldata=".length()), StandardCharsets.UTF_8);
+        return new ConvergeResponseDecoder().decodeFields(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static ConvergeSaleXmlRequest sale(String merchantId, String userId, String pin) {
+        ConvergeSaleXmlRequest request = new ConvergeSaleXmlRequest();
+        request.setMerchantId(merchantId);
+        request.setUserId(userId);
+        request.setPin(pin);
+        request.setFirstName(NAME);
+        request.setLastName(NAME);
+        request.setCardNumber("4111111111111111");
+        request.setExpDateMmYy("1230");
+        request.setCvv("123");
+        request.setAmount("10.00");
+        request.setAvsAddress(ADDRESS);
+        request.setAvsZip("AB1 2CD");
+        request.setInvoiceNumber("INV-1/ä");
+        return request;
+    }
+
+    private static ConvergeXmlTransaction transaction(String merchantId, String userId, String pin) {
+        ConvergeXmlTransaction transaction = new ConvergeXmlTransaction("cccomplete");
+        transaction.setMerchantId(merchantId);
+        transaction.setUserId(userId);
+        transaction.setPin(pin);
+        return transaction;
+    }
+
+    private static MerchantRegistry merchants(String merchantId, String userId, String pin) {
+        ConvergeProperties properties = new ConvergeProperties();
+        properties.setSslMerchantId(merchantId);
+        properties.setSslUserId(userId);
+        properties.setSslPin(pin);
+        return new MerchantRegistry(properties, new SimpleMeterRegistry());
+    }
+}
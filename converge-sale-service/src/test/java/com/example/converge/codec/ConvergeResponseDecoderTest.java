@@ -0,0 +1,116 @@
+package com.example.converge.codec;
+
+import com.example.converge.dto.xml.ConvergeSaleXmlResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ConvergeResponseDecoderTest {
+
+    private final ConvergeResponseDecoder decoder = new ConvergeResponseDecoder();
+
+    @Test
+    void decodesAnApproval() {
+        ConvergeSaleXmlResponse response = decoder.decode(body("""
+            <?xml version="1.0" encoding="UTF-8"?>
+            <txn>
+              <ssl_result>0</ssl_result>
+              <ssl_result_message>APPROVAL</ssl_result_message>
+              <ssl_txn_id>010120A1-1234-5678</ssl_txn_id>
+              <ssl_approval_code>CMC142</ssl_approval_code>
+              <ssl_avs_response>Y</ssl_avs_response>
+              <ssl_cvv2_response>M</ssl_cvv2_response>
+              <ssl_issuer_response>00</ssl_issuer_response>
+              <ssl_txn_time>01/01/2026 01:02:03 PM</ssl_txn_time>
+              <ssl_card_number>41**********1111</ssl_card_number>
+              <ssl_loyalty><ssl_points>12</ssl_points></ssl_loyalty>
+            </txn>"""));
+
+        assertThat(response.getResult()).isEqualTo("0");
+        assertThat(response.getResultMessage()).isEqualTo("APPROVAL");
+        assertThat(response.getTransactionId()).isEqualTo("010120A1-1234-5678");
+        assertThat(response.getApprovalCode()).isEqualTo("CMC142");
+        assertThat(response.getAvsResponse()).isEqualTo("Y");
+        assertThat(response.getCvv2Response()).isEqualTo("M");
+        assertThat(response.getIssuerResponse()).isEqualTo("00");
+        assertThat(response.getTxnTime()).isEqualTo("01/01/2026 01:02:03 PM");
+        assertThat(response.getErrorCode()).isNull();
+    }
+
+    @Test
+    void decodesADeclineWithEscapedAndMultiByteText() {
+        ConvergeSaleXmlResponse response = decoder.decode(body(
+            "<txn><ssl_result>1</ssl_result><ssl_result_message>DECLINED &amp; &lt;held&gt; – Zoë 東京 😀</ssl_result_message>"
+                + "<ssl_txn_id>TXN-2</ssl_txn_id></txn>"));
+
+        assertThat(response.getResult()).isEqualTo("1");
+        assertThat(response.getResultMessage()).isEqualTo("DECLINED & <held> – Zoë 東京 😀");
+        assertThat(response.getTransactionId()).isEqualTo("TXN-2");
+    }
+
+    @Test
+    void decodesAnErrorCodeResponse() {
+        ConvergeSaleXmlResponse response = decoder.decode(body(
+            "<txn><errorCode>4000</errorCode><errorName>VID Not Supplied</errorName>"
+                + "<errorMessage>The VirtualMerchant ID was not supplied in the authorization request.</errorMessage></txn>"));
+
+        assertThat(response.getErrorCode()).isEqualTo("4000");
+        assertThat(response.getErrorName()).isEqualTo("VID Not Supplied");
+        assertThat(response.getErrorMessage()).startsWith("The VirtualMerchant ID");
+        assertThat(response.getResult()).isNull();
+    }
+
+    @Test
+    void decodesEveryFieldOfAFlatResponse() {
+        Map<String, String> fields = decoder.decodeFields(body(
+            "<txn><ssl_result>0</ssl_result><ssl_txn_id>TXN-1</ssl_txn_id><ssl_bin_name>Caf&#233; Bank</ssl_bin_name></txn>"));
+
+        assertThat(fields).containsOnly(Map.entry("ssl_result", "0"), Map.entry("ssl_txn_id", "TXN-1"),
+            Map.entry("ssl_bin_name", "Café Bank"));
+    }
+
+    @Test
+    void streamsATransactionListOneTxnAtATime() {
+        List<Map<String, String>> txns = new ArrayList<>();
+        Map<String, String> list = decoder.forEachTxn(body(
+            "<txnlist><ssl_txn_count>2</ssl_txn_count><txn><ssl_txn_id>A</ssl_txn_id></txn>"
+                + "<ssl_meta><ignored>x</ignored></ssl_meta><txn><ssl_txn_id>B</ssl_txn_id></txn></txnlist>"), txns::add);
+
+        assertThat(txns).extracting(txn -> txn.get("ssl_txn_id")).containsExactly("A", "B");
+        assertThat(list).containsOnly(Map.entry("ssl_txn_count", "2"));
+    }
+
+    @Test
+    void rejectsInternalEntities() {
+        String bomb = """
+            <?xml version="1.0"?>
+            <!DOCTYPE txn [<!ENTITY a "aaaaaaaaaa"><!ENTITY b "&a;&a;&a;&a;&a;&a;&a;&a;&a;&a;">]>
+            <txn><ssl_result_message>&b;</ssl_result_message></txn>""";
+
+        assertThatThrownBy(() -> decoder.decode(body(bomb))).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> decoder.decodeFields(body(bomb))).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void neverResolvesExternalEntities() {
+        String external = """
+            <?xml version="1.0"?>
+            <!DOCTYPE txn [<!ENTITY secret SYSTEM "file:///etc/hostname">]>
+            <txn><ssl_result_message>&secret;</ssl_result_message></txn>""";
+
+        assertThatThrownBy(() -> decoder.decode(body(external))).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> decoder.forEachTxn(body(external), txn -> { })).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static InputStream body(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+}
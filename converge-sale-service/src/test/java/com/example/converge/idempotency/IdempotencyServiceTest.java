@@ -0,0 +1,179 @@
+package com.example.converge.idempotency;
+
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.request.SaleRequest;
+import com.example.converge.dto.response.SaleResponse;
+import com.example.converge.exception.IdempotencyConflictException;
+import com.example.converge.exception.InvoiceRequiredException;
+import com.example.converge.exception.SaleInDoubtException;
+import com.example.converge.exception.UpstreamFailureException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyServiceTest {
+
+    private IdempotencyService service;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        service = new IdempotencyService(new ConvergeProperties(), new ObjectMapper(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void replaysTheStoredResponseWithoutCallingConvergeAgain() {
+        SaleResponse first = service.execute(sale("INV1", "10.00"), () -> approved("TXN-1"));
+        SaleResponse second = service.execute(sale("INV1", "10.00"), () -> approved("TXN-2"));
+
+        assertThat(second.getTransactionId()).isEqualTo("TXN-1");
+        assertThat(second).isSameAs(first);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void rejectsTheSameInvoiceForADifferentSale() {
+        service.execute(sale("INV1", "10.00"), () -> approved("TXN-1"));
+
+        assertThatThrownBy(() -> service.execute(sale("INV1", "99.00"), () -> approved("TXN-2")))
+            .isInstanceOf(IdempotencyConflictException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void concurrentRetriesShareTheFirstCall() {
+        CompletableFuture<SaleResponse> upstream = new CompletableFuture<>();
+        CompletableFuture<SaleResponse> first = service.executeAsync(sale("INV1", "10.00"), () -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<SaleResponse> retry = service.executeAsync(sale("INV1", "10.00"), () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture(approved("TXN-2"));
+        });
+        assertThat(retry).isNotDone();
+
+        upstream.complete(response("TXN-1"));
+
+        assertThat(first.join().getTransactionId()).isEqualTo("TXN-1");
+        assertThat(retry.join().getTransactionId()).isEqualTo("TXN-1");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void aTimeoutAfterSendingBlocksRetriesAsInDoubt() {
+        assertThatThrownBy(() -> service.execute(sale("INV1", "10.00"), () -> fail(UpstreamFailureException.Kind.READ_TIMEOUT)))
+            .isInstanceOf(UpstreamFailureException.class);
+
+        assertThatThrownBy(() -> service.execute(sale("INV1", "10.00"), () -> approved("TXN-1")))
+            .isInstanceOf(SaleInDoubtException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void aBrokenConnectionAfterSendingBlocksRetriesOnTheAsyncPathToo() {
+        CompletableFuture<SaleResponse> failed = service.executeAsync(sale("INV1", "10.00"),
+            () -> CompletableFuture.failedFuture(new UpstreamFailureException(UpstreamFailureException.Kind.IO_ERROR, "reset", null)));
+        assertThat(failed).isCompletedExceptionally();
+
+        assertThatThrownBy(() -> service.executeAsync(sale("INV1", "10.00"), () -> CompletableFuture.completedFuture(approved("TXN-1"))))
+            .isInstanceOf(SaleInDoubtException.class);
+        assertThat(calls).hasValue(0);
+    }
+
+    @Test
+    void aFailureBeforeSendingCanBeRetried() {
+        assertThatThrownBy(() -> service.execute(sale("INV1", "10.00"), () -> fail(UpstreamFailureException.Kind.CONNECT_FAILURE)))
+            .isInstanceOf(UpstreamFailureException.class);
+
+        assertThat(service.execute(sale("INV1", "10.00"), () -> approved("TXN-1")).getTransactionId()).isEqualTo("TXN-1");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void anAnswerWithoutATransactionIdIsNotRemembered() {
+        service.execute(sale("INV1", "10.00"), () -> approved(null));
+        service.execute(sale("INV1", "10.00"), () -> approved("TXN-1"));
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void aSaleWithoutAnInvoiceNumberIsSentEveryTime() {
+        service.execute(sale(null, "10.00"), () -> approved("TXN-1"));
+        service.execute(sale(null, "10.00"), () -> approved("TXN-2"));
+
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void requiresAnInvoiceNumberWhenConfigured() {
+        ConvergeProperties properties = new ConvergeProperties();
+        properties.getIdempotency().setRequireInvoiceNumber(true);
+        service = new IdempotencyService(properties, new ObjectMapper(), new SimpleMeterRegistry());
+
+        assertThatThrownBy(() -> service.execute(sale(null, "10.00"), () -> approved("TXN-1")))
+            .isInstanceOf(InvoiceRequiredException.class);
+        assertThat(calls).hasValue(0);
+    }
+
+    @Test
+    void theStoreFileIsCompactedWhileRunning(@TempDir Path dir) throws IOException {
+        long now = System.currentTimeMillis();
+        try (FileIdempotencyStore store = new FileIdempotencyStore(dir.resolve("idempotency.jsonl"), new ObjectMapper(), 4)) {
+            store.open();
+            store.append(new CompletedSale("INV1", "f", now + 60_000, response("TXN-1")));
+            for (int i = 0; i < 7; i++) store.append(new CompletedSale("OLD" + i, "f", now - 1, response("TXN-" + i)));
+
+            assertThat(store.lines()).isEqualTo(2);
+        }
+        try (FileIdempotencyStore reopened = new FileIdempotencyStore(dir.resolve("idempotency.jsonl"), new ObjectMapper())) {
+            assertThat(reopened.open()).extracting(CompletedSale::invoiceNumber).containsExactly("INV1");
+        }
+    }
+
+    @Test
+    void invoicesAreScopedToTheirMerchant() {
+        SaleRequest other = sale("INV1", "10.00");
+        other.setMerchantKey("acme");
+
+        service.execute(sale("INV1", "10.00"), () -> approved("TXN-1"));
+        assertThat(service.execute(other, () -> approved("TXN-2")).getTransactionId()).isEqualTo("TXN-2");
+    }
+
+    private SaleResponse approved(String transactionId) {
+        calls.incrementAndGet();
+        return response(transactionId);
+    }
+
+    private SaleResponse fail(UpstreamFailureException.Kind kind) {
+        calls.incrementAndGet();
+        throw new UpstreamFailureException(kind, kind.name(), null);
+    }
+
+    private static SaleResponse response(String transactionId) {
+        SaleResponse response = new SaleResponse();
+        response.setApproved(true);
+        response.setTransactionId(transactionId);
+        return response;
+    }
+
+    private static SaleRequest sale(String invoiceNumber, String amount) {
+        SaleRequest request = new SaleRequest();
+        request.setInvoiceNumber(invoiceNumber);
+        request.setAmount(amount);
+        request.setCurrency("USD");
+        request.setCardNumber("4111111111111111");
+        return request;
+    }
+}
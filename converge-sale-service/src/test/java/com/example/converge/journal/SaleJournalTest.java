@@ -0,0 +1,181 @@
+package com.example.converge.journal;
+
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.xml.ConvergeSaleXmlRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SaleJournalTest {
+
+    private static final int SEGMENT_BYTES = 64 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private final List<SaleJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeAll() throws IOException {
+        for (SaleJournal journal : opened) journal.destroy();
+    }
+
+    @Test
+    void reportsSalesSentWithoutAnOutcomeAfterARestart() throws IOException {
+        SaleJournal journal = open(8);
+        long settled = journal.intent(sale("INV1", "4111111111111111"));
+        journal.outcome(settled, "approved", "TXN-1", System.nanoTime());
+        journal.intent(sale("INV2", "5555555555554444"));
+        journal.destroy();
+
+        List<JournalEntry> inDoubt = open(8).inDoubt();
+
+        assertThat(inDoubt).singleElement().satisfies(entry -> {
+            assertThat(entry.invoiceNumber()).isEqualTo("INV2");
+            assertThat(entry.amount()).isEqualTo("10.00");
+            assertThat(entry.maskedCardNumber()).isEqualTo("555555******4444");
+            assertThat(entry.merchantId()).isEqualTo("M1");
+            assertThat(entry.outcome()).isNull();
+        });
+    }
+
+    @Test
+    void reportsEachInDoubtSaleOnlyOnce() throws IOException {
+        SaleJournal journal = open(8);
+        journal.intent(sale("INV1", "4111111111111111"));
+        journal.destroy();
+        open(8).destroy();
+
+        assertThat(open(8).inDoubt()).isEmpty();
+    }
+
+    @Test
+    void streamsSalesWithTheirOutcomes() throws IOException {
+        SaleJournal journal = open(8);
+        long first = journal.intent(sale("INV1", "4111111111111111"));
+        journal.intent(sale("INV2", "4111111111111111"));
+        journal.outcome(first, "declined", "TXN-1", System.nanoTime());
+
+        List<JournalEntry> entries = new ArrayList<>();
+        journal.forEach(Long.MIN_VALUE, Long.MAX_VALUE, entries::add);
+
+        assertThat(entries).extracting(JournalEntry::invoiceNumber, JournalEntry::outcome, JournalEntry::transactionId)
+            .containsExactly(tuple("INV1", "declined", "TXN-1"),
+                tuple("INV2", null, null));
+    }
+
+    @Test
+    void restartsAppendToTheLastSegmentInsteadOfCreatingOne() throws IOException {
+        SaleJournal journal = open(8);
+        journal.outcome(journal.intent(sale("INV1", "4111111111111111")), "approved", "TXN-1", System.nanoTime());
+        journal.destroy();
+        for (int i = 0; i < 5; i++) open(8).destroy();
+
+        SaleJournal reopened = open(8);
+        reopened.outcome(reopened.intent(sale("INV2", "4111111111111111")), "approved", "TXN-2", System.nanoTime());
+        List<JournalEntry> entries = new ArrayList<>();
+        reopened.forEach(Long.MIN_VALUE, Long.MAX_VALUE, entries::add);
+
+        assertThat(segments()).hasSize(1);
+        assertThat(entries).extracting(JournalEntry::invoiceNumber).containsExactly("INV1", "INV2");
+        assertThat(entries).extracting(JournalEntry::id).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void startsANewSegmentAfterATornOne() throws IOException {
+        SaleJournal journal = open(8);
+        journal.intent(sale("INV1", "4111111111111111"));
+        journal.destroy();
+        Path torn = segments().get(0);
+        try (FileChannel channel = FileChannel.open(torn, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0x7f}), JournalSegment.HEADER_BYTES + 4); // corrupt the checksum
+        }
+
+        SaleJournal reopened = open(8);
+
+        assertThat(reopened.inDoubt()).isEmpty();
+        assertThat(segments()).hasSize(2).first().isEqualTo(torn);
+    }
+
+    @Test
+    void appliesRetentionOnStartup() throws IOException {
+        for (long number = 1; number <= 5; number++) JournalSegment.create(dir, number, SEGMENT_BYTES).close();
+        Files.write(segments().get(4), new byte[] {1}, StandardOpenOption.TRUNCATE_EXISTING); // not reusable
+
+        open(3);
+
+        assertThat(segments()).extracting(JournalSegment::numberOf).containsExactly(4L, 5L, 6L);
+    }
+
+    @Test
+    void keepsAtMostMaxSegmentsWhileRolling() throws IOException {
+        SaleJournal journal = open(2);
+        for (int i = 0; i < 2_000; i++) {
+            journal.outcome(journal.intent(sale("INV" + i, "4111111111111111")), "approved", "TXN-" + i, System.nanoTime());
+        }
+
+        // the flusher may also have prepared the next segment ahead of the roll
+        assertThat(segments()).hasSizeLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void staysOffWithoutADirectory() {
+        SaleJournal journal = new SaleJournal(new ConvergeProperties(), new SimpleMeterRegistry());
+        opened.add(journal);
+
+        assertThat(journal.isEnabled()).isFalse();
+        assertThat(journal.intent(sale("INV1", "4111111111111111"))).isZero();
+    }
+
+    @Test
+    void keepsTheDirectoryAndSegmentsOwnerOnly() throws IOException {
+        assumeTrue(dir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        open(8);
+
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(dir))).isEqualTo("rwx------");
+        for (Path segment : segments()) {
+            assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(segment))).isEqualTo("rw-------");
+        }
+    }
+
+    private SaleJournal open(int maxSegments) {
+        ConvergeProperties properties = new ConvergeProperties();
+        properties.getJournal().setDir(dir.toString());
+        properties.getJournal().setSegmentBytes(SEGMENT_BYTES);
+        properties.getJournal().setMaxSegments(maxSegments);
+        SaleJournal journal = new SaleJournal(properties, new SimpleMeterRegistry());
+        opened.add(journal);
+        return journal;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    private static ConvergeSaleXmlRequest sale(String invoiceNumber, String cardNumber) {
+        ConvergeSaleXmlRequest request = new ConvergeSaleXmlRequest();
+        request.setMerchantId("M1");
+        request.setInvoiceNumber(invoiceNumber);
+        request.setAmount("10.00");
+        request.setCardNumber(cardNumber);
+        return request;
+    }
+}
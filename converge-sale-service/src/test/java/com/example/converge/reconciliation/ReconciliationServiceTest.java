@@ -0,0 +1,128 @@
+package com.example.converge.reconciliation;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReconciliationServiceTest {
+
+    private final StringWriter lines = new StringWriter();
+    private final long[] counts = new long[Discrepancy.values().length];
+    private RecordIndex byTxnId;
+    private RecordIndex inDoubtByInvoice;
+    private ReconciliationService.Report report;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        byTxnId = new RecordIndex(16);
+        inDoubtByInvoice = new RecordIndex(16);
+        byTxnId.put(RecordIndex.hash("TXN-1"), 1000, 1, RecordIndex.APPROVED);
+        byTxnId.put(RecordIndex.hash("TXN-2"), 2000, 2, RecordIndex.DECLINED);
+        inDoubtByInvoice.put(RecordIndex.hash("INV-3"), 3000, 3, RecordIndex.IN_DOUBT);
+        JsonGenerator out = new ObjectMapper().createGenerator(lines);
+        out.setRootValueSeparator(null);
+        report = new ReconciliationService.Report(out, counts);
+    }
+
+    @Test
+    void parsesAmountsToCents() {
+        assertThat(ReconciliationService.cents("10.00")).isEqualTo(1000);
+        assertThat(ReconciliationService.cents("10")).isEqualTo(1000);
+        assertThat(ReconciliationService.cents("10.5")).isEqualTo(1050);
+        assertThat(ReconciliationService.cents(".99")).isEqualTo(99);
+        assertThat(ReconciliationService.cents("1,234.56")).isEqualTo(123456);
+        assertThat(ReconciliationService.cents("0.00")).isZero();
+    }
+
+    @Test
+    void refusesAmountsThatAreNotPlainDecimals() {
+        for (String amount : new String[] {null, "", "10.999", "1.2.3", "-5.00", "$5", "1e3", "10.00 USD"}) {
+            assertThat(ReconciliationService.cents(amount)).as(amount).isEqualTo(ReconciliationService.NO_AMOUNT);
+        }
+    }
+
+    @Test
+    void aMatchingSaleIsNotReported() throws IOException {
+        assertThat(match(txn("TXN-1", null, "CCSALE", "0", "10.00"))).isTrue();
+        assertThat(match(txn("TXN-1", null, "CCSALE", "0", "10.00"))).as("listed twice").isTrue();
+
+        assertThat(reported()).isEmpty();
+        assertThat(unmatched(byTxnId)).containsExactly(2L);
+    }
+
+    @Test
+    void reportsAmountAndResultDifferences() throws IOException {
+        assertThat(match(txn("TXN-1", null, "CCSALE", "0", "12.00"))).isTrue();
+        assertThat(match(txn("TXN-2", null, "CCSALE", "0", "20.00"))).isTrue();
+
+        assertThat(reported()).containsExactly(Discrepancy.AMOUNT_MISMATCH, Discrepancy.RESULT_MISMATCH);
+        assertThat(lines.toString()).contains("\"recordedAmount\":\"10.00\"").contains("\"convergeAmount\":\"12.00\"");
+    }
+
+    @Test
+    void aVoidOfARecordedSaleIsReportedOnce() throws IOException {
+        assertThat(match(txn("TXN-1", null, "CCVOID", "0", "10.00"))).isFalse();
+        assertThat(match(txn("TXN-9", null, "CCDELETE", "0", "10.00"))).isFalse();
+
+        assertThat(reported()).containsExactly(Discrepancy.UNEXPECTED_VOID, Discrepancy.UNEXPECTED_VOID);
+        assertThat(lines.toString()).contains("\"journalId\":1");
+        assertThat(unmatched(byTxnId)).as("not also missing at Converge").containsExactly(2L);
+    }
+
+    @Test
+    void anInDoubtSaleIsMatchedByInvoiceOnlyWhenApproved() throws IOException {
+        assertThat(match(txn("TXN-8", "INV-3", "CCSALE", "1", "30.00"))).isFalse();
+        assertThat(unmatched(inDoubtByInvoice)).containsExactly(3L);
+
+        assertThat(match(txn("TXN-7", "INV-3", "CCSALE", "0", "30.00"))).isTrue();
+
+        assertThat(reported()).containsExactly(Discrepancy.NOT_RECORDED, Discrepancy.IN_DOUBT_CHARGED);
+        assertThat(unmatched(inDoubtByInvoice)).isEmpty();
+    }
+
+    @Test
+    void anUnknownTransactionIsNotRecorded() throws IOException {
+        assertThat(match(txn("TXN-9", "INV-9", "CCSALE", "0", "5.00"))).isFalse();
+
+        assertThat(reported()).containsExactly(Discrepancy.NOT_RECORDED);
+    }
+
+    private boolean match(Map<String, String> txn) {
+        return ReconciliationService.match(txn, byTxnId, inDoubtByInvoice, report);
+    }
+
+    private List<Discrepancy> reported() throws IOException {
+        report.out().flush();
+        List<Discrepancy> kinds = new ArrayList<>();
+        for (String line : lines.toString().split("\n")) {
+            if (!line.isEmpty()) kinds.add(Discrepancy.valueOf(new ObjectMapper().readTree(line).get("discrepancy").asText()));
+        }
+        return kinds;
+    }
+
+    private static List<Long> unmatched(RecordIndex index) {
+        List<Long> journalIds = new ArrayList<>();
+        index.forEachUnmatched(slot -> journalIds.add(index.journalId(slot)));
+        return journalIds;
+    }
+
+    private static Map<String, String> txn(String txnId, String invoice, String type, String result, String amount) {
+        Map<String, String> txn = new HashMap<>();
+        txn.put("ssl_txn_id", txnId);
+        if (invoice != null) txn.put("ssl_invoice_number", invoice);
+        txn.put("ssl_transaction_type", type);
+        txn.put("ssl_result", result);
+        txn.put("ssl_amount", amount);
+        return txn;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.converge.reconciliation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecordIndexTest {
+
+    @Test
+    void findsWhatWasPutAndReplacesByKey() {
+        RecordIndex index = new RecordIndex(16);
+        index.put(RecordIndex.hash("TXN-1"), 1000, 7, RecordIndex.APPROVED);
+        index.put(RecordIndex.hash("TXN-1"), 2500, 8, RecordIndex.DECLINED);
+
+        int slot = index.find(RecordIndex.hash("TXN-1"));
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.cents(slot)).isEqualTo(2500);
+        assertThat(index.journalId(slot)).isEqualTo(8);
+        assertThat(index.state(slot)).isEqualTo(RecordIndex.DECLINED);
+        assertThat(index.find(RecordIndex.hash("TXN-2"))).isEqualTo(-1);
+    }
+
+    @Test
+    void probesPastKeysThatShareASlot() {
+        RecordIndex index = new RecordIndex(16); // 32 slots
+        for (long key = 5; key < 5 + 32 * 4; key += 32) index.put(key, key, key, RecordIndex.APPROVED);
+
+        for (long key = 5; key < 5 + 32 * 4; key += 32) {
+            assertThat(index.journalId(index.find(key))).isEqualTo(key);
+        }
+        assertThat(index.find(5 + 32 * 4)).isEqualTo(-1);
+    }
+
+    @Test
+    void keepsEveryEntryAndItsMatchedMarkWhenItGrows() {
+        RecordIndex index = new RecordIndex(16);
+        index.put(RecordIndex.hash("TXN-0"), 0, 0, RecordIndex.APPROVED);
+        index.markMatched(index.find(RecordIndex.hash("TXN-0")));
+        for (int i = 1; i < 10_000; i++) index.put(RecordIndex.hash("TXN-" + i), i, i, RecordIndex.IN_DOUBT);
+
+        assertThat(index.size()).isEqualTo(10_000);
+        for (int i = 0; i < 10_000; i++) assertThat(index.journalId(index.find(RecordIndex.hash("TXN-" + i)))).isEqualTo(i);
+        int first = index.find(RecordIndex.hash("TXN-0"));
+        assertThat(index.matched(first)).isTrue();
+        assertThat(index.state(first)).isEqualTo(RecordIndex.APPROVED);
+
+        List<Long> unmatched = new ArrayList<>();
+        index.forEachUnmatched(slot -> unmatched.add(index.journalId(slot)));
+        assertThat(unmatched).hasSize(9_999).doesNotContain(0L);
+    }
+
+    @Test
+    void neverHashesToTheEmptySlotMarker() {
+        // the only input whose mixed hash is 0
+        assertThat(RecordIndex.hash(-0x9e3779b97f4a7c15L)).isEqualTo(1);
+        assertThat(RecordIndex.hash("")).isNotZero();
+        assertThat(RecordIndex.hash(0L)).isNotZero();
+        assertThat(RecordIndex.hash("TXN-1")).isNotEqualTo(RecordIndex.hash("TXN-2"));
+    }
+}
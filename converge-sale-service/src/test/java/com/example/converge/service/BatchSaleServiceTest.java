@@ -0,0 +1,105 @@
+package com.example.converge.service;
+
+import com.example.converge.admission.AdmissionControl;
+import com.example.converge.admission.Deadline;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.request.SaleRequest;
+import com.example.converge.dto.response.SaleResponse;
+import com.example.converge.exception.ApiExceptionHandler;
+import com.example.converge.exception.CardNotAcceptedException;
+import com.example.converge.exception.InvoiceRequiredException;
+import com.example.converge.exception.LoadShedException;
+import com.example.converge.exception.UpstreamFailureException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchSaleServiceTest {
+
+    private static final String EXP_YEAR = String.valueOf(Year.now().getValue() + 5);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
+    private final SaleService saleService = mock(SaleService.class);
+    private final BatchSaleService batch;
+
+    BatchSaleServiceTest() {
+        ConvergeProperties properties = new ConvergeProperties();
+        batch = new BatchSaleService(saleService, new AdmissionControl(properties, new SimpleMeterRegistry()), factory.getValidator(),
+            objectMapper, new ApiExceptionHandler(), properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batch.destroy();
+        factory.close();
+    }
+
+    @Test
+    void reportsFailuresWithTheCodesAndMessagesOfTheSaleEndpoint() throws IOException {
+        Map<String, RuntimeException> failures = Map.of(
+            "INV1", new UpstreamFailureException(UpstreamFailureException.Kind.READ_TIMEOUT,
+                "Read timed out from https://api.convergepay.com/VirtualMerchant/processxml.do", new SocketTimeoutException()),
+            "INV2", new LoadShedException("SHED", "Overloaded; low priority sales are being shed", 1000),
+            "INV3", new CardNotAcceptedException("BRAND_NOT_ACCEPTED", "JCB cards are not accepted"),
+            "INV4", new InvoiceRequiredException("invoiceNumber is required"),
+            "INV5", new IllegalStateException("Connection pool for jdbc:postgresql://10.0.0.5/payments exhausted"));
+        when(saleService.processSale(any(SaleRequest.class), any(Deadline.class))).thenAnswer(invocation -> {
+            String invoice = invocation.<SaleRequest>getArgument(0).getInvoiceNumber();
+            if (failures.containsKey(invoice)) throw failures.get(invoice);
+            SaleResponse response = new SaleResponse();
+            response.setApproved(true);
+            return response;
+        });
+
+        List<JsonNode> lines = run("INV0", "INV1", "INV2", "INV3", "INV4", "INV5");
+
+        assertThat(lines.get(0).path("response").path("approved").asBoolean()).isTrue();
+        assertThat(lines.get(1).path("code").asText()).isEqualTo("READ_TIMEOUT");
+        assertThat(lines.get(1).path("message").asText()).startsWith("Converge did not confirm the sale");
+        assertThat(lines.get(2).path("code").asText()).isEqualTo("SHED");
+        assertThat(lines.get(3).path("code").asText()).isEqualTo("BRAND_NOT_ACCEPTED");
+        assertThat(lines.get(3).path("message").asText()).isEqualTo("JCB cards are not accepted");
+        assertThat(lines.get(4).path("errors").path("invoiceNumber").asText()).isEqualTo("must not be blank");
+        assertThat(lines.get(5).path("message").asText()).isEqualTo("Unexpected error");
+        assertThat(lines.get(5).has("code")).isFalse();
+        assertThat(lines.toString()).doesNotContain("convergepay.com", "10.0.0.5");
+    }
+
+    @Test
+    void reportsAnErrorAsUnexpected() {
+        assertThat(new ApiExceptionHandler().bodyOf(new StackOverflowError())).containsEntry("message", "Unexpected error");
+    }
+
+    private List<JsonNode> run(String... invoiceNumbers) throws IOException {
+        StringBuilder in = new StringBuilder();
+        for (String invoice : invoiceNumbers) {
+            in.append("{\"amount\":\"10.00\",\"currency\":\"USD\",\"cardNumber\":\"4111111111111111\",\"expMonth\":\"12\",")
+                .append("\"expYear\":\"").append(EXP_YEAR).append("\",\"cvv\":\"123\",\"invoiceNumber\":\"").append(invoice).append("\"}\n");
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        batch.process(new ByteArrayInputStream(in.toString().getBytes(StandardCharsets.UTF_8)), out);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) lines.add(objectMapper.readTree(line));
+        return lines;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.converge.service;
+
+import com.example.converge.admission.Deadline;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.exception.ApiExceptionHandler;
+import com.example.converge.exception.CircuitOpenException;
+import com.example.converge.exception.DeadlineExceededException;
+import com.example.converge.exception.UpstreamFailureException;
+import com.example.converge.exception.UpstreamFailureException.Kind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RetryEngineTest {
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private ConvergeProperties properties;
+    private RetryEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ConvergeProperties();
+        properties.getRetry().setBaseBackoffMs(1);
+        properties.getRetry().setMaxBackoffMs(2);
+        properties.getRetry().setMinRetriesPerSecond(100);
+        properties.getRetry().setRetryableErrorCodes(List.of("5005"));
+        engine = new RetryEngine(properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void classifiesFailuresBeforeTheRequestWasSentAsSafe() {
+        assertThat(kindOf(new ConnectException("refused"))).isEqualTo(Kind.CONNECT_FAILURE);
+        assertThat(kindOf(new UnknownHostException("api.convergepay.com"))).isEqualTo(Kind.CONNECT_FAILURE);
+        assertThat(kindOf(new ConnectTimeoutException("connect timed out"))).isEqualTo(Kind.CONNECT_FAILURE);
+        assertThat(kindOf(new HttpConnectTimeoutException("connect timed out"))).isEqualTo(Kind.CONNECT_FAILURE);
+        assertThat(kindOf(new SocketTimeoutException("Connect timed out"))).isEqualTo(Kind.CONNECT_FAILURE);
+        assertThat(kindOf(HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "", null, null, null))).isEqualTo(Kind.GATEWAY_UNAVAILABLE);
+        assertThat(kindOf(HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "", null, null, null)))
+            .isEqualTo(Kind.GATEWAY_UNAVAILABLE);
+    }
+
+    @Test
+    void classifiesFailuresAfterTheRequestWasSentAsInDoubt() {
+        assertThat(kindOf(new ResourceAccessException("I/O error", new SocketTimeoutException("Read timed out")))).isEqualTo(Kind.READ_TIMEOUT);
+        assertThat(kindOf(new CompletionException(new HttpTimeoutException("request timed out")))).isEqualTo(Kind.READ_TIMEOUT);
+        assertThat(kindOf(new ResourceAccessException("I/O error", new IOException("Connection reset")))).isEqualTo(Kind.IO_ERROR);
+        assertThat(kindOf(HttpServerErrorException.create(HttpStatus.INTERNAL_SERVER_ERROR, "", null, null, null))).isEqualTo(Kind.SERVER_ERROR);
+        assertThat(kindOf(HttpServerErrorException.create(HttpStatus.GATEWAY_TIMEOUT, "", null, null, null))).isEqualTo(Kind.SERVER_ERROR);
+        for (Kind kind : List.of(Kind.READ_TIMEOUT, Kind.IO_ERROR, Kind.SERVER_ERROR, Kind.INVALID_RESPONSE)) {
+            assertThat(kind.isSafeToRetry()).as(kind.name()).isFalse();
+        }
+    }
+
+    @Test
+    void leavesOtherExceptionsUnclassified() {
+        assertThat(RetryEngine.classify(new IllegalStateException("bug"))).isNull();
+        assertThat(RetryEngine.classify(new CircuitOpenException("open", 1000))).isNull();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Kind.class, names = {"READ_TIMEOUT", "IO_ERROR", "SERVER_ERROR", "INVALID_RESPONSE"})
+    void neverResendsASaleThatMayHaveBeenProcessed(Kind kind) {
+        assertThatThrownBy(() -> engine.execute(attempt -> {
+            calls.incrementAndGet();
+            throw new UpstreamFailureException(kind, kind.name(), null);
+        }, result -> null)).isInstanceOfSatisfying(UpstreamFailureException.class, e -> assertThat(e.getKind()).isEqualTo(kind));
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Kind.class, names = {"READ_TIMEOUT", "IO_ERROR", "SERVER_ERROR", "INVALID_RESPONSE"})
+    void neverResendsASaleThatMayHaveBeenProcessedOnTheAsyncPath(Kind kind) {
+        CompletableFuture<String> result = engine.executeAsync(attempt -> {
+            calls.incrementAndGet();
+            return CompletableFuture.failedFuture(new UpstreamFailureException(kind, kind.name(), null));
+        }, value -> null);
+
+        assertThatThrownBy(result::join).hasCauseInstanceOf(UpstreamFailureException.class);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void retriesAConnectFailureUntilItSucceeds() {
+        String result = engine.execute(attempt -> {
+            calls.incrementAndGet();
+            if (attempt < 2) throw new ResourceAccessException("I/O error", new ConnectException("refused"));
+            return "approved";
+        }, value -> null);
+
+        assertThat(result).isEqualTo("approved");
+        assertThat(calls).hasValue(3);
+    }
+
+    @Test
+    void retriesAGatewayErrorOnTheAsyncPath() {
+        CompletableFuture<String> result = engine.executeAsync(attempt -> {
+            calls.incrementAndGet();
+            if (attempt == 0) return CompletableFuture.failedFuture(HttpServerErrorException.create(HttpStatus.SERVICE_UNAVAILABLE, "", null, null, null));
+            return CompletableFuture.completedFuture("approved");
+        }, value -> null);
+
+        assertThat(result.join()).isEqualTo("approved");
+        assertThat(calls).hasValue(2);
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        assertThatThrownBy(() -> engine.execute(attempt -> {
+            calls.incrementAndGet();
+            throw new ResourceAccessException("I/O error", new ConnectException("refused"));
+        }, value -> null)).isInstanceOfSatisfying(UpstreamFailureException.class,
+            e -> assertThat(e.getKind()).isEqualTo(Kind.CONNECT_FAILURE));
+
+        assertThat(calls).hasValue(properties.getRetry().getMaxAttempts());
+    }
+
+    @Test
+    void retriesOnlyConfiguredErrorCodes() {
+        String transientCode = engine.execute(attempt -> calls.incrementAndGet() == 1 ? "5005" : "ok", value -> value.equals("ok") ? null : value);
+        assertThat(transientCode).isEqualTo("ok");
+        assertThat(calls).hasValue(2);
+
+        calls.set(0);
+        String permanentCode = engine.execute(attempt -> {
+            calls.incrementAndGet();
+            return "5000";
+        }, value -> value);
+        assertThat(permanentCode).isEqualTo("5000");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void sendsNothingOnceTheDeadlineHasPassed() throws InterruptedException {
+        Deadline deadline = Deadline.afterMillis(1);
+        Thread.sleep(5);
+
+        assertThatThrownBy(() -> engine.execute(attempt -> calls.incrementAndGet(), value -> null, deadline))
+            .isInstanceOf(DeadlineExceededException.class);
+        assertThat(calls).hasValue(0);
+    }
+
+    @Test
+    void passesCircuitRejectionsThroughWithoutRetrying() {
+        assertThatThrownBy(() -> engine.execute(attempt -> {
+            calls.incrementAndGet();
+            throw new CircuitOpenException("open", 1000);
+        }, value -> null)).isInstanceOf(CircuitOpenException.class);
+
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void everyUpstreamFailureIsABadGatewayTaggedWithItsKind() {
+        ApiExceptionHandler handler = new ApiExceptionHandler();
+
+        assertThat(handler.handleUpstreamFailure(new UpstreamFailureException(Kind.READ_TIMEOUT, "", null)).getStatusCode().value())
+            .isEqualTo(502);
+        assertThat(handler.handleUpstreamFailure(new UpstreamFailureException(Kind.READ_TIMEOUT, "", null)).getBody())
+            .containsEntry("code", "READ_TIMEOUT");
+        assertThat(handler.handleUpstreamFailure(new UpstreamFailureException(Kind.IO_ERROR, "", null)).getStatusCode().value())
+            .isEqualTo(502);
+        assertThat(handler.handleUpstreamFailure(new UpstreamFailureException(Kind.CONNECT_FAILURE, "", null)).getBody())
+            .containsEntry("code", "CONNECT_FAILURE");
+    }
+
+    private static Kind kindOf(Throwable e) {
+        UpstreamFailureException failure = RetryEngine.classify(e);
+        return failure != null ? failure.getKind() : null;
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.converge.service;
+
+import com.example.converge.exception.UpstreamFailureException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SaleMetricsTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final SaleMetrics metrics = new SaleMetrics(registry);
+
+    @Test
+    void recordsEachTagCombinationOnItsOwnTimer() {
+        metrics.stage(SaleMetrics.HTTP, 1_000, "ok");
+        metrics.stage(SaleMetrics.HTTP, 3_000, "ok");
+        metrics.stage(SaleMetrics.HTTP, 2_000, "read_timeout");
+        metrics.stage(SaleMetrics.ENCODE, 500, "ok");
+
+        assertThat(registry.get("converge.sale.stage").tag("stage", "http").tag("outcome", "ok").timer().count()).isEqualTo(2);
+        assertThat(registry.get("converge.sale.stage").tag("stage", "http").tag("outcome", "read_timeout").timer().count()).isEqualTo(1);
+        assertThat(registry.get("converge.sale.stage").tag("stage", "encode").timer().count()).isEqualTo(1);
+        assertThat(registry.get("converge.sale.stage").timers()).hasSize(3);
+    }
+
+    @Test
+    void recordsSaleDurationsPerMerchantAndOutcome() {
+        metrics.finish(metrics.start(), "default", "approved");
+        metrics.finish(metrics.start(), "default", "approved");
+        metrics.finish(metrics.start(), "acme", "approved");
+        metrics.finish(metrics.start(), "acme", "error_5000");
+
+        assertThat(registry.get("converge.sale.duration").tag("merchant", "default").timer().count()).isEqualTo(2);
+        assertThat(registry.get("converge.sale.duration").tag("merchant", "acme").timers()).hasSize(2);
+        assertThat(registry.get("converge.sale.in_flight").gauge().value()).isZero();
+    }
+
+    @Test
+    void countsFirstAttemptsAndRetriesApart() {
+        metrics.attempt(false);
+        metrics.attempt(true);
+        metrics.attempt(true);
+
+        assertThat(registry.get("converge.sale.attempts").tag("attempt", "first").counter().count()).isEqualTo(1);
+        assertThat(registry.get("converge.sale.attempts").tag("attempt", "retry").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void tellsIoFailuresApartFromOtherErrors() {
+        assertThat(SaleMetrics.outcome(new ResourceAccessException("I/O", new IOException("reset")))).isEqualTo("io_error");
+        assertThat(SaleMetrics.outcome(new IOException("reset"))).isEqualTo("io_error");
+        assertThat(SaleMetrics.outcome(new ResourceAccessException("I/O", new SocketTimeoutException()))).isEqualTo("timeout");
+        assertThat(SaleMetrics.outcome(new UpstreamFailureException(UpstreamFailureException.Kind.READ_TIMEOUT, "slow", null)))
+            .isEqualTo("read_timeout");
+        assertThat(SaleMetrics.outcome(new NullPointerException())).isEqualTo("error");
+        assertThat(SaleMetrics.outcome(new IllegalStateException("bug", new IllegalArgumentException()))).isEqualTo("error");
+    }
+}
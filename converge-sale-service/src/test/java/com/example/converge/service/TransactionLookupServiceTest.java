@@ -0,0 +1,164 @@
+package com.example.converge.service;
+
+import com.example.converge.codec.ConvergeResponseDecoder;
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.dto.response.SaleResponse;
+import com.example.converge.exception.UpstreamFailureException;
+import com.example.converge.merchant.MerchantAccount;
+import com.example.converge.merchant.MerchantRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TransactionLookupServiceTest {
+
+    private static final String EMPTY = "<txnlist><ssl_txn_count>0</ssl_txn_count></txnlist>";
+    private static final String APPROVED = "<txnlist><txn><ssl_txn_id>TXN-1</ssl_txn_id><ssl_result>0</ssl_result></txn></txnlist>";
+
+    private final ConvergeClient client = mock(ConvergeClient.class);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicInteger queries = new AtomicInteger();
+    private volatile String answer = EMPTY;
+    private ConvergeProperties properties;
+    private MerchantRegistry merchants;
+    private TransactionLookupService lookups;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        properties = new ConvergeProperties();
+        merchants = new MerchantRegistry(properties, registry);
+        lookups = new TransactionLookupService(client, new ConvergeResponseDecoder(), merchants, properties, registry);
+        when(client.execute(any(), any())).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            InputStream body = new ByteArrayInputStream(answer.getBytes(StandardCharsets.UTF_8));
+            return invocation.<Function<InputStream, Object>>getArgument(1).apply(body);
+        });
+    }
+
+    @Test
+    void answersRecordedSalesWithoutQueryingConverge() {
+        lookups.record(merchant(), "INV1", response("TXN-1", true));
+
+        assertThat(lookups.findByTransactionId(null, "TXN-1").getTransactionId()).isEqualTo("TXN-1");
+        assertThat(lookups.findByInvoice(null, "INV1").getTransactionId()).isEqualTo("TXN-1");
+        assertThat(queries).hasValue(0);
+    }
+
+    @Test
+    void anApprovalStaysTheAnswerForItsInvoice() {
+        lookups.record(merchant(), "INV1", response("TXN-1", true));
+        lookups.record(merchant(), "INV1", response("TXN-2", false));
+
+        assertThat(lookups.findByInvoice(null, "INV1").getTransactionId()).isEqualTo("TXN-1");
+        assertThat(lookups.findByTransactionId(null, "TXN-2").isApproved()).isFalse();
+    }
+
+    @Test
+    void aLaterAttemptReplacesAnEarlierDecline() {
+        lookups.record(merchant(), "INV1", response("TXN-1", false));
+        lookups.record(merchant(), "INV1", response("TXN-2", false));
+        assertThat(lookups.findByInvoice(null, "INV1").getTransactionId()).isEqualTo("TXN-2");
+
+        lookups.record(merchant(), "INV1", response("TXN-3", true));
+        assertThat(lookups.findByInvoice(null, "INV1").getTransactionId()).isEqualTo("TXN-3");
+        assertThat(queries).hasValue(0);
+    }
+
+    @Test
+    void readsAMissThroughOnceAndCachesWhatItFound() {
+        answer = APPROVED;
+
+        assertThat(lookups.findByTransactionId(null, "TXN-1").isApproved()).isTrue();
+        assertThat(lookups.findByTransactionId(null, "TXN-1").isApproved()).isTrue();
+
+        assertThat(queries).hasValue(1);
+    }
+
+    @Test
+    void remembersNotFoundUntilItsTtlExpires() throws InterruptedException {
+        properties.getLookup().setNotFoundTtlMs(50);
+        lookups = new TransactionLookupService(client, new ConvergeResponseDecoder(), merchants, properties, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 10; i++) assertThat(lookups.findByInvoice(null, "INV1")).isNull();
+        assertThat(queries).hasValue(1);
+
+        Thread.sleep(60);
+        answer = APPROVED;
+        assertThat(lookups.findByInvoice(null, "INV1").getTransactionId()).isEqualTo("TXN-1");
+        assertThat(queries).hasValue(2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void concurrentMissesShareOneQuery() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            queries.incrementAndGet();
+            entered.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            InputStream body = new ByteArrayInputStream(APPROVED.getBytes(StandardCharsets.UTF_8));
+            return invocation.<Function<InputStream, Object>>getArgument(1).apply(body);
+        }).when(client).execute(any(), any());
+
+        List<Thread> threads = new ArrayList<>();
+        List<CompletableFuture<SaleResponse>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            CompletableFuture<SaleResponse> result = new CompletableFuture<>();
+            results.add(result);
+            threads.add(new Thread(() -> result.complete(lookups.findByInvoice(null, "INV1"))));
+        }
+        threads.get(0).start();
+        assertThat(entered.await(10, TimeUnit.SECONDS)).isTrue();
+        for (Thread thread : threads.subList(1, threads.size())) thread.start();
+        // the others are parked on the first query once they are WAITING
+        for (int i = 0; i < 500 && threads.stream().skip(1).anyMatch(t -> t.getState() != Thread.State.WAITING); i++) Thread.sleep(10);
+        release.countDown();
+
+        for (CompletableFuture<SaleResponse> result : results) {
+            assertThat(result.get(10, TimeUnit.SECONDS).getTransactionId()).isEqualTo("TXN-1");
+        }
+        assertThat(queries).hasValue(1);
+    }
+
+    @Test
+    void aFailedQueryIsNotRememberedAsNotFound() {
+        answer = "<txn><errorCode>5000</errorCode><errorMessage>down</errorMessage></txn>";
+        assertThatThrownBy(() -> lookups.findByTransactionId(null, "TXN-1")).isInstanceOf(UpstreamFailureException.class);
+
+        answer = APPROVED;
+        assertThat(lookups.findByTransactionId(null, "TXN-1").getTransactionId()).isEqualTo("TXN-1");
+        assertThat(queries).hasValue(2);
+    }
+
+    private MerchantAccount merchant() {
+        return merchants.defaultMerchant();
+    }
+
+    private static SaleResponse response(String transactionId, boolean approved) {
+        SaleResponse response = new SaleResponse();
+        response.setTransactionId(transactionId);
+        response.setApproved(approved);
+        return response;
+    }
+}
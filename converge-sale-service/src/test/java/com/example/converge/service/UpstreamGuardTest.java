@@ -0,0 +1,191 @@
+package com.example.converge.service;
+
+import com.example.converge.config.ConvergeProperties;
+import com.example.converge.exception.CircuitOpenException;
+import com.example.converge.exception.UpstreamBusyException;
+import com.example.converge.exception.UpstreamFailureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.SocketTimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UpstreamGuardTest {
+
+    private static final long OPEN_MS = 50;
+
+    private ConvergeProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ConvergeProperties();
+        ConvergeProperties.CircuitBreaker breaker = properties.getCircuitBreaker();
+        breaker.setWindowSize(10);
+        breaker.setMinimumCalls(4);
+        breaker.setOpenMs(OPEN_MS);
+        breaker.setHalfOpenCalls(2);
+        properties.getLimiter().setEnabled(false);
+    }
+
+    @Test
+    void staysClosedUntilTheMinimumNumberOfCalls() {
+        UpstreamGuard guard = guard();
+        for (int i = 0; i < 3; i++) call(guard, true);
+
+        assertThat(guard.state()).isEqualTo(UpstreamGuard.State.CLOSED);
+    }
+
+    @Test
+    void opensWhenHalfTheWindowFailsAndFailsFast() {
+        UpstreamGuard guard = guard();
+        call(guard, false);
+        call(guard, true);
+        call(guard, false);
+        call(guard, true);
+
+        assertThat(guard.state()).isEqualTo(UpstreamGuard.State.OPEN);
+        assertThatThrownBy(guard::acquire).isInstanceOfSatisfying(CircuitOpenException.class,
+            e -> assertThat(e.getRetryAfterMs()).isBetween(1L, OPEN_MS));
+    }
+
+    @Test
+    void declinesCountAsAHealthyGateway() {
+        UpstreamGuard guard = guard();
+        call(guard, true);
+        for (int i = 0; i < 20; i++) call(guard, false);
+        call(guard, true);
+
+        assertThat(guard.state()).isEqualTo(UpstreamGuard.State.CLOSED);
+    }
+
+    @Test
+    void closesAgainAfterSuccessfulProbes() throws InterruptedException {
+        UpstreamGuard guard = opened();
+        Thread.sleep(OPEN_MS + 10);
+
+        UpstreamGuard.Permit first = guard.acquire();
+        UpstreamGuard.Permit second = guard.acquire();
+        assertThat(guard.state()).isEqualTo(UpstreamGuard.State.HALF_OPEN);
+        assertThatThrownBy(guard::acquire).as("only half-open-calls probes at a time").isInstanceOf(CircuitOpenException.class);
+        guard.release(first, false);
+        guard.release(second, false);
+
+        assertThat(guard.state()).isEqualTo(UpstreamGuard.State.CLOSED);
+        call(guard, false);
+    }
+
+    @Test
+    void reopensWhenAProbeFails() throws InterruptedException {
+        UpstreamGuard guard = opened();
+        Thread.sleep(OPEN_MS + 10);
+
+        call(guard, true);
+
+        assertThat(guard.state()).isEqualTo(UpstreamGuard.State.OPEN);
+        assertThatThrownBy(guard::acquire).isInstanceOf(CircuitOpenException.class);
+    }
+
+    @Test
+    void limitsConcurrentCallsAndBacksOffOnFailure() {
+        properties.getLimiter().setEnabled(true);
+        properties.getLimiter().setInitialLimit(4);
+        properties.getLimiter().setMinLimit(2);
+        properties.getCircuitBreaker().setEnabled(false);
+        UpstreamGuard guard = guard();
+
+        UpstreamGuard.Permit[] permits = new UpstreamGuard.Permit[4];
+        for (int i = 0; i < permits.length; i++) permits[i] = guard.acquire();
+        assertThatThrownBy(guard::acquire).isInstanceOf(UpstreamBusyException.class);
+
+        for (UpstreamGuard.Permit permit : permits) guard.release(permit, true);
+        assertThat(guard.limit()).isLessThan(4);
+        for (int i = 0; i < 50; i++) call(guard, true);
+        assertThat(guard.limit()).isEqualTo(2);
+        assertThat(guard.inFlight()).isZero();
+    }
+
+    @Test
+    void growsTheLimitOnlyWhileItIsUsed() {
+        properties.getLimiter().setEnabled(true);
+        properties.getLimiter().setInitialLimit(4);
+        properties.getLimiter().setMaxLimit(6);
+        properties.getLimiter().setLatencyTolerance(1e9); // in-memory calls jitter far more than their length
+        UpstreamGuard guard = guard();
+
+        for (int i = 0; i < 50; i++) call(guard, false);
+        assertThat(guard.limit()).as("one call at a time never uses half of the limit").isEqualTo(4);
+
+        for (int i = 0; i < 200; i++) {
+            UpstreamGuard.Permit a = guard.acquire();
+            UpstreamGuard.Permit b = guard.acquire();
+            guard.release(a, false);
+            guard.release(b, false);
+        }
+        assertThat(guard.limit()).isGreaterThan(4).isLessThanOrEqualTo(6);
+    }
+
+    @Test
+    void aCallAdmittedBeforeTheCircuitOpenedIsNotTakenForAProbe() throws InterruptedException {
+        UpstreamGuard guard = guard();
+        UpstreamGuard.Permit late = guard.acquire();
+        for (int i = 0; i < 4; i++) call(guard, true);
+        Thread.sleep(OPEN_MS + 10);
+
+        UpstreamGuard.Permit probe = guard.acquire();
+        guard.release(late, true);
+        assertThat(guard.state()).isEqualTo(UpstreamGuard.State.HALF_OPEN);
+
+        guard.release(probe, false);
+        call(guard, false);
+        assertThat(guard.state()).isEqualTo(UpstreamGuard.State.CLOSED);
+    }
+
+    @Test
+    void queriesOutsideTheLimitNeitherHoldASlotNorMoveTheLimit() throws InterruptedException {
+        properties.getLimiter().setEnabled(true);
+        properties.getLimiter().setInitialLimit(4);
+        properties.getLimiter().setMinLimit(2);
+        properties.getLimiter().setLatencyTolerance(1000); // above in-memory jitter, far below the query below
+        UpstreamGuard guard = guard();
+        for (int i = 0; i < 20; i++) call(guard, false);
+        double limit = guard.limit();
+
+        UpstreamGuard.Permit query = guard.acquireOutsideLimit();
+        assertThat(guard.inFlight()).isZero();
+        Thread.sleep(50); // thousands of times slower than the calls so far
+        guard.release(query, false);
+        for (int i = 0; i < 5; i++) call(guard, false);
+
+        assertThat(guard.limit()).isGreaterThanOrEqualTo(limit);
+    }
+
+    @Test
+    void countsOnlyGatewayMisbehaviourAsFailure() {
+        assertThat(UpstreamGuard.isUpstreamFailure(new ResourceAccessException("I/O", new SocketTimeoutException()))).isTrue();
+        assertThat(UpstreamGuard.isUpstreamFailure(HttpServerErrorException.create(HttpStatus.BAD_GATEWAY, "", null, null, null))).isTrue();
+        assertThat(UpstreamGuard.isUpstreamFailure(
+            new UpstreamFailureException(UpstreamFailureException.Kind.INVALID_RESPONSE, "bad xml", null))).isTrue();
+        assertThat(UpstreamGuard.isUpstreamFailure(new IllegalArgumentException("bad request"))).isFalse();
+    }
+
+    private UpstreamGuard opened() {
+        UpstreamGuard guard = guard();
+        for (int i = 0; i < 4; i++) call(guard, true);
+        assertThat(guard.state()).isEqualTo(UpstreamGuard.State.OPEN);
+        return guard;
+    }
+
+    private UpstreamGuard guard() {
+        return new UpstreamGuard(properties, new SimpleMeterRegistry());
+    }
+
+    private static void call(UpstreamGuard guard, boolean failure) {
+        guard.release(guard.acquire(), failure);
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.converge.validation;
+
+import com.example.converge.dto.request.SaleRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SaleRequestValidatorTest {
+
+    private static final String EXP_YEAR = String.valueOf(Year.now().getValue() + 5);
+    private static final String[] AMOUNTS = {"10.00", "0.01", "1", "1234567890123.45", "0", "0.00", "00.0", "-1", "1.234",
+        "1.", ".5", "abc", "12345678901234", "", "  ", null};
+    private static final String[] CURRENCIES = {"USD", "usd", "US", "USDD", "", " ", null};
+    private static final String[] CARDS = {"4111111111111111", "5555555555554444", "378282246310005", "4111111111111112",
+        "411111111111", "41111111111", "41111111111111111111", "4111 1111 1111 1111", "4111-1111-1111-1111", "abcdefghijklm",
+        "", " ", null};
+    private static final String[] MONTHS = {"01", "09", "10", "12", "00", "13", "1", "ab", "", null};
+    private static final String[] YEARS = {EXP_YEAR, "2099", "1999", "2100", "203", "20300", "abcd", "", null};
+    private static final String[] CVVS = {"123", "1234", "12", "12345", "12a", "", null};
+
+    private static ValidatorFactory factory;
+    private static Validator validator;
+
+    @BeforeAll
+    static void setUp() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        factory.close();
+    }
+
+    /** Same fields rejected as by the old per-field annotations, each with one of the messages they gave. */
+    @Test
+    void rejectsWhatTheFieldAnnotationsRejected() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            AnnotatedSaleRequest old = new AnnotatedSaleRequest();
+            old.merchantKey = random.nextInt(10) == 0 ? "m".repeat(65) : pick(random, new String[] {null, "acme", "m".repeat(64)});
+            old.amount = pick(random, AMOUNTS);
+            old.currency = pick(random, CURRENCIES);
+            old.cardNumber = pick(random, CARDS);
+            old.expMonth = pick(random, MONTHS);
+            old.expYear = pick(random, YEARS);
+            old.cvv = pick(random, CVVS);
+            old.invoiceNumber = text(random, 64);
+            old.cardHolderName = text(random, 96);
+            old.address = text(random, 128);
+            old.postalCode = text(random, 16);
+
+            Map<String, Set<String>> expected = new HashMap<>();
+            for (ConstraintViolation<AnnotatedSaleRequest> violation : validator.validate(old)) {
+                String field = violation.getPropertyPath().toString();
+                expected.computeIfAbsent(field.equals("luhnValid") ? "cardNumber" : field, f -> new HashSet<>()).add(violation.getMessage());
+            }
+            Map<String, String> actual = new HashMap<>();
+            for (ConstraintViolation<SaleRequest> violation : validator.validate(old.toSaleRequest())) {
+                assertThat(actual.put(violation.getPropertyPath().toString(), violation.getMessage())).as("one violation per field").isNull();
+            }
+
+            assertThat(actual.keySet()).as("rejected fields for %s", old).isEqualTo(expected.keySet());
+            actual.forEach((field, message) -> assertThat(expected.get(field)).as("%s message for %s", field, old).contains(message));
+        }
+    }
+
+    @Test
+    void rejectsACardWhoseExpiryMonthHasPassedEverywhere() {
+        LocalDate lastMonth = LocalDate.now(ZoneOffset.ofHours(-12)).minusMonths(1);
+        SaleRequest request = valid();
+        request.setExpMonth(String.format("%02d", lastMonth.getMonthValue()));
+        request.setExpYear(String.valueOf(lastMonth.getYear()));
+
+        assertThat(validator.validate(request)).singleElement().satisfies(violation -> {
+            assertThat(violation.getPropertyPath().toString()).isEqualTo("expYear");
+            assertThat(violation.getMessage()).isEqualTo(SaleRequestValidator.EXPIRED);
+        });
+    }
+
+    @Test
+    void acceptsACardInItsExpiryMonthOnTheEarliestTimeZone() {
+        LocalDate today = LocalDate.now(ZoneOffset.ofHours(-12));
+        SaleRequest request = valid();
+        request.setExpMonth(String.format("%02d", today.getMonthValue()));
+        request.setExpYear(String.valueOf(today.getYear()));
+
+        assertThat(validator.validate(request)).isEmpty();
+    }
+
+    @Test
+    void checksTheCardNumberInOnePass() {
+        assertThat(SaleRequestValidator.cardNumber("4111111111111111")).isNull();
+        assertThat(SaleRequestValidator.cardNumber("4111111111111112")).isEqualTo(SaleRequestValidator.LUHN);
+        assertThat(SaleRequestValidator.cardNumber("4111 1111 1111 1111")).isEqualTo(SaleRequestValidator.CARD_NUMBER);
+        assertThat(SaleRequestValidator.cardNumber(" ")).isEqualTo(SaleRequestValidator.NOT_BLANK);
+    }
+
+    private static SaleRequest valid() {
+        SaleRequest request = new SaleRequest();
+        request.setAmount("10.00");
+        request.setCurrency("USD");
+        request.setCardNumber("4111111111111111");
+        request.setExpMonth("12");
+        request.setExpYear(EXP_YEAR);
+        request.setCvv("123");
+        return request;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // null, or a string at or just over the limit
+    private static String text(Random random, int max) {
+        int roll = random.nextInt(4);
+        return roll == 0 ? null : "x".repeat(roll == 3 ? max + 1 : max);
+    }
+
+    /** SaleRequest's constraints as they were before {@link SaleRequestValidator} replaced them. */
+    static class AnnotatedSaleRequest {
+
+        @Size(max = 64)
+        String merchantKey;
+
+        @NotBlank
+        @Pattern(regexp = "^(?!0+(?:\\.0+)?$)\\d{1,13}(\\.\\d{1,2})?$", message = "amount must be > 0 with up to 2 decimals")
+        String amount;
+
+        @NotBlank
+        @Size(min = 3, max = 3)
+        String currency;
+
+        @NotBlank
+        @Pattern(regexp = "^\\d{12,19}$", message = "cardNumber must be 12-19 digits")
+        String cardNumber;
+
+        @NotBlank
+        @Pattern(regexp = "^(0[1-9]|1[0-2])$", message = "expMonth must be 01-12")
+        String expMonth;
+
+        @NotBlank
+        @Pattern(regexp = "^20\\d{2}$", message = "expYear must be 4-digit year >= 2000")
+        String expYear;
+
+        @NotBlank
+        @Pattern(regexp = "^\\d{3,4}$", message = "cvv must be 3 or 4 digits")
+        String cvv;
+
+        @Size(max = 64)
+        String invoiceNumber;
+
+        @Size(max = 96)
+        String cardHolderName;
+
+        @Size(max = 128)
+        String address;
+
+        @Size(max = 16)
+        String postalCode;
+
+        /** The old {@code @Luhn} constraint: blank passes, whitespace is skipped, anything else must be a digit. */
+        @AssertTrue(message = "invalid card number")
+        boolean isLuhnValid() {
+            if (cardNumber == null || cardNumber.isEmpty()) return true;
+            int sum = 0;
+            boolean alternate = false;
+            for (int i = cardNumber.length() - 1; i >= 0; i--) {
+                char c = cardNumber.charAt(i);
+                if (Character.isWhitespace(c)) continue;
+                if (c < '0' || c > '9') return false;
+                int n = c - '0';
+                if (alternate && (n *= 2) > 9) n -= 9;
+                sum += n;
+                alternate = !alternate;
+            }
+            return sum % 10 == 0;
+        }
+
+        SaleRequest toSaleRequest() {
+            SaleRequest request = new SaleRequest();
+            request.setMerchantKey(merchantKey);
+            request.setAmount(amount);
+            request.setCurrency(currency);
+            request.setCardNumber(cardNumber);
+            request.setExpMonth(expMonth);
+            request.setExpYear(expYear);
+            request.setCvv(cvv);
+            request.setInvoiceNumber(invoiceNumber);
+            request.setCardHolderName(cardHolderName);
+            request.setAddress(address);
+            request.setPostalCode(postalCode);
+            return request;
+        }
+
+        @Override
+        public String toString() {
+            return "amount=" + amount + " currency=" + currency + " card=" + cardNumber + " exp=" + expMonth + "/" + expYear
+                + " cvv=" + cvv;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.example.converge.simulator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stand-in for Converge {@code processxml.do}. It accepts the same {@code xmldata} form post and
+ * answers with approval, decline and {@code errorCode} XML in the shapes the service decodes.
+ * Latency, decline and error rates, stalls and HTTP 5xx are configurable:
+ *
+ * <pre>java -jar converge-simulator.jar --port=9099 --latency-median-ms=150 --latency-p99-ms=900
+ *     --decline-rate=0.05 --error-rate=0.01 --stall-rate=0.001 --stall-ms=30000 --server-error-rate=0</pre>
+ *
+ * Card 4000000000000002 is always declined. When {@code --merchant-id} is given, requests
+ * with other credentials get error 4025. Counters are served at {@code GET /sim/stats}.
+ */
+public final class ConvergeSimulator {
+
+    private static final DateTimeFormatter TXN_TIME = DateTimeFormatter.ofPattern("MM/dd/yyyy hh:mm:ss a", Locale.US);
+    private static final String DECLINE_CARD = "4000000000000002";
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+    private static final int LEDGER_SIZE = 10000;
+    private static final int TXNQUERY_PAGE = 1000;
+
+    private final int port;
+    private final int threads;
+    private final String merchantId;
+    private final LatencyModel latency;
+    private final double declineRate;
+    private final double errorRate;
+    private final String errorCode;
+    private final double stallRate;
+    private final long stallMs;
+    private final double serverErrorRate;
+    private final XMLInputFactory xmlInputFactory = XMLInputFactory.newFactory();
+    // the latest sale results, answered back by txnquery
+    private final ConcurrentLinkedDeque<String> ledger = new ConcurrentLinkedDeque<>();
+    // authorizations already completed, so a second cccomplete for one is refused
+    private final Set<String> completed = Collections.newSetFromMap(Collections.synchronizedMap(new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > LEDGER_SIZE;
+        }
+    }));
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder approvals = new LongAdder();
+    private final LongAdder declines = new LongAdder();
+    private final LongAdder completions = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder stalls = new LongAdder();
+
+    ConvergeSimulator(Args args) {
+        this.port = args.intValue("port", 9099);
+        this.threads = args.intValue("threads", 400);
+        this.merchantId = args.string("merchant-id", null);
+        this.latency = new LatencyModel(args.longValue("latency-median-ms", 150), args.longValue("latency-p99-ms", 900));
+        this.declineRate = args.doubleValue("decline-rate", 0.05);
+        this.errorRate = args.doubleValue("error-rate", 0.01);
+        this.errorCode = args.string("error-code", "5000");
+        this.stallRate = args.doubleValue("stall-rate", 0.0);
+        this.stallMs = args.longValue("stall-ms", 30000);
+        this.serverErrorRate = args.doubleValue("server-error-rate", 0.0);
+        xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    }
+
+    public static void main(String[] args) throws IOException {
+        ConvergeSimulator simulator = new ConvergeSimulator(new Args(args));
+        simulator.start();
+    }
+
+    void start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        // one thread per outstanding request: latency is simulated by sleeping, as a slow gateway holds the socket
+        server.setExecutor(Executors.newFixedThreadPool(threads));
+        server.createContext("/sim/stats", this::stats);
+        server.createContext("/", this::process);
+        server.start();
+        System.out.println("Converge simulator listening on http://localhost:" + port + "/VirtualMerchantDemo/processxml.do ("
+            + threads + " threads, decline " + declineRate + ", error " + errorRate + ", stall " + stallRate + ")");
+    }
+
+    private void process(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "text/plain", "POST only");
+                return;
+            }
+            requests.increment();
+            Map<String, String> txn = parseTxn(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (random.nextDouble() < stallRate) {
+                stalls.increment();
+                sleep(stallMs);
+            }
+            sleep(latency.sampleMs());
+            if (random.nextDouble() < serverErrorRate) {
+                serverErrors.increment();
+                respond(exchange, 500, "text/html", "<html><body>Internal Server Error</body></html>");
+                return;
+            }
+            respond(exchange, 200, "text/xml; charset=UTF-8", answer(txn, random));
+        }
+    }
+
+    private String answer(Map<String, String> txn, ThreadLocalRandom random) {
+        if (txn == null) return error("6042", "Invalid Request Format", "XML Syntax Error");
+        if (isBlank(txn.get("ssl_merchant_id"))) return error("4000", "VID Not Supplied", "The VirtualMerchant ID was not supplied in the authorization request.");
+        if (merchantId != null && !merchantId.equals(txn.get("ssl_merchant_id"))) {
+            return error("4025", "Invalid Credentials", "The credentials supplied in the authorization request are invalid.");
+        }
+        String type = txn.getOrDefault("ssl_transaction_type", "").toLowerCase(Locale.ROOT);
+        if (type.equals("binlookup")) return binLookup(txn.getOrDefault("ssl_card_number", ""));
+        if (type.equals("txnquery")) return txnQuery(txn.get("ssl_txn_id"), txn.get("ssl_invoice_number"));
+        if (type.equals("cccomplete")) return complete(txn.getOrDefault("ssl_txn_id", ""), txn.get("ssl_amount"));
+        if (!type.equals("ccsale") && !type.equals("ccauthonly")) {
+            return error("4014", "Not Permitted", "This terminal or user ID is not permitted to process this transaction type.");
+        }
+        String card = txn.getOrDefault("ssl_card_number", "");
+        if (!luhn(card)) return error("5000", "Credit Card Number Invalid", "The Credit Card Number supplied in the authorization request appears to be invalid.");
+        if (!txn.getOrDefault("ssl_exp_date", "").matches("(0[1-9]|1[0-2])\\d\\d")) {
+            return error("5001", "Exp Date Invalid", "The Credit Card Expiration Date supplied in the authorization request appears to be invalid.");
+        }
+        if (random.nextDouble() < errorRate) return error(errorCode, "Simulated Error", "Error injected by the simulator.");
+        boolean declined = DECLINE_CARD.equals(card) || random.nextDouble() < declineRate;
+        (declined ? declines : approvals).increment();
+        String result = result(txn, declined, random);
+        ledger.addLast(result);
+        if (ledger.size() > LEDGER_SIZE) ledger.pollFirst();
+        return XML_DECLARATION + result;
+    }
+
+    private static String result(Map<String, String> txn, boolean declined, ThreadLocalRandom random) {
+        String card = txn.get("ssl_card_number");
+        StringBuilder xml = new StringBuilder(768).append("<txn>");
+        element(xml, "ssl_issuer_response", declined ? "05" : "00");
+        element(xml, "ssl_card_number", card.substring(0, 2) + "*".repeat(card.length() - 6) + card.substring(card.length() - 4));
+        element(xml, "ssl_departure_date", "");
+        element(xml, "ssl_oar_data", "");
+        element(xml, "ssl_result", declined ? "1" : "0");
+        element(xml, "ssl_txn_id", String.format("%1$td%1$tm%1$tyA%2$02d-%3$S", LocalDateTime.now(), random.nextInt(100), UUID.randomUUID()));
+        element(xml, "ssl_avs_response", declined ? "" : "Y");
+        element(xml, "ssl_approval_code", declined ? "" : String.format("CVI%03d", random.nextInt(1000)));
+        element(xml, "ssl_amount", txn.get("ssl_amount"));
+        element(xml, "ssl_txn_time", LocalDateTime.now().format(TXN_TIME));
+        element(xml, "ssl_exp_date", txn.get("ssl_exp_date"));
+        element(xml, "ssl_card_short_description", card.startsWith("4") ? "VISA" : "MC");
+        element(xml, "ssl_invoice_number", txn.getOrDefault("ssl_invoice_number", ""));
+        element(xml, "ssl_card_type", "CREDITCARD");
+        element(xml, "ssl_transaction_type", txn.get("ssl_transaction_type").toUpperCase(Locale.ROOT));
+        element(xml, "ssl_cvv2_response", declined ? "" : "M");
+        element(xml, "ssl_result_message", declined ? "DECLINED" : "APPROVAL");
+        return xml.append("</txn>").toString();
+    }
+
+    // the search dates are not applied: everything still in the ledger that matches the
+    // transaction id and invoice number, when given, is listed, up to one page
+    private String txnQuery(String txnId, String invoiceNumber) {
+        StringBuilder rows = new StringBuilder(TXNQUERY_PAGE * 768);
+        int count = 0;
+        for (String txn : ledger) {
+            if (!isBlank(txnId) && !txn.contains("<ssl_txn_id>" + txnId + "</ssl_txn_id>")) continue;
+            if (!isBlank(invoiceNumber) && !txn.contains("<ssl_invoice_number>" + invoiceNumber + "</ssl_invoice_number>")) continue;
+            if (count++ == TXNQUERY_PAGE) break;
+            rows.append(txn);
+        }
+        StringBuilder xml = new StringBuilder(rows.length() + 128).append(XML_DECLARATION).append("<txnlist>");
+        element(xml, "ssl_txn_count", Integer.toString(Math.min(count, TXNQUERY_PAGE)));
+        return xml.append(rows).append("</txnlist>").toString();
+    }
+
+    // captures an approved ccauthonly from the ledger, for its full amount unless ssl_amount is given
+    private String complete(String txnId, String amount) {
+        String auth = null;
+        for (String txn : ledger) {
+            if (txn.contains("<ssl_txn_id>" + txnId + "</ssl_txn_id>")) auth = txn;
+        }
+        if (isBlank(txnId) || auth == null || !auth.contains("<ssl_transaction_type>CCAUTHONLY</ssl_transaction_type>")
+            || !auth.contains("<ssl_result>0</ssl_result>")) {
+            return error("5040", "Invalid Transaction ID", "The transaction ID is invalid for this transaction type.");
+        }
+        if (!completed.add(txnId)) return error("5042", "Transaction Already Completed", "The authorization has already been completed.");
+        completions.increment();
+        String result = auth.replace("<ssl_transaction_type>CCAUTHONLY</ssl_transaction_type>", "<ssl_transaction_type>CCCOMPLETE</ssl_transaction_type>")
+            .replaceFirst("<ssl_txn_time>[^<]*</ssl_txn_time>", "<ssl_txn_time>" + LocalDateTime.now().format(TXN_TIME) + "</ssl_txn_time>");
+        if (!isBlank(amount)) result = result.replaceFirst("<ssl_amount>[^<]*</ssl_amount>", "<ssl_amount>" + amount + "</ssl_amount>");
+        // txnquery lists the authorization as completed from now on
+        if (ledger.removeLastOccurrence(auth)) ledger.addLast(result);
+        return XML_DECLARATION + result;
+    }
+
+    // deterministic per BIN: the 8th digit picks debit (even) and prepaid (9)
+    private String binLookup(String card) {
+        if (card.length() < 12 || !luhn(card)) return error("5000", "Credit Card Number Invalid", "The Credit Card Number supplied in the authorization request appears to be invalid.");
+        int digit = card.charAt(7) - '0';
+        StringBuilder xml = new StringBuilder(256).append("<?xml version=\"1.0\" encoding=\"UTF-8\"?><txn>");
+        element(xml, "cardNumber", card.substring(0, 8) + "*".repeat(card.length() - 12) + card.substring(card.length() - 4));
+        element(xml, "fundingSource", digit % 2 == 0 ? "D" : "C");
+        element(xml, "debit", digit % 2 == 0 ? "Y" : "N");
+        element(xml, "prepaidSupport", digit == 9 ? "Y" : "N");
+        element(xml, "CountryCode", "USA");
+        return xml.append("</txn>").toString();
+    }
+
+    private String error(String code, String name, String message) {
+        errors.increment();
+        StringBuilder xml = new StringBuilder(256).append("<?xml version=\"1.0\" encoding=\"UTF-8\"?><txn>");
+        element(xml, "errorCode", code);
+        element(xml, "errorName", name);
+        element(xml, "errorMessage", message);
+        return xml.append("</txn>").toString();
+    }
+
+    private static void element(StringBuilder xml, String name, String value) {
+        xml.append('<').append(name).append('>');
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '<' -> xml.append("&lt;");
+                    case '>' -> xml.append("&gt;");
+                    case '&' -> xml.append("&amp;");
+                    default -> xml.append(c);
+                }
+            }
+        }
+        xml.append("</").append(name).append('>');
+    }
+
+    /** Child elements of the posted {@code <txn>}, or null when the body is not a readable xmldata form. */
+    private Map<String, String> parseTxn(String form) {
+        String xmldata = null;
+        for (String pair : form.split("&")) {
+            if (pair.startsWith("xmldata=")) xmldata = URLDecoder.decode(pair.substring(8), StandardCharsets.UTF_8);
+        }
+        if (xmldata == null) return null;
+        Map<String, String> fields = new HashMap<>();
+        try {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(new StringReader(xmldata));
+            int depth = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT && ++depth == 2) {
+                    fields.put(reader.getLocalName().toLowerCase(Locale.ROOT), reader.getElementText().trim()); // ssl_merchant_ID
+                    depth--;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+            reader.close();
+        } catch (XMLStreamException e) {
+            return null;
+        }
+        return fields;
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            respond(exchange, 200, "text/plain", "requests " + requests.sum() + "\napprovals " + approvals.sum()
+                + "\ndeclines " + declines.sum() + "\ncompletions " + completions.sum() + "\nerrors " + errors.sum() + "\nserver_errors " + serverErrors.sum()
+                + "\nstalls " + stalls.sum() + "\n");
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static boolean luhn(String card) {
+        if (card.length() < 12 || card.length() > 19) return false;
+        int sum = 0;
+        for (int i = card.length() - 1, pos = 0; i >= 0; i--, pos++) {
+            char c = card.charAt(i);
+            if (c < '0' || c > '9') return false;
+            int n = c - '0';
+            if ((pos & 1) == 1 && (n *= 2) > 9) n -= 9;
+            sum += n;
+        }
+        return sum % 10 == 0;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
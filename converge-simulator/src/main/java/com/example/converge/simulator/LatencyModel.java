@@ -0,0 +1,25 @@
+package com.example.converge.simulator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Log-normal gateway latency fitted to a median and a p99, which is roughly how card
+ * authorisation times are distributed: most are fast, and there is a long right tail.
+ */
+final class LatencyModel {
+
+    private static final double Z_99 = 2.326;
+
+    private final double mu;
+    private final double sigma;
+
+    LatencyModel(long medianMs, long p99Ms) {
+        if (medianMs <= 0 || p99Ms < medianMs) throw new IllegalArgumentException("Need 0 < median <= p99");
+        this.mu = Math.log(medianMs);
+        this.sigma = Math.log((double) p99Ms / medianMs) / Z_99;
+    }
+
+    long sampleMs() {
+        return Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.converge.simulator;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load against the sale endpoint. Requests go out on a fixed schedule whether or not
+ * earlier ones have returned, and latency is measured from the scheduled send time. A stalled
+ * service therefore shows up in the percentiles instead of quietly lowering the offered load.
+ * Several rates can be given to walk up to the saturation point:
+ *
+ * <pre>java -cp converge-simulator.jar com.example.converge.simulator.LoadGenerator
+ *     --url=http://localhost:8080/api/v1/payments/sale --rps=100,200,400,800 --duration-s=30 --warmup-s=5</pre>
+ */
+public final class LoadGenerator {
+
+    private static final String BODY = "{\"amount\":\"%d.%02d\",\"currency\":\"USD\",\"cardNumber\":\"%s\",\"expMonth\":\"12\","
+        + "\"expYear\":\"2030\",\"cvv\":\"123\",\"invoiceNumber\":\"%s\",\"cardHolderName\":\"Load Test\",\"postalCode\":\"12345\"}";
+
+    private final URI url;
+    private final int[] rates;
+    private final long durationS;
+    private final long warmupS;
+    private final int maxInFlight;
+    private final double declineShare;
+    private final Duration timeout;
+    private final HttpClient client;
+    private final String runId = Integer.toHexString(ThreadLocalRandom.current().nextInt(0x100000, 0xFFFFFF)).toUpperCase(Locale.ROOT);
+    private final AtomicLong sequence = new AtomicLong();
+
+    LoadGenerator(Args args) {
+        this.url = URI.create(args.string("url", "http://localhost:8080/api/v1/payments/sale"));
+        this.rates = Arrays.stream(args.string("rps", "100").split(",")).mapToInt(r -> Integer.parseInt(r.trim())).toArray();
+        this.durationS = args.longValue("duration-s", 30);
+        this.warmupS = args.longValue("warmup-s", 5);
+        this.maxInFlight = args.intValue("max-in-flight", 5000);
+        this.declineShare = args.doubleValue("decline-share", 0.0);
+        this.timeout = Duration.ofSeconds(args.longValue("timeout-s", 30));
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(5)).build();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator(new Args(args));
+        generator.run();
+    }
+
+    void run() throws InterruptedException {
+        System.out.printf("Target %s, %ds per step after %ds warm-up, at most %d in flight%n", url, durationS, warmupS, maxInFlight);
+        System.out.println(Step.HEADER);
+        for (int rps : rates) {
+            if (warmupS > 0) step(rps, warmupS);
+            System.out.println(step(rps, durationS));
+        }
+    }
+
+    private Step step(int rps, long seconds) throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rps;
+        int total = (int) (rps * seconds);
+        Step step = new Step(rps, total);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long scheduled = start + i * interval;
+            long wait;
+            while ((wait = scheduled - System.nanoTime()) > 0) LockSupport.parkNanos(wait);
+            if (!inFlight.tryAcquire()) {
+                step.dropped.increment();
+                continue;
+            }
+            client.sendAsync(request(), HttpResponse.BodyHandlers.discarding()).whenComplete((response, ex) -> {
+                step.record(System.nanoTime() - scheduled, response != null ? response.statusCode() : -1, start);
+                inFlight.release();
+            });
+        }
+        if (!inFlight.tryAcquire(maxInFlight, timeout.toMillis() + 1000, TimeUnit.MILLISECONDS)) {
+            System.err.println("Some requests were still outstanding after the timeout");
+        }
+        return step;
+    }
+
+    private HttpRequest request() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String card = random.nextDouble() < declineShare ? "4000000000000002" : "4111111111111111";
+        // a fresh invoice per request so idempotency replays never short-circuit the upstream call
+        String body = String.format(BODY, random.nextInt(1, 500), random.nextInt(100), card, "LG" + runId + "-" + sequence.incrementAndGet());
+        return HttpRequest.newBuilder(url)
+            .timeout(timeout)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+    }
+
+    private static final class Step {
+
+        static final String HEADER = String.format("%8s %9s %8s %7s %7s %7s %7s %9s %9s %9s %9s %9s",
+            "rps", "achieved", "2xx", "4xx", "5xx", "failed", "dropped", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        final int rps;
+        final long[] latencies;
+        final AtomicInteger recorded = new AtomicInteger();
+        final LongAdder ok = new LongAdder();
+        final LongAdder clientErrors = new LongAdder();
+        final LongAdder serverErrors = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final AtomicLong lastCompletion = new AtomicLong();
+
+        Step(int rps, int total) {
+            this.rps = rps;
+            this.latencies = new long[total];
+        }
+
+        void record(long latencyNanos, int status, long start) {
+            latencies[recorded.getAndIncrement()] = latencyNanos;
+            if (status >= 200 && status < 300) ok.increment();
+            else if (status >= 400 && status < 500) clientErrors.increment();
+            else if (status >= 500) serverErrors.increment();
+            else failed.increment();
+            lastCompletion.accumulateAndGet(System.nanoTime() - start, Math::max);
+        }
+
+        @Override
+        public String toString() {
+            int n = recorded.get();
+            long[] sorted = Arrays.copyOf(latencies, n);
+            Arrays.sort(sorted);
+            double seconds = lastCompletion.get() / 1e9;
+            return String.format("%8d %9.1f %8d %7d %7d %7d %7d %9.1f %9.1f %9.1f %9.1f %9.1f", rps,
+                seconds > 0 ? ok.sum() / seconds : 0.0, ok.sum(), clientErrors.sum(), serverErrors.sum(), failed.sum(),
+                dropped.sum(), percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), n > 0 ? sorted[n - 1] / 1e6 : 0.0);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) return 0.0;
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}